@@ -0,0 +1,431 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.concurrent;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.airlift.stats.CounterStat;
+import io.airlift.stats.DistributionStat;
+import io.airlift.stats.TimeStat;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Coalesces items added from many threads into batches for an asynchronous
+ * batch function, and completes a future per item with its result.
+ * <p>
+ * A batch is flushed when it reaches maxBatchSize items or maxBatchWeight
+ * total weight, or when its oldest item has waited maxDelay. At most
+ * maxInFlightBatches batches run at once; while that many are running, items
+ * accumulate in the buffer and full batches are flushed as running batches
+ * complete. When maxBufferedItems items are already buffered, new items fail
+ * immediately with a {@link RejectedExecutionException}.
+ * <p>
+ * The batch function must return one result per item, in order. It is called
+ * on the thread that triggered the flush, so it should not block.
+ */
+@ThreadSafe
+public class Batcher<T, R>
+        implements Closeable
+{
+    public enum FlushCause
+    {
+        SIZE, WEIGHT, DELAY, CLOSE
+    }
+
+    private final int maxBatchSize;
+    private final long maxBatchWeight;
+    private final ToLongFunction<? super T> weigher;
+    private final long maxDelayNanos;
+    private final int maxInFlightBatches;
+    private final int maxBufferedItems;
+    private final ScheduledExecutorService scheduler;
+    private final Function<List<T>, ListenableFuture<List<R>>> batchFunction;
+
+    // adding is lock free; draining happens under the lock
+    private final Queue<Item<T, R>> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger bufferedItems = new AtomicInteger();
+    private final AtomicLong bufferedWeight = new AtomicLong();
+    private final AtomicBoolean delayScheduled = new AtomicBoolean();
+    // flush requests not yet handled; only the thread that raised it from zero drains
+    private final AtomicInteger flushRequests = new AtomicInteger();
+
+    @GuardedBy("this")
+    private int inFlightBatches;
+    // the delay expired while the in-flight limit was reached
+    @GuardedBy("this")
+    private boolean delayExpired;
+    private volatile boolean closed;
+
+    private final DistributionStat batchSize = new DistributionStat();
+    private final DistributionStat batchWeight = new DistributionStat();
+    private final TimeStat batchLatency = new TimeStat(MILLISECONDS);
+    private final TimeStat itemLatency = new TimeStat(MILLISECONDS);
+    private final CounterStat sizeFlushes = new CounterStat();
+    private final CounterStat weightFlushes = new CounterStat();
+    private final CounterStat delayFlushes = new CounterStat();
+    private final CounterStat closeFlushes = new CounterStat();
+    private final CounterStat rejectedItems = new CounterStat();
+
+    /**
+     * @param weigher weight of an item, such as its size in bytes
+     * @param scheduler schedules the max delay flushes; a {@link HashedWheelTimer} works well
+     */
+    public Batcher(
+            int maxBatchSize,
+            long maxBatchWeight,
+            ToLongFunction<? super T> weigher,
+            Duration maxDelay,
+            int maxInFlightBatches,
+            int maxBufferedItems,
+            ScheduledExecutorService scheduler,
+            Function<List<T>, ListenableFuture<List<R>>> batchFunction)
+    {
+        checkArgument(maxBatchSize > 0, "maxBatchSize must be positive");
+        checkArgument(maxBatchWeight > 0, "maxBatchWeight must be positive");
+        requireNonNull(maxDelay, "maxDelay is null");
+        checkArgument(maxInFlightBatches > 0, "maxInFlightBatches must be positive");
+        checkArgument(maxBufferedItems >= maxBatchSize, "maxBufferedItems is less than maxBatchSize");
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchWeight = maxBatchWeight;
+        this.weigher = requireNonNull(weigher, "weigher is null");
+        this.maxDelayNanos = maxDelay.roundTo(NANOSECONDS);
+        this.maxInFlightBatches = maxInFlightBatches;
+        this.maxBufferedItems = maxBufferedItems;
+        this.scheduler = requireNonNull(scheduler, "scheduler is null");
+        this.batchFunction = requireNonNull(batchFunction, "batchFunction is null");
+    }
+
+    /**
+     * Adds an item to the next batch. The returned future completes with the
+     * item's result, or fails with the batch's failure.
+     */
+    public ListenableFuture<R> add(T item)
+    {
+        requireNonNull(item, "item is null");
+        if (closed) {
+            rejectedItems.update(1);
+            return Futures.immediateFailedFuture(new RejectedExecutionException("Batcher is closed"));
+        }
+        long weight = weigher.applyAsLong(item);
+        checkArgument(weight >= 0, "weight is negative");
+
+        int items = bufferedItems.incrementAndGet();
+        if (items > maxBufferedItems) {
+            bufferedItems.decrementAndGet();
+            rejectedItems.update(1);
+            return Futures.immediateFailedFuture(new RejectedExecutionException(format("Buffer is full: %s items waiting", maxBufferedItems)));
+        }
+        Item<T, R> entry = new Item<>(item, weight);
+        long totalWeight = bufferedWeight.addAndGet(weight);
+        buffer.add(entry);
+
+        // re-check closed, as close() may have drained the buffer before the item was added
+        if (closed || items >= maxBatchSize || totalWeight >= maxBatchWeight) {
+            flush();
+        }
+        else {
+            scheduleDelayFlush();
+        }
+        return entry.future;
+    }
+
+    /**
+     * Flushes the buffered items and rejects new ones. Batches are still bound
+     * by maxInFlightBatches, so some may be sent after this method returns.
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+        flush();
+    }
+
+    private void scheduleDelayFlush()
+    {
+        if (bufferedItems.get() > 0 && !closed && delayScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(() -> {
+                delayScheduled.set(false);
+                synchronized (this) {
+                    delayExpired = true;
+                }
+                flush();
+            }, maxDelayNanos, NANOSECONDS);
+        }
+    }
+
+    /**
+     * Drains on this thread unless another thread is already draining, in which
+     * case that thread drains again. Batches that complete while being sent
+     * request a flush, so this loops instead of recursing.
+     */
+    private void flush()
+    {
+        if (flushRequests.getAndIncrement() != 0) {
+            return;
+        }
+        int requests = 1;
+        do {
+            drain();
+            requests = flushRequests.addAndGet(-requests);
+        }
+        while (requests != 0);
+    }
+
+    private void drain()
+    {
+        while (true) {
+            List<Item<T, R>> batch;
+            long weight = 0;
+            FlushCause cause;
+            synchronized (this) {
+                if (inFlightBatches >= maxInFlightBatches || buffer.isEmpty()) {
+                    break;
+                }
+                if (bufferedItems.get() >= maxBatchSize) {
+                    cause = FlushCause.SIZE;
+                }
+                else if (bufferedWeight.get() >= maxBatchWeight) {
+                    cause = FlushCause.WEIGHT;
+                }
+                else if (delayExpired) {
+                    cause = FlushCause.DELAY;
+                }
+                else if (closed) {
+                    cause = FlushCause.CLOSE;
+                }
+                else {
+                    break;
+                }
+                delayExpired = false;
+
+                // only one thread drains, so the head cannot change between peek and poll
+                ImmutableList.Builder<Item<T, R>> builder = ImmutableList.builder();
+                int size = 0;
+                while (size < maxBatchSize) {
+                    Item<T, R> item = buffer.peek();
+                    if (item == null || (size > 0 && weight + item.weight > maxBatchWeight)) {
+                        break;
+                    }
+                    buffer.poll();
+                    weight += item.weight;
+                    size++;
+                    builder.add(item);
+                }
+                batch = builder.build();
+                bufferedItems.addAndGet(-size);
+                bufferedWeight.addAndGet(-weight);
+                inFlightBatches++;
+            }
+            send(batch, weight, cause);
+        }
+        scheduleDelayFlush();
+    }
+
+    private void send(List<Item<T, R>> batch, long weight, FlushCause cause)
+    {
+        counterFor(cause).update(1);
+        batchSize.add(batch.size());
+        batchWeight.add(weight);
+
+        ImmutableList.Builder<T> items = ImmutableList.builder();
+        for (Item<T, R> item : batch) {
+            items.add(item.item);
+        }
+
+        long start = System.nanoTime();
+        ListenableFuture<List<R>> results;
+        try {
+            results = requireNonNull(batchFunction.apply(items.build()), "batchFunction returned null");
+        }
+        catch (Throwable t) {
+            results = Futures.immediateFailedFuture(t);
+        }
+
+        Futures.addCallback(results, new FutureCallback<List<R>>()
+        {
+            @Override
+            public void onSuccess(List<R> results)
+            {
+                if (results == null || results.size() != batch.size()) {
+                    onFailure(new IllegalStateException(format("batchFunction returned %s results for %s items", results == null ? null : results.size(), batch.size())));
+                    return;
+                }
+                complete();
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).future.set(results.get(i));
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t)
+            {
+                complete();
+                for (Item<T, R> item : batch) {
+                    item.future.setException(t);
+                }
+            }
+
+            private void complete()
+            {
+                long now = System.nanoTime();
+                batchLatency.add(now - start, NANOSECONDS);
+                for (Item<T, R> item : batch) {
+                    itemLatency.add(now - item.addedNanos, NANOSECONDS);
+                }
+                synchronized (Batcher.this) {
+                    inFlightBatches--;
+                }
+                // the futures are completed after this, so callbacks see a free slot
+                flush();
+            }
+        }, directExecutor());
+    }
+
+    private CounterStat counterFor(FlushCause cause)
+    {
+        switch (cause) {
+            case SIZE:
+                return sizeFlushes;
+            case WEIGHT:
+                return weightFlushes;
+            case DELAY:
+                return delayFlushes;
+            case CLOSE:
+                return closeFlushes;
+        }
+        throw new AssertionError("Unknown cause " + cause);
+    }
+
+    @Managed
+    public int getBufferedItems()
+    {
+        return bufferedItems.get();
+    }
+
+    @Managed
+    public long getBufferedWeight()
+    {
+        return bufferedWeight.get();
+    }
+
+    @Managed
+    public synchronized int getInFlightBatches()
+    {
+        return inFlightBatches;
+    }
+
+    @Managed
+    @Nested
+    public DistributionStat getBatchSize()
+    {
+        return batchSize;
+    }
+
+    @Managed
+    @Nested
+    public DistributionStat getBatchWeight()
+    {
+        return batchWeight;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getBatchLatency()
+    {
+        return batchLatency;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getItemLatency()
+    {
+        return itemLatency;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getSizeFlushes()
+    {
+        return sizeFlushes;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getWeightFlushes()
+    {
+        return weightFlushes;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getDelayFlushes()
+    {
+        return delayFlushes;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getCloseFlushes()
+    {
+        return closeFlushes;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRejectedItems()
+    {
+        return rejectedItems;
+    }
+
+    private static class Item<T, R>
+    {
+        private final T item;
+        private final long weight;
+        private final long addedNanos = System.nanoTime();
+        private final SettableFuture<R> future = SettableFuture.create();
+
+        public Item(T item, long weight)
+        {
+            this.item = item;
+            this.weight = weight;
+        }
+    }
+}
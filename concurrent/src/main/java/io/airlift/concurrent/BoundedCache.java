@@ -0,0 +1,442 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.concurrent;
+
+import com.google.common.cache.Weigher;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A bounded loading cache shared by all threads, replacing the per-thread
+ * copies of {@link ThreadLocalCache}. Values must not be null.
+ * <p>
+ * Entries are split across lock-striped segments. Each segment uses the
+ * W-TinyLFU policy: new entries enter a small LRU window, and an entry leaving
+ * the window is admitted to the main segmented LRU only if it has been used
+ * more often recently than the entry it would evict, as estimated by a
+ * {@link FrequencySketch}. This keeps popular keys cached through scans of
+ * one-off keys.
+ * <p>
+ * The loader runs outside the segment lock, so concurrent misses on the same
+ * key may load it more than once; the first value stored wins.
+ *
+ * @param <K> cache key type
+ * @param <V> cache value type
+ */
+@ThreadSafe
+public final class BoundedCache<K, V>
+{
+    private static final int MAX_SEGMENTS = 16;
+    private static final long MIN_SEGMENT_WEIGHT = 64;
+    private static final Weigher<Object, Object> UNIT_WEIGHER = (key, value) -> 1;
+
+    private final Segment<K, V>[] segments;
+    private final Function<K, V> loader;
+    private final Weigher<? super K, ? super V> weigher;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BoundedCache(long maxSize, Function<K, V> loader)
+    {
+        this(maxSize, UNIT_WEIGHER, loader);
+    }
+
+    /**
+     * @param maxWeight maximum total weight of the cached entries
+     * @param weigher weight of an entry; must not be negative
+     */
+    @SuppressWarnings("unchecked")
+    public BoundedCache(long maxWeight, Weigher<? super K, ? super V> weigher, Function<K, V> loader)
+    {
+        checkArgument(maxWeight > 0, "max weight must be greater than zero");
+        this.weigher = requireNonNull(weigher, "weigher is null");
+        this.loader = requireNonNull(loader, "loader is null");
+
+        // small caches get a single segment so the policy sees all keys
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && maxWeight / (segmentCount * 2) >= MIN_SEGMENT_WEIGHT) {
+            segmentCount *= 2;
+        }
+        segments = new Segment[segmentCount];
+        long segmentWeight = (maxWeight + segmentCount - 1) / segmentCount;
+        boolean weighted = weigher != UNIT_WEIGHER;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(segmentWeight, weighted, evictions);
+        }
+    }
+
+    public V get(K key)
+    {
+        requireNonNull(key, "key is null");
+        Segment<K, V> segment = segmentFor(key);
+        V value = segment.get(key);
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+        misses.increment();
+
+        value = requireNonNull(loader.apply(key), "loader returned null value");
+        int weight = weigher.weigh(key, value);
+        checkState(weight >= 0, "weigher returned negative weight");
+        return segment.putIfAbsent(key, value, weight);
+    }
+
+    public V getIfPresent(K key)
+    {
+        requireNonNull(key, "key is null");
+        V value = segmentFor(key).get(key);
+        if (value != null) {
+            hits.increment();
+        }
+        else {
+            misses.increment();
+        }
+        return value;
+    }
+
+    public void invalidateAll()
+    {
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Managed
+    public long getSize()
+    {
+        long size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @Managed
+    public long getWeightedSize()
+    {
+        long weight = 0;
+        for (Segment<K, V> segment : segments) {
+            weight += segment.weight();
+        }
+        return weight;
+    }
+
+    @Managed
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    @Managed
+    public long getMissCount()
+    {
+        return misses.sum();
+    }
+
+    @Managed
+    public long getEvictionCount()
+    {
+        return evictions.sum();
+    }
+
+    @Managed
+    public double getHitRate()
+    {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 1.0 : (double) hitCount / total;
+    }
+
+    private Segment<K, V> segmentFor(Object key)
+    {
+        // high bits, so keys within a segment still spread over the segment's hash table
+        int hash = key.hashCode() * 0x9E3779B9;
+        return segments[(hash >>> 28) & (segments.length - 1)];
+    }
+
+    private enum Region
+    {
+        WINDOW, PROBATION, PROTECTED
+    }
+
+    private static class Segment<K, V>
+    {
+        private final long windowMaxWeight;
+        private final long mainMaxWeight;
+        private final long protectedMaxWeight;
+        private final boolean weighted;
+        private final LongAdder evictions;
+
+        @GuardedBy("this")
+        private final Map<K, Node<K, V>> entries = new HashMap<>();
+        @GuardedBy("this")
+        private final FrequencySketch sketch;
+        @GuardedBy("this")
+        private final AccessOrder<K, V> window = new AccessOrder<>();
+        @GuardedBy("this")
+        private final AccessOrder<K, V> probation = new AccessOrder<>();
+        @GuardedBy("this")
+        private final AccessOrder<K, V> protectedOrder = new AccessOrder<>();
+        @GuardedBy("this")
+        private long windowWeight;
+        @GuardedBy("this")
+        private long mainWeight;
+        @GuardedBy("this")
+        private long protectedWeight;
+
+        public Segment(long maxWeight, boolean weighted, LongAdder evictions)
+        {
+            // 1% window, and 80% of the main space protected
+            this.windowMaxWeight = Math.max(1, maxWeight / 100);
+            this.mainMaxWeight = Math.max(1, maxWeight - windowMaxWeight);
+            this.protectedMaxWeight = mainMaxWeight * 8 / 10;
+            // the sketch tracks entries, not weight; without a weigher the segment
+            // holds at most maxWeight entries, otherwise the count is only known as
+            // entries are added, so the sketch grows with it
+            this.weighted = weighted;
+            this.sketch = new FrequencySketch(weighted ? 1 : maxWeight);
+            this.evictions = evictions;
+        }
+
+        public synchronized V get(K key)
+        {
+            sketch.increment(key);
+            Node<K, V> node = entries.get(key);
+            if (node == null) {
+                return null;
+            }
+            onAccess(node);
+            return node.value;
+        }
+
+        public synchronized V putIfAbsent(K key, V value, int weight)
+        {
+            Node<K, V> existing = entries.get(key);
+            if (existing != null) {
+                return existing.value;
+            }
+            Node<K, V> node = new Node<>(key, value, weight);
+            entries.put(key, node);
+            if (weighted) {
+                sketch.ensureCapacity(entries.size());
+            }
+            node.region = Region.WINDOW;
+            window.addLast(node);
+            windowWeight += weight;
+            evictFromWindow();
+            return value;
+        }
+
+        public synchronized void clear()
+        {
+            entries.clear();
+            window.clear();
+            probation.clear();
+            protectedOrder.clear();
+            windowWeight = 0;
+            mainWeight = 0;
+            protectedWeight = 0;
+        }
+
+        public synchronized int size()
+        {
+            return entries.size();
+        }
+
+        public synchronized long weight()
+        {
+            return windowWeight + mainWeight;
+        }
+
+        @GuardedBy("this")
+        private void onAccess(Node<K, V> node)
+        {
+            switch (node.region) {
+                case WINDOW:
+                    window.moveToLast(node);
+                    break;
+                case PROBATION:
+                    probation.remove(node);
+                    node.region = Region.PROTECTED;
+                    protectedOrder.addLast(node);
+                    protectedWeight += node.weight;
+                    // demote the least recently used protected entries
+                    while (protectedWeight > protectedMaxWeight) {
+                        Node<K, V> demoted = protectedOrder.removeFirst();
+                        protectedWeight -= demoted.weight;
+                        demoted.region = Region.PROBATION;
+                        probation.addLast(demoted);
+                    }
+                    break;
+                case PROTECTED:
+                    protectedOrder.moveToLast(node);
+                    break;
+            }
+        }
+
+        @GuardedBy("this")
+        private void evictFromWindow()
+        {
+            while (windowWeight > windowMaxWeight) {
+                Node<K, V> candidate = window.removeFirst();
+                windowWeight -= candidate.weight;
+                admit(candidate);
+            }
+        }
+
+        @GuardedBy("this")
+        private void admit(Node<K, V> candidate)
+        {
+            if (candidate.weight > mainMaxWeight) {
+                evict(candidate);
+                return;
+            }
+            int candidateFrequency = sketch.frequency(candidate.key);
+            while (mainWeight + candidate.weight > mainMaxWeight) {
+                Node<K, V> victim = probation.isEmpty() ? protectedOrder.first() : probation.first();
+                if (candidateFrequency <= sketch.frequency(victim.key)) {
+                    evict(candidate);
+                    return;
+                }
+                removeFromMain(victim);
+                evict(victim);
+            }
+            candidate.region = Region.PROBATION;
+            probation.addLast(candidate);
+            mainWeight += candidate.weight;
+        }
+
+        @GuardedBy("this")
+        private void removeFromMain(Node<K, V> node)
+        {
+            if (node.region == Region.PROTECTED) {
+                protectedOrder.remove(node);
+                protectedWeight -= node.weight;
+            }
+            else {
+                probation.remove(node);
+            }
+            mainWeight -= node.weight;
+        }
+
+        @GuardedBy("this")
+        private void evict(Node<K, V> node)
+        {
+            entries.remove(node.key);
+            evictions.increment();
+        }
+    }
+
+    private static class Node<K, V>
+    {
+        private final K key;
+        private final V value;
+        private final int weight;
+        private Region region;
+        private Node<K, V> previous;
+        private Node<K, V> next;
+
+        public Node(K key, V value, int weight)
+        {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Intrusive doubly linked list, least recently used first.
+     */
+    private static class AccessOrder<K, V>
+    {
+        private Node<K, V> first;
+        private Node<K, V> last;
+
+        public boolean isEmpty()
+        {
+            return first == null;
+        }
+
+        public Node<K, V> first()
+        {
+            return first;
+        }
+
+        public void addLast(Node<K, V> node)
+        {
+            node.previous = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            }
+            else {
+                last.next = node;
+            }
+            last = node;
+        }
+
+        public Node<K, V> removeFirst()
+        {
+            Node<K, V> node = first;
+            remove(node);
+            return node;
+        }
+
+        public void moveToLast(Node<K, V> node)
+        {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        public void remove(Node<K, V> node)
+        {
+            if (node.previous == null) {
+                first = node.next;
+            }
+            else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.previous;
+            }
+            else {
+                node.next.previous = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+        }
+
+        public void clear()
+        {
+            first = null;
+            last = null;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.concurrent;
+
+import io.airlift.stats.TimeHistogram;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Records how long tasks wait in an executor's queue and how long they run,
+ * to tell queueing delay apart from execution time.
+ * <p>
+ * Tasks are timestamped when they are submitted through an executor returned by
+ * {@link #instrument(Executor)} or {@link #instrument(ExecutorService)}. Recording
+ * is wait-free, so the overhead is a few clock reads and counter increments per task.
+ */
+@ThreadSafe
+public class ExecutorStats
+{
+    private final TimeHistogram queueTime = new TimeHistogram(MILLISECONDS);
+    private final TimeHistogram runTime = new TimeHistogram(MILLISECONDS);
+    private final LongAdder submittedTasks = new LongAdder();
+    private final LongAdder completedTasks = new LongAdder();
+    private final LongAdder failedTasks = new LongAdder();
+    private final LongAdder rejectedTasks = new LongAdder();
+
+    /**
+     * Returns an executor that submits to the delegate and records task statistics.
+     */
+    public Executor instrument(Executor delegate)
+    {
+        requireNonNull(delegate, "delegate is null");
+        return task -> execute(delegate, task);
+    }
+
+    /**
+     * Returns an executor service that submits to the delegate and records task statistics.
+     * Shutting it down shuts down the delegate.
+     */
+    public ExecutorService instrument(ExecutorService delegate)
+    {
+        return new InstrumentedExecutorService(delegate);
+    }
+
+    @Managed
+    @Nested
+    public TimeHistogram getQueueTime()
+    {
+        return queueTime;
+    }
+
+    @Managed
+    @Nested
+    public TimeHistogram getRunTime()
+    {
+        return runTime;
+    }
+
+    @Managed
+    public long getSubmittedTasks()
+    {
+        return submittedTasks.sum();
+    }
+
+    @Managed
+    public long getCompletedTasks()
+    {
+        return completedTasks.sum();
+    }
+
+    @Managed
+    public long getFailedTasks()
+    {
+        return failedTasks.sum();
+    }
+
+    @Managed
+    public long getRejectedTasks()
+    {
+        return rejectedTasks.sum();
+    }
+
+    private void execute(Executor delegate, Runnable task)
+    {
+        requireNonNull(task, "task is null");
+        long submitNanos = System.nanoTime();
+        // count before handing off, since a direct executor runs the task before execute returns
+        submittedTasks.increment();
+        try {
+            delegate.execute(() -> run(task, submitNanos));
+        }
+        catch (RejectedExecutionException e) {
+            submittedTasks.decrement();
+            rejectedTasks.increment();
+            throw e;
+        }
+    }
+
+    private void run(Runnable task, long submitNanos)
+    {
+        long startNanos = System.nanoTime();
+        queueTime.addNanos(startNanos - submitNanos);
+        boolean success = false;
+        try {
+            task.run();
+            success = true;
+        }
+        finally {
+            runTime.addNanos(System.nanoTime() - startNanos);
+            if (success) {
+                completedTasks.increment();
+            }
+            else {
+                failedTasks.increment();
+            }
+        }
+    }
+
+    private class InstrumentedExecutorService
+            extends AbstractExecutorService
+    {
+        private final ExecutorService delegate;
+
+        public InstrumentedExecutorService(ExecutorService delegate)
+        {
+            this.delegate = requireNonNull(delegate, "delegate is null");
+        }
+
+        @Override
+        public void execute(Runnable task)
+        {
+            ExecutorStats.this.execute(delegate, task);
+        }
+
+        @Override
+        public void shutdown()
+        {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow()
+        {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown()
+        {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated()
+        {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit)
+                throws InterruptedException
+        {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.concurrent;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Count-min sketch of 4-bit counters that estimates how often a key was
+ * seen recently. Counters are halved after a sample of increments, so
+ * popularity ages out. Not thread safe.
+ */
+final class FrequencySketch
+{
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_TABLE_SIZE = 1 << 24;
+
+    private long[] table = new long[0];
+    private int sampleSize;
+    private int additions;
+
+    public FrequencySketch(long expectedSize)
+    {
+        ensureCapacity(expectedSize);
+    }
+
+    /**
+     * Grows the table to track about expectedSize keys. Growing discards the
+     * counts collected so far, so callers should grow geometrically.
+     */
+    public void ensureCapacity(long expectedSize)
+    {
+        checkArgument(expectedSize > 0, "expectedSize must be positive");
+        int size = (int) Math.min(Math.max(expectedSize, 16), MAX_TABLE_SIZE);
+        int length = Integer.highestOneBit(size - 1) << 1;
+        if (length <= table.length) {
+            return;
+        }
+        table = new long[length];
+        sampleSize = 10 * size;
+        additions = 0;
+    }
+
+    public int frequency(Object key)
+    {
+        int hash = spread(key.hashCode());
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            long indexHash = indexHash(hash, i);
+            int offset = counterOffset(indexHash);
+            int count = (int) ((table[tableIndex(indexHash)] >>> offset) & 0xF);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    public void increment(Object key)
+    {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            long indexHash = indexHash(hash, i);
+            int index = tableIndex(indexHash);
+            int offset = counterOffset(indexHash);
+            if (((table[index] >>> offset) & 0xF) != 0xF) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset()
+    {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private static long indexHash(int hash, int row)
+    {
+        long value = (hash + SEEDS[row]) * SEEDS[row];
+        return value ^ (value >>> 29);
+    }
+
+    private int tableIndex(long indexHash)
+    {
+        return (int) indexHash & (table.length - 1);
+    }
+
+    private static int counterOffset(long indexHash)
+    {
+        // one of the 16 nibbles in the long, chosen by high bits independent of the index
+        return (int) ((indexHash >>> 60) & 0xF) << 2;
+    }
+
+    private static int spread(int hash)
+    {
+        int value = hash * 0x9E3779B9;
+        return value ^ (value >>> 16);
+    }
+}
@@ -0,0 +1,501 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.concurrent;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * A {@link ScheduledExecutorService} backed by a hashed timing wheel, for
+ * large numbers of timeouts that are usually cancelled before they fire.
+ * <p>
+ * Scheduling and cancelling are O(1) and lock free: new and cancelled timers
+ * are handed to a single worker thread through concurrent queues, and the worker
+ * moves them into and out of the wheel buckets. Timers fire on the first tick
+ * at or after their deadline, so they may run up to one tick late. Expired
+ * timers are run by the task executor, which by default is the worker thread
+ * itself, so tasks should be short.
+ * <p>
+ * Timers that have not fired are cancelled on shutdown.
+ */
+@ThreadSafe
+public final class HashedWheelTimer
+        extends AbstractExecutorService
+        implements ScheduledExecutorService
+{
+    private static final int DEFAULT_TICKS_PER_WHEEL = 512;
+    // bounds the work done in a single tick when timers are added faster than they expire
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+    // keep deadlines far enough from overflow that tick arithmetic is safe
+    private static final long MAX_DELAY_NANOS = Long.MAX_VALUE / 4;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Executor taskExecutor;
+    private final long startNanos;
+    private final Thread worker;
+
+    private final Queue<TimerTask<?>> pendingTimers = new ConcurrentLinkedQueue<>();
+    private final Queue<TimerTask<?>> cancelledTimers = new ConcurrentLinkedQueue<>();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private volatile boolean shutdown;
+    private volatile long scheduledTimers;
+    private volatile List<Runnable> unprocessedTimers = ImmutableList.of();
+
+    public HashedWheelTimer(ThreadFactory threadFactory, Duration tickDuration)
+    {
+        this(threadFactory, tickDuration, DEFAULT_TICKS_PER_WHEEL, directExecutor());
+    }
+
+    /**
+     * @param tickDuration timer precision; timers fire on the first tick at or after their deadline
+     * @param ticksPerWheel number of buckets, rounded up to a power of two; timers further out
+     * than one wheel revolution stay in their bucket for several revolutions
+     * @param taskExecutor runs expired timers
+     */
+    public HashedWheelTimer(ThreadFactory threadFactory, Duration tickDuration, int ticksPerWheel, Executor taskExecutor)
+    {
+        requireNonNull(threadFactory, "threadFactory is null");
+        requireNonNull(tickDuration, "tickDuration is null");
+        this.taskExecutor = requireNonNull(taskExecutor, "taskExecutor is null");
+
+        tickNanos = tickDuration.roundTo(NANOSECONDS);
+        checkArgument(tickNanos >= TimeUnit.MICROSECONDS.toNanos(100), "tickDuration must be at least 100us");
+        checkArgument(ticksPerWheel > 0 && ticksPerWheel <= 1 << 20, "ticksPerWheel must be between 1 and 2^20");
+
+        int wheelSize = Integer.highestOneBit(ticksPerWheel);
+        if (wheelSize < ticksPerWheel) {
+            wheelSize <<= 1;
+        }
+        wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new Bucket();
+        }
+        mask = wheelSize - 1;
+
+        startNanos = System.nanoTime();
+        worker = threadFactory.newThread(this::run);
+        worker.start();
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit)
+    {
+        requireNonNull(command, "command is null");
+        return schedule(new TimerTask<Void>(command, null, deadline(delay, unit), 0));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit)
+    {
+        requireNonNull(callable, "callable is null");
+        return schedule(new TimerTask<>(callable, deadline(delay, unit)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit)
+    {
+        requireNonNull(command, "command is null");
+        checkArgument(period > 0, "period must be positive");
+        return schedule(new TimerTask<Void>(command, null, deadline(initialDelay, unit), unit.toNanos(period)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit)
+    {
+        requireNonNull(command, "command is null");
+        checkArgument(delay > 0, "delay must be positive");
+        // a negative period marks a fixed delay, as in ScheduledThreadPoolExecutor
+        return schedule(new TimerTask<Void>(command, null, deadline(initialDelay, unit), -unit.toNanos(delay)));
+    }
+
+    @Override
+    public void execute(Runnable command)
+    {
+        requireNonNull(command, "command is null");
+        if (shutdown) {
+            throw new RejectedExecutionException("Timer is shut down");
+        }
+        taskExecutor.execute(command);
+    }
+
+    @Override
+    public void shutdown()
+    {
+        shutdown = true;
+        LockSupport.unpark(worker);
+    }
+
+    /**
+     * Stops the timer and returns the timers that had not fired.
+     */
+    @Override
+    public List<Runnable> shutdownNow()
+    {
+        shutdown();
+        if (Thread.currentThread() == worker) {
+            // called from a timer running on the worker; the worker collects the timers after this returns
+            return ImmutableList.of();
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                terminated.await();
+                break;
+            }
+            catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return unprocessedTimers;
+    }
+
+    @Override
+    public boolean isShutdown()
+    {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated()
+    {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException
+    {
+        return terminated.await(timeout, unit);
+    }
+
+    /**
+     * Number of timers in the wheel as of the last tick. Timers scheduled
+     * since then are not included.
+     */
+    @Managed
+    public long getScheduledTimers()
+    {
+        return scheduledTimers;
+    }
+
+    @Managed
+    public String getTickDuration()
+    {
+        return new Duration(tickNanos, NANOSECONDS).convertToMostSuccinctTimeUnit().toString();
+    }
+
+    private long deadline(long delay, TimeUnit unit)
+    {
+        long delayNanos = Math.min(Math.max(unit.toNanos(delay), 0), MAX_DELAY_NANOS);
+        return (System.nanoTime() - startNanos) + delayNanos;
+    }
+
+    private <V> TimerTask<V> schedule(TimerTask<V> task)
+    {
+        if (shutdown) {
+            throw new RejectedExecutionException("Timer is shut down");
+        }
+        pendingTimers.add(task);
+        if (shutdown && pendingTimers.remove(task)) {
+            // lost the race with the worker shutting down
+            throw new RejectedExecutionException("Timer is shut down");
+        }
+        return task;
+    }
+
+    private void run()
+    {
+        long tick = 0;
+        try {
+            while (waitForTick(tick)) {
+                removeCancelledTimers();
+                transferPendingTimers(tick);
+                wheel[(int) (tick & mask)].expireTimers(tick);
+                tick++;
+            }
+        }
+        finally {
+            ImmutableList.Builder<Runnable> unprocessed = ImmutableList.builder();
+            for (Bucket bucket : wheel) {
+                bucket.clear(unprocessed);
+            }
+            for (TimerTask<?> task = pendingTimers.poll(); task != null; task = pendingTimers.poll()) {
+                if (!task.isCancelled()) {
+                    unprocessed.add(task);
+                }
+            }
+            unprocessedTimers = unprocessed.build();
+            for (Runnable task : unprocessedTimers) {
+                ((TimerTask<?>) task).cancel(false);
+            }
+            cancelledTimers.clear();
+            scheduledTimers = 0;
+            terminated.countDown();
+        }
+    }
+
+    /**
+     * Sleeps until the end of the tick.
+     *
+     * @return false if the timer was shut down
+     */
+    private boolean waitForTick(long tick)
+    {
+        long tickEnd = tickNanos * (tick + 1);
+        while (!shutdown) {
+            long remaining = tickEnd - (System.nanoTime() - startNanos);
+            if (remaining <= 0) {
+                return true;
+            }
+            LockSupport.parkNanos(this, remaining);
+        }
+        return false;
+    }
+
+    private void removeCancelledTimers()
+    {
+        for (TimerTask<?> task = cancelledTimers.poll(); task != null; task = cancelledTimers.poll()) {
+            if (task.bucket != null) {
+                task.bucket.remove(task);
+            }
+        }
+    }
+
+    private void transferPendingTimers(long tick)
+    {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            TimerTask<?> task = pendingTimers.poll();
+            if (task == null) {
+                return;
+            }
+            // publish before checking for cancellation, so either this check or cancel() sees the other
+            task.inWheel = true;
+            if (task.isCancelled()) {
+                continue;
+            }
+
+            // tick N is processed at the end of the tick, so a timer belongs to the
+            // first tick that ends at or after its deadline
+            long expirationTick = ((task.deadlineNanos + tickNanos - 1) / tickNanos) - 1;
+            task.expirationTick = Math.max(expirationTick, tick);
+            wheel[(int) (task.expirationTick & mask)].add(task);
+        }
+    }
+
+    private void runTimer(TimerTask<?> task)
+    {
+        try {
+            taskExecutor.execute(task);
+        }
+        catch (RejectedExecutionException e) {
+            task.reject(e);
+        }
+    }
+
+    private void reschedule(TimerTask<?> task)
+    {
+        try {
+            schedule(task);
+        }
+        catch (RejectedExecutionException e) {
+            task.cancel(false);
+        }
+    }
+
+    private final class Bucket
+    {
+        // only accessed by the worker thread
+        private TimerTask<?> head;
+        private TimerTask<?> tail;
+
+        public void add(TimerTask<?> task)
+        {
+            task.bucket = this;
+            task.previous = tail;
+            if (tail == null) {
+                head = task;
+            }
+            else {
+                tail.next = task;
+            }
+            tail = task;
+            scheduledTimers++;
+        }
+
+        public void remove(TimerTask<?> task)
+        {
+            if (task.previous == null) {
+                head = task.next;
+            }
+            else {
+                task.previous.next = task.next;
+            }
+            if (task.next == null) {
+                tail = task.previous;
+            }
+            else {
+                task.next.previous = task.previous;
+            }
+            task.bucket = null;
+            task.previous = null;
+            task.next = null;
+            scheduledTimers--;
+        }
+
+        public void expireTimers(long tick)
+        {
+            TimerTask<?> task = head;
+            while (task != null) {
+                TimerTask<?> next = task.next;
+                if (task.isCancelled()) {
+                    remove(task);
+                }
+                else if (task.expirationTick <= tick) {
+                    remove(task);
+                    runTimer(task);
+                }
+                task = next;
+            }
+        }
+
+        public void clear(ImmutableList.Builder<Runnable> unprocessed)
+        {
+            for (TimerTask<?> task = head; task != null; task = task.next) {
+                task.bucket = null;
+                if (!task.isCancelled()) {
+                    unprocessed.add(task);
+                }
+            }
+            head = null;
+            tail = null;
+        }
+    }
+
+    private final class TimerTask<V>
+            extends FutureTask<V>
+            implements RunnableScheduledFuture<V>
+    {
+        // positive for fixed rate, negative for fixed delay, zero for one shot
+        private final long periodNanos;
+        private volatile long deadlineNanos;
+        private volatile boolean inWheel;
+
+        // only accessed by the worker thread
+        private long expirationTick;
+        private Bucket bucket;
+        private TimerTask<?> previous;
+        private TimerTask<?> next;
+
+        public TimerTask(Runnable runnable, V result, long deadlineNanos, long periodNanos)
+        {
+            super(runnable, result);
+            this.deadlineNanos = deadlineNanos;
+            this.periodNanos = periodNanos;
+        }
+
+        public TimerTask(Callable<V> callable, long deadlineNanos)
+        {
+            super(callable);
+            this.deadlineNanos = deadlineNanos;
+            this.periodNanos = 0;
+        }
+
+        @Override
+        public boolean isPeriodic()
+        {
+            return periodNanos != 0;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit)
+        {
+            return unit.convert(deadlineNanos - (System.nanoTime() - startNanos), NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other)
+        {
+            if (other == this) {
+                return 0;
+            }
+            return Long.compare(getDelay(NANOSECONDS), other.getDelay(NANOSECONDS));
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning)
+        {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled && inWheel && !shutdown) {
+                // the worker unlinks the timer from its bucket on the next tick; timers
+                // that have not reached the wheel yet are skipped when they are transferred
+                cancelledTimers.add(this);
+            }
+            return cancelled;
+        }
+
+        @Override
+        public void run()
+        {
+            if (!isPeriodic()) {
+                super.run();
+            }
+            else if (runAndReset()) {
+                inWheel = false;
+                if (periodNanos > 0) {
+                    deadlineNanos += periodNanos;
+                }
+                else {
+                    deadlineNanos = (System.nanoTime() - startNanos) - periodNanos;
+                }
+                reschedule(this);
+            }
+        }
+
+        public void reject(RejectedExecutionException e)
+        {
+            setException(e);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.concurrent;
+
+import com.google.common.collect.ImmutableSortedMap;
+import io.airlift.log.Logger;
+import io.airlift.stats.TimeStat;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * A {@link BoundedExecutor} that keeps a separate queue per key, such as a tenant
+ * or a query, so that one key flooding the executor does not starve the others.
+ * <p>
+ * No more than maxThreads threads of the coreExecutor are used, as with
+ * BoundedExecutor. When a thread is free, the next task is picked across keys with
+ * deficit round-robin: each key with queued tasks may run up to its weight in tasks
+ * per round (one by default) before the next key gets a turn.
+ * <p>
+ * Tasks are added to the per-key queues without locking; picking the next key takes
+ * a short lock. Keys are retained once seen, so they should come from a bounded set.
+ */
+@ThreadSafe
+public class KeyedBoundedExecutor<K>
+{
+    private static final Logger log = Logger.get(KeyedBoundedExecutor.class);
+
+    private final ConcurrentMap<K, KeyQueue<K>> keys = new ConcurrentHashMap<>();
+    private final AtomicInteger queueSize = new AtomicInteger(0);
+    private final AtomicBoolean failed = new AtomicBoolean();
+    private final TimeStat queueTime = new TimeStat(MILLISECONDS);
+
+    // keys with queued tasks, in round-robin order
+    @GuardedBy("this")
+    private final Deque<KeyQueue<K>> activeKeys = new ArrayDeque<>();
+
+    private final Executor coreExecutor;
+    private final int maxThreads;
+
+    public KeyedBoundedExecutor(Executor coreExecutor, int maxThreads)
+    {
+        requireNonNull(coreExecutor, "coreExecutor is null");
+        checkArgument(maxThreads > 0, "maxThreads must be greater than zero");
+        this.coreExecutor = coreExecutor;
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * Sets the number of tasks the key may run per round relative to other keys.
+     */
+    public void setWeight(K key, int weight)
+    {
+        checkArgument(weight > 0, "weight must be greater than zero");
+        getKeyQueue(key).weight = weight;
+    }
+
+    /**
+     * Returns an executor that runs tasks under the given key.
+     */
+    public Executor executorFor(K key)
+    {
+        KeyQueue<K> keyQueue = getKeyQueue(key);
+        return task -> execute(keyQueue, task);
+    }
+
+    public void execute(K key, Runnable task)
+    {
+        execute(getKeyQueue(key), task);
+    }
+
+    public int getQueuedTasks(K key)
+    {
+        KeyQueue<K> keyQueue = keys.get(requireNonNull(key, "key is null"));
+        return keyQueue == null ? 0 : keyQueue.queued.get();
+    }
+
+    /**
+     * Returns the time tasks of the key waited in the queue, or null if the key was never used.
+     */
+    public TimeStat getQueueTime(K key)
+    {
+        KeyQueue<K> keyQueue = keys.get(requireNonNull(key, "key is null"));
+        return keyQueue == null ? null : keyQueue.queueTime;
+    }
+
+    @Managed
+    public int getMaxThreads()
+    {
+        return maxThreads;
+    }
+
+    @Managed
+    public int getQueuedTasks()
+    {
+        return keys.values().stream()
+                .mapToInt(keyQueue -> keyQueue.queued.get())
+                .sum();
+    }
+
+    @Managed
+    public synchronized int getActiveKeys()
+    {
+        return activeKeys.size();
+    }
+
+    @Managed
+    public Map<String, Integer> getQueuedTasksByKey()
+    {
+        ImmutableSortedMap.Builder<String, Integer> queued = ImmutableSortedMap.naturalOrder();
+        for (KeyQueue<K> keyQueue : keys.values()) {
+            int count = keyQueue.queued.get();
+            if (count > 0) {
+                queued.put(String.valueOf(keyQueue.key), count);
+            }
+        }
+        return queued.build();
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getQueueTime()
+    {
+        return queueTime;
+    }
+
+    private KeyQueue<K> getKeyQueue(K key)
+    {
+        requireNonNull(key, "key is null");
+        return keys.computeIfAbsent(key, KeyQueue::new);
+    }
+
+    private void execute(KeyQueue<K> keyQueue, Runnable task)
+    {
+        requireNonNull(task, "task is null");
+        checkState(!failed.get(), "KeyedBoundedExecutor is in a failed state");
+
+        keyQueue.tasks.add(new QueuedTask(keyQueue, task));
+        keyQueue.queued.incrementAndGet();
+        activate(keyQueue);
+
+        int size = queueSize.incrementAndGet();
+        if (size <= maxThreads) {
+            // If able to grab a permit (aka size <= maxThreads), then we are short exactly one draining thread
+            try {
+                coreExecutor.execute(this::drainQueue);
+            }
+            catch (Throwable e) {
+                failed.set(true);
+                log.error("KeyedBoundedExecutor state corrupted due to underlying executor failure");
+                throw e;
+            }
+        }
+    }
+
+    private void activate(KeyQueue<K> keyQueue)
+    {
+        if (keyQueue.active.compareAndSet(false, true)) {
+            synchronized (this) {
+                activeKeys.addLast(keyQueue);
+            }
+        }
+    }
+
+    private void drainQueue()
+    {
+        // INVARIANT: at least one task is queued when this method is called
+        do {
+            QueuedTask task = nextTask();
+            long waitNanos = System.nanoTime() - task.queuedNanos;
+            queueTime.add(waitNanos, NANOSECONDS);
+            task.keyQueue.queueTime.add(waitNanos, NANOSECONDS);
+            try {
+                task.task.run();
+            }
+            catch (Throwable e) {
+                log.error(e, "Task failed");
+            }
+        }
+        while (queueSize.getAndDecrement() > maxThreads);
+    }
+
+    private synchronized QueuedTask nextTask()
+    {
+        while (true) {
+            // tasks are queued and their key activated before they are counted, so an active key exists
+            KeyQueue<K> keyQueue = activeKeys.peekFirst();
+            checkState(keyQueue != null, "no active keys");
+
+            QueuedTask task = keyQueue.tasks.poll();
+            if (task == null) {
+                activeKeys.pollFirst();
+                keyQueue.deficit = 0;
+                keyQueue.active.set(false);
+                // a task may have been added after the poll by a thread that still saw the key as active
+                if (!keyQueue.tasks.isEmpty() && keyQueue.active.compareAndSet(false, true)) {
+                    activeKeys.addLast(keyQueue);
+                }
+                continue;
+            }
+            keyQueue.queued.decrementAndGet();
+
+            if (keyQueue.deficit <= 0) {
+                // start of this key's turn
+                keyQueue.deficit = keyQueue.weight;
+            }
+            keyQueue.deficit--;
+            if (keyQueue.deficit == 0) {
+                // turn used up, move to the back of the round
+                activeKeys.pollFirst();
+                activeKeys.addLast(keyQueue);
+            }
+            return task;
+        }
+    }
+
+    private static final class KeyQueue<K>
+    {
+        private final K key;
+        private final Queue<QueuedTask> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean active = new AtomicBoolean();
+        private final TimeStat queueTime = new TimeStat(MILLISECONDS);
+        private volatile int weight = 1;
+
+        // guarded by the executor
+        private int deficit;
+
+        private KeyQueue(K key)
+        {
+            this.key = key;
+        }
+    }
+
+    private static final class QueuedTask
+    {
+        private final KeyQueue<?> keyQueue;
+        private final Runnable task;
+        private final long queuedNanos = System.nanoTime();
+
+        private QueuedTask(KeyQueue<?> keyQueue, Runnable task)
+        {
+            this.keyQueue = keyQueue;
+            this.task = task;
+        }
+    }
+}
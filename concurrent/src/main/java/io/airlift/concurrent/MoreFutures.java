@@ -392,6 +392,9 @@ public final class MoreFutures
      * Returns a new future that is completed when the supplied future completes or
      * when the timeout expires.  If the timeout occurs or the returned CompletableFuture
      * is canceled, the supplied future will be canceled.
+     * <p>
+     * When many timeouts are outstanding, use a {@link HashedWheelTimer} as the
+     * executor, which schedules and cancels in constant time.
      */
     public static <T> ListenableFuture<T> addTimeout(ListenableFuture<T> future, Callable<T> onTimeout, Duration timeout, ScheduledExecutorService executorService)
     {
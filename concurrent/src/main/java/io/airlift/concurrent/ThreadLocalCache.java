@@ -26,7 +26,10 @@ import static java.util.Objects.requireNonNull;
  *
  * @param <K> cache key type
  * @param <V> cache value type
+ * @deprecated every thread loads and holds its own copy of each entry, and
+ * eviction is FIFO; use {@link BoundedCache}
  */
+@Deprecated
 public final class ThreadLocalCache<K, V>
 {
     @SuppressWarnings("ThreadLocalNotStaticFinal")
@@ -3,6 +3,9 @@ package io.airlift.concurrent;
 import com.google.common.annotations.Beta;
 import io.airlift.units.Duration;
 import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.Nullable;
 
 import java.util.concurrent.ThreadPoolExecutor;
 
@@ -13,10 +16,23 @@ import static java.util.concurrent.TimeUnit.NANOSECONDS;
 public class ThreadPoolExecutorMBean
 {
     private final ThreadPoolExecutor threadPoolExecutor;
+    @Nullable
+    private final ExecutorStats stats;
 
     public ThreadPoolExecutorMBean(ThreadPoolExecutor threadPoolExecutor)
     {
         this.threadPoolExecutor = requireNonNull(threadPoolExecutor, "threadPoolExecutor is null");
+        this.stats = null;
+    }
+
+    /**
+     * @param stats records tasks submitted through {@link ExecutorStats#instrument(java.util.concurrent.ExecutorService)}
+     * applied to this executor
+     */
+    public ThreadPoolExecutorMBean(ThreadPoolExecutor threadPoolExecutor, ExecutorStats stats)
+    {
+        this.threadPoolExecutor = requireNonNull(threadPoolExecutor, "threadPoolExecutor is null");
+        this.stats = requireNonNull(stats, "stats is null");
     }
 
     @Managed
@@ -129,4 +145,15 @@ public class ThreadPoolExecutorMBean
     {
         return threadPoolExecutor.getQueue().size();
     }
+
+    /**
+     * Returns null, so nothing is exported, unless stats were supplied.
+     */
+    @Managed
+    @Nested
+    @Nullable
+    public ExecutorStats getStats()
+    {
+        return stats;
+    }
 }
@@ -0,0 +1,433 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.concurrent;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.airlift.stats.CounterStat;
+import io.airlift.stats.TimeStat;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Like {@link AsyncSemaphore}, but each task has a weight, such as its size in
+ * bytes, and the limit is on the total weight of running tasks rather than on
+ * their number.
+ * <p>
+ * Tasks start in submission order, so a heavy task is not starved by lighter
+ * tasks behind it. A task heavier than maxWeight runs alone once nothing else is
+ * running. When maxQueuedTasks tasks are already waiting, new tasks are rejected
+ * immediately with a {@link RejectedExecutionException}, and a task that waits
+ * longer than its queue timeout fails with a {@link TimeoutException}.
+ * Cancelling the returned future of a waiting task removes it from the queue.
+ */
+@ThreadSafe
+public class WeightedAsyncSemaphore<T>
+{
+    private final long maxWeight;
+    private final int maxQueuedTasks;
+    private final Executor submitExecutor;
+    private final ScheduledExecutorService timeoutExecutor;
+    private final Function<T, ListenableFuture<?>> submitter;
+
+    // insertion ordered, so removing a cancelled or timed out task unlinks it at once
+    @GuardedBy("this")
+    private final Set<QueuedTask<T>> queue = new LinkedHashSet<>();
+    @GuardedBy("this")
+    private long queuedWeight;
+    @GuardedBy("this")
+    private int runningTasks;
+    @GuardedBy("this")
+    private long runningWeight;
+    // started under the lock, waiting to be handed to the submit executor outside of it
+    @GuardedBy("this")
+    private final List<QueuedTask<T>> startedTasks = new ArrayList<>();
+
+    private final TimeStat queueTime = new TimeStat(MILLISECONDS);
+    private final TimeStat runTime = new TimeStat(MILLISECONDS);
+    private final CounterStat rejectedTasks = new CounterStat();
+    private final CounterStat timedOutTasks = new CounterStat();
+
+    /**
+     * @param timeoutExecutor schedules queue timeouts; a {@link HashedWheelTimer} works well
+     */
+    public WeightedAsyncSemaphore(
+            long maxWeight,
+            int maxQueuedTasks,
+            Executor submitExecutor,
+            ScheduledExecutorService timeoutExecutor,
+            Function<T, ListenableFuture<?>> submitter)
+    {
+        checkArgument(maxWeight > 0, "maxWeight must be positive");
+        checkArgument(maxQueuedTasks >= 0, "maxQueuedTasks is negative");
+        this.maxWeight = maxWeight;
+        this.maxQueuedTasks = maxQueuedTasks;
+        this.submitExecutor = requireNonNull(submitExecutor, "submitExecutor is null");
+        this.timeoutExecutor = requireNonNull(timeoutExecutor, "timeoutExecutor is null");
+        this.submitter = requireNonNull(submitter, "submitter is null");
+    }
+
+    /**
+     * Submits a task that may wait in the queue indefinitely.
+     */
+    public ListenableFuture<?> submit(T task, long weight)
+    {
+        return submit(task, weight, null);
+    }
+
+    /**
+     * Submits a task that fails with a {@link TimeoutException} if it has not
+     * started within maxQueueTime.
+     */
+    public ListenableFuture<?> submit(T task, long weight, Duration maxQueueTime)
+    {
+        checkArgument(weight > 0, "weight must be positive");
+        QueuedTask<T> queuedTask = new QueuedTask<>(task, weight);
+
+        boolean started = false;
+        synchronized (this) {
+            if (queue.isEmpty() && canStart(weight)) {
+                start(queuedTask);
+                started = true;
+            }
+            else if (queue.size() >= maxQueuedTasks) {
+                rejectedTasks.update(1);
+                return Futures.immediateFailedFuture(new RejectedExecutionException(format("Queue is full: %s tasks waiting", queue.size())));
+            }
+            else {
+                queue.add(queuedTask);
+                queuedWeight += weight;
+            }
+        }
+
+        if (started) {
+            runStarted();
+            return queuedTask.getCompletionFuture();
+        }
+
+        queuedTask.getCompletionFuture().addListener(() -> {
+            if (queuedTask.getCompletionFuture().isCancelled()) {
+                remove(queuedTask);
+            }
+        }, directExecutor());
+        if (maxQueueTime != null) {
+            queuedTask.setTimeoutFuture(timeoutExecutor.schedule(() -> {
+                if (remove(queuedTask)) {
+                    timedOutTasks.update(1);
+                    queuedTask.markFailure(new TimeoutException(format("Task was queued for more than %s", maxQueueTime)));
+                }
+            }, maxQueueTime.toMillis(), MILLISECONDS));
+        }
+        return queuedTask.getCompletionFuture();
+    }
+
+    @Managed
+    public long getMaxWeight()
+    {
+        return maxWeight;
+    }
+
+    @Managed
+    public int getMaxQueuedTasks()
+    {
+        return maxQueuedTasks;
+    }
+
+    @Managed
+    public synchronized int getQueuedTasks()
+    {
+        return queue.size();
+    }
+
+    @Managed
+    public synchronized long getQueuedWeight()
+    {
+        return queuedWeight;
+    }
+
+    @Managed
+    public synchronized int getRunningTasks()
+    {
+        return runningTasks;
+    }
+
+    @Managed
+    public synchronized long getRunningWeight()
+    {
+        return runningWeight;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getQueueTime()
+    {
+        return queueTime;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getRunTime()
+    {
+        return runTime;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRejectedTasks()
+    {
+        return rejectedTasks;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getTimedOutTasks()
+    {
+        return timedOutTasks;
+    }
+
+    @GuardedBy("this")
+    private boolean canStart(long weight)
+    {
+        return runningTasks == 0 || runningWeight + weight <= maxWeight;
+    }
+
+    @GuardedBy("this")
+    private void start(QueuedTask<T> task)
+    {
+        runningTasks++;
+        runningWeight += task.getWeight();
+        task.markStarted();
+        startedTasks.add(task);
+    }
+
+    /**
+     * Hands the tasks started under the lock to the submit executor.
+     */
+    private void runStarted()
+    {
+        List<QueuedTask<T>> tasks;
+        synchronized (this) {
+            if (startedTasks.isEmpty()) {
+                return;
+            }
+            tasks = new ArrayList<>(startedTasks);
+            startedTasks.clear();
+        }
+
+        for (QueuedTask<T> task : tasks) {
+            try {
+                submitExecutor.execute(() -> run(task));
+            }
+            catch (RuntimeException e) {
+                task.markFailure(e);
+                release(task);
+            }
+        }
+    }
+
+    private void run(QueuedTask<T> task)
+    {
+        long startNanos = System.nanoTime();
+        queueTime.add(startNanos - task.getQueuedNanos(), NANOSECONDS);
+
+        ListenableFuture<?> future = submitTask(task.getTask());
+        Futures.addCallback(future, new FutureCallback<Object>()
+        {
+            @Override
+            public void onSuccess(Object result)
+            {
+                runTime.add(System.nanoTime() - startNanos, NANOSECONDS);
+                task.markCompleted();
+                release(task);
+            }
+
+            @Override
+            public void onFailure(Throwable t)
+            {
+                runTime.add(System.nanoTime() - startNanos, NANOSECONDS);
+                task.markFailure(t);
+                release(task);
+            }
+        }, directExecutor());
+    }
+
+    private ListenableFuture<?> submitTask(T task)
+    {
+        try {
+            ListenableFuture<?> future = submitter.apply(task);
+            if (future == null) {
+                return Futures.immediateFailedFuture(new NullPointerException("Submitter returned a null future for task: " + task));
+            }
+            return future;
+        }
+        catch (Exception e) {
+            return Futures.immediateFailedFuture(e);
+        }
+    }
+
+    private void release(QueuedTask<T> task)
+    {
+        synchronized (this) {
+            runningTasks--;
+            runningWeight -= task.getWeight();
+            startQueued();
+        }
+        runStarted();
+    }
+
+    /**
+     * Removes a task that has not started yet.
+     *
+     * @return true if the task was still waiting
+     */
+    private boolean remove(QueuedTask<T> task)
+    {
+        synchronized (this) {
+            if (!task.markRemoved()) {
+                return false;
+            }
+            queue.remove(task);
+            queuedWeight -= task.getWeight();
+            // removing the head of the queue may let the tasks behind it start
+            startQueued();
+        }
+        runStarted();
+        return true;
+    }
+
+    @GuardedBy("this")
+    private void startQueued()
+    {
+        for (Iterator<QueuedTask<T>> iterator = queue.iterator(); iterator.hasNext(); ) {
+            QueuedTask<T> next = iterator.next();
+            if (!canStart(next.getWeight())) {
+                return;
+            }
+            iterator.remove();
+            queuedWeight -= next.getWeight();
+            start(next);
+        }
+    }
+
+    private static class QueuedTask<T>
+    {
+        private enum State
+        {
+            QUEUED, STARTED, REMOVED
+        }
+
+        private final T task;
+        private final long weight;
+        private final long queuedNanos = System.nanoTime();
+        private final SettableFuture<?> settableFuture = SettableFuture.create();
+
+        // written under the semaphore lock
+        private volatile State state = State.QUEUED;
+        private volatile ScheduledFuture<?> timeoutFuture;
+
+        private QueuedTask(T task, long weight)
+        {
+            this.task = requireNonNull(task, "task is null");
+            this.weight = weight;
+        }
+
+        public T getTask()
+        {
+            return task;
+        }
+
+        public long getWeight()
+        {
+            return weight;
+        }
+
+        public long getQueuedNanos()
+        {
+            return queuedNanos;
+        }
+
+        public void markStarted()
+        {
+            state = State.STARTED;
+            cancelTimeout();
+        }
+
+        public boolean markRemoved()
+        {
+            if (state != State.QUEUED) {
+                return false;
+            }
+            state = State.REMOVED;
+            cancelTimeout();
+            return true;
+        }
+
+        public void setTimeoutFuture(ScheduledFuture<?> timeoutFuture)
+        {
+            this.timeoutFuture = timeoutFuture;
+            if (state != State.QUEUED) {
+                // started or removed before the timeout was scheduled
+                timeoutFuture.cancel(false);
+            }
+        }
+
+        private void cancelTimeout()
+        {
+            ScheduledFuture<?> future = timeoutFuture;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        public void markFailure(Throwable throwable)
+        {
+            settableFuture.setException(throwable);
+        }
+
+        public void markCompleted()
+        {
+            settableFuture.set(null);
+        }
+
+        public ListenableFuture<?> getCompletionFuture()
+        {
+            return settableFuture;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.concurrent;
+
+import io.airlift.units.Duration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+/**
+ * Schedules and cancels a timeout while a large number of other timeouts are outstanding.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class BenchmarkHashedWheelTimer
+{
+    private static final Runnable NOOP = () -> {};
+
+    @Param("1000000")
+    private int outstandingTimers;
+
+    @Param({"wheel", "scheduled-thread-pool"})
+    private String scheduler;
+
+    private ScheduledExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        if (scheduler.equals("wheel")) {
+            executor = new HashedWheelTimer(daemonThreadsNamed("benchmark-timer-%s"), new Duration(10, MILLISECONDS));
+        }
+        else {
+            ScheduledThreadPoolExecutor threadPool = new ScheduledThreadPoolExecutor(1, daemonThreadsNamed("benchmark-timer-%s"));
+            threadPool.setRemoveOnCancelPolicy(true);
+            executor = threadPool;
+        }
+
+        // spread the outstanding timers over the next hour
+        for (int i = 0; i < outstandingTimers; i++) {
+            executor.schedule(NOOP, 1 + (i % 3600_000), MILLISECONDS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public boolean scheduleAndCancel()
+    {
+        ScheduledFuture<?> future = executor.schedule(NOOP, 1, MINUTES);
+        return future.cancel(false);
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkHashedWheelTimer.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,342 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.concurrent;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.airlift.units.Duration;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.testing.Assertions.assertInstanceOf;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestBatcher
+{
+    private final ScheduledExecutorService scheduler = newSingleThreadScheduledExecutor(daemonThreadsNamed("test-batcher-%s"));
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testSizeTrigger()
+            throws Exception
+    {
+        Batches batches = new Batches();
+        Batcher<Integer, String> batcher = batches.createBatcher(3, Long.MAX_VALUE, new Duration(1, DAYS), 10);
+
+        ListenableFuture<String> first = batcher.add(1);
+        ListenableFuture<String> second = batcher.add(2);
+        assertTrue(batches.getBatches().isEmpty());
+        assertEquals(batcher.getBufferedItems(), 2);
+
+        ListenableFuture<String> third = batcher.add(3);
+        assertEquals(batches.getBatches(), ImmutableList.of(ImmutableList.of(1, 2, 3)));
+        assertEquals(batcher.getBufferedItems(), 0);
+        assertEquals(batcher.getInFlightBatches(), 1);
+        assertFalse(first.isDone());
+
+        batches.completeAll();
+        assertEquals(first.get(), "1");
+        assertEquals(second.get(), "2");
+        assertEquals(third.get(), "3");
+        assertEquals(batcher.getInFlightBatches(), 0);
+        assertEquals(batcher.getSizeFlushes().getTotalCount(), 1);
+        assertEquals(batcher.getBatchSize().getAllTime().getMax(), 3);
+        assertEquals(batcher.getBatchLatency().getAllTime().getCount(), 1.0);
+        assertEquals(batcher.getItemLatency().getAllTime().getCount(), 3.0);
+    }
+
+    @Test
+    public void testWeightTrigger()
+    {
+        Batches batches = new Batches();
+        Batcher<Integer, String> batcher = batches.createBatcher(100, 10, new Duration(1, DAYS), 10);
+
+        batcher.add(4);
+        batcher.add(4);
+        assertTrue(batches.getBatches().isEmpty());
+        batcher.add(4);
+        // a batch never exceeds the weight limit, so the last item stays buffered
+        assertEquals(batches.getBatches(), ImmutableList.of(ImmutableList.of(4, 4)));
+        assertEquals(batcher.getBufferedItems(), 1);
+        assertEquals(batcher.getBufferedWeight(), 4);
+        assertEquals(batcher.getWeightFlushes().getTotalCount(), 1);
+
+        // an item heavier than the limit is sent in a batch of its own
+        batcher.add(20);
+        assertEquals(batches.getBatches(), ImmutableList.of(ImmutableList.of(4, 4), ImmutableList.of(4), ImmutableList.of(20)));
+    }
+
+    @Test
+    public void testDelayTrigger()
+            throws Exception
+    {
+        Batches batches = new Batches();
+        Batcher<Integer, String> batcher = batches.createBatcher(100, Long.MAX_VALUE, new Duration(10, MILLISECONDS), 10);
+
+        ListenableFuture<String> future = batcher.add(1);
+        batcher.add(2);
+        batches.awaitBatches(1);
+        assertEquals(batches.getBatches(), ImmutableList.of(ImmutableList.of(1, 2)));
+        assertEquals(batcher.getDelayFlushes().getTotalCount(), 1);
+
+        batches.completeAll();
+        assertEquals(future.get(), "1");
+    }
+
+    @Test
+    public void testInFlightLimit()
+            throws Exception
+    {
+        Batches batches = new Batches();
+        Batcher<Integer, String> batcher = batches.createBatcher(2, Long.MAX_VALUE, new Duration(1, DAYS), 1);
+
+        batcher.add(1);
+        batcher.add(2);
+        batcher.add(3);
+        batcher.add(4);
+        ListenableFuture<String> last = batcher.add(5);
+        assertEquals(batches.getBatches(), ImmutableList.of(ImmutableList.of(1, 2)));
+        assertEquals(batcher.getBufferedItems(), 3);
+
+        // completing the running batch sends the next full batch, but not the partial one
+        batches.complete(0);
+        assertEquals(batches.getBatches().size(), 2);
+        assertEquals(batches.getBatches().get(1), ImmutableList.of(3, 4));
+        assertEquals(batcher.getBufferedItems(), 1);
+
+        // close flushes the rest once a slot frees up
+        batcher.close();
+        assertEquals(batches.getBatches().size(), 2);
+        batches.complete(1);
+        assertEquals(batches.getBatches().get(2), ImmutableList.of(5));
+        assertEquals(batcher.getCloseFlushes().getTotalCount(), 1);
+        batches.complete(2);
+        assertEquals(last.get(), "5");
+
+        assertFailure(batcher.add(6), RejectedExecutionException.class);
+    }
+
+    @Test
+    public void testBufferLimit()
+    {
+        Batches batches = new Batches();
+        Batcher<Integer, String> batcher = new Batcher<>(2, Long.MAX_VALUE, item -> item, new Duration(1, DAYS), 1, 3, scheduler, batches::submit);
+
+        batcher.add(1);
+        batcher.add(2);
+        batcher.add(3);
+        batcher.add(4);
+        batcher.add(5);
+        assertFailure(batcher.add(6), RejectedExecutionException.class);
+        assertEquals(batcher.getRejectedItems().getTotalCount(), 1);
+        assertEquals(batcher.getBufferedItems(), 3);
+    }
+
+    @Test
+    public void testBatchFailure()
+    {
+        Batcher<Integer, String> batcher = new Batcher<>(2, Long.MAX_VALUE, item -> item, new Duration(1, DAYS), 1, 10, scheduler, items -> {
+            throw new IllegalStateException("failed");
+        });
+        ListenableFuture<String> first = batcher.add(1);
+        ListenableFuture<String> second = batcher.add(2);
+        assertFailure(first, IllegalStateException.class);
+        assertFailure(second, IllegalStateException.class);
+        assertEquals(batcher.getInFlightBatches(), 0);
+    }
+
+    @Test
+    public void testWrongResultCount()
+    {
+        Batcher<Integer, String> batcher = new Batcher<>(2, Long.MAX_VALUE, item -> item, new Duration(1, DAYS), 1, 10, scheduler,
+                items -> Futures.immediateFuture(ImmutableList.of("only one")));
+        ListenableFuture<String> first = batcher.add(1);
+        batcher.add(2);
+        assertFailure(first, IllegalStateException.class);
+    }
+
+    @Test
+    public void testSynchronousCompletionDoesNotRecurse()
+            throws Exception
+    {
+        // hold the only in-flight slot so items pile up, then complete every batch synchronously
+        SettableFuture<List<String>> first = SettableFuture.create();
+        Batcher<Integer, String> batcher = new Batcher<>(1, Long.MAX_VALUE, item -> 1, new Duration(1, DAYS), 1, 200_000, scheduler,
+                items -> items.get(0) == 0 ? first : Futures.immediateFuture(ImmutableList.of(String.valueOf(items.get(0)))));
+
+        batcher.add(0);
+        List<ListenableFuture<String>> futures = new ArrayList<>();
+        for (int i = 1; i < 100_000; i++) {
+            futures.add(batcher.add(i));
+        }
+        first.set(ImmutableList.of("0"));
+
+        assertEquals(futures.get(futures.size() - 1).get(10, SECONDS), "99999");
+        assertEquals(batcher.getBufferedItems(), 0);
+        assertEquals(batcher.getInFlightBatches(), 0);
+    }
+
+    @Test
+    public void testAddRacingClose()
+            throws Exception
+    {
+        ExecutorService executor = newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 200; round++) {
+                Batcher<Integer, String> batcher = new Batcher<>(16, Long.MAX_VALUE, item -> 1, new Duration(1, DAYS), 4, 1000, scheduler,
+                        items -> Futures.immediateFuture(ImmutableList.copyOf(items.stream().map(String::valueOf).iterator())));
+                Future<ListenableFuture<String>> added = executor.submit(() -> batcher.add(1));
+                executor.submit(batcher::close).get(10, SECONDS);
+                ListenableFuture<String> future = added.get(10, SECONDS);
+
+                // the item is either rejected or sent, but never left behind
+                try {
+                    assertEquals(future.get(10, SECONDS), "1");
+                }
+                catch (ExecutionException e) {
+                    assertInstanceOf(e.getCause(), RejectedExecutionException.class);
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConcurrentAdds()
+            throws Exception
+    {
+        Batcher<Integer, String> batcher = new Batcher<>(16, Long.MAX_VALUE, item -> 1, new Duration(5, MILLISECONDS), 4, 100_000, scheduler,
+                items -> {
+                    ImmutableList.Builder<String> results = ImmutableList.builder();
+                    items.forEach(item -> results.add(String.valueOf(item)));
+                    return Futures.immediateFuture(results.build());
+                });
+
+        int threads = 4;
+        int itemsPerThread = 1000;
+        ExecutorService executor = newFixedThreadPool(threads, daemonThreadsNamed("test-add-%s"));
+        try {
+            List<Future<List<ListenableFuture<String>>>> adders = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                int base = thread * itemsPerThread;
+                adders.add(executor.submit(() -> {
+                    List<ListenableFuture<String>> futures = new ArrayList<>();
+                    for (int i = 0; i < itemsPerThread; i++) {
+                        futures.add(batcher.add(base + i));
+                    }
+                    return futures;
+                }));
+            }
+            for (int thread = 0; thread < threads; thread++) {
+                List<ListenableFuture<String>> futures = adders.get(thread).get(10, SECONDS);
+                for (int i = 0; i < itemsPerThread; i++) {
+                    assertEquals(futures.get(i).get(10, SECONDS), String.valueOf(thread * itemsPerThread + i));
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        assertEquals(batcher.getBufferedItems(), 0);
+        assertEquals((long) batcher.getBatchSize().getAllTime().getCount(), batcher.getSizeFlushes().getTotalCount() + batcher.getDelayFlushes().getTotalCount());
+    }
+
+    private static void assertFailure(ListenableFuture<?> future, Class<? extends Throwable> expectedCause)
+    {
+        try {
+            future.get(10, SECONDS);
+            fail("expected failure");
+        }
+        catch (ExecutionException e) {
+            assertInstanceOf(e.getCause(), expectedCause);
+        }
+        catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private class Batches
+    {
+        private final List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        private final List<SettableFuture<List<String>>> results = new CopyOnWriteArrayList<>();
+
+        public Batcher<Integer, String> createBatcher(int maxBatchSize, long maxBatchWeight, Duration maxDelay, int maxInFlightBatches)
+        {
+            return new Batcher<>(maxBatchSize, maxBatchWeight, item -> item, maxDelay, maxInFlightBatches, 1000, scheduler, this::submit);
+        }
+
+        public synchronized ListenableFuture<List<String>> submit(List<Integer> items)
+        {
+            SettableFuture<List<String>> result = SettableFuture.create();
+            batches.add(items);
+            results.add(result);
+            notifyAll();
+            return result;
+        }
+
+        public List<List<Integer>> getBatches()
+        {
+            return batches;
+        }
+
+        public synchronized void awaitBatches(int count)
+                throws InterruptedException
+        {
+            while (batches.size() < count) {
+                wait(10_000);
+            }
+        }
+
+        public void complete(int batch)
+        {
+            ImmutableList.Builder<String> values = ImmutableList.builder();
+            batches.get(batch).forEach(item -> values.add(String.valueOf(item)));
+            results.get(batch).set(values.build());
+        }
+
+        public void completeAll()
+        {
+            for (int i = 0; i < batches.size(); i++) {
+                complete(i);
+            }
+        }
+    }
+}
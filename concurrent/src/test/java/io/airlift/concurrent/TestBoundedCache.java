@@ -0,0 +1,170 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.concurrent;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestBoundedCache
+{
+    @Test
+    public void testSanity()
+    {
+        AtomicInteger count = new AtomicInteger(0);
+        BoundedCache<String, String> cache = new BoundedCache<>(2, key -> key + count.getAndAdd(1));
+
+        assertEquals(cache.get("abc"), "abc0");
+        assertEquals(cache.get("abc"), "abc0");
+        assertEquals(cache.get("def"), "def1");
+        assertEquals(cache.get("abc"), "abc0");
+        assertEquals(cache.getHitCount(), 2);
+        assertEquals(cache.getMissCount(), 2);
+        assertEquals(cache.getHitRate(), 0.5);
+        assertEquals(cache.getSize(), 2);
+
+        // one-off key does not displace the more frequently used ones
+        assertEquals(cache.get("ghi"), "ghi2");
+        assertEquals(cache.getSize(), 2);
+        assertEquals(cache.getEvictionCount(), 1);
+        assertEquals(cache.get("abc"), "abc0");
+
+        cache.invalidateAll();
+        assertEquals(cache.getSize(), 0);
+        assertNull(cache.getIfPresent("abc"));
+        assertEquals(cache.get("abc"), "abc3");
+    }
+
+    @Test(expectedExceptions = NullPointerException.class, expectedExceptionsMessageRegExp = "loader returned null value")
+    public void testDisallowsNulls()
+    {
+        new BoundedCache<>(10, key -> null).get("foo");
+    }
+
+    @Test
+    public void testScanResistance()
+    {
+        AtomicInteger loads = new AtomicInteger();
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(100, key -> {
+            loads.incrementAndGet();
+            return key;
+        });
+
+        // a hot working set used repeatedly
+        for (int round = 0; round < 5; round++) {
+            for (int key = 0; key < 50; key++) {
+                cache.get(key);
+            }
+        }
+        // a scan of keys used only once, far larger than the cache
+        for (int key = 1000; key < 11_000; key++) {
+            cache.get(key);
+        }
+
+        loads.set(0);
+        for (int key = 0; key < 50; key++) {
+            cache.get(key);
+        }
+        // FIFO or LRU would have lost every hot key to the scan
+        assertTrue(loads.get() <= 5, "hot keys reloaded: " + loads.get());
+        assertTrue(cache.getSize() <= 100);
+    }
+
+    @Test
+    public void testWeights()
+    {
+        BoundedCache<String, String> cache = new BoundedCache<>(1000, (key, value) -> value.length(), key -> key);
+
+        for (int i = 0; i < 1000; i++) {
+            cache.get("key-" + i);
+        }
+        assertTrue(cache.getWeightedSize() <= 1000, "weighted size: " + cache.getWeightedSize());
+        assertTrue(cache.getEvictionCount() > 0);
+
+        // an entry heavier than the cache is returned but not kept
+        StringBuilder huge = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            huge.append('x');
+        }
+        assertEquals(cache.get(huge.toString()), huge.toString());
+        assertNull(cache.getIfPresent(huge.toString()));
+    }
+
+    @Test
+    public void testLargeWeightedMaximum()
+    {
+        // the frequency sketch tracks entries, so a byte weighted maximum must not size it
+        List<BoundedCache<Integer, byte[]>> caches = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            BoundedCache<Integer, byte[]> cache = new BoundedCache<>(256L * 1024 * 1024, (key, value) -> value.length, key -> new byte[1024]);
+            for (int key = 0; key < 1000; key++) {
+                cache.get(key);
+            }
+            for (int key = 0; key < 1000; key++) {
+                cache.get(key);
+            }
+            assertEquals(cache.getSize(), 1000);
+            assertEquals(cache.getWeightedSize(), 1000 * 1024);
+            assertEquals(cache.getHitRate(), 0.5);
+            caches.add(cache);
+        }
+        assertEquals(caches.size(), 16);
+    }
+
+    @Test
+    public void testMultipleThreads()
+            throws Exception
+    {
+        AtomicInteger loads = new AtomicInteger();
+        BoundedCache<Integer, String> cache = new BoundedCache<>(10_000, key -> {
+            loads.incrementAndGet();
+            return String.valueOf(key);
+        });
+
+        int threads = 8;
+        ExecutorService executor = newFixedThreadPool(threads, daemonThreadsNamed("test-cache-%s"));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        int key = i % 1000;
+                        assertEquals(cache.get(key), String.valueOf(key));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, SECONDS);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        // unlike a per-thread cache, each key is loaded about once regardless of thread count
+        assertEquals(cache.getSize(), 1000);
+        assertTrue(loads.get() < 2 * 1000, "loads: " + loads.get());
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.concurrent;
+
+import org.testng.annotations.Test;
+import org.weakref.jmx.MBeanExporter;
+import org.weakref.jmx.testing.TestingMBeanServer;
+
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestExecutorStats
+{
+    @Test
+    public void testExecutor()
+    {
+        ExecutorStats stats = new ExecutorStats();
+        Executor executor = stats.instrument(directExecutor());
+
+        executor.execute(() -> {});
+        executor.execute(() -> {});
+        try {
+            executor.execute(() -> {
+                throw new IllegalStateException("failed");
+            });
+            fail("expected IllegalStateException");
+        }
+        catch (IllegalStateException expected) {
+        }
+
+        assertEquals(stats.getSubmittedTasks(), 3);
+        assertEquals(stats.getCompletedTasks(), 2);
+        assertEquals(stats.getFailedTasks(), 1);
+        assertEquals(stats.getRejectedTasks(), 0);
+
+        stats.getQueueTime().flush();
+        stats.getRunTime().flush();
+        assertEquals(stats.getQueueTime().getAllTime().getCount(), 3);
+        assertEquals(stats.getRunTime().getAllTime().getCount(), 3);
+    }
+
+    @Test
+    public void testRejected()
+    {
+        ExecutorStats stats = new ExecutorStats();
+        Executor executor = stats.instrument((Executor) task -> {
+            throw new RejectedExecutionException("full");
+        });
+
+        try {
+            executor.execute(() -> {});
+            fail("expected RejectedExecutionException");
+        }
+        catch (RejectedExecutionException expected) {
+        }
+        assertEquals(stats.getSubmittedTasks(), 0);
+        assertEquals(stats.getRejectedTasks(), 1);
+    }
+
+    @Test(timeOut = 10_000)
+    public void testExecutorService()
+            throws Exception
+    {
+        ExecutorStats stats = new ExecutorStats();
+        ExecutorService executor = stats.instrument(newSingleThreadExecutor(daemonThreadsNamed("test-%s")));
+        try {
+            Future<?> blocker = executor.submit(() -> {
+                MILLISECONDS.sleep(50);
+                return null;
+            });
+            Future<String> queued = executor.submit(() -> "done");
+            assertEquals(queued.get(), "done");
+            blocker.get();
+        }
+        finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(10, SECONDS));
+
+        assertEquals(stats.getCompletedTasks(), 2);
+        stats.getQueueTime().flush();
+        stats.getRunTime().flush();
+        // the second task waited behind the first one
+        assertTrue(stats.getQueueTime().getAllTime().getMax() >= 40);
+        assertTrue(stats.getRunTime().getAllTime().getMax() >= 40);
+    }
+
+    @Test
+    public void testMBeanExportsStatsOnlyWhenSupplied()
+            throws Exception
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, SECONDS, new LinkedBlockingQueue<>());
+        try {
+            assertFalse(exportedAttributes(new ThreadPoolExecutorMBean(executor)).stream().anyMatch(name -> name.startsWith("Stats.")));
+            assertTrue(exportedAttributes(new ThreadPoolExecutorMBean(executor, new ExecutorStats())).contains("Stats.SubmittedTasks"));
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Set<String> exportedAttributes(Object mbean)
+            throws Exception
+    {
+        MBeanServer server = new TestingMBeanServer();
+        ObjectName name = new ObjectName("test:name=executor");
+        new MBeanExporter(server).export(name.getCanonicalName(), mbean);
+        return Arrays.stream(server.getMBeanInfo(name).getAttributes())
+                .map(MBeanAttributeInfo::getName)
+                .collect(toImmutableSet());
+    }
+}
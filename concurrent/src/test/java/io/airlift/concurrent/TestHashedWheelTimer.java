@@ -0,0 +1,185 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.concurrent;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.airlift.units.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.airlift.concurrent.MoreFutures.addTimeout;
+import static io.airlift.concurrent.MoreFutures.tryGetFutureValue;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test(singleThreaded = true)
+public class TestHashedWheelTimer
+{
+    private HashedWheelTimer timer;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        // small wheel so timers wrap around it several times
+        timer = new HashedWheelTimer(daemonThreadsNamed("test-timer-%s"), new Duration(1, MILLISECONDS), 8, Runnable::run);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+    {
+        timer.shutdownNow();
+    }
+
+    @Test(timeOut = 10_000)
+    public void testSchedule()
+            throws Exception
+    {
+        long start = System.nanoTime();
+        ScheduledFuture<String> future = timer.schedule(() -> "done", 50, MILLISECONDS);
+        assertEquals(future.get(), "done");
+        assertTrue(System.nanoTime() - start >= MILLISECONDS.toNanos(50));
+        assertTrue(future.getDelay(NANOSECONDS) <= 0);
+    }
+
+    @Test(timeOut = 10_000)
+    public void testOrdering()
+            throws Exception
+    {
+        List<Integer> fired = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(4);
+        for (int delay : new int[] {40, 10, 30, 20}) {
+            timer.schedule(() -> {
+                fired.add(delay);
+                done.countDown();
+            }, delay, MILLISECONDS);
+        }
+        done.await();
+        assertEquals(fired, asList(10, 20, 30, 40));
+    }
+
+    @Test(timeOut = 10_000)
+    public void testCancel()
+            throws Exception
+    {
+        AtomicBoolean ran = new AtomicBoolean();
+        ScheduledFuture<?> future = timer.schedule(() -> ran.set(true), 20, MILLISECONDS);
+        assertTrue(future.cancel(false));
+        assertTrue(future.isCancelled());
+
+        timer.schedule(() -> null, 40, MILLISECONDS).get();
+        assertFalse(ran.get());
+
+        // cancelled timers are unlinked from the wheel
+        while (timer.getScheduledTimers() != 0) {
+            MILLISECONDS.sleep(1);
+        }
+    }
+
+    @Test(timeOut = 10_000)
+    public void testFixedRate()
+            throws Exception
+    {
+        CountDownLatch latch = new CountDownLatch(5);
+        ScheduledFuture<?> future = timer.scheduleAtFixedRate(latch::countDown, 0, 2, MILLISECONDS);
+        latch.await();
+        assertTrue(future.cancel(false));
+    }
+
+    @Test(timeOut = 10_000)
+    public void testFixedDelay()
+            throws Exception
+    {
+        CountDownLatch latch = new CountDownLatch(5);
+        ScheduledFuture<?> future = timer.scheduleWithFixedDelay(latch::countDown, 0, 2, MILLISECONDS);
+        latch.await();
+        assertTrue(future.cancel(false));
+    }
+
+    @Test(timeOut = 10_000)
+    public void testShutdownNow()
+            throws Exception
+    {
+        ScheduledFuture<?> pending = timer.schedule(() -> {}, 1, MINUTES);
+        timer.schedule(() -> {}, 1, MINUTES).cancel(false);
+        // let the worker move the timers into the wheel
+        MILLISECONDS.sleep(20);
+
+        assertEquals(timer.shutdownNow(), asList(pending));
+        assertTrue(pending.isCancelled());
+        assertTrue(timer.isShutdown());
+        assertTrue(timer.awaitTermination(1, SECONDS));
+        assertTrue(timer.isTerminated());
+
+        try {
+            timer.schedule(() -> {}, 1, MILLISECONDS);
+            fail("expected RejectedExecutionException");
+        }
+        catch (RejectedExecutionException expected) {
+        }
+    }
+
+    @Test(timeOut = 10_000)
+    public void testManyTimers()
+            throws Exception
+    {
+        int count = 10_000;
+        CountDownLatch latch = new CountDownLatch(count / 2);
+        for (int i = 0; i < count; i++) {
+            ScheduledFuture<?> future = timer.schedule(latch::countDown, i % 100, MILLISECONDS);
+            if (i % 2 == 1) {
+                future.cancel(false);
+            }
+        }
+        latch.await();
+        MILLISECONDS.sleep(20);
+        assertEquals(latch.getCount(), 0);
+    }
+
+    @Test(timeOut = 10_000)
+    public void testAddTimeout()
+            throws Exception
+    {
+        SettableFuture<String> rootFuture = SettableFuture.create();
+        CountDownLatch rootDone = new CountDownLatch(1);
+        rootFuture.addListener(rootDone::countDown, directExecutor());
+        ListenableFuture<String> timeoutFuture = addTimeout(rootFuture, () -> "timeout", new Duration(10, MILLISECONDS), timer);
+        assertEquals(tryGetFutureValue(timeoutFuture, 10, SECONDS).orElse("failed"), "timeout");
+        // the delegate is cancelled after the timeout value is set, so wait for it
+        assertTrue(rootDone.await(10, SECONDS));
+        assertTrue(rootFuture.isCancelled());
+
+        SettableFuture<String> completedFuture = SettableFuture.create();
+        timeoutFuture = addTimeout(completedFuture, () -> "timeout", new Duration(10, SECONDS), timer);
+        completedFuture.set("value");
+        assertEquals(tryGetFutureValue(timeoutFuture, 10, SECONDS).orElse("failed"), "value");
+    }
+}
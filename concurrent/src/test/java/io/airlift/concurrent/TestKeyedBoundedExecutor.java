@@ -0,0 +1,163 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.concurrent;
+
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.testing.Assertions.assertLessThanOrEqual;
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestKeyedBoundedExecutor
+{
+    private final ExecutorService executorService = Executors.newCachedThreadPool(daemonThreadsNamed("test-%s"));
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        executorService.shutdownNow();
+    }
+
+    @Test(timeOut = 30_000)
+    public void testBoundedConcurrency()
+            throws Exception
+    {
+        int maxThreads = 3;
+        KeyedBoundedExecutor<Integer> executor = new KeyedBoundedExecutor<>(executorService, maxThreads);
+
+        int tasks = 10_000;
+        CountDownLatch done = new CountDownLatch(tasks);
+        AtomicInteger running = new AtomicInteger();
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(i % 7, () -> {
+                assertLessThanOrEqual(running.incrementAndGet(), maxThreads);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, SECONDS));
+        assertEquals(executor.getQueuedTasks(), 0);
+    }
+
+    @Test(timeOut = 30_000)
+    public void testRoundRobin()
+            throws Exception
+    {
+        KeyedBoundedExecutor<String> executor = new KeyedBoundedExecutor<>(executorService, 1);
+        Recorder recorder = new Recorder(executor);
+
+        recorder.block("a");
+        recorder.submit("a", 5);
+        recorder.submit("b", 2);
+        assertEquals(executor.getQueuedTasks("a"), 5);
+        assertEquals(executor.getQueuedTasksByKey(), ImmutableMap.of("a", 5, "b", 2));
+
+        recorder.release(7);
+        assertEquals(recorder.getOrder(), asList("a1", "b1", "a2", "b2", "a3", "a4", "a5"));
+        assertEquals(executor.getQueuedTasks(), 0);
+        assertEquals(executor.getQueueTime("b").getAllTime().getCount(), 2.0);
+    }
+
+    @Test(timeOut = 30_000)
+    public void testWeights()
+            throws Exception
+    {
+        KeyedBoundedExecutor<String> executor = new KeyedBoundedExecutor<>(executorService, 1);
+        executor.setWeight("a", 3);
+        Recorder recorder = new Recorder(executor);
+
+        recorder.block("a");
+        recorder.submit("a", 6);
+        recorder.submit("b", 3);
+
+        recorder.release(9);
+        assertEquals(recorder.getOrder(), asList("a1", "a2", "b1", "a3", "a4", "a5", "b2", "a6", "b3"));
+    }
+
+    @Test(timeOut = 30_000)
+    public void testExecutorFor()
+            throws Exception
+    {
+        KeyedBoundedExecutor<String> executor = new KeyedBoundedExecutor<>(executorService, 2);
+        CountDownLatch done = new CountDownLatch(1);
+        executor.executorFor("key").execute(done::countDown);
+        assertTrue(done.await(10, SECONDS));
+        assertEquals(executor.getQueueTime("key").getAllTime().getCount(), 1.0);
+    }
+
+    private static class Recorder
+    {
+        private final KeyedBoundedExecutor<String> executor;
+        private final List<String> order = new CopyOnWriteArrayList<>();
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private CountDownLatch done;
+
+        public Recorder(KeyedBoundedExecutor<String> executor)
+        {
+            this.executor = executor;
+        }
+
+        public void block(String key)
+                throws InterruptedException
+        {
+            executor.execute(key, () -> {
+                blocked.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            blocked.await();
+        }
+
+        public void submit(String key, int count)
+        {
+            for (int i = 1; i <= count; i++) {
+                String name = key + i;
+                executor.execute(key, () -> {
+                    order.add(name);
+                    done.countDown();
+                });
+            }
+        }
+
+        public void release(int expectedTasks)
+                throws InterruptedException
+        {
+            done = new CountDownLatch(expectedTasks);
+            release.countDown();
+            assertTrue(done.await(10, SECONDS));
+        }
+
+        public List<String> getOrder()
+        {
+            return order;
+        }
+    }
+}
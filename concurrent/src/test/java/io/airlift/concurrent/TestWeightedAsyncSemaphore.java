@@ -0,0 +1,251 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.concurrent;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.airlift.units.Duration;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeoutException;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.testing.Assertions.assertInstanceOf;
+import static java.util.Arrays.asList;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestWeightedAsyncSemaphore
+{
+    private final ScheduledExecutorService timeoutExecutor = newSingleThreadScheduledExecutor(daemonThreadsNamed("test-timeout-%s"));
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        timeoutExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testWeightLimit()
+    {
+        Tasks tasks = new Tasks();
+        WeightedAsyncSemaphore<SettableFuture<?>> semaphore = tasks.createSemaphore(100, 10);
+
+        SettableFuture<?> first = SettableFuture.create();
+        SettableFuture<?> second = SettableFuture.create();
+        SettableFuture<?> third = SettableFuture.create();
+        ListenableFuture<?> firstResult = semaphore.submit(first, 40);
+        semaphore.submit(second, 40);
+        ListenableFuture<?> thirdResult = semaphore.submit(third, 40);
+
+        assertEquals(tasks.getStarted(), asList(first, second));
+        assertEquals(semaphore.getRunningWeight(), 80);
+        assertEquals(semaphore.getQueuedTasks(), 1);
+        assertEquals(semaphore.getQueuedWeight(), 40);
+
+        first.set(null);
+        assertTrue(firstResult.isDone());
+        assertEquals(tasks.getStarted(), asList(first, second, third));
+        assertEquals(semaphore.getRunningWeight(), 80);
+        assertEquals(semaphore.getQueuedTasks(), 0);
+
+        second.set(null);
+        third.setException(new IllegalStateException("failed"));
+        assertFailure(thirdResult, IllegalStateException.class);
+        assertEquals(semaphore.getRunningTasks(), 0);
+        assertEquals(semaphore.getRunningWeight(), 0);
+        assertEquals(semaphore.getRunTime().getAllTime().getCount(), 3.0);
+        assertEquals(semaphore.getQueueTime().getAllTime().getCount(), 3.0);
+    }
+
+    @Test
+    public void testSubmissionOrder()
+    {
+        Tasks tasks = new Tasks();
+        WeightedAsyncSemaphore<SettableFuture<?>> semaphore = tasks.createSemaphore(100, 10);
+
+        SettableFuture<?> running = SettableFuture.create();
+        SettableFuture<?> heavy = SettableFuture.create();
+        SettableFuture<?> light = SettableFuture.create();
+        semaphore.submit(running, 50);
+        semaphore.submit(heavy, 60);
+        // fits, but must not overtake the heavy task
+        semaphore.submit(light, 10);
+        assertEquals(tasks.getStarted(), asList(running));
+
+        running.set(null);
+        assertEquals(tasks.getStarted(), asList(running, heavy, light));
+    }
+
+    @Test
+    public void testOversizedTaskRunsAlone()
+    {
+        Tasks tasks = new Tasks();
+        WeightedAsyncSemaphore<SettableFuture<?>> semaphore = tasks.createSemaphore(100, 10);
+
+        SettableFuture<?> small = SettableFuture.create();
+        SettableFuture<?> oversized = SettableFuture.create();
+        semaphore.submit(small, 10);
+        semaphore.submit(oversized, 1000);
+        assertEquals(tasks.getStarted(), asList(small));
+
+        small.set(null);
+        assertEquals(tasks.getStarted(), asList(small, oversized));
+        assertEquals(semaphore.getRunningWeight(), 1000);
+    }
+
+    @Test
+    public void testQueueFull()
+    {
+        Tasks tasks = new Tasks();
+        WeightedAsyncSemaphore<SettableFuture<?>> semaphore = tasks.createSemaphore(10, 1);
+
+        semaphore.submit(SettableFuture.create(), 10);
+        semaphore.submit(SettableFuture.create(), 10);
+        ListenableFuture<?> rejected = semaphore.submit(SettableFuture.create(), 10);
+
+        assertFailure(rejected, RejectedExecutionException.class);
+        assertEquals(semaphore.getRejectedTasks().getTotalCount(), 1);
+        assertEquals(semaphore.getQueuedTasks(), 1);
+    }
+
+    @Test(timeOut = 10_000)
+    public void testQueueTimeout()
+            throws Exception
+    {
+        Tasks tasks = new Tasks();
+        WeightedAsyncSemaphore<SettableFuture<?>> semaphore = tasks.createSemaphore(10, 10);
+
+        SettableFuture<?> running = SettableFuture.create();
+        semaphore.submit(running, 10);
+        ListenableFuture<?> timedOut = semaphore.submit(SettableFuture.create(), 10, new Duration(10, MILLISECONDS));
+        SettableFuture<?> waiting = SettableFuture.create();
+        ListenableFuture<?> waitingResult = semaphore.submit(waiting, 10, new Duration(1, SECONDS));
+
+        while (!timedOut.isDone()) {
+            MILLISECONDS.sleep(1);
+        }
+        assertFailure(timedOut, TimeoutException.class);
+        assertEquals(semaphore.getTimedOutTasks().getTotalCount(), 1);
+        assertEquals(semaphore.getQueuedTasks(), 1);
+
+        running.set(null);
+        assertEquals(tasks.getStarted(), asList(running, waiting));
+        waiting.set(null);
+        waitingResult.get(10, SECONDS);
+        assertEquals(semaphore.getTimedOutTasks().getTotalCount(), 1);
+    }
+
+    @Test
+    public void testCancelQueuedTask()
+    {
+        Tasks tasks = new Tasks();
+        WeightedAsyncSemaphore<SettableFuture<?>> semaphore = tasks.createSemaphore(100, 10);
+
+        SettableFuture<?> running = SettableFuture.create();
+        SettableFuture<?> light = SettableFuture.create();
+        semaphore.submit(running, 50);
+        ListenableFuture<?> heavyResult = semaphore.submit(SettableFuture.create(), 60);
+        semaphore.submit(light, 10);
+
+        // removing the blocked head of the queue lets the task behind it start
+        assertTrue(heavyResult.cancel(false));
+        assertEquals(tasks.getStarted(), asList(running, light));
+        assertEquals(semaphore.getQueuedTasks(), 0);
+        assertEquals(semaphore.getQueuedWeight(), 0);
+    }
+
+    @Test
+    public void testCancelBehindBlockedHead()
+    {
+        Tasks tasks = new Tasks();
+        WeightedAsyncSemaphore<SettableFuture<?>> semaphore = tasks.createSemaphore(100, 2);
+
+        SettableFuture<?> running = SettableFuture.create();
+        SettableFuture<?> head = SettableFuture.create();
+        semaphore.submit(running, 100);
+        semaphore.submit(head, 10);
+
+        // cancelled tasks behind a blocked head free their queue slot at once
+        for (int i = 0; i < 1000; i++) {
+            ListenableFuture<?> result = semaphore.submit(SettableFuture.create(), 10);
+            assertFalse(result.isDone());
+            assertTrue(result.cancel(false));
+            assertEquals(semaphore.getQueuedTasks(), 1);
+        }
+
+        SettableFuture<?> last = SettableFuture.create();
+        semaphore.submit(last, 10);
+        running.set(null);
+        assertEquals(tasks.getStarted(), asList(running, head, last));
+        assertEquals(semaphore.getQueuedWeight(), 0);
+    }
+
+    @Test
+    public void testSubmitterFailure()
+    {
+        WeightedAsyncSemaphore<String> semaphore = new WeightedAsyncSemaphore<>(10, 10, directExecutor(), timeoutExecutor, task -> {
+            throw new IllegalArgumentException(task);
+        });
+
+        assertFailure(semaphore.submit("bad", 5), IllegalArgumentException.class);
+        assertEquals(semaphore.getRunningWeight(), 0);
+    }
+
+    private static void assertFailure(ListenableFuture<?> future, Class<? extends Throwable> expected)
+    {
+        assertTrue(future.isDone());
+        assertFalse(future.isCancelled());
+        try {
+            future.get();
+            fail("expected " + expected.getSimpleName());
+        }
+        catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+        catch (ExecutionException e) {
+            assertInstanceOf(e.getCause(), expected);
+        }
+    }
+
+    private class Tasks
+    {
+        private final List<SettableFuture<?>> started = new CopyOnWriteArrayList<>();
+
+        public WeightedAsyncSemaphore<SettableFuture<?>> createSemaphore(long maxWeight, int maxQueuedTasks)
+        {
+            return new WeightedAsyncSemaphore<>(maxWeight, maxQueuedTasks, directExecutor(), timeoutExecutor, task -> {
+                started.add(task);
+                return task;
+            });
+        }
+
+        public List<SettableFuture<?>> getStarted()
+        {
+            return started;
+        }
+    }
+}
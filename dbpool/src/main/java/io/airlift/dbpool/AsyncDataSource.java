@@ -0,0 +1,202 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.dbpool;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import io.airlift.concurrent.BoundedExecutor;
+import io.airlift.concurrent.ExecutorStats;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.PreDestroy;
+
+import java.sql.Connection;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.collect.Sets.newConcurrentHashSet;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+
+/**
+ * Runs JDBC work against a {@link ManagedDataSource} on a dedicated executor
+ * and returns futures, so async HTTP resources do not block a request thread
+ * on the database.
+ * <p>
+ * The executor runs at most max connections tasks at once, so queued work
+ * waits for a connection without holding a thread. When max queued tasks
+ * are already waiting, new work fails with a {@link RejectedExecutionException}.
+ * Cancelling a future before its work starts skips the work; cancelling with
+ * interruption interrupts the running work. Closing cancels all work that has
+ * not completed and rejects new work.
+ * <p>
+ * The futures can be bound to a JAX-RS {@code AsyncResponse}:
+ * <pre>
+ * {@code
+ *     ListenableFuture<Person> person = asyncDataSource.submit(connection -> loadPerson(connection, id));
+ *     bindAsyncResponse(asyncResponse, person, responseExecutor).withTimeout(timeout);
+ * }
+ * </pre>
+ */
+public class AsyncDataSource
+{
+    private final ManagedDataSource dataSource;
+    private final int maxQueuedTasks;
+    private final ExecutorService coreExecutor;
+    private final Executor executor;
+    private final ExecutorStats executorStats = new ExecutorStats();
+    private final AtomicInteger queuedTasks = new AtomicInteger();
+    // submitted and not yet completed, so close() can cancel them
+    private final Set<ListenableFutureTask<?>> pendingTasks = newConcurrentHashSet();
+    private volatile boolean closed;
+
+    public AsyncDataSource(ManagedDataSource dataSource, int maxQueuedTasks)
+    {
+        this.dataSource = requireNonNull(dataSource, "dataSource is null");
+        if (maxQueuedTasks < 0) {
+            throw new IllegalArgumentException("maxQueuedTasks is negative: maxQueuedTasks=" + maxQueuedTasks);
+        }
+        this.maxQueuedTasks = maxQueuedTasks;
+        this.coreExecutor = newCachedThreadPool(daemonThreadsNamed("dbpool-async-%s"));
+        this.executor = executorStats.instrument(new BoundedExecutor(coreExecutor, dataSource.getMaxConnections()));
+    }
+
+    /**
+     * Runs the callback with a connection, which is closed when the callback returns.
+     */
+    public <T> ListenableFuture<T> submit(ConnectionCallback<T> callback)
+    {
+        requireNonNull(callback, "callback is null");
+        return execute(() -> {
+            try (Connection connection = dataSource.getConnection()) {
+                return callback.run(connection);
+            }
+        });
+    }
+
+    /**
+     * Runs the callback in a transaction, which is committed if the callback
+     * returns and rolled back if it throws.
+     */
+    public <T> ListenableFuture<T> submitInTransaction(ConnectionCallback<T> callback)
+    {
+        requireNonNull(callback, "callback is null");
+        return execute(() -> {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                boolean committed = false;
+                try {
+                    T result = callback.run(connection);
+                    connection.commit();
+                    committed = true;
+                    return result;
+                }
+                finally {
+                    if (!committed) {
+                        connection.rollback();
+                    }
+                    connection.setAutoCommit(true);
+                }
+            }
+        });
+    }
+
+    /**
+     * Cancels all work that has not completed, interrupting running work.
+     * Work queued in the bounded executor would otherwise never run.
+     */
+    @PreDestroy
+    public void close()
+    {
+        closed = true;
+        // cancel before shutting down, or interrupted work could complete normally first
+        for (ListenableFutureTask<?> task : pendingTasks) {
+            task.cancel(true);
+        }
+        coreExecutor.shutdownNow();
+    }
+
+    private <T> ListenableFuture<T> execute(Callable<T> work)
+    {
+        if (closed) {
+            return Futures.immediateFailedFuture(new RejectedExecutionException("AsyncDataSource is closed"));
+        }
+        if (queuedTasks.incrementAndGet() > maxQueuedTasks) {
+            queuedTasks.decrementAndGet();
+            return Futures.immediateFailedFuture(new RejectedExecutionException("Too many queued database tasks: " + maxQueuedTasks));
+        }
+
+        // a cancelled task frees its queue slot at once; it still reaches the executor, but skips the work
+        ListenableFutureTask<T> task = ListenableFutureTask.create(work);
+        AtomicBoolean dequeued = new AtomicBoolean();
+        Runnable dequeue = () -> {
+            if (dequeued.compareAndSet(false, true)) {
+                queuedTasks.decrementAndGet();
+            }
+        };
+        pendingTasks.add(task);
+        task.addListener(() -> {
+            pendingTasks.remove(task);
+            if (task.isCancelled()) {
+                dequeue.run();
+            }
+        }, directExecutor());
+        try {
+            executor.execute(() -> {
+                dequeue.run();
+                task.run();
+                // cancel(true) leaves the interrupt set, and the bounded executor runs the next task on this thread
+                Thread.interrupted();
+            });
+        }
+        catch (RejectedExecutionException | IllegalStateException e) {
+            // the core executor was shut down by close()
+            task.cancel(false);
+            return Futures.immediateFailedFuture(new RejectedExecutionException("AsyncDataSource is closed", e));
+        }
+        if (closed) {
+            // raced with close()
+            task.cancel(true);
+        }
+        return task;
+    }
+
+    @Managed
+    public int getQueuedTasks()
+    {
+        return queuedTasks.get();
+    }
+
+    @Managed
+    public int getMaxQueuedTasks()
+    {
+        return maxQueuedTasks;
+    }
+
+    @Managed
+    @Nested
+    public ExecutorStats getExecutorStats()
+    {
+        return executorStats;
+    }
+}
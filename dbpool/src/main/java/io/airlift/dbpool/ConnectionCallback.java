@@ -0,0 +1,28 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.dbpool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * JDBC work run by {@link AsyncDataSource} with a connection checked out
+ * for the duration of the call.
+ */
+@FunctionalInterface
+public interface ConnectionCallback<T>
+{
+    T run(Connection connection)
+            throws SQLException;
+}
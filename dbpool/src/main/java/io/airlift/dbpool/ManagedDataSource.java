@@ -16,10 +16,15 @@
 package io.airlift.dbpool;
 
 import com.google.common.primitives.Ints;
+import io.airlift.stats.DistributionStat;
+import io.airlift.stats.TimeHistogram;
 import io.airlift.units.Duration;
 import org.weakref.jmx.Flatten;
 import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
 
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
 import javax.sql.ConnectionEvent;
 import javax.sql.ConnectionEventListener;
 import javax.sql.DataSource;
@@ -29,22 +34,80 @@ import java.io.PrintWriter;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.util.Iterator;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.airlift.units.Duration.nanosSince;
 import static java.lang.Math.ceil;
-
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Data source that pools physical connections.
+ * <p>
+ * Idle connections are reused most recently returned first. A connection
+ * that has been idle longer than the validation interval is checked with
+ * {@link Connection#isValid} before it is handed out. A caller that finds no
+ * idle connection creates one on its own thread. Connections are closed on a
+ * background thread, which also closes connections past their max lifetime
+ * or idle beyond the min idle count for longer than the max idle time, and
+ * keeps min idle connections open.
+ */
 public abstract class ManagedDataSource
         implements DataSource
 {
+    private static final Duration HOUSEKEEPING_INTERVAL = new Duration(1, SECONDS);
+
     private final ManagedSemaphore semaphore;
     private final AtomicInteger maxConnectionWaitMillis = new AtomicInteger(100);
     private final ManagedDataSourceStats stats = new ManagedDataSourceStats();
 
+    private final int minIdleConnections;
+    private final long maxIdleTimeNanos;
+    private final long maxLifetimeNanos;
+    private final long validationIntervalNanos;
+    private final int statementCacheSize;
+
+    // last is the most recently returned connection
+    private final BlockingDeque<PoolEntry> idleConnections = new LinkedBlockingDeque<>();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final ScheduledExecutorService poolExecutor = newSingleThreadScheduledExecutor(daemonThreadsNamed("dbpool-%s"));
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile boolean closed;
+
     protected ManagedDataSource(int maxConnections, Duration maxConnectionWait)
+    {
+        this(maxConnections,
+                maxConnectionWait,
+                ManagedDataSourceConfig.DEFAULT_MIN_IDLE_CONNECTIONS,
+                ManagedDataSourceConfig.DEFAULT_MAX_IDLE_TIME,
+                ManagedDataSourceConfig.DEFAULT_MAX_LIFETIME,
+                ManagedDataSourceConfig.DEFAULT_VALIDATION_INTERVAL,
+                ManagedDataSourceConfig.DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    protected ManagedDataSource(ManagedDataSourceConfig<?> config)
+    {
+        this(config.getMaxConnections(),
+                config.getMaxConnectionWait(),
+                config.getMinIdleConnections(),
+                config.getMaxIdleTime(),
+                config.getMaxLifetime(),
+                config.getValidationInterval(),
+                config.getStatementCacheSize());
+    }
+
+    private ManagedDataSource(int maxConnections, Duration maxConnectionWait, int minIdleConnections, Duration maxIdleTime, Duration maxLifetime, Duration validationInterval, int statementCacheSize)
     {
         if (maxConnections < 1) {
             throw new IllegalArgumentException("maxConnections must be at least 1: maxConnections=" + maxConnections);
@@ -52,8 +115,28 @@ public abstract class ManagedDataSource
         if (maxConnectionWait == null) {
             throw new NullPointerException("maxConnectionWait is null");
         }
+        if (minIdleConnections < 0) {
+            throw new IllegalArgumentException("minIdleConnections is negative: minIdleConnections=" + minIdleConnections);
+        }
+        if (maxIdleTime == null) {
+            throw new NullPointerException("maxIdleTime is null");
+        }
+        if (maxLifetime == null) {
+            throw new NullPointerException("maxLifetime is null");
+        }
+        if (validationInterval == null) {
+            throw new NullPointerException("validationInterval is null");
+        }
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException("statementCacheSize is negative: statementCacheSize=" + statementCacheSize);
+        }
         semaphore = new ManagedSemaphore(maxConnections);
         maxConnectionWaitMillis.set(Ints.checkedCast(maxConnectionWait.toMillis()));
+        this.minIdleConnections = minIdleConnections;
+        this.maxIdleTimeNanos = maxIdleTime.roundTo(NANOSECONDS);
+        this.maxLifetimeNanos = maxLifetime.roundTo(NANOSECONDS);
+        this.validationIntervalNanos = validationInterval.roundTo(NANOSECONDS);
+        this.statementCacheSize = statementCacheSize;
     }
 
     @Override
@@ -81,20 +164,91 @@ public abstract class ManagedDataSource
         }
     }
 
+    /**
+     * Closes the idle connections and stops housekeeping. Connections that
+     * are checked out are closed when they are returned.
+     */
+    @PreDestroy
+    public void close()
+    {
+        closed = true;
+        // queued connection closes still run; housekeeping is cancelled
+        poolExecutor.shutdown();
+        for (PoolEntry entry = idleConnections.poll(); entry != null; entry = idleConnections.poll()) {
+            closeConnection(entry);
+        }
+    }
+
     protected Connection createConnection()
             throws SQLException
+    {
+        if (closed) {
+            throw new SQLException(getClass().getSimpleName() + " has been closed");
+        }
+        startHousekeeping();
+
+        // reuse an idle connection, discarding any that have expired or gone bad
+        for (PoolEntry entry = idleConnections.pollLast(); entry != null; entry = idleConnections.pollLast()) {
+            Connection connection = checkoutIdle(entry);
+            if (connection != null) {
+                stats.poolHit();
+                return connection;
+            }
+        }
+
+        stats.poolMiss();
+        return checkout(createPoolEntry());
+    }
+
+    protected abstract PooledConnection createConnectionInternal()
+            throws SQLException;
+
+    private Connection checkoutIdle(PoolEntry entry)
+    {
+        long now = System.nanoTime();
+        if (entry.isExpired(now)) {
+            closeConnectionAsync(entry);
+            return null;
+        }
+        try {
+            Connection connection = entry.getHandle();
+            if (now - entry.getLastReturnedNanos() > validationIntervalNanos && !connection.isValid(getValidationTimeoutSeconds())) {
+                stats.validationFailed();
+                closeConnectionAsync(entry);
+                return null;
+            }
+            return entry.checkout(connection);
+        }
+        catch (SQLException | RuntimeException e) {
+            stats.validationFailed();
+            closeConnectionAsync(entry);
+            return null;
+        }
+    }
+
+    private Connection checkout(PoolEntry entry)
+            throws SQLException
+    {
+        try {
+            return entry.checkout(entry.getHandle());
+        }
+        catch (SQLException | RuntimeException e) {
+            closeConnectionAsync(entry);
+            throw e;
+        }
+    }
+
+    private PoolEntry createPoolEntry()
+            throws SQLException
     {
         boolean success = false;
         try {
-            // todo do not create on caller's thread
             long start = System.nanoTime();
             PooledConnection pooledConnection = createConnectionInternal();
-            Connection connection = prepareConnection(pooledConnection);
             stats.connectionCreated(nanosSince(start));
-
+            openConnections.incrementAndGet();
             success = true;
-
-            return connection;
+            return new PoolEntry(pooledConnection, start, statementCacheSize == 0 ? null : new StatementCache(statementCacheSize, stats));
         }
         finally {
             if (!success) {
@@ -103,30 +257,86 @@ public abstract class ManagedDataSource
         }
     }
 
-    protected abstract PooledConnection createConnectionInternal()
-            throws SQLException;
+    private void connectionReturned(PoolEntry entry)
+    {
+        long now = System.nanoTime();
+        // if this pool has been closed, the connection expired, or we have too many connections already
+        if (closed || entry.isExpired(now) || idleConnections.size() + getConnectionsActive() > getMaxConnections()) {
+            closeConnectionAsync(entry);
+            return;
+        }
+        entry.setLastReturnedNanos(now);
+        idleConnections.addLast(entry);
+        if (closed && idleConnections.remove(entry)) {
+            // raced with close
+            closeConnection(entry);
+        }
+    }
 
-    protected Connection prepareConnection(PooledConnection pooledConnection)
-            throws SQLException
+    private void closeConnectionAsync(PoolEntry entry)
     {
-        Connection connection = pooledConnection.getConnection();
-        pooledConnection.addConnectionEventListener(new NoPoolConnectionEventListener());
-        return connection;
+        try {
+            poolExecutor.execute(() -> closeConnection(entry));
+        }
+        catch (RejectedExecutionException e) {
+            closeConnection(entry);
+        }
     }
 
-    protected void connectionReturned(PooledConnection pooledConnection, long checkoutTime)
+    private void closeConnection(PoolEntry entry)
     {
+        openConnections.decrementAndGet();
+        stats.connectionClosed();
         try {
-            // todo do not close on caller's thread
-            pooledConnection.close();
+            entry.closeStatements();
+            entry.getPooledConnection().close();
         }
-        catch (SQLException ignored) {
+        catch (SQLException | RuntimeException ignored) {
             // hey we tried
         }
     }
 
-    protected void connectionDestroyed(PooledConnection pooledConnection, long checkoutTime)
+    private void startHousekeeping()
+    {
+        if (started.compareAndSet(false, true)) {
+            long interval = HOUSEKEEPING_INTERVAL.toMillis();
+            try {
+                poolExecutor.scheduleWithFixedDelay(this::housekeeping, 0, interval, MILLISECONDS);
+            }
+            catch (RejectedExecutionException ignored) {
+                // closed
+            }
+        }
+    }
+
+    private void housekeeping()
+    {
+        // close expired connections, and connections idle too long beyond the min idle count, oldest first
+        long now = System.nanoTime();
+        for (Iterator<PoolEntry> iterator = idleConnections.iterator(); iterator.hasNext(); ) {
+            PoolEntry entry = iterator.next();
+            boolean idleTooLong = now - entry.getLastReturnedNanos() > maxIdleTimeNanos && idleConnections.size() > minIdleConnections;
+            if ((entry.isExpired(now) || idleTooLong) && idleConnections.remove(entry)) {
+                closeConnection(entry);
+            }
+        }
+
+        while (!closed && idleConnections.size() < minIdleConnections && openConnections.get() < getMaxConnections()) {
+            PoolEntry entry;
+            try {
+                entry = createPoolEntry();
+            }
+            catch (SQLException | RuntimeException e) {
+                // try again on the next run
+                return;
+            }
+            connectionReturned(entry);
+        }
+    }
+
+    private int getValidationTimeoutSeconds()
     {
+        return Math.max(1, (int) ceil(getMaxConnectionWaitMillis() / 1000.0));
     }
 
     @Managed
@@ -156,6 +366,56 @@ public abstract class ManagedDataSource
         return semaphore.getActivePermits();
     }
 
+    @Managed
+    public int getConnectionsWaiting()
+    {
+        return semaphore.getWaitingThreads();
+    }
+
+    @Managed
+    public long getConnectionWaitTimeouts()
+    {
+        return semaphore.getTimeouts();
+    }
+
+    @Managed
+    @Nested
+    public TimeHistogram getConnectionWaitTime()
+    {
+        return semaphore.getWaitTime();
+    }
+
+    @Managed
+    @Nested
+    public DistributionStat getConnectionWaitQueueDepth()
+    {
+        return semaphore.getQueueDepth();
+    }
+
+    @Managed
+    public int getConnectionsIdle()
+    {
+        return idleConnections.size();
+    }
+
+    @Managed
+    public int getConnectionsOpen()
+    {
+        return openConnections.get();
+    }
+
+    @Managed
+    public int getMinIdleConnections()
+    {
+        return minIdleConnections;
+    }
+
+    @Managed
+    public int getStatementCacheSize()
+    {
+        return statementCacheSize;
+    }
+
     @Managed
     public int getMaxConnections()
     {
@@ -263,12 +523,18 @@ public abstract class ManagedDataSource
         }
     }
 
-    protected class NoPoolConnectionEventListener
+    private class PooledConnectionEventListener
             implements ConnectionEventListener
     {
+        private final PoolEntry entry;
         private final long checkoutTime = System.nanoTime();
         private final AtomicBoolean returned = new AtomicBoolean();
 
+        public PooledConnectionEventListener(PoolEntry entry)
+        {
+            this.entry = entry;
+        }
+
         @Override
         public void connectionClosed(ConnectionEvent event)
         {
@@ -277,19 +543,15 @@ public abstract class ManagedDataSource
                 return;
             }
 
-            PooledConnection pooledConnection = null;
             try {
-                pooledConnection = (PooledConnection) event.getSource();
-                pooledConnection.removeConnectionEventListener(this);
-
+                entry.getPooledConnection().removeConnectionEventListener(this);
                 stats.connectionReturned(nanosSince(checkoutTime));
+
+                // pool before releasing the permit, so the next borrower finds it
+                connectionReturned(entry);
             }
             finally {
                 semaphore.release();
-
-                if (pooledConnection != null) {
-                    connectionReturned(pooledConnection, checkoutTime);
-                }
             }
         }
 
@@ -301,20 +563,81 @@ public abstract class ManagedDataSource
                 return;
             }
 
-            PooledConnection pooledConnection = null;
             try {
-                pooledConnection = (PooledConnection) event.getSource();
-                pooledConnection.removeConnectionEventListener(this);
-
+                entry.getPooledConnection().removeConnectionEventListener(this);
                 stats.connectionErrorOccurred();
+                closeConnectionAsync(entry);
             }
             finally {
                 semaphore.release();
+            }
+        }
+    }
 
-                if (pooledConnection != null) {
-                    connectionDestroyed(pooledConnection, checkoutTime);
-                }
+    private class PoolEntry
+    {
+        private final PooledConnection pooledConnection;
+        private final long createdNanos;
+        private final StatementCache statementCache;
+        private volatile long lastReturnedNanos;
+        // with a statement cache, one handle is kept open so its statements survive checkouts
+        private Connection handle;
+
+        public PoolEntry(PooledConnection pooledConnection, long createdNanos, @Nullable StatementCache statementCache)
+        {
+            this.pooledConnection = pooledConnection;
+            this.createdNanos = createdNanos;
+            this.statementCache = statementCache;
+            this.lastReturnedNanos = createdNanos;
+        }
+
+        public synchronized Connection getHandle()
+                throws SQLException
+        {
+            if (statementCache == null) {
+                return pooledConnection.getConnection();
+            }
+            if (handle == null) {
+                handle = pooledConnection.getConnection();
             }
+            return handle;
+        }
+
+        public Connection checkout(Connection handle)
+        {
+            PooledConnectionEventListener listener = new PooledConnectionEventListener(this);
+            pooledConnection.addConnectionEventListener(listener);
+            if (statementCache == null) {
+                return handle;
+            }
+            return StatementCachingConnection.wrap(handle, statementCache, pooledConnection, listener);
+        }
+
+        public void closeStatements()
+        {
+            if (statementCache != null) {
+                statementCache.closeAll();
+            }
+        }
+
+        public PooledConnection getPooledConnection()
+        {
+            return pooledConnection;
+        }
+
+        public long getLastReturnedNanos()
+        {
+            return lastReturnedNanos;
+        }
+
+        public void setLastReturnedNanos(long lastReturnedNanos)
+        {
+            this.lastReturnedNanos = lastReturnedNanos;
+        }
+
+        public boolean isExpired(long now)
+        {
+            return now - createdNanos > maxLifetimeNanos;
         }
     }
 }
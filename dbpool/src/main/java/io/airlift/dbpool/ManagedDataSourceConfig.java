@@ -43,8 +43,19 @@ import java.util.concurrent.TimeUnit;
 @DefunctConfig({"db.username", "db.password"})
 public class ManagedDataSourceConfig<T extends ManagedDataSourceConfig<T>>
 {
+    static final int DEFAULT_MIN_IDLE_CONNECTIONS = 0;
+    static final Duration DEFAULT_MAX_IDLE_TIME = new Duration(10, TimeUnit.MINUTES);
+    static final Duration DEFAULT_MAX_LIFETIME = new Duration(30, TimeUnit.MINUTES);
+    static final Duration DEFAULT_VALIDATION_INTERVAL = new Duration(1, TimeUnit.SECONDS);
+    static final int DEFAULT_STATEMENT_CACHE_SIZE = 0;
+
     private int maxConnections = 10;
     private Duration maxConnectionWait = new Duration(500, TimeUnit.MILLISECONDS);
+    private int minIdleConnections = DEFAULT_MIN_IDLE_CONNECTIONS;
+    private Duration maxIdleTime = DEFAULT_MAX_IDLE_TIME;
+    private Duration maxLifetime = DEFAULT_MAX_LIFETIME;
+    private Duration validationInterval = DEFAULT_VALIDATION_INTERVAL;
+    private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
 
     /**
      * Gets the maximum number of concurrent connections allowed by the data
@@ -94,6 +105,107 @@ public class ManagedDataSourceConfig<T extends ManagedDataSourceConfig<T>>
         return self();
     }
 
+    /**
+     * Gets the number of idle connections the data source keeps open, so
+     * checkouts do not wait for a new connection.
+     */
+    public int getMinIdleConnections()
+    {
+        return minIdleConnections;
+    }
+
+    /**
+     * Sets the number of idle connections the data source keeps open, so
+     * checkouts do not wait for a new connection.
+     */
+    @Config("db.connections.min-idle")
+    public T setMinIdleConnections(int minIdleConnections)
+    {
+        this.minIdleConnections = minIdleConnections;
+        return self();
+    }
+
+    /**
+     * Gets how long a connection beyond the min idle count may sit idle in
+     * the pool before it is closed.
+     */
+    public Duration getMaxIdleTime()
+    {
+        return maxIdleTime;
+    }
+
+    /**
+     * Sets how long a connection beyond the min idle count may sit idle in
+     * the pool before it is closed.
+     */
+    @Config("db.connections.max-idle-time")
+    public T setMaxIdleTime(Duration maxIdleTime)
+    {
+        this.maxIdleTime = maxIdleTime;
+        return self();
+    }
+
+    /**
+     * Gets how long a physical connection is used before it is closed and
+     * replaced.
+     */
+    public Duration getMaxLifetime()
+    {
+        return maxLifetime;
+    }
+
+    /**
+     * Sets how long a physical connection is used before it is closed and
+     * replaced.
+     */
+    @Config("db.connections.max-lifetime")
+    public T setMaxLifetime(Duration maxLifetime)
+    {
+        this.maxLifetime = maxLifetime;
+        return self();
+    }
+
+    /**
+     * Gets how long a connection may be idle before it is validated when
+     * checked out.
+     */
+    public Duration getValidationInterval()
+    {
+        return validationInterval;
+    }
+
+    /**
+     * Sets how long a connection may be idle before it is validated when
+     * checked out.
+     */
+    @Config("db.connections.validation-interval")
+    public T setValidationInterval(Duration validationInterval)
+    {
+        this.validationInterval = validationInterval;
+        return self();
+    }
+
+    /**
+     * Gets the number of prepared statements cached per physical connection.
+     * Zero disables the cache.
+     */
+    public int getStatementCacheSize()
+    {
+        return statementCacheSize;
+    }
+
+    /**
+     * Sets the number of prepared statements cached per physical connection,
+     * so preparing the same SQL on a later checkout reuses the statement.
+     * Zero disables the cache.
+     */
+    @Config("db.statement-cache.size")
+    public T setStatementCacheSize(int statementCacheSize)
+    {
+        this.statementCacheSize = statementCacheSize;
+        return self();
+    }
+
     @SuppressWarnings("unchecked")
     private T self()
     {
@@ -27,6 +27,12 @@ public final class ManagedDataSourceStats
     private final TimeStat checkout = new TimeStat();
     private final TimeStat create = new TimeStat();
     private final TimeStat held = new TimeStat();
+    private final AtomicLong poolHitCount = new AtomicLong();
+    private final AtomicLong poolMissCount = new AtomicLong();
+    private final AtomicLong validationFailureCount = new AtomicLong();
+    private final AtomicLong closedConnectionCount = new AtomicLong();
+    private final AtomicLong statementCacheHitCount = new AtomicLong();
+    private final AtomicLong statementCacheMissCount = new AtomicLong();
     private final AtomicLong connectionErrorCount = new AtomicLong();
     private final AtomicLong creationErrorCount = new AtomicLong();
 
@@ -51,6 +57,53 @@ public final class ManagedDataSourceStats
         return held;
     }
 
+    /**
+     * Time checkouts that found no idle connection waited for a new one.
+     */
+    @Managed
+    public long getPoolHitCount()
+    {
+        return poolHitCount.get();
+    }
+
+    @Managed
+    public long getPoolMissCount()
+    {
+        return poolMissCount.get();
+    }
+
+    @Managed
+    public long getValidationFailureCount()
+    {
+        return validationFailureCount.get();
+    }
+
+    @Managed
+    public long getClosedConnectionCount()
+    {
+        return closedConnectionCount.get();
+    }
+
+    @Managed
+    public long getStatementCacheHitCount()
+    {
+        return statementCacheHitCount.get();
+    }
+
+    @Managed
+    public long getStatementCacheMissCount()
+    {
+        return statementCacheMissCount.get();
+    }
+
+    @Managed
+    public double getStatementCacheHitRate()
+    {
+        long hits = statementCacheHitCount.get();
+        long total = hits + statementCacheMissCount.get();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
     @Managed
     public long getConnectionErrorCount()
     {
@@ -73,6 +126,36 @@ public final class ManagedDataSourceStats
         create.add(elapsedTime);
     }
 
+    void poolHit()
+    {
+        poolHitCount.incrementAndGet();
+    }
+
+    void poolMiss()
+    {
+        poolMissCount.incrementAndGet();
+    }
+
+    void validationFailed()
+    {
+        validationFailureCount.incrementAndGet();
+    }
+
+    void connectionClosed()
+    {
+        closedConnectionCount.incrementAndGet();
+    }
+
+    void statementCacheHit()
+    {
+        statementCacheHitCount.incrementAndGet();
+    }
+
+    void statementCacheMissed()
+    {
+        statementCacheMissCount.incrementAndGet();
+    }
+
     void connectionReturned(Duration elapsedTime)
     {
         held.add(elapsedTime);
@@ -15,34 +15,52 @@
  */
 package io.airlift.dbpool;
 
+import io.airlift.stats.DistributionStat;
+import io.airlift.stats.TimeHistogram;
 import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
 
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * A fair semaphore that can be resized while threads are waiting on it.
+ * Blocking and timed acquires record how long they waited and how many
+ * threads were queued ahead of them. Untimed {@code tryAcquire} calls
+ * never wait and may take a permit ahead of queued threads.
+ */
 class ManagedSemaphore
         extends Semaphore
 {
     private final AtomicLong activePermits = new AtomicLong();
-    private int permits;
+    private final AtomicInteger permits;
+    private final AtomicLong timeouts = new AtomicLong();
+    private final TimeHistogram waitTime = new TimeHistogram(MILLISECONDS);
+    private final DistributionStat queueDepth = new DistributionStat();
 
     public ManagedSemaphore(int permits)
     {
-        super(permits);
-        this.permits = permits;
+        // fair, so threads waiting for a connection are served in arrival order
+        super(permits, true);
+        this.permits = new AtomicInteger(permits);
     }
 
     @Managed
-    public synchronized int getPermits()
+    public int getPermits()
     {
-        return permits;
+        return permits.get();
     }
 
     @Managed
-    public synchronized void setPermits(int newPermits)
+    public void setPermits(int newPermits)
     {
-        int delta = newPermits - this.permits;
+        // concurrent resizes each apply the delta from the value they replaced, so the
+        // deltas add up to the final size; neither path blocks acquiring threads
+        int delta = newPermits - permits.getAndSet(newPermits);
         if (delta > 0) {
             // MUST call super since release on this method will modify active permits
             super.release(delta);
@@ -50,8 +68,32 @@ class ManagedSemaphore
         else if (delta < 0) {
             super.reducePermits(-delta);
         }
+    }
+
+    @Managed
+    public int getWaitingThreads()
+    {
+        return getQueueLength();
+    }
+
+    @Managed
+    public long getTimeouts()
+    {
+        return timeouts.get();
+    }
+
+    @Managed
+    @Nested
+    public TimeHistogram getWaitTime()
+    {
+        return waitTime;
+    }
 
-        this.permits = newPermits;
+    @Managed
+    @Nested
+    public DistributionStat getQueueDepth()
+    {
+        return queueDepth;
     }
 
     @Managed
@@ -70,14 +112,22 @@ class ManagedSemaphore
     public void acquire()
             throws InterruptedException
     {
-        super.acquire();
+        long start = startWait();
+        try {
+            super.acquire();
+        }
+        finally {
+            endWait(start);
+        }
         activePermits.incrementAndGet();
     }
 
     @Override
     public void acquireUninterruptibly()
     {
+        long start = startWait();
         super.acquireUninterruptibly();
+        endWait(start);
         activePermits.incrementAndGet();
     }
 
@@ -95,10 +145,19 @@ class ManagedSemaphore
     public boolean tryAcquire(long timeout, TimeUnit unit)
             throws InterruptedException
     {
-        if (super.tryAcquire(timeout, unit)) {
+        long start = startWait();
+        boolean acquired;
+        try {
+            acquired = super.tryAcquire(timeout, unit);
+        }
+        finally {
+            endWait(start);
+        }
+        if (acquired) {
             activePermits.incrementAndGet();
             return true;
         }
+        timeouts.incrementAndGet();
         return false;
     }
 
@@ -106,14 +165,22 @@ class ManagedSemaphore
     public void acquire(int permits)
             throws InterruptedException
     {
-        super.acquire(permits);
+        long start = startWait();
+        try {
+            super.acquire(permits);
+        }
+        finally {
+            endWait(start);
+        }
         activePermits.addAndGet(permits);
     }
 
     @Override
     public void acquireUninterruptibly(int permits)
     {
+        long start = startWait();
         super.acquireUninterruptibly(permits);
+        endWait(start);
         activePermits.addAndGet(permits);
     }
 
@@ -131,10 +198,19 @@ class ManagedSemaphore
     public boolean tryAcquire(int permits, long timeout, TimeUnit unit)
             throws InterruptedException
     {
-        if (super.tryAcquire(permits, timeout, unit)) {
+        long start = startWait();
+        boolean acquired;
+        try {
+            acquired = super.tryAcquire(permits, timeout, unit);
+        }
+        finally {
+            endWait(start);
+        }
+        if (acquired) {
             activePermits.addAndGet(permits);
             return true;
         }
+        timeouts.incrementAndGet();
         return false;
     }
 
@@ -159,4 +235,15 @@ class ManagedSemaphore
         activePermits.addAndGet(permits);
         return permits;
     }
+
+    private long startWait()
+    {
+        queueDepth.add(getQueueLength());
+        return System.nanoTime();
+    }
+
+    private void endWait(long start)
+    {
+        waitTime.addNanos(System.nanoTime() - start);
+    }
 }
@@ -40,7 +40,7 @@ public class PostgreSqlDataSource
 
     public PostgreSqlDataSource(ServiceSelector serviceSelector, PostgreSqlDataSourceConfig config)
     {
-        super(config.getMaxConnections(), config.getMaxConnectionWait());
+        super(config);
 
         this.serviceSelector = requireNonNull(serviceSelector, "serviceSelector is null");
         this.defaultFetchSize = config.getDefaultFetchSize();
@@ -0,0 +1,195 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.dbpool;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.lang.reflect.Method;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * LRU cache of the prepared statements of one physical connection. A cached
+ * statement is handed to one user at a time; preparing the same SQL again
+ * while it is in use gets an uncached statement.
+ */
+@ThreadSafe
+final class StatementCache
+{
+    private final int maxSize;
+    private final ManagedDataSourceStats stats;
+
+    @GuardedBy("this")
+    private final LinkedHashMap<StatementKey, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    public StatementCache(int maxSize, ManagedDataSourceStats stats)
+    {
+        checkArgument(maxSize > 0, "maxSize must be positive");
+        this.maxSize = maxSize;
+        this.stats = requireNonNull(stats, "stats is null");
+    }
+
+    /**
+     * Returns the cached statement for the key and marks it in use, or null
+     * if there is none or it is already in use.
+     */
+    public synchronized PreparedStatement borrow(StatementKey key)
+    {
+        CachedStatement cached = statements.get(key);
+        if (cached == null || cached.inUse) {
+            stats.statementCacheMissed();
+            return null;
+        }
+        stats.statementCacheHit();
+        cached.inUse = true;
+        return cached.statement;
+    }
+
+    /**
+     * Adds a newly prepared statement, in use, evicting the least recently
+     * used idle statements beyond the max size. Returns false if the key is
+     * already cached, in which case the statement is not cached.
+     */
+    public synchronized boolean add(StatementKey key, PreparedStatement statement)
+    {
+        if (statements.containsKey(key)) {
+            return false;
+        }
+        statements.put(key, new CachedStatement(statement));
+
+        // statements in use are skipped, so the cache can briefly exceed its size
+        Iterator<CachedStatement> iterator = statements.values().iterator();
+        while (statements.size() > maxSize && iterator.hasNext()) {
+            CachedStatement eldest = iterator.next();
+            if (!eldest.inUse) {
+                iterator.remove();
+                closeQuietly(eldest.statement);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a borrowed statement to the cache, closing it if it was
+     * evicted or invalidated in the meantime.
+     */
+    public synchronized void release(StatementKey key, PreparedStatement statement)
+    {
+        CachedStatement cached = statements.get(key);
+        if (cached != null && cached.statement == statement) {
+            cached.inUse = false;
+        }
+        else {
+            closeQuietly(statement);
+        }
+    }
+
+    public synchronized void remove(StatementKey key, PreparedStatement statement)
+    {
+        CachedStatement cached = statements.get(key);
+        if (cached != null && cached.statement == statement) {
+            statements.remove(key);
+        }
+        closeQuietly(statement);
+    }
+
+    public synchronized int size()
+    {
+        return statements.size();
+    }
+
+    public synchronized void closeAll()
+    {
+        for (CachedStatement cached : statements.values()) {
+            closeQuietly(cached.statement);
+        }
+        statements.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement statement)
+    {
+        try {
+            statement.close();
+        }
+        catch (SQLException | RuntimeException ignored) {
+        }
+    }
+
+    private static class CachedStatement
+    {
+        private final PreparedStatement statement;
+        private boolean inUse = true;
+
+        public CachedStatement(PreparedStatement statement)
+        {
+            this.statement = statement;
+        }
+    }
+
+    /**
+     * The prepareStatement overload and its arguments.
+     */
+    static final class StatementKey
+    {
+        private final String method;
+        private final List<Object> arguments;
+
+        public StatementKey(Method method, Object[] arguments)
+        {
+            this.method = method.getName() + Arrays.toString(method.getParameterTypes());
+            List<Object> values = new ArrayList<>(arguments.length);
+            for (Object argument : arguments) {
+                // column index and name arrays compare by content
+                if (argument instanceof int[]) {
+                    values.add(Arrays.toString((int[]) argument));
+                }
+                else if (argument instanceof Object[]) {
+                    values.add(Arrays.asList((Object[]) argument));
+                }
+                else {
+                    values.add(argument);
+                }
+            }
+            this.arguments = values;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            StatementKey that = (StatementKey) o;
+            return method.equals(that.method) && arguments.equals(that.arguments);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * method.hashCode() + arguments.hashCode();
+        }
+    }
+}
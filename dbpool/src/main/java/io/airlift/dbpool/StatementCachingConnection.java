@@ -0,0 +1,405 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.dbpool;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.reflect.AbstractInvocationHandler;
+import io.airlift.dbpool.StatementCache.StatementKey;
+
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import javax.sql.PooledConnection;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.reflect.Reflection.newProxy;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Checked out view of a connection handle that stays open for the life of
+ * the physical connection, so its prepared statements can be cached across
+ * checkouts.
+ * <p>
+ * Every statement, result set and database metadata object handed out is
+ * wrapped so that it reports this view as its connection, and unwrap never
+ * exposes the underlying handle, which would outlive the checkout.
+ * <p>
+ * Because the handle is never closed, the driver does not reset it between
+ * checkouts. The view records the original value of any connection setting
+ * the borrower changes, and a cached statement records its original options,
+ * so both are restored before the next borrower gets them.
+ * <p>
+ * Closing the view closes the statements it created, returns cached
+ * statements with their parameters, result sets and options reset, rolls back
+ * any open transaction, restores the connection settings, and then returns
+ * the connection to the pool through the listener. A statement whose options
+ * cannot be restored is evicted, and a connection that fails to reset is
+ * discarded.
+ */
+final class StatementCachingConnection
+        extends AbstractInvocationHandler
+{
+    // settings a borrower may change, mapped to the getters of their original values
+    private static final Map<String, String> CONNECTION_SETTINGS = ImmutableMap.<String, String>builder()
+            .put("setReadOnly", "isReadOnly")
+            .put("setTransactionIsolation", "getTransactionIsolation")
+            .put("setCatalog", "getCatalog")
+            .put("setSchema", "getSchema")
+            .put("setHoldability", "getHoldability")
+            .put("setTypeMap", "getTypeMap")
+            .put("setNetworkTimeout", "getNetworkTimeout")
+            .build();
+    private static final Map<String, String> STATEMENT_OPTIONS = ImmutableMap.<String, String>builder()
+            .put("setMaxRows", "getMaxRows")
+            .put("setLargeMaxRows", "getLargeMaxRows")
+            .put("setMaxFieldSize", "getMaxFieldSize")
+            .put("setFetchSize", "getFetchSize")
+            .put("setFetchDirection", "getFetchDirection")
+            .put("setQueryTimeout", "getQueryTimeout")
+            .put("setPoolable", "isPoolable")
+            .build();
+    // statement options without a getter, so a statement that changed them is evicted
+    private static final Set<String> UNRESTORABLE_STATEMENT_OPTIONS = ImmutableSet.of("setEscapeProcessing", "setCursorName", "closeOnCompletion");
+
+    private final Connection delegate;
+    private final StatementCache statementCache;
+    private final PooledConnection pooledConnection;
+    private final ConnectionEventListener listener;
+    private final Connection proxy;
+
+    // a checked out connection is used by one thread at a time; statements remove themselves when closed
+    private final Set<StatementHandler> openStatements = new LinkedHashSet<>();
+    private final Map<Method, Object[]> originalSettings = new LinkedHashMap<>();
+    private boolean closed;
+
+    private StatementCachingConnection(Connection delegate, StatementCache statementCache, PooledConnection pooledConnection, ConnectionEventListener listener)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.statementCache = requireNonNull(statementCache, "statementCache is null");
+        this.pooledConnection = requireNonNull(pooledConnection, "pooledConnection is null");
+        this.listener = requireNonNull(listener, "listener is null");
+        this.proxy = newProxy(Connection.class, this);
+    }
+
+    public static Connection wrap(Connection delegate, StatementCache statementCache, PooledConnection pooledConnection, ConnectionEventListener listener)
+    {
+        return new StatementCachingConnection(delegate, statementCache, pooledConnection, listener).proxy;
+    }
+
+    @Override
+    protected Object handleInvocation(Object proxy, Method method, Object[] args)
+            throws Throwable
+    {
+        switch (method.getName()) {
+            case "close":
+                close();
+                return null;
+            case "isClosed":
+                if (closed) {
+                    return true;
+                }
+                break;
+        }
+        if (closed) {
+            throw new SQLException("Connection is closed");
+        }
+
+        switch (method.getName()) {
+            case "prepareStatement":
+                return prepareStatement(method, args);
+            case "unwrap":
+            case "isWrapperFor":
+                return unwrap(proxy, method, args);
+        }
+        recordOriginal(delegate, method, args, CONNECTION_SETTINGS, originalSettings);
+        Object result = invokeTarget(delegate, method, args);
+        if (result instanceof Statement) {
+            return openStatement(method.getReturnType(), (Statement) result, null);
+        }
+        if (result instanceof DatabaseMetaData) {
+            return newProxy(DatabaseMetaData.class, new ChildHandler(result, "getConnection", proxy));
+        }
+        return result;
+    }
+
+    private Object prepareStatement(Method method, Object[] args)
+            throws Throwable
+    {
+        StatementKey key = new StatementKey(method, args);
+        PreparedStatement statement = statementCache.borrow(key);
+        if (statement == null) {
+            statement = (PreparedStatement) invokeTarget(delegate, method, args);
+            if (!statementCache.add(key, statement)) {
+                // the cached statement for this SQL is in use
+                return openStatement(PreparedStatement.class, statement, null);
+            }
+        }
+        return openStatement(PreparedStatement.class, statement, key);
+    }
+
+    private Object openStatement(Class<?> type, Statement statement, StatementKey key)
+    {
+        StatementHandler handler = new StatementHandler(type, statement, key);
+        openStatements.add(handler);
+        return handler.proxy;
+    }
+
+    private void close()
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        for (StatementHandler statement : new ArrayList<>(openStatements)) {
+            try {
+                statement.close();
+            }
+            catch (SQLException | RuntimeException ignored) {
+            }
+        }
+
+        try {
+            if (!delegate.getAutoCommit()) {
+                delegate.rollback();
+                delegate.setAutoCommit(true);
+            }
+            restoreOriginals(delegate, originalSettings);
+            delegate.clearWarnings();
+        }
+        catch (SQLException | RuntimeException e) {
+            listener.connectionErrorOccurred(new ConnectionEvent(pooledConnection, e instanceof SQLException ? (SQLException) e : new SQLException(e)));
+            return;
+        }
+        listener.connectionClosed(new ConnectionEvent(pooledConnection));
+    }
+
+    /**
+     * Answers unwrap and isWrapperFor from the proxy alone, since the wrapped
+     * object would lead back to the underlying handle.
+     */
+    private static Object unwrap(Object proxy, Method method, Object[] args)
+            throws SQLException
+    {
+        Class<?> type = (Class<?>) args[0];
+        if (method.getName().equals("isWrapperFor")) {
+            return type.isInstance(proxy);
+        }
+        if (!type.isInstance(proxy)) {
+            throw new SQLException("Cannot unwrap to " + type.getName());
+        }
+        return proxy;
+    }
+
+    /**
+     * Before a setter in the map first runs, saves the arguments that put the
+     * target back to its current value.
+     */
+    private static void recordOriginal(Object target, Method setter, Object[] args, Map<String, String> getters, Map<Method, Object[]> originals)
+            throws Throwable
+    {
+        String getter = getters.get(setter.getName());
+        if (getter == null || originals.containsKey(setter)) {
+            return;
+        }
+        Object[] restoreArgs = args.clone();
+        restoreArgs[args.length - 1] = invokeTarget(target, setter.getDeclaringClass().getMethod(getter), null);
+        originals.put(setter, restoreArgs);
+    }
+
+    private static void restoreOriginals(Object target, Map<Method, Object[]> originals)
+            throws SQLException
+    {
+        for (Map.Entry<Method, Object[]> entry : originals.entrySet()) {
+            try {
+                entry.getKey().invoke(target, entry.getValue());
+            }
+            catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof SQLException ? (SQLException) cause : new SQLException(cause);
+            }
+            catch (IllegalAccessException e) {
+                throw new SQLException(e);
+            }
+        }
+        originals.clear();
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args)
+            throws Throwable
+    {
+        try {
+            return method.invoke(target, args);
+        }
+        catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * A statement created through the view. Cached statements, those with a
+     * key, go back to the cache when closed; the others are closed.
+     */
+    private class StatementHandler
+            extends AbstractInvocationHandler
+    {
+        private final Statement statement;
+        private final StatementKey key;
+        private final Object proxy;
+        private final Map<Method, Object[]> originalOptions = new LinkedHashMap<>();
+        private final Set<ResultSet> resultSets = new HashSet<>();
+        private boolean modified;
+        private boolean closed;
+
+        public StatementHandler(Class<?> type, Statement statement, StatementKey key)
+        {
+            this.statement = statement;
+            this.key = key;
+            this.proxy = newProxy(type.asSubclass(Statement.class), this);
+        }
+
+        @Override
+        protected Object handleInvocation(Object proxy, Method method, Object[] args)
+                throws Throwable
+        {
+            switch (method.getName()) {
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    return closed || statement.isClosed();
+                case "getConnection":
+                    return StatementCachingConnection.this.proxy;
+                case "unwrap":
+                case "isWrapperFor":
+                    return unwrap(proxy, method, args);
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            if (key != null) {
+                if (UNRESTORABLE_STATEMENT_OPTIONS.contains(method.getName())) {
+                    modified = true;
+                }
+                recordOriginal(statement, method, args, STATEMENT_OPTIONS, originalOptions);
+            }
+            Object result = invokeTarget(statement, method, args);
+            if (result instanceof ResultSet) {
+                if (key != null) {
+                    addResultSet((ResultSet) result);
+                }
+                return newProxy(ResultSet.class, new ChildHandler(result, "getStatement", proxy));
+            }
+            return result;
+        }
+
+        private void addResultSet(ResultSet resultSet)
+                throws SQLException
+        {
+            // executing again closes the previous results, so only a few are ever open
+            for (Iterator<ResultSet> iterator = resultSets.iterator(); iterator.hasNext(); ) {
+                if (iterator.next().isClosed()) {
+                    iterator.remove();
+                }
+            }
+            resultSets.add(resultSet);
+        }
+
+        public void close()
+                throws SQLException
+        {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            openStatements.remove(this);
+
+            if (key == null) {
+                statement.close();
+                return;
+            }
+            PreparedStatement cached = (PreparedStatement) statement;
+            if (modified || !reset(cached)) {
+                statementCache.remove(key, cached);
+                return;
+            }
+            statementCache.release(key, cached);
+        }
+
+        private boolean reset(PreparedStatement cached)
+        {
+            try {
+                for (ResultSet resultSet : resultSets) {
+                    resultSet.close();
+                }
+                resultSets.clear();
+                cached.clearParameters();
+                cached.clearBatch();
+                cached.clearWarnings();
+                restoreOriginals(cached, originalOptions);
+                return true;
+            }
+            catch (SQLException | RuntimeException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * An object, such as a result set, whose getter for its parent must
+     * return the parent's wrapper rather than the underlying object.
+     */
+    private static class ChildHandler
+            extends AbstractInvocationHandler
+    {
+        private final Object target;
+        private final String parentGetter;
+        private final Object parent;
+
+        public ChildHandler(Object target, String parentGetter, Object parent)
+        {
+            this.target = target;
+            this.parentGetter = parentGetter;
+            this.parent = parent;
+        }
+
+        @Override
+        protected Object handleInvocation(Object proxy, Method method, Object[] args)
+                throws Throwable
+        {
+            if (method.getName().equals(parentGetter) && method.getParameterCount() == 0) {
+                return parent;
+            }
+            if (method.getName().equals("unwrap") || method.getName().equals("isWrapperFor")) {
+                return unwrap(proxy, method, args);
+            }
+            return invokeTarget(target, method, args);
+        }
+    }
+}
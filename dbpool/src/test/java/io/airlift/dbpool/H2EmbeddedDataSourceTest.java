@@ -18,6 +18,7 @@ package io.airlift.dbpool;
 import com.google.common.io.Files;
 import com.google.common.io.Resources;
 import io.airlift.dbpool.H2EmbeddedDataSourceConfig.Cipher;
+import org.h2.jdbc.JdbcConnection;
 import org.h2.jdbc.JdbcSQLException;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
@@ -28,11 +29,18 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URL;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 
 import static com.google.common.io.Files.asCharSink;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 @Test(singleThreaded = true)
 public class H2EmbeddedDataSourceTest
@@ -170,6 +178,163 @@ public class H2EmbeddedDataSourceTest
         new H2EmbeddedDataSource(config);
     }
 
+    @Test
+    public void testStatementCache()
+            throws Exception
+    {
+        H2EmbeddedDataSourceConfig config = new H2EmbeddedDataSourceConfig()
+                .setFilename(file.getAbsolutePath())
+                .setInitScript("io/airlift/dbpool/h2.ddl")
+                .setMaxConnections(1)
+                .setStatementCacheSize(2);
+        H2EmbeddedDataSource dataSource = new H2EmbeddedDataSource(config);
+        String sql = "select count(*) from message where message_id = ?";
+
+        try (Connection connection = dataSource.getConnection()) {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setString(1, "id");
+            assertCount(statement, 0);
+            // preparing the same SQL while the cached statement is in use gets a separate statement
+            try (PreparedStatement other = connection.prepareStatement(sql)) {
+                other.setString(1, "id");
+                assertCount(other, 0);
+            }
+            statement.close();
+            assertTrue(statement.isClosed());
+            try {
+                statement.executeQuery();
+                fail("expected SQLException");
+            }
+            catch (SQLException expected) {
+            }
+
+            // uncommitted work is rolled back when the connection is returned
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement("insert into message values ('id', 's', 'd', 'r', 'ip', 'c', 'cl', 't')")) {
+                insert.executeUpdate();
+            }
+        }
+        assertEquals(dataSource.getStats().getStatementCacheHitCount(), 0);
+
+        try (Connection connection = dataSource.getConnection()) {
+            assertTrue(connection.getAutoCommit());
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                assertEquals(dataSource.getStats().getStatementCacheHitCount(), 1);
+                assertSame(statement.getConnection(), connection);
+
+                // parameters were cleared when the statement was returned
+                try {
+                    statement.executeQuery();
+                    fail("expected SQLException");
+                }
+                catch (JdbcSQLException expected) {
+                }
+                statement.setString(1, "id");
+                assertCount(statement, 0);
+            }
+        }
+        assertEquals(dataSource.getStats().getStatementCacheHitRate(), 1.0 / 4);
+        dataSource.close();
+    }
+
+    @Test
+    public void testStatementCacheDoesNotExposeHandle()
+            throws Exception
+    {
+        H2EmbeddedDataSourceConfig config = new H2EmbeddedDataSourceConfig()
+                .setFilename(file.getAbsolutePath())
+                .setInitScript("io/airlift/dbpool/h2.ddl")
+                .setMaxConnections(1)
+                .setStatementCacheSize(2);
+        H2EmbeddedDataSource dataSource = new H2EmbeddedDataSource(config);
+        String sql = "select count(*) from message where message_id = ?";
+
+        try (Connection connection = dataSource.getConnection()) {
+            assertSame(connection.unwrap(Connection.class), connection);
+            assertFalse(connection.isWrapperFor(JdbcConnection.class));
+            try {
+                connection.unwrap(JdbcConnection.class);
+                fail("expected SQLException");
+            }
+            catch (SQLException expected) {
+            }
+            assertSame(connection.getMetaData().getConnection(), connection);
+
+            try (Statement statement = connection.createStatement();
+                    ResultSet resultSet = statement.executeQuery("select count(*) from message")) {
+                assertSame(statement.getConnection(), connection);
+                assertSame(resultSet.getStatement(), statement);
+                assertSame(statement.unwrap(Statement.class), statement);
+            }
+
+            try (PreparedStatement cached = connection.prepareStatement(sql);
+                    PreparedStatement uncached = connection.prepareStatement(sql)) {
+                assertSame(cached.getConnection(), connection);
+                assertSame(uncached.getConnection(), connection);
+                uncached.setString(1, "id");
+                try (ResultSet resultSet = uncached.executeQuery()) {
+                    assertSame(resultSet.getStatement(), uncached);
+                }
+            }
+        }
+        dataSource.close();
+    }
+
+    @Test
+    public void testStatementCacheResetsState()
+            throws Exception
+    {
+        H2EmbeddedDataSourceConfig config = new H2EmbeddedDataSourceConfig()
+                .setFilename(file.getAbsolutePath())
+                .setInitScript("io/airlift/dbpool/h2.ddl")
+                .setMaxConnections(1)
+                .setStatementCacheSize(2);
+        H2EmbeddedDataSource dataSource = new H2EmbeddedDataSource(config);
+        String sql = "select count(*) from message where message_id = ?";
+
+        ResultSet leftOpen;
+        int defaultFetchSize;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setReadOnly(true);
+            connection.setHoldability(ResultSet.CLOSE_CURSORS_AT_COMMIT);
+            PreparedStatement statement = connection.prepareStatement(sql);
+            defaultFetchSize = statement.getFetchSize();
+            statement.setMaxRows(5);
+            statement.setFetchSize(2);
+            statement.setString(1, "id");
+            leftOpen = statement.executeQuery();
+            statement.close();
+            // the result set is closed when the statement goes back to the cache
+            assertTrue(leftOpen.isClosed());
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            assertFalse(connection.isReadOnly());
+            assertEquals(connection.getHoldability(), ResultSet.HOLD_CURSORS_OVER_COMMIT);
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                assertEquals(dataSource.getStats().getStatementCacheHitCount(), 1);
+                assertEquals(statement.getMaxRows(), 0);
+                assertEquals(statement.getFetchSize(), defaultFetchSize);
+
+                // options without a getter cannot be restored, so the statement is evicted
+                statement.setEscapeProcessing(false);
+            }
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                assertEquals(dataSource.getStats().getStatementCacheHitCount(), 1);
+            }
+        }
+        dataSource.close();
+    }
+
+    private static void assertCount(PreparedStatement statement, int expected)
+            throws SQLException
+    {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            assertTrue(resultSet.next());
+            assertEquals(resultSet.getInt(1), expected);
+        }
+    }
+
     private static void closeQuietly(ResultSet resultSet)
     {
         try {
@@ -16,6 +16,7 @@
 package io.airlift.dbpool;
 
 import io.airlift.dbpool.MockConnectionPoolDataSource.MockConnection;
+import io.airlift.dbpool.MockConnectionPoolDataSource.MockPooledConnection;
 import io.airlift.units.Duration;
 import org.testng.annotations.Test;
 
@@ -32,17 +33,23 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 
 import static io.airlift.testing.Assertions.assertGreaterThan;
 import static io.airlift.testing.Assertions.assertInstanceOf;
 import static io.airlift.units.Duration.nanosSince;
+import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
@@ -490,4 +497,146 @@ public class ManagedDataSourceTest
         catch (UnsupportedOperationException expected) {
         }
     }
+
+    @Test
+    public void testIdleConnectionReuse()
+            throws Exception
+    {
+        MockConnectionPoolDataSource poolDataSource = new MockConnectionPoolDataSource();
+        ManagedDataSource dataSource = new MockManagedDataSource(poolDataSource, 2, new Duration(1, SECONDS));
+
+        MockConnection connection = (MockConnection) dataSource.getConnection();
+        MockPooledConnection pooledConnection = connection.getMockPooledConnection();
+        connection.close();
+        assertEquals(dataSource.getConnectionsIdle(), 1);
+        assertEquals(dataSource.getConnectionsOpen(), 1);
+        assertFalse(pooledConnection.isClosed());
+
+        connection = (MockConnection) dataSource.getConnection();
+        assertSame(connection.getMockPooledConnection(), pooledConnection);
+        assertEquals(dataSource.getConnectionsIdle(), 0);
+        assertEquals(poolDataSource.createdConnections, 1);
+        assertEquals(dataSource.getStats().getPoolHitCount(), 1);
+        assertEquals(dataSource.getStats().getPoolMissCount(), 1);
+
+        // a connection that had an error is not reused
+        connection.errorOccurred();
+        assertEquals(dataSource.getConnectionsIdle(), 0);
+        connection = (MockConnection) dataSource.getConnection();
+        assertNotSame(connection.getMockPooledConnection(), pooledConnection);
+        assertEquals(poolDataSource.createdConnections, 2);
+        connection.close();
+        dataSource.close();
+    }
+
+    @Test
+    public void testParallelCreation()
+            throws Exception
+    {
+        // every creation waits for the others, so this only completes if callers connect in parallel
+        MockConnectionPoolDataSource poolDataSource = new MockConnectionPoolDataSource();
+        poolDataSource.creationBarrier = new CyclicBarrier(3);
+        ManagedDataSource dataSource = new MockManagedDataSource(poolDataSource, 3, new Duration(1, SECONDS));
+
+        ExecutorService executor = newCachedThreadPool();
+        try {
+            List<Future<Connection>> futures = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                futures.add(executor.submit(() -> dataSource.getConnection()));
+            }
+            for (Future<Connection> future : futures) {
+                future.get(10, SECONDS).close();
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        assertEquals(poolDataSource.createdConnections, 3);
+        assertEquals(dataSource.getConnectionsIdle(), 3);
+        dataSource.close();
+    }
+
+    @Test
+    public void testValidation()
+            throws Exception
+    {
+        MockConnectionPoolDataSource poolDataSource = new MockConnectionPoolDataSource();
+        ManagedDataSource dataSource = new MockManagedDataSource(poolDataSource, new MockConfig()
+                .setValidationInterval(new Duration(0, MILLISECONDS)));
+
+        MockConnection connection = (MockConnection) dataSource.getConnection();
+        MockPooledConnection pooledConnection = connection.getMockPooledConnection();
+        connection.close();
+        Thread.sleep(1);
+
+        pooledConnection.setValid(false);
+        connection = (MockConnection) dataSource.getConnection();
+        assertNotSame(connection.getMockPooledConnection(), pooledConnection);
+        assertEquals(dataSource.getStats().getValidationFailureCount(), 1);
+        assertEventually(pooledConnection::isClosed);
+        connection.close();
+        dataSource.close();
+    }
+
+    @Test
+    public void testMaxLifetime()
+            throws Exception
+    {
+        MockConnectionPoolDataSource poolDataSource = new MockConnectionPoolDataSource();
+        ManagedDataSource dataSource = new MockManagedDataSource(poolDataSource, new MockConfig()
+                .setMaxLifetime(new Duration(1, MILLISECONDS)));
+
+        MockConnection connection = (MockConnection) dataSource.getConnection();
+        MockPooledConnection pooledConnection = connection.getMockPooledConnection();
+        Thread.sleep(5);
+
+        // an expired connection is closed when returned rather than pooled
+        connection.close();
+        assertEquals(dataSource.getConnectionsIdle(), 0);
+        assertEventually(pooledConnection::isClosed);
+        assertEventually(() -> dataSource.getConnectionsOpen() == 0);
+        dataSource.close();
+    }
+
+    @Test
+    public void testMinIdleConnections()
+            throws Exception
+    {
+        MockConnectionPoolDataSource poolDataSource = new MockConnectionPoolDataSource();
+        ManagedDataSource dataSource = new MockManagedDataSource(poolDataSource, new MockConfig()
+                .setMaxConnections(5)
+                .setMinIdleConnections(3));
+
+        Connection connection = dataSource.getConnection();
+        assertEventually(() -> dataSource.getConnectionsIdle() == 3);
+        assertEquals(dataSource.getConnectionsOpen(), 4);
+
+        connection.close();
+        assertEquals(dataSource.getConnectionsIdle(), 4);
+
+        dataSource.close();
+        assertEquals(dataSource.getConnectionsIdle(), 0);
+        assertEquals(dataSource.getConnectionsOpen(), 0);
+        try {
+            dataSource.getConnection();
+            fail("Expected SQLException");
+        }
+        catch (SQLException expected) {
+        }
+    }
+
+    private static void assertEventually(BooleanSupplier condition)
+            throws InterruptedException
+    {
+        long deadline = System.nanoTime() + SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 10 seconds");
+            Thread.sleep(10);
+        }
+    }
+
+    private static class MockConfig
+            extends ManagedDataSourceConfig<MockConfig>
+    {
+    }
 }
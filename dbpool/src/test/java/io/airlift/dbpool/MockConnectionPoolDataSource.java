@@ -41,14 +41,20 @@ import java.sql.Struct;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
 public class MockConnectionPoolDataSource
         implements ConnectionPoolDataSource
 {
     long creationSleep;
+    CyclicBarrier creationBarrier;
+    int createdConnections;
     SQLException createException;
     SQLException closeException;
     PrintWriter logWriter;
@@ -69,6 +75,17 @@ public class MockConnectionPoolDataSource
                 throw new RuntimeException("Sleep interrupted", e);
             }
         }
+        if (creationBarrier != null) {
+            try {
+                creationBarrier.await(10, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                throw new SQLException("Creation barrier failed", e);
+            }
+        }
+        synchronized (this) {
+            createdConnections++;
+        }
         return new MockPooledConnection(this);
     }
 
@@ -119,6 +136,7 @@ public class MockConnectionPoolDataSource
     {
         private final MockConnectionPoolDataSource dataSource;
         private boolean closed;
+        private boolean valid = true;
         private List<ConnectionEventListener> connectionEventListeners = new CopyOnWriteArrayList<>();
 
         public MockPooledConnection(MockConnectionPoolDataSource dataSource)
@@ -146,6 +164,16 @@ public class MockConnectionPoolDataSource
             }
         }
 
+        public boolean isClosed()
+        {
+            return closed;
+        }
+
+        public void setValid(boolean valid)
+        {
+            this.valid = valid;
+        }
+
         public void closeOccurred()
         {
             for (ConnectionEventListener connectionEventListener : connectionEventListeners) {
@@ -197,6 +225,11 @@ public class MockConnectionPoolDataSource
             this.mockPooledConnection = mockPooledConnection;
         }
 
+        public MockPooledConnection getMockPooledConnection()
+        {
+            return mockPooledConnection;
+        }
+
         @Override
         public void close()
                 throws SQLException
@@ -530,7 +563,7 @@ public class MockConnectionPoolDataSource
         public boolean isValid(int timeout)
                 throws SQLException
         {
-            throw new UnsupportedOperationException();
+            return !mockPooledConnection.closed && mockPooledConnection.valid;
         }
 
         @Override
@@ -37,6 +37,12 @@ public class MockManagedDataSource
         this.poolDataSource = poolDataSource;
     }
 
+    public MockManagedDataSource(MockConnectionPoolDataSource poolDataSource, ManagedDataSourceConfig<?> config)
+    {
+        super(config);
+        this.poolDataSource = poolDataSource;
+    }
+
     @Override
     protected PooledConnection createConnectionInternal()
             throws SQLException
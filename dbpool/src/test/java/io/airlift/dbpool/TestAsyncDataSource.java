@@ -0,0 +1,218 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.dbpool;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import static io.airlift.testing.Assertions.assertInstanceOf;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test(singleThreaded = true)
+public class TestAsyncDataSource
+{
+    private File file;
+    private H2EmbeddedDataSource dataSource;
+    private AsyncDataSource asyncDataSource;
+
+    @BeforeMethod
+    public void setup()
+            throws Exception
+    {
+        file = File.createTempFile("h2db-", ".db");
+        dataSource = new H2EmbeddedDataSource(new H2EmbeddedDataSourceConfig()
+                .setFilename(file.getAbsolutePath())
+                .setInitScript("io/airlift/dbpool/h2.ddl")
+                .setMaxConnections(1));
+        asyncDataSource = new AsyncDataSource(dataSource, 1);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        asyncDataSource.close();
+        dataSource.close();
+        file.delete();
+    }
+
+    @Test
+    public void testSubmit()
+            throws Exception
+    {
+        assertEquals(asyncDataSource.submit(TestAsyncDataSource::countMessages).get(10, SECONDS).intValue(), 0);
+        assertEquals(dataSource.getConnectionsActive(), 0);
+
+        // the run is recorded just after the future completes
+        long deadline = System.nanoTime() + SECONDS.toNanos(10);
+        while (asyncDataSource.getExecutorStats().getCompletedTasks() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(asyncDataSource.getExecutorStats().getCompletedTasks(), 1);
+        asyncDataSource.getExecutorStats().getQueueTime().flush();
+        assertEquals(asyncDataSource.getExecutorStats().getQueueTime().getAllTime().getCount(), 1);
+    }
+
+    @Test
+    public void testTransaction()
+            throws Exception
+    {
+        asyncDataSource.submitInTransaction(connection -> insertMessage(connection, "committed")).get(10, SECONDS);
+
+        ListenableFuture<Object> failed = asyncDataSource.submitInTransaction(connection -> {
+            insertMessage(connection, "rolled back");
+            throw new SQLException("failed");
+        });
+        try {
+            failed.get(10, SECONDS);
+            fail("expected failure");
+        }
+        catch (ExecutionException e) {
+            assertInstanceOf(e.getCause(), SQLException.class);
+        }
+
+        assertEquals(asyncDataSource.submit(TestAsyncDataSource::countMessages).get(10, SECONDS).intValue(), 1);
+    }
+
+    @Test
+    public void testQueueLimitAndCancellation()
+            throws Exception
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ListenableFuture<Integer> running = asyncDataSource.submit(connection -> {
+            started.countDown();
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                throw new SQLException(e);
+            }
+            return countMessages(connection);
+        });
+        assertTrue(started.await(10, SECONDS));
+
+        // one connection, so the next task waits in the queue without a thread
+        AtomicBoolean ran = new AtomicBoolean();
+        ListenableFuture<Integer> queued = asyncDataSource.submit(connection -> {
+            ran.set(true);
+            return 0;
+        });
+        assertEquals(asyncDataSource.getQueuedTasks(), 1);
+
+        ListenableFuture<Integer> rejected = asyncDataSource.submit(TestAsyncDataSource::countMessages);
+        try {
+            rejected.get(10, SECONDS);
+            fail("expected rejection");
+        }
+        catch (ExecutionException e) {
+            assertInstanceOf(e.getCause(), RejectedExecutionException.class);
+        }
+
+        queued.cancel(false);
+        assertEquals(asyncDataSource.getQueuedTasks(), 0);
+        release.countDown();
+        assertEquals(running.get(10, SECONDS).intValue(), 0);
+        assertEquals(asyncDataSource.submit(TestAsyncDataSource::countMessages).get(10, SECONDS).intValue(), 0);
+        assertFalse(ran.get());
+        assertEquals(asyncDataSource.getQueuedTasks(), 0);
+    }
+
+    @Test
+    public void testInterruptDoesNotLeakToNextTask()
+            throws Exception
+    {
+        asyncDataSource.close();
+        asyncDataSource = new AsyncDataSource(dataSource, 10);
+        CountDownLatch started = new CountDownLatch(1);
+        ListenableFuture<Integer> running = asyncDataSource.submit(blockingCallback(started));
+        assertTrue(started.await(10, SECONDS));
+        ListenableFuture<Integer> queued = asyncDataSource.submit(TestAsyncDataSource::countMessages);
+
+        // the queued task runs on the interrupted thread once the running one is cancelled
+        assertTrue(running.cancel(true));
+        assertEquals(queued.get(10, SECONDS).intValue(), 0);
+    }
+
+    @Test
+    public void testClose()
+            throws Exception
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        ListenableFuture<Integer> running = asyncDataSource.submit(blockingCallback(started));
+        assertTrue(started.await(10, SECONDS));
+        ListenableFuture<Integer> queued = asyncDataSource.submit(TestAsyncDataSource::countMessages);
+
+        asyncDataSource.close();
+        assertTrue(running.isCancelled());
+        assertTrue(queued.isCancelled());
+        assertEquals(asyncDataSource.getQueuedTasks(), 0);
+
+        try {
+            asyncDataSource.submit(TestAsyncDataSource::countMessages).get(10, SECONDS);
+            fail("expected rejection");
+        }
+        catch (ExecutionException e) {
+            assertInstanceOf(e.getCause(), RejectedExecutionException.class);
+        }
+    }
+
+    private static ConnectionCallback<Integer> blockingCallback(CountDownLatch started)
+    {
+        // waits without clearing the interrupt, as a JDBC driver may
+        return connection -> {
+            started.countDown();
+            while (!Thread.currentThread().isInterrupted()) {
+                LockSupport.parkNanos(MILLISECONDS.toNanos(10));
+            }
+            return 0;
+        };
+    }
+
+    private static int countMessages(Connection connection)
+            throws SQLException
+    {
+        try (Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("select count(*) from message")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private static Void insertMessage(Connection connection, String id)
+            throws SQLException
+    {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("insert into message values ('" + id + "', 's', 'd', 'r', 'ip', 'c', 'cl', 't')");
+        }
+        return null;
+    }
+}
@@ -32,7 +32,12 @@ public class TestH2EmbeddedDataSourceConfig
                 .setMaxMemoryRows(10000)
                 .setMvccEnabled(true)
                 .setMaxConnections(10)
-                .setMaxConnectionWait(new Duration(500, TimeUnit.MILLISECONDS)));
+                .setMaxConnectionWait(new Duration(500, TimeUnit.MILLISECONDS))
+                .setMinIdleConnections(0)
+                .setMaxIdleTime(new Duration(10, TimeUnit.MINUTES))
+                .setMaxLifetime(new Duration(30, TimeUnit.MINUTES))
+                .setValidationInterval(new Duration(1, TimeUnit.SECONDS))
+                .setStatementCacheSize(0));
     }
 
     @Test
@@ -51,6 +56,11 @@ public class TestH2EmbeddedDataSourceConfig
                 .put("db.mvcc.enabled", "FALSE")
                 .put("db.connections.max", "12")
                 .put("db.connections.wait", "42s")
+                .put("db.connections.min-idle", "3")
+                .put("db.connections.max-idle-time", "5m")
+                .put("db.connections.max-lifetime", "1h")
+                .put("db.connections.validation-interval", "10s")
+                .put("db.statement-cache.size", "50")
                 .build();
 
         H2EmbeddedDataSourceConfig expected = new H2EmbeddedDataSourceConfig()
@@ -65,7 +75,12 @@ public class TestH2EmbeddedDataSourceConfig
                 .setMaxMemoryRows(5000)
                 .setMvccEnabled(false)
                 .setMaxConnections(12)
-                .setMaxConnectionWait(new Duration(42, TimeUnit.SECONDS));
+                .setMaxConnectionWait(new Duration(42, TimeUnit.SECONDS))
+                .setMinIdleConnections(3)
+                .setMaxIdleTime(new Duration(5, TimeUnit.MINUTES))
+                .setMaxLifetime(new Duration(1, TimeUnit.HOURS))
+                .setValidationInterval(new Duration(10, TimeUnit.SECONDS))
+                .setStatementCacheSize(50);
 
         ConfigAssertions.assertFullMapping(properties, expected);
     }
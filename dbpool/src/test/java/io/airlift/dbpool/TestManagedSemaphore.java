@@ -17,7 +17,12 @@ package io.airlift.dbpool;
 
 import org.testng.annotations.Test;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
@@ -235,6 +240,57 @@ public class TestManagedSemaphore
         assertPermits(semaphore, 2, 0);
     }
 
+    @Test
+    public void testResizeReleasesWaiters()
+            throws Exception
+    {
+        ManagedSemaphore semaphore = new ManagedSemaphore(1);
+        assertTrue(semaphore.tryAcquire());
+
+        ExecutorService executor = newCachedThreadPool();
+        try {
+            Future<Boolean> first = executor.submit(() -> semaphore.tryAcquire(10, SECONDS));
+            while (semaphore.getWaitingThreads() < 1) {
+                Thread.sleep(1);
+            }
+            Future<Boolean> second = executor.submit(() -> semaphore.tryAcquire(10, SECONDS));
+            while (semaphore.getWaitingThreads() < 2) {
+                Thread.sleep(1);
+            }
+
+            // growing the semaphore hands the new permits to the queued threads
+            semaphore.setPermits(3);
+            assertTrue(first.get(10, SECONDS));
+            assertTrue(second.get(10, SECONDS));
+            assertPermits(semaphore, 3, 3);
+            assertEquals(semaphore.getWaitingThreads(), 0);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        semaphore.getWaitTime().flush();
+        assertEquals(semaphore.getWaitTime().getAllTime().getCount(), 2);
+        assertEquals(semaphore.getQueueDepth().getAllTime().getCount(), 2.0);
+        assertEquals(semaphore.getQueueDepth().getAllTime().getMax(), 1);
+    }
+
+    @Test
+    public void testTimeout()
+            throws InterruptedException
+    {
+        ManagedSemaphore semaphore = new ManagedSemaphore(1);
+        assertTrue(semaphore.tryAcquire());
+
+        assertFalse(semaphore.tryAcquire(1, MILLISECONDS));
+        assertEquals(semaphore.getTimeouts(), 1);
+        assertEquals(semaphore.getWaitingThreads(), 0);
+        assertPermits(semaphore, 1, 1);
+
+        semaphore.getWaitTime().flush();
+        assertEquals(semaphore.getWaitTime().getAllTime().getCount(), 1);
+    }
+
     private void assertPermits(ManagedSemaphore semaphore, int totalPermits, int checkedOutPermits)
     {
         assertEquals(semaphore.getPermits(), totalPermits);
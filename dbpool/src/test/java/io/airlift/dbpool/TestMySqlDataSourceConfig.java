@@ -16,7 +16,12 @@ public class TestMySqlDataSourceConfig
         ConfigAssertions.assertRecordedDefaults(ConfigAssertions.recordDefaults(MySqlDataSourceConfig.class)
                 .setDefaultFetchSize(100)
                 .setMaxConnections(10)
-                .setMaxConnectionWait(new Duration(500, TimeUnit.MILLISECONDS)));
+                .setMaxConnectionWait(new Duration(500, TimeUnit.MILLISECONDS))
+                .setMinIdleConnections(0)
+                .setMaxIdleTime(new Duration(10, TimeUnit.MINUTES))
+                .setMaxLifetime(new Duration(30, TimeUnit.MINUTES))
+                .setValidationInterval(new Duration(1, TimeUnit.SECONDS))
+                .setStatementCacheSize(0));
     }
 
     @Test
@@ -26,12 +31,22 @@ public class TestMySqlDataSourceConfig
                 .put("db.fetch-size", "500")
                 .put("db.connections.max", "12")
                 .put("db.connections.wait", "42s")
+                .put("db.connections.min-idle", "3")
+                .put("db.connections.max-idle-time", "5m")
+                .put("db.connections.max-lifetime", "1h")
+                .put("db.connections.validation-interval", "10s")
+                .put("db.statement-cache.size", "50")
                 .build();
 
         MySqlDataSourceConfig expected = new MySqlDataSourceConfig()
                 .setDefaultFetchSize(500)
                 .setMaxConnections(12)
-                .setMaxConnectionWait(new Duration(42, TimeUnit.SECONDS));
+                .setMaxConnectionWait(new Duration(42, TimeUnit.SECONDS))
+                .setMinIdleConnections(3)
+                .setMaxIdleTime(new Duration(5, TimeUnit.MINUTES))
+                .setMaxLifetime(new Duration(1, TimeUnit.HOURS))
+                .setValidationInterval(new Duration(10, TimeUnit.SECONDS))
+                .setStatementCacheSize(50);
 
         ConfigAssertions.assertFullMapping(properties, expected);
     }
@@ -37,6 +37,7 @@ import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static io.airlift.discovery.client.DiscoveryAnnouncementClient.DEFAULT_DELAY;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 public class CachingServiceSelector
@@ -44,6 +45,9 @@ public class CachingServiceSelector
 {
     private static final Logger log = Logger.get(CachingServiceSelector.class);
 
+    // a watch that completes sooner than this with unchanged services was not held by the server
+    private static final Duration MIN_WATCH_INTERVAL = new Duration(1, SECONDS);
+
     private final String type;
     private final String pool;
     private final DiscoveryLookupClient lookupClient;
@@ -53,6 +57,7 @@ public class CachingServiceSelector
     private final ExponentialBackOff errorBackOff;
 
     private final AtomicBoolean started = new AtomicBoolean(false);
+    private final AtomicBoolean watching = new AtomicBoolean(false);
 
     public CachingServiceSelector(String type, ServiceSelectorConfig selectorConfig, DiscoveryLookupClient lookupClient, ScheduledExecutorService executor)
     {
@@ -131,11 +136,12 @@ public class CachingServiceSelector
                 serviceDescriptors.set(newDescriptors);
                 errorBackOff.success();
 
-                Duration delay = newDescriptors.getMaxAge();
-                if (delay == null) {
-                    delay = DEFAULT_DELAY;
+                if (lookupClient.isWatchSupported()) {
+                    startWatch();
+                    return;
                 }
-                scheduleRefresh(delay);
+
+                scheduleRefresh(getRefreshDelay(newDescriptors));
             }
 
             @Override
@@ -149,6 +155,79 @@ public class CachingServiceSelector
         return Futures.transform(future, ServiceDescriptors::getServiceDescriptors, directExecutor());
     }
 
+    private void startWatch()
+    {
+        // only one outstanding watch per selector, even when refresh is forced
+        if (watching.compareAndSet(false, true)) {
+            watch();
+        }
+    }
+
+    private void watch()
+    {
+        // already stopped?  avoids rejection exception
+        if (executor.isShutdown()) {
+            watching.set(false);
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        Futures.addCallback(lookupClient.watchServices(serviceDescriptors.get()), new FutureCallback<ServiceDescriptors>()
+        {
+            @Override
+            public void onSuccess(ServiceDescriptors newDescriptors)
+            {
+                ServiceDescriptors oldDescriptors = serviceDescriptors.getAndSet(newDescriptors);
+                errorBackOff.success();
+
+                long remainingMillis = MIN_WATCH_INTERVAL.toMillis() - NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                if (remainingMillis <= 0) {
+                    watch();
+                }
+                else if (isChanged(oldDescriptors, newDescriptors)) {
+                    // limit the watch rate while the services change rapidly
+                    scheduleWatch(remainingMillis);
+                }
+                else {
+                    // the server ignored the watch, so poll at the refresh rate instead of spinning
+                    scheduleWatch(getRefreshDelay(newDescriptors).toMillis());
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t)
+            {
+                // fall back to polling until a refresh succeeds and restarts the watch
+                watching.set(false);
+                scheduleRefresh(errorBackOff.failed(t));
+            }
+        }, executor);
+    }
+
+    private void scheduleWatch(long delayMillis)
+    {
+        // already stopped?  avoids rejection exception
+        if (executor.isShutdown()) {
+            watching.set(false);
+            return;
+        }
+        executor.schedule(this::watch, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static boolean isChanged(ServiceDescriptors oldDescriptors, ServiceDescriptors newDescriptors)
+    {
+        return newDescriptors.getETag() != null && !newDescriptors.getETag().equals(oldDescriptors.getETag());
+    }
+
+    private static Duration getRefreshDelay(ServiceDescriptors serviceDescriptors)
+    {
+        Duration delay = serviceDescriptors.getMaxAge();
+        if (delay == null) {
+            delay = DEFAULT_DELAY;
+        }
+        return delay;
+    }
+
     private void scheduleRefresh(Duration delay)
     {
         // already stopped?  avoids rejection exception
@@ -17,12 +17,22 @@ package io.airlift.discovery.client;
 
 import io.airlift.configuration.Config;
 import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.Duration;
+import io.airlift.units.MaxDuration;
+import io.airlift.units.MinDuration;
+
+import javax.validation.constraints.NotNull;
 
 import java.net.URI;
 
+import static java.util.concurrent.TimeUnit.SECONDS;
+
 public class DiscoveryClientConfig
 {
     private URI discoveryServiceURI;
+    private boolean watchEnabled;
+    private Duration watchMaxWait = new Duration(30, SECONDS);
+    private boolean announcementCompressionEnabled;
 
     public URI getDiscoveryServiceURI()
     {
@@ -36,4 +46,46 @@ public class DiscoveryClientConfig
         this.discoveryServiceURI = uri;
         return this;
     }
+
+    public boolean isWatchEnabled()
+    {
+        return watchEnabled;
+    }
+
+    @Config("discovery.watch.enabled")
+    @ConfigDescription("Use long-poll lookups so service changes are seen as soon as they happen (requires server support)")
+    public DiscoveryClientConfig setWatchEnabled(boolean watchEnabled)
+    {
+        this.watchEnabled = watchEnabled;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1s")
+    @MaxDuration("5m")
+    public Duration getWatchMaxWait()
+    {
+        return watchMaxWait;
+    }
+
+    @Config("discovery.watch.max-wait")
+    @ConfigDescription("Maximum time the discovery server may hold a watch request open; must be less than the discovery HTTP client idle timeout")
+    public DiscoveryClientConfig setWatchMaxWait(Duration watchMaxWait)
+    {
+        this.watchMaxWait = watchMaxWait;
+        return this;
+    }
+
+    public boolean isAnnouncementCompressionEnabled()
+    {
+        return announcementCompressionEnabled;
+    }
+
+    @Config("discovery.announcement.compression.enabled")
+    @ConfigDescription("Gzip announcement bodies (requires server support)")
+    public DiscoveryClientConfig setAnnouncementCompressionEnabled(boolean announcementCompressionEnabled)
+    {
+        this.announcementCompressionEnabled = announcementCompressionEnabled;
+        return this;
+    }
 }
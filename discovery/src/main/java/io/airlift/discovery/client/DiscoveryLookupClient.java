@@ -24,4 +24,23 @@ public interface DiscoveryLookupClient
     ListenableFuture<ServiceDescriptors> getServices(String type, String pool);
 
     ListenableFuture<ServiceDescriptors> refreshServices(ServiceDescriptors serviceDescriptors);
+
+    /**
+     * Returns true if {@link #watchServices} blocks until the services change
+     * instead of returning the current services immediately.
+     */
+    default boolean isWatchSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Returns a future that completes when the services differ from the
+     * specified descriptors (as determined by the ETag), or when the server
+     * wait time expires.  Clients that do not support watches simply refresh.
+     */
+    default ListenableFuture<ServiceDescriptors> watchServices(ServiceDescriptors serviceDescriptors)
+    {
+        return refreshServices(serviceDescriptors);
+    }
 }
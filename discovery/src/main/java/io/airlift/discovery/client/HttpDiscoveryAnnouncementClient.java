@@ -15,9 +15,11 @@
  */
 package io.airlift.discovery.client;
 
+import com.google.common.hash.Hashing;
 import com.google.common.io.CharStreams;
 import com.google.common.net.HttpHeaders;
 import com.google.common.net.MediaType;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.http.client.CacheControl;
 import io.airlift.http.client.HttpClient;
@@ -31,18 +33,25 @@ import io.airlift.units.Duration;
 import javax.inject.Inject;
 import javax.inject.Provider;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
 
 import static com.google.common.util.concurrent.Futures.immediateFailedFuture;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
-import static io.airlift.http.client.JsonBodyGenerator.jsonBodyGenerator;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.airlift.http.client.HttpStatus.PRECONDITION_FAILED;
 import static io.airlift.http.client.Request.Builder.prepareDelete;
 import static io.airlift.http.client.Request.Builder.preparePut;
+import static io.airlift.http.client.StaticBodyGenerator.createStaticBodyGenerator;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
 
@@ -55,24 +64,46 @@ public class HttpDiscoveryAnnouncementClient
     private final NodeInfo nodeInfo;
     private final JsonCodec<Announcement> announcementCodec;
     private final HttpClient httpClient;
+    private final boolean compressionEnabled;
+
+    // version of the announcement the server last confirmed it holds, or null
+    private final AtomicReference<String> acknowledgedVersion = new AtomicReference<>();
 
-    @Inject
     public HttpDiscoveryAnnouncementClient(@ForDiscoveryClient Provider<URI> discoveryServiceURI,
             NodeInfo nodeInfo,
             JsonCodec<Announcement> announcementCodec,
             @ForDiscoveryClient HttpClient httpClient)
+    {
+        this(discoveryServiceURI, nodeInfo, announcementCodec, httpClient, new DiscoveryClientConfig());
+    }
+
+    @Inject
+    public HttpDiscoveryAnnouncementClient(@ForDiscoveryClient Provider<URI> discoveryServiceURI,
+            NodeInfo nodeInfo,
+            JsonCodec<Announcement> announcementCodec,
+            @ForDiscoveryClient HttpClient httpClient,
+            DiscoveryClientConfig config)
     {
         requireNonNull(discoveryServiceURI, "discoveryServiceURI is null");
         requireNonNull(nodeInfo, "nodeInfo is null");
         requireNonNull(announcementCodec, "announcementCodec is null");
         requireNonNull(httpClient, "httpClient is null");
+        requireNonNull(config, "config is null");
 
         this.nodeInfo = nodeInfo;
         this.discoveryServiceURI = discoveryServiceURI;
         this.announcementCodec = announcementCodec;
         this.httpClient = httpClient;
+        this.compressionEnabled = config.isAnnouncementCompressionEnabled();
     }
 
+    /**
+     * Sends the full announcement the first time and whenever it changes.
+     * If the server echoed the announcement version as its {@code ETag},
+     * later calls with an unchanged announcement send a body-less heartbeat
+     * ({@code If-Match}) instead.  A {@code 412} response means the server no
+     * longer has that version, so the full announcement is resent.
+     */
     @Override
     public ListenableFuture<Duration> announce(Set<ServiceAnnouncement> services)
     {
@@ -84,13 +115,59 @@ public class HttpDiscoveryAnnouncementClient
         }
 
         Announcement announcement = new Announcement(nodeInfo.getEnvironment(), nodeInfo.getNodeId(), nodeInfo.getPool(), nodeInfo.getLocation(), services);
+        byte[] json = announcementCodec.toJsonBytes(announcement);
+        String version = "\"" + Hashing.sha256().hashBytes(json) + "\"";
+
+        if (!version.equals(acknowledgedVersion.get())) {
+            return fullAnnounce(uri, json, version);
+        }
+
         Request request = preparePut()
                 .setUri(URI.create(uri + "/v1/announcement/" + nodeInfo.getNodeId()))
                 .setHeader("User-Agent", nodeInfo.getNodeId())
-                .setHeader("Content-Type", MEDIA_TYPE_JSON.toString())
-                .setBodyGenerator(jsonBodyGenerator(announcementCodec, announcement))
+                .setHeader(HttpHeaders.IF_MATCH, version)
                 .build();
-        return httpClient.executeAsync(request, new DiscoveryResponseHandler<Duration>("Announcement", uri)
+        ListenableFuture<Optional<Duration>> heartbeat = httpClient.executeAsync(request, new DiscoveryResponseHandler<Optional<Duration>>("Announcement heartbeat", uri)
+        {
+            @Override
+            public Optional<Duration> handle(Request request, Response response)
+                    throws DiscoveryException
+            {
+                int statusCode = response.getStatusCode();
+                if (statusCode == PRECONDITION_FAILED.code()) {
+                    return Optional.empty();
+                }
+                if (!isSuccess(statusCode)) {
+                    throw new DiscoveryException(String.format("Announcement heartbeat failed with status code %s: %s", statusCode, getBodyForError(response)));
+                }
+                return Optional.of(extractMaxAge(response));
+            }
+        });
+        return Futures.transformAsync(heartbeat, maxAge -> {
+            if (maxAge.isPresent()) {
+                return immediateFuture(maxAge.get());
+            }
+            acknowledgedVersion.compareAndSet(version, null);
+            return fullAnnounce(uri, json, version);
+        }, directExecutor());
+    }
+
+    private ListenableFuture<Duration> fullAnnounce(URI uri, byte[] json, String version)
+    {
+        Request.Builder requestBuilder = preparePut()
+                .setUri(URI.create(uri + "/v1/announcement/" + nodeInfo.getNodeId()))
+                .setHeader("User-Agent", nodeInfo.getNodeId())
+                .setHeader("Content-Type", MEDIA_TYPE_JSON.toString())
+                .setHeader(HttpHeaders.ETAG, version);
+        if (compressionEnabled) {
+            requestBuilder.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .setBodyGenerator(createStaticBodyGenerator(gzip(json)));
+        }
+        else {
+            requestBuilder.setBodyGenerator(createStaticBodyGenerator(json));
+        }
+
+        return httpClient.executeAsync(requestBuilder.build(), new DiscoveryResponseHandler<Duration>("Announcement", uri)
         {
             @Override
             public Duration handle(Request request, Response response)
@@ -98,15 +175,31 @@ public class HttpDiscoveryAnnouncementClient
             {
                 int statusCode = response.getStatusCode();
                 if (!isSuccess(statusCode)) {
+                    acknowledgedVersion.set(null);
                     throw new DiscoveryException(String.format("Announcement failed with status code %s: %s", statusCode, getBodyForError(response)));
                 }
 
+                // servers that do not echo the version do not support heartbeats
+                acknowledgedVersion.set(version.equals(response.getHeader(HttpHeaders.ETAG)) ? version : null);
+
                 Duration maxAge = extractMaxAge(response);
                 return maxAge;
             }
         });
     }
 
+    private static byte[] gzip(byte[] bytes)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
     private static boolean isSuccess(int statusCode)
     {
         return statusCode / 100 == 2;
@@ -125,6 +218,8 @@ public class HttpDiscoveryAnnouncementClient
     @Override
     public ListenableFuture<Void> unannounce()
     {
+        acknowledgedVersion.set(null);
+
         URI uri = discoveryServiceURI.get();
         if (uri == null) {
             return immediateFuture(null);
@@ -46,6 +46,7 @@ import static io.airlift.http.client.HttpStatus.OK;
 import static io.airlift.http.client.Request.Builder.prepareGet;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 public class HttpDiscoveryLookupClient
         implements DiscoveryLookupClient
@@ -55,23 +56,37 @@ public class HttpDiscoveryLookupClient
     private final NodeInfo nodeInfo;
     private final JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec;
     private final HttpClient httpClient;
+    private final boolean watchEnabled;
+    private final Duration watchMaxWait;
 
-    @Inject
     public HttpDiscoveryLookupClient(@ForDiscoveryClient Provider<URI> discoveryServiceURI,
             NodeInfo nodeInfo,
             JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec,
             @ForDiscoveryClient HttpClient httpClient)
+    {
+        this(discoveryServiceURI, nodeInfo, serviceDescriptorsCodec, httpClient, new DiscoveryClientConfig());
+    }
+
+    @Inject
+    public HttpDiscoveryLookupClient(@ForDiscoveryClient Provider<URI> discoveryServiceURI,
+            NodeInfo nodeInfo,
+            JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec,
+            @ForDiscoveryClient HttpClient httpClient,
+            DiscoveryClientConfig config)
     {
         requireNonNull(discoveryServiceURI, "discoveryServiceURI is null");
         requireNonNull(nodeInfo, "nodeInfo is null");
         requireNonNull(serviceDescriptorsCodec, "serviceDescriptorsCodec is null");
         requireNonNull(httpClient, "httpClient is null");
+        requireNonNull(config, "config is null");
 
         this.nodeInfo = nodeInfo;
         this.environment = nodeInfo.getEnvironment();
         this.discoveryServiceURI = discoveryServiceURI;
         this.serviceDescriptorsCodec = serviceDescriptorsCodec;
         this.httpClient = httpClient;
+        this.watchEnabled = config.isWatchEnabled();
+        this.watchMaxWait = config.getWatchMaxWait();
     }
 
     @Flatten
@@ -85,7 +100,7 @@ public class HttpDiscoveryLookupClient
     public ListenableFuture<ServiceDescriptors> getServices(String type)
     {
         requireNonNull(type, "type is null");
-        return lookup(type, null, null);
+        return lookup(type, null, null, false);
     }
 
     @Override
@@ -93,17 +108,30 @@ public class HttpDiscoveryLookupClient
     {
         requireNonNull(type, "type is null");
         requireNonNull(pool, "pool is null");
-        return lookup(type, pool, null);
+        return lookup(type, pool, null, false);
     }
 
     @Override
     public ListenableFuture<ServiceDescriptors> refreshServices(ServiceDescriptors serviceDescriptors)
     {
         requireNonNull(serviceDescriptors, "serviceDescriptors is null");
-        return lookup(serviceDescriptors.getType(), serviceDescriptors.getPool(), serviceDescriptors);
+        return lookup(serviceDescriptors.getType(), serviceDescriptors.getPool(), serviceDescriptors, false);
+    }
+
+    @Override
+    public boolean isWatchSupported()
+    {
+        return watchEnabled;
+    }
+
+    @Override
+    public ListenableFuture<ServiceDescriptors> watchServices(ServiceDescriptors serviceDescriptors)
+    {
+        requireNonNull(serviceDescriptors, "serviceDescriptors is null");
+        return lookup(serviceDescriptors.getType(), serviceDescriptors.getPool(), serviceDescriptors, watchEnabled);
     }
 
-    private ListenableFuture<ServiceDescriptors> lookup(final String type, final String pool, final ServiceDescriptors serviceDescriptors)
+    private ListenableFuture<ServiceDescriptors> lookup(final String type, final String pool, final ServiceDescriptors serviceDescriptors, boolean watch)
     {
         requireNonNull(type, "type is null");
 
@@ -122,6 +150,12 @@ public class HttpDiscoveryLookupClient
                 .setHeader("User-Agent", nodeInfo.getNodeId());
         if (serviceDescriptors != null && serviceDescriptors.getETag() != null) {
             requestBuilder.setHeader(HttpHeaders.ETAG, serviceDescriptors.getETag());
+            if (watch) {
+                // long poll: the server holds the request until the services
+                // no longer match the ETag or the wait expires (304)
+                requestBuilder.setHeader(HttpHeaders.IF_NONE_MATCH, serviceDescriptors.getETag());
+                requestBuilder.setHeader("Prefer", "wait=" + (long) watchMaxWait.getValue(SECONDS));
+            }
         }
         return httpClient.executeAsync(requestBuilder.build(), new DiscoveryResponseHandler<ServiceDescriptors>(format("Lookup of %s", type), uri)
         {
@@ -132,7 +166,7 @@ public class HttpDiscoveryLookupClient
                 String eTag = response.getHeader(HttpHeaders.ETAG);
 
                 if (NOT_MODIFIED.code() == response.getStatusCode() && serviceDescriptors != null) {
-                    return new ServiceDescriptors(serviceDescriptors, maxAge, eTag);
+                    return new ServiceDescriptors(serviceDescriptors, maxAge, eTag != null ? eTag : serviceDescriptors.getETag());
                 }
 
                 if (OK.code() != response.getStatusCode()) {
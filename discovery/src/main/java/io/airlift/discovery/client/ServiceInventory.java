@@ -17,6 +17,8 @@ package io.airlift.discovery.client;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
 import io.airlift.http.client.HttpClient;
 import io.airlift.http.client.Request.Builder;
 import io.airlift.json.JsonCodec;
@@ -33,7 +35,9 @@ import java.io.File;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -46,7 +50,6 @@ import static io.airlift.http.client.Request.Builder.prepareGet;
 import static java.nio.file.Files.readAllBytes;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
-import static java.util.stream.Collectors.toList;
 
 public class ServiceInventory
 {
@@ -59,7 +62,7 @@ public class ServiceInventory
     private final JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec;
     private final HttpClient httpClient;
 
-    private final AtomicReference<List<ServiceDescriptor>> serviceDescriptors = new AtomicReference<>(ImmutableList.of());
+    private final AtomicReference<ServiceIndex> serviceDescriptors = new AtomicReference<>(new ServiceIndex(ImmutableList.of()));
     private final ScheduledExecutorService executorService = newSingleThreadScheduledExecutor(daemonThreadsNamed("service-inventory-%s"));
     private final AtomicBoolean serverUp = new AtomicBoolean(true);
     private ScheduledFuture<?> scheduledFuture;
@@ -121,22 +124,17 @@ public class ServiceInventory
 
     public Iterable<ServiceDescriptor> getServiceDescriptors()
     {
-        return serviceDescriptors.get();
+        return serviceDescriptors.get().getAll();
     }
 
     public Iterable<ServiceDescriptor> getServiceDescriptors(String type)
     {
-        return serviceDescriptors.get().stream()
-                .filter(descriptor -> descriptor.getType().equals(type))
-                .collect(toList());
+        return serviceDescriptors.get().get(type);
     }
 
     public Iterable<ServiceDescriptor> getServiceDescriptors(String type, String pool)
     {
-        return serviceDescriptors.get().stream()
-                .filter(descriptor -> descriptor.getType().equals(type))
-                .filter(descriptor -> descriptor.getPool().equals(pool))
-                .collect(toList());
+        return serviceDescriptors.get().get(type, pool);
     }
 
     @Managed
@@ -165,7 +163,7 @@ public class ServiceInventory
 
             List<ServiceDescriptor> descriptors = new ArrayList<>(serviceDescriptorsRepresentation.getServiceDescriptors());
             Collections.shuffle(descriptors);
-            serviceDescriptors.set(ImmutableList.copyOf(descriptors));
+            serviceDescriptors.set(new ServiceIndex(descriptors));
 
             if (serverUp.compareAndSet(false, true)) {
                 log.info("ServiceInventory connect succeeded");
@@ -182,4 +180,50 @@ public class ServiceInventory
             log.error(message, args);
         }
     }
+
+    /**
+     * Immutable type and pool index over one inventory snapshot, built once
+     * per update so lookups do not scan the full descriptor list.
+     */
+    private static final class ServiceIndex
+    {
+        private final List<ServiceDescriptor> all;
+        private final Map<String, List<ServiceDescriptor>> byType;
+        private final Map<String, Map<String, List<ServiceDescriptor>>> byTypeAndPool;
+
+        public ServiceIndex(List<ServiceDescriptor> descriptors)
+        {
+            this.all = ImmutableList.copyOf(descriptors);
+
+            // linked maps keep the (shuffled) inventory order within each group
+            Map<String, ImmutableList.Builder<ServiceDescriptor>> types = new LinkedHashMap<>();
+            Map<String, Map<String, ImmutableList.Builder<ServiceDescriptor>>> pools = new LinkedHashMap<>();
+            for (ServiceDescriptor descriptor : all) {
+                types.computeIfAbsent(descriptor.getType(), key -> ImmutableList.builder()).add(descriptor);
+                pools.computeIfAbsent(descriptor.getType(), key -> new LinkedHashMap<>())
+                        .computeIfAbsent(descriptor.getPool(), key -> ImmutableList.builder())
+                        .add(descriptor);
+            }
+
+            this.byType = ImmutableMap.copyOf(Maps.transformValues(types, ImmutableList.Builder::build));
+            ImmutableMap.Builder<String, Map<String, List<ServiceDescriptor>>> byTypeAndPool = ImmutableMap.builder();
+            pools.forEach((type, typePools) -> byTypeAndPool.put(type, ImmutableMap.copyOf(Maps.transformValues(typePools, ImmutableList.Builder::build))));
+            this.byTypeAndPool = byTypeAndPool.build();
+        }
+
+        public List<ServiceDescriptor> getAll()
+        {
+            return all;
+        }
+
+        public List<ServiceDescriptor> get(String type)
+        {
+            return byType.getOrDefault(type, ImmutableList.of());
+        }
+
+        public List<ServiceDescriptor> get(String type, String pool)
+        {
+            return byTypeAndPool.getOrDefault(type, ImmutableMap.of()).getOrDefault(pool, ImmutableList.of());
+        }
+    }
 }
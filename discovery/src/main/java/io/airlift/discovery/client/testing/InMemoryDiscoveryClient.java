@@ -17,8 +17,11 @@ package io.airlift.discovery.client.testing;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import io.airlift.discovery.client.DiscoveryAnnouncementClient;
 import io.airlift.discovery.client.DiscoveryLookupClient;
 import io.airlift.discovery.client.ServiceAnnouncement;
@@ -32,9 +35,11 @@ import javax.inject.Inject;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static java.util.Objects.requireNonNull;
 
 public class InMemoryDiscoveryClient
@@ -42,38 +47,52 @@ public class InMemoryDiscoveryClient
 {
     private final AtomicReference<Set<ServiceDescriptor>> announcements = new AtomicReference<>(ImmutableSet.<ServiceDescriptor>of());
     private final ConcurrentMap<UUID, ServiceDescriptor> discovered = new MapMaker().makeMap();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicReference<SettableFuture<?>> changed = new AtomicReference<>(SettableFuture.create());
 
     private final NodeInfo nodeInfo;
     private final Duration maxAge;
+    private final boolean watchSupported;
 
     @Inject
     public InMemoryDiscoveryClient(NodeInfo nodeInfo)
     {
-        requireNonNull(nodeInfo, "nodeInfo is null");
-        this.nodeInfo = nodeInfo;
-        maxAge = DEFAULT_DELAY;
+        this(nodeInfo, DEFAULT_DELAY);
     }
 
     public InMemoryDiscoveryClient(NodeInfo nodeInfo, Duration maxAge)
+    {
+        this(nodeInfo, maxAge, false);
+    }
+
+    /**
+     * @param watchSupported if true, {@link #watchServices} blocks until the services change
+     */
+    public InMemoryDiscoveryClient(NodeInfo nodeInfo, Duration maxAge, boolean watchSupported)
     {
         requireNonNull(nodeInfo, "nodeInfo is null");
         requireNonNull(maxAge, "maxAge is null");
         this.nodeInfo = nodeInfo;
         this.maxAge = maxAge;
+        this.watchSupported = watchSupported;
     }
 
     public ServiceDescriptor addDiscoveredService(ServiceDescriptor serviceDescriptor)
     {
         requireNonNull(serviceDescriptor, "serviceDescriptor is null");
 
-        return discovered.put(serviceDescriptor.getId(), serviceDescriptor);
+        ServiceDescriptor previous = discovered.put(serviceDescriptor.getId(), serviceDescriptor);
+        fireChanged();
+        return previous;
     }
 
     public ServiceDescriptor remove(UUID uuid)
     {
         requireNonNull(uuid, "uuid is null");
 
-        return discovered.remove(uuid);
+        ServiceDescriptor removed = discovered.remove(uuid);
+        fireChanged();
+        return removed;
     }
 
     @Override
@@ -86,6 +105,7 @@ public class InMemoryDiscoveryClient
             builder.add(service.toServiceDescriptor(nodeInfo));
         }
         announcements.set(builder.build());
+        fireChanged();
         return immediateFuture(maxAge);
     }
 
@@ -93,6 +113,7 @@ public class InMemoryDiscoveryClient
     public ListenableFuture<Void> unannounce()
     {
         announcements.set(ImmutableSet.<ServiceDescriptor>of());
+        fireChanged();
         return immediateFuture(null);
     }
 
@@ -100,19 +121,7 @@ public class InMemoryDiscoveryClient
     public ListenableFuture<ServiceDescriptors> getServices(String type)
     {
         requireNonNull(type, "type is null");
-
-        ImmutableList.Builder<ServiceDescriptor> builder = ImmutableList.builder();
-        for (ServiceDescriptor serviceDescriptor : this.announcements.get()) {
-            if (serviceDescriptor.getType().equals(type)) {
-                builder.add(serviceDescriptor);
-            }
-        }
-        for (ServiceDescriptor serviceDescriptor : this.discovered.values()) {
-            if (serviceDescriptor.getType().equals(type)) {
-                builder.add(serviceDescriptor);
-            }
-        }
-        return immediateFuture(new ServiceDescriptors(type, null, builder.build(), maxAge, UUID.randomUUID().toString()));
+        return immediateFuture(lookup(type, null));
     }
 
     @Override
@@ -120,26 +129,55 @@ public class InMemoryDiscoveryClient
     {
         requireNonNull(type, "type is null");
         requireNonNull(pool, "pool is null");
+        return immediateFuture(lookup(type, pool));
+    }
 
-        ImmutableList.Builder<ServiceDescriptor> builder = ImmutableList.builder();
-        for (ServiceDescriptor serviceDescriptor : this.announcements.get()) {
-            if (serviceDescriptor.getType().equals(type) && serviceDescriptor.getPool().equals(pool)) {
-                builder.add(serviceDescriptor);
-            }
+    @Override
+    public ListenableFuture<ServiceDescriptors> refreshServices(ServiceDescriptors serviceDescriptors)
+    {
+        requireNonNull(serviceDescriptors, "serviceDescriptors is null");
+        return immediateFuture(lookup(serviceDescriptors.getType(), serviceDescriptors.getPool()));
+    }
+
+    @Override
+    public boolean isWatchSupported()
+    {
+        return watchSupported;
+    }
+
+    @Override
+    public ListenableFuture<ServiceDescriptors> watchServices(ServiceDescriptors serviceDescriptors)
+    {
+        requireNonNull(serviceDescriptors, "serviceDescriptors is null");
+        if (!watchSupported) {
+            return refreshServices(serviceDescriptors);
+        }
+
+        // read the change future before the version so a concurrent change is never missed
+        ListenableFuture<?> changed = this.changed.get();
+        if (!String.valueOf(version.get()).equals(serviceDescriptors.getETag())) {
+            return refreshServices(serviceDescriptors);
         }
-        for (ServiceDescriptor serviceDescriptor : this.discovered.values()) {
-            if (serviceDescriptor.getType().equals(type) && serviceDescriptor.getPool().equals(pool)) {
+        return Futures.transform(changed, ignored -> lookup(serviceDescriptors.getType(), serviceDescriptors.getPool()), directExecutor());
+    }
+
+    private ServiceDescriptors lookup(String type, String pool)
+    {
+        // read the version first so the ETag never claims newer state than was read
+        String eTag = String.valueOf(version.get());
+
+        ImmutableList.Builder<ServiceDescriptor> builder = ImmutableList.builder();
+        for (ServiceDescriptor serviceDescriptor : Iterables.concat(announcements.get(), discovered.values())) {
+            if (serviceDescriptor.getType().equals(type) && (pool == null || serviceDescriptor.getPool().equals(pool))) {
                 builder.add(serviceDescriptor);
             }
         }
-        return immediateFuture(new ServiceDescriptors(type, pool, builder.build(), maxAge, UUID.randomUUID().toString()));
+        return new ServiceDescriptors(type, pool, builder.build(), maxAge, eTag);
     }
 
-    @Override
-    public ListenableFuture<ServiceDescriptors> refreshServices(ServiceDescriptors serviceDescriptors)
+    private void fireChanged()
     {
-        requireNonNull(serviceDescriptors, "serviceDescriptors is null");
-
-        return getServices(serviceDescriptors.getType(), serviceDescriptors.getPool());
+        version.incrementAndGet();
+        changed.getAndSet(SettableFuture.create()).set(null);
     }
 }
@@ -17,8 +17,10 @@ package io.airlift.discovery.client;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.discovery.client.testing.InMemoryDiscoveryClient;
 import io.airlift.node.NodeInfo;
+import io.airlift.units.Duration;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -26,9 +28,12 @@ import org.testng.annotations.Test;
 import java.util.UUID;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.airlift.testing.Assertions.assertEqualsIgnoreOrder;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.testng.Assert.assertEquals;
 
 public class TestCachingServiceSelector
@@ -131,4 +136,83 @@ public class TestCachingServiceSelector
 
         assertEqualsIgnoreOrder(serviceSelector.selectAllServices(), ImmutableList.of(APPLE_1_SERVICE, APPLE_2_SERVICE));
     }
+
+    @Test
+    public void testWatchSeesChanges()
+            throws Exception
+    {
+        // max age is long enough that only the watch can pick up the changes
+        InMemoryDiscoveryClient discoveryClient = new InMemoryDiscoveryClient(nodeInfo, new Duration(1, HOURS), true);
+        discoveryClient.addDiscoveredService(APPLE_1_SERVICE);
+
+        CachingServiceSelector serviceSelector = new CachingServiceSelector("apple",
+                new ServiceSelectorConfig().setPool("pool"),
+                discoveryClient,
+                executor);
+
+        serviceSelector.start();
+        assertEventually(() -> assertEquals(serviceSelector.selectAllServices(), ImmutableList.of(APPLE_1_SERVICE)));
+
+        discoveryClient.addDiscoveredService(APPLE_2_SERVICE);
+        discoveryClient.addDiscoveredService(DIFFERENT_POOL);
+        assertEventually(() -> assertEqualsIgnoreOrder(serviceSelector.selectAllServices(), ImmutableList.of(APPLE_1_SERVICE, APPLE_2_SERVICE)));
+
+        discoveryClient.remove(APPLE_1_SERVICE.getId());
+        assertEventually(() -> assertEquals(serviceSelector.selectAllServices(), ImmutableList.of(APPLE_2_SERVICE)));
+    }
+
+    @Test
+    public void testWatchIgnoredByServer()
+            throws Exception
+    {
+        // a server that ignores the watch returns the unchanged services immediately
+        AtomicInteger watches = new AtomicInteger();
+        InMemoryDiscoveryClient discoveryClient = new InMemoryDiscoveryClient(nodeInfo, new Duration(1, HOURS))
+        {
+            @Override
+            public boolean isWatchSupported()
+            {
+                return true;
+            }
+
+            @Override
+            public ListenableFuture<ServiceDescriptors> watchServices(ServiceDescriptors serviceDescriptors)
+            {
+                watches.incrementAndGet();
+                return refreshServices(serviceDescriptors);
+            }
+        };
+        discoveryClient.addDiscoveredService(APPLE_1_SERVICE);
+
+        CachingServiceSelector serviceSelector = new CachingServiceSelector("apple",
+                new ServiceSelectorConfig().setPool("pool"),
+                discoveryClient,
+                executor);
+
+        serviceSelector.start();
+        assertEventually(() -> assertEquals(watches.get(), 1));
+
+        // the next watch waits for the max age instead of spinning
+        SECONDS.sleep(1);
+        assertEquals(watches.get(), 1);
+        assertEquals(serviceSelector.selectAllServices(), ImmutableList.of(APPLE_1_SERVICE));
+    }
+
+    private static void assertEventually(Runnable assertion)
+            throws InterruptedException
+    {
+        long deadline = System.nanoTime() + SECONDS.toNanos(10);
+        while (true) {
+            try {
+                assertion.run();
+                return;
+            }
+            catch (AssertionError e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+            }
+            Thread.sleep(10);
+        }
+    }
 }
@@ -17,18 +17,25 @@ package io.airlift.discovery.client;
 
 import com.google.common.collect.ImmutableMap;
 import io.airlift.configuration.testing.ConfigAssertions;
+import io.airlift.units.Duration;
 import org.testng.annotations.Test;
 
 import java.net.URI;
 import java.util.Map;
 
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
 public class TestDiscoveryClientConfig
 {
     @Test
     public void testDefaults()
     {
         ConfigAssertions.assertRecordedDefaults(ConfigAssertions.recordDefaults(DiscoveryClientConfig.class)
-                .setDiscoveryServiceURI(null));
+                .setDiscoveryServiceURI(null)
+                .setWatchEnabled(false)
+                .setWatchMaxWait(new Duration(30, SECONDS))
+                .setAnnouncementCompressionEnabled(false));
     }
 
     @Test
@@ -36,10 +43,16 @@ public class TestDiscoveryClientConfig
     {
         Map<String, String> properties = new ImmutableMap.Builder<String, String>()
                 .put("discovery.uri", "fake://server")
+                .put("discovery.watch.enabled", "true")
+                .put("discovery.watch.max-wait", "1m")
+                .put("discovery.announcement.compression.enabled", "true")
                 .build();
 
         DiscoveryClientConfig expected = new DiscoveryClientConfig()
-                .setDiscoveryServiceURI(URI.create("fake://server"));
+                .setDiscoveryServiceURI(URI.create("fake://server"))
+                .setWatchEnabled(true)
+                .setWatchMaxWait(new Duration(1, MINUTES))
+                .setAnnouncementCompressionEnabled(true);
 
         ConfigAssertions.assertFullMapping(properties, expected);
     }
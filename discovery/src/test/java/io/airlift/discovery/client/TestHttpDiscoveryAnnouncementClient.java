@@ -0,0 +1,237 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.discovery.client;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import com.google.common.net.HttpHeaders;
+import io.airlift.http.client.jetty.JettyHttpClient;
+import io.airlift.json.JsonCodec;
+import io.airlift.node.NodeInfo;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.GZIPInputStream;
+
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static io.airlift.json.JsonCodec.mapJsonCodec;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestHttpDiscoveryAnnouncementClient
+{
+    private static final JsonCodec<Announcement> ANNOUNCEMENT_CODEC = jsonCodec(Announcement.class);
+    private static final JsonCodec<Map<String, Object>> MAP_CODEC = mapJsonCodec(String.class, Object.class);
+    private static final ServiceAnnouncement APPLE = ServiceAnnouncement.serviceAnnouncement("apple").addProperty("a", "apple").build();
+    private static final ServiceAnnouncement BANANA = ServiceAnnouncement.serviceAnnouncement("banana").addProperty("b", "banana").build();
+
+    private final NodeInfo nodeInfo = new NodeInfo("test");
+    private AnnouncementServlet servlet;
+    private Server server;
+    private URI baseUri;
+    private JettyHttpClient httpClient;
+
+    @BeforeMethod
+    public void setUp()
+            throws Exception
+    {
+        servlet = new AnnouncementServlet();
+        server = new Server();
+        ServerConnector connector = new ServerConnector(server);
+        connector.setPort(0);
+        server.addConnector(connector);
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+        context.addServlet(new ServletHolder(servlet), "/*");
+        server.setHandler(context);
+        server.start();
+        baseUri = URI.create("http://127.0.0.1:" + connector.getLocalPort());
+        httpClient = new JettyHttpClient();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws Exception
+    {
+        httpClient.close();
+        server.stop();
+    }
+
+    @Test
+    public void testHeartbeatUntilChanged()
+            throws Exception
+    {
+        HttpDiscoveryAnnouncementClient client = createClient(new DiscoveryClientConfig());
+
+        client.announce(ImmutableSet.of(APPLE)).get();
+        client.announce(ImmutableSet.of(APPLE)).get();
+        client.announce(ImmutableSet.of(APPLE)).get();
+        client.announce(ImmutableSet.of(APPLE, BANANA)).get();
+
+        List<Received> requests = servlet.getRequests();
+        assertEquals(requests.size(), 4);
+        assertFull(requests.get(0), 1);
+        assertHeartbeat(requests.get(1), requests.get(0).eTag);
+        assertHeartbeat(requests.get(2), requests.get(0).eTag);
+        assertFull(requests.get(3), 2);
+    }
+
+    @Test
+    public void testServerLostAnnouncement()
+            throws Exception
+    {
+        HttpDiscoveryAnnouncementClient client = createClient(new DiscoveryClientConfig());
+
+        client.announce(ImmutableSet.of(APPLE)).get();
+        servlet.forget();
+        client.announce(ImmutableSet.of(APPLE)).get();
+
+        List<Received> requests = servlet.getRequests();
+        assertEquals(requests.size(), 3);
+        assertFull(requests.get(0), 1);
+        assertHeartbeat(requests.get(1), requests.get(0).eTag);
+        assertFull(requests.get(2), 1);
+    }
+
+    @Test
+    public void testServerWithoutHeartbeatSupport()
+            throws Exception
+    {
+        servlet.setEchoVersion(false);
+        HttpDiscoveryAnnouncementClient client = createClient(new DiscoveryClientConfig());
+
+        client.announce(ImmutableSet.of(APPLE)).get();
+        client.announce(ImmutableSet.of(APPLE)).get();
+
+        List<Received> requests = servlet.getRequests();
+        assertEquals(requests.size(), 2);
+        assertFull(requests.get(0), 1);
+        assertFull(requests.get(1), 1);
+    }
+
+    @Test
+    public void testCompression()
+            throws Exception
+    {
+        HttpDiscoveryAnnouncementClient client = createClient(new DiscoveryClientConfig().setAnnouncementCompressionEnabled(true));
+
+        client.announce(ImmutableSet.of(APPLE, BANANA)).get();
+
+        Received request = servlet.getRequests().get(0);
+        assertEquals(request.contentEncoding, "gzip");
+        assertFull(request, 2);
+    }
+
+    private HttpDiscoveryAnnouncementClient createClient(DiscoveryClientConfig config)
+    {
+        return new HttpDiscoveryAnnouncementClient(() -> baseUri, nodeInfo, ANNOUNCEMENT_CODEC, httpClient, config);
+    }
+
+    private static void assertFull(Received request, int serviceCount)
+    {
+        assertNotNull(request.announcement);
+        assertEquals(((List<?>) request.announcement.get("services")).size(), serviceCount);
+        assertNotNull(request.eTag);
+        assertNull(request.ifMatch);
+    }
+
+    private static void assertHeartbeat(Received request, String version)
+    {
+        assertNull(request.announcement);
+        assertEquals(request.ifMatch, version);
+    }
+
+    private static class Received
+    {
+        private final Map<String, Object> announcement;
+        private final String eTag;
+        private final String ifMatch;
+        private final String contentEncoding;
+
+        private Received(Map<String, Object> announcement, String eTag, String ifMatch, String contentEncoding)
+        {
+            this.announcement = announcement;
+            this.eTag = eTag;
+            this.ifMatch = ifMatch;
+            this.contentEncoding = contentEncoding;
+        }
+    }
+
+    private static class AnnouncementServlet
+            extends HttpServlet
+    {
+        private final List<Received> requests = new CopyOnWriteArrayList<>();
+        private volatile String version;
+        private volatile boolean echoVersion = true;
+
+        public List<Received> getRequests()
+        {
+            return requests;
+        }
+
+        public void forget()
+        {
+            version = null;
+        }
+
+        public void setEchoVersion(boolean echoVersion)
+        {
+            this.echoVersion = echoVersion;
+        }
+
+        @Override
+        protected void doPut(HttpServletRequest request, HttpServletResponse response)
+                throws IOException
+        {
+            String ifMatch = request.getHeader(HttpHeaders.IF_MATCH);
+            if (ifMatch != null) {
+                requests.add(new Received(null, null, ifMatch, null));
+                response.setStatus(ifMatch.equals(version) ? 202 : 412);
+                return;
+            }
+
+            String contentEncoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+            InputStream body = request.getInputStream();
+            if ("gzip".equals(contentEncoding)) {
+                body = new GZIPInputStream(body);
+            }
+            Map<String, Object> announcement = MAP_CODEC.fromJson(ByteStreams.toByteArray(body));
+            String eTag = request.getHeader(HttpHeaders.ETAG);
+            requests.add(new Received(announcement, eTag, null, contentEncoding));
+            assertTrue(eTag.startsWith("\""));
+
+            version = eTag;
+            if (echoVersion) {
+                response.setHeader(HttpHeaders.ETAG, eTag);
+            }
+            response.setStatus(202);
+        }
+    }
+}
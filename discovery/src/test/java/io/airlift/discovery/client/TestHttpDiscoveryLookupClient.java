@@ -0,0 +1,205 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.discovery.client;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.net.HttpHeaders;
+import io.airlift.http.client.jetty.JettyHttpClient;
+import io.airlift.json.JsonCodec;
+import io.airlift.node.NodeInfo;
+import io.airlift.units.Duration;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class TestHttpDiscoveryLookupClient
+{
+    private static final JsonCodec<ServiceDescriptorsRepresentation> SERVICE_DESCRIPTORS_CODEC = jsonCodec(ServiceDescriptorsRepresentation.class);
+    private static final ServiceDescriptor APPLE_1_SERVICE = new ServiceDescriptor(UUID.randomUUID(), "node-A", "apple", "pool", "location", ServiceState.RUNNING, ImmutableMap.of("a", "apple"));
+    private static final ServiceDescriptor APPLE_2_SERVICE = new ServiceDescriptor(UUID.randomUUID(), "node-B", "apple", "pool", "location", ServiceState.RUNNING, ImmutableMap.of("a", "apple"));
+
+    private final NodeInfo nodeInfo = new NodeInfo("test");
+    private LookupServlet servlet;
+    private Server server;
+    private URI baseUri;
+    private JettyHttpClient httpClient;
+
+    @BeforeMethod
+    public void setUp()
+            throws Exception
+    {
+        servlet = new LookupServlet();
+        server = new Server();
+        ServerConnector connector = new ServerConnector(server);
+        connector.setPort(0);
+        server.addConnector(connector);
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+        context.addServlet(new ServletHolder(servlet), "/*");
+        server.setHandler(context);
+        server.start();
+        baseUri = URI.create("http://127.0.0.1:" + connector.getLocalPort());
+        httpClient = new JettyHttpClient();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws Exception
+    {
+        httpClient.close();
+        server.stop();
+    }
+
+    @Test
+    public void testWatchNotModified()
+            throws Exception
+    {
+        HttpDiscoveryLookupClient client = createClient(new DiscoveryClientConfig()
+                .setWatchEnabled(true)
+                .setWatchMaxWait(new Duration(5, SECONDS)));
+        servlet.setServices("\"1\"", APPLE_1_SERVICE);
+
+        ServiceDescriptors initial = client.getServices("apple", "pool").get();
+        assertEquals(initial.getServiceDescriptors(), ImmutableList.of(APPLE_1_SERVICE));
+        assertEquals(initial.getETag(), "\"1\"");
+        assertPlainLookup(servlet.getRequests().get(0), null);
+
+        // unchanged services keep the previous descriptors and ETag
+        ServiceDescriptors watched = client.watchServices(initial).get();
+        Received request = servlet.getRequests().get(1);
+        assertEquals(request.eTag, "\"1\"");
+        assertEquals(request.ifNoneMatch, "\"1\"");
+        assertEquals(request.prefer, "wait=5");
+        assertEquals(watched.getServiceDescriptors(), ImmutableList.of(APPLE_1_SERVICE));
+        assertEquals(watched.getETag(), "\"1\"");
+        assertEquals(watched.getMaxAge(), new Duration(10, SECONDS));
+    }
+
+    @Test
+    public void testWatchSeesChange()
+            throws Exception
+    {
+        HttpDiscoveryLookupClient client = createClient(new DiscoveryClientConfig().setWatchEnabled(true));
+        servlet.setServices("\"1\"", APPLE_1_SERVICE);
+
+        ServiceDescriptors initial = client.getServices("apple", "pool").get();
+        servlet.setServices("\"2\"", APPLE_1_SERVICE, APPLE_2_SERVICE);
+
+        ServiceDescriptors watched = client.watchServices(initial).get();
+        assertEquals(servlet.getRequests().get(1).ifNoneMatch, "\"1\"");
+        assertEquals(servlet.getRequests().get(1).prefer, "wait=30");
+        assertEquals(watched.getServiceDescriptors(), ImmutableList.of(APPLE_1_SERVICE, APPLE_2_SERVICE));
+        assertEquals(watched.getETag(), "\"2\"");
+    }
+
+    @Test
+    public void testWatchDisabled()
+            throws Exception
+    {
+        HttpDiscoveryLookupClient client = createClient(new DiscoveryClientConfig());
+        servlet.setServices("\"1\"", APPLE_1_SERVICE);
+
+        ServiceDescriptors initial = client.getServices("apple", "pool").get();
+        ServiceDescriptors refreshed = client.watchServices(initial).get();
+
+        // without watch support the request is a plain refresh
+        assertPlainLookup(servlet.getRequests().get(1), "\"1\"");
+        assertEquals(refreshed.getServiceDescriptors(), ImmutableList.of(APPLE_1_SERVICE));
+    }
+
+    private HttpDiscoveryLookupClient createClient(DiscoveryClientConfig config)
+    {
+        return new HttpDiscoveryLookupClient(() -> baseUri, nodeInfo, SERVICE_DESCRIPTORS_CODEC, httpClient, config);
+    }
+
+    private static void assertPlainLookup(Received request, String eTag)
+    {
+        assertEquals(request.eTag, eTag);
+        assertNull(request.ifNoneMatch);
+        assertNull(request.prefer);
+    }
+
+    private static class Received
+    {
+        private final String eTag;
+        private final String ifNoneMatch;
+        private final String prefer;
+
+        private Received(String eTag, String ifNoneMatch, String prefer)
+        {
+            this.eTag = eTag;
+            this.ifNoneMatch = ifNoneMatch;
+            this.prefer = prefer;
+        }
+    }
+
+    private class LookupServlet
+            extends HttpServlet
+    {
+        private final List<Received> requests = new CopyOnWriteArrayList<>();
+        private volatile String version;
+        private volatile List<ServiceDescriptor> services;
+
+        public List<Received> getRequests()
+        {
+            return requests;
+        }
+
+        public void setServices(String version, ServiceDescriptor... services)
+        {
+            this.services = ImmutableList.copyOf(services);
+            this.version = version;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response)
+                throws IOException
+        {
+            String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+            requests.add(new Received(request.getHeader(HttpHeaders.ETAG), ifNoneMatch, request.getHeader("Prefer")));
+
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "max-age=10");
+            if (version.equals(ifNoneMatch)) {
+                // a real server would hold the request; the client must keep what it has
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setHeader(HttpHeaders.ETAG, version);
+            response.setContentType("application/json");
+            response.getOutputStream().write(SERVICE_DESCRIPTORS_CODEC.toJson(new ServiceDescriptorsRepresentation(nodeInfo.getEnvironment(), services)).getBytes(UTF_8));
+        }
+    }
+}
@@ -75,6 +75,8 @@ public class TestServiceInventory
             assertEquals(Iterables.size(serviceInventory.getServiceDescriptors()), 2);
             assertEquals(Iterables.size(serviceInventory.getServiceDescriptors("discovery")), 2);
             assertEquals(Iterables.size(serviceInventory.getServiceDescriptors("discovery", "general")), 2);
+            assertEquals(Iterables.size(serviceInventory.getServiceDescriptors("unknown")), 0);
+            assertEquals(Iterables.size(serviceInventory.getServiceDescriptors("discovery", "unknown")), 0);
             serviceInventory.updateServiceInventory();
             assertEquals(Iterables.size(serviceInventory.getServiceDescriptors()), 2);
             assertEquals(Iterables.size(serviceInventory.getServiceDescriptors("discovery")), 2);
@@ -129,6 +131,8 @@ public class TestServiceInventory
             assertEquals(Iterables.size(serviceInventory.getServiceDescriptors()), 2);
             assertEquals(Iterables.size(serviceInventory.getServiceDescriptors("discovery")), 2);
             assertEquals(Iterables.size(serviceInventory.getServiceDescriptors("discovery", "general")), 2);
+            assertEquals(Iterables.size(serviceInventory.getServiceDescriptors("unknown")), 0);
+            assertEquals(Iterables.size(serviceInventory.getServiceDescriptors("discovery", "unknown")), 0);
             serviceInventory.updateServiceInventory();
             assertEquals(Iterables.size(serviceInventory.getServiceDescriptors()), 2);
             assertEquals(Iterables.size(serviceInventory.getServiceDescriptors("discovery")), 2);
@@ -87,6 +87,16 @@ public class EventFieldMetadata
         return containerType;
     }
 
+    Method getMethod()
+    {
+        return method;
+    }
+
+    Optional<EventDataType> getEventDataType()
+    {
+        return eventDataType;
+    }
+
     private Object getValue(Object event)
             throws InvalidEventException
     {
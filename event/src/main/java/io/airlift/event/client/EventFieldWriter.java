@@ -0,0 +1,300 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.event.client;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import io.airlift.event.client.EventFieldMetadata.ContainerType;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static io.airlift.event.client.EventDataType.validateFieldValueType;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Writes one event field using a getter and value writer resolved once per
+ * event class, instead of reflectively dispatching on every value like
+ * {@link EventFieldMetadata#writeField}.  The output is identical.
+ * <p>
+ * Cycle detection is only performed for nested types that can reach
+ * themselves, and the object stack is only allocated when such a type
+ * is actually encountered.
+ */
+final class EventFieldWriter
+{
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final String name;
+    private final SerializedString serializedName;
+    private final MethodHandle getter;
+    private final String getterDescription;
+    private final ValueWriter valueWriter;
+
+    private EventFieldWriter(EventFieldMetadata field, ValueWriter valueWriter)
+    {
+        this.name = field.getName();
+        this.serializedName = new SerializedString(name);
+        this.getterDescription = field.getMethod().toGenericString();
+        try {
+            this.getter = MethodHandles.lookup().unreflect(field.getMethod()).asType(GETTER_TYPE);
+        }
+        catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Unable to access event field method " + getterDescription, e);
+        }
+        this.valueWriter = requireNonNull(valueWriter, "valueWriter is null");
+    }
+
+    /**
+     * Compiles writers for the data fields of the event type.
+     */
+    public static List<EventFieldWriter> compileFields(EventTypeMetadata<?> eventType)
+    {
+        return new Compiler().compileFields(eventType);
+    }
+
+    /**
+     * Compiles a writer for a single field, such as a special uuid, host or timestamp field.
+     */
+    public static EventFieldWriter compile(EventFieldMetadata field)
+    {
+        return new Compiler().compileField(field);
+    }
+
+    public void writeField(JsonGenerator jsonGenerator, Object event)
+            throws IOException
+    {
+        writeField(jsonGenerator, event, null);
+    }
+
+    private void writeField(JsonGenerator jsonGenerator, Object event, Deque<Object> objectStack)
+            throws IOException
+    {
+        Object value = getValue(event);
+        if (value != null) {
+            jsonGenerator.writeFieldName(serializedName);
+            valueWriter.write(jsonGenerator, value, objectStack);
+        }
+    }
+
+    private Object getValue(Object event)
+            throws InvalidEventException
+    {
+        try {
+            return (Object) getter.invokeExact(event);
+        }
+        catch (Throwable e) {
+            throw new InvalidEventException(e,
+                    "Unable to get value of event field %s: Exception occurred while invoking [%s]", name, getterDescription);
+        }
+    }
+
+    private interface ValueWriter
+    {
+        void write(JsonGenerator jsonGenerator, Object value, Deque<Object> objectStack)
+                throws IOException;
+    }
+
+    private static final class Compiler
+    {
+        private final Map<Class<?>, NestedObjectWriter> nestedWriters = new HashMap<>();
+
+        public List<EventFieldWriter> compileFields(EventTypeMetadata<?> eventType)
+        {
+            ImmutableList.Builder<EventFieldWriter> writers = ImmutableList.builder();
+            for (EventFieldMetadata field : eventType.getFields()) {
+                writers.add(compileField(field));
+            }
+            return writers.build();
+        }
+
+        public EventFieldWriter compileField(EventFieldMetadata field)
+        {
+            ValueWriter elementWriter = compileElementWriter(field);
+            if (!field.getContainerType().isPresent()) {
+                return new EventFieldWriter(field, elementWriter);
+            }
+
+            ContainerType containerType = field.getContainerType().get();
+            switch (containerType) {
+                case ITERABLE:
+                    return new EventFieldWriter(field, (jsonGenerator, value, objectStack) -> {
+                        validateFieldValueType(value, Iterable.class);
+                        writeArray(jsonGenerator, (Iterable<?>) value, elementWriter, objectStack);
+                    });
+                case MAP:
+                    return new EventFieldWriter(field, (jsonGenerator, value, objectStack) -> {
+                        validateFieldValueType(value, Map.class);
+                        writeMap(jsonGenerator, (Map<?, ?>) value, elementWriter, objectStack);
+                    });
+                case MULTIMAP:
+                    return new EventFieldWriter(field, (jsonGenerator, value, objectStack) -> {
+                        validateFieldValueType(value, Multimap.class);
+                        writeMultimap(jsonGenerator, (Multimap<?, ?>) value, elementWriter, objectStack);
+                    });
+            }
+            throw new IllegalArgumentException("Unsupported container type: " + containerType);
+        }
+
+        private ValueWriter compileElementWriter(EventFieldMetadata field)
+        {
+            if (field.getEventDataType().isPresent()) {
+                EventDataType eventDataType = field.getEventDataType().get();
+                return (jsonGenerator, value, objectStack) -> eventDataType.writeFieldValue(jsonGenerator, value);
+            }
+            return getNestedWriter(field.getNestedType().get());
+        }
+
+        private NestedObjectWriter getNestedWriter(EventTypeMetadata<?> nestedType)
+        {
+            NestedObjectWriter writer = nestedWriters.get(nestedType.getEventClass());
+            if (writer != null) {
+                return writer;
+            }
+
+            // register before compiling the fields so recursive types resolve to this writer
+            writer = new NestedObjectWriter(nestedType.getEventClass(), isRecursive(nestedType));
+            nestedWriters.put(nestedType.getEventClass(), writer);
+            writer.setFields(compileFields(nestedType));
+            return writer;
+        }
+
+        private static boolean isRecursive(EventTypeMetadata<?> eventType)
+        {
+            Set<Class<?>> visited = new HashSet<>();
+            Deque<EventTypeMetadata<?>> queue = new ArrayDeque<>();
+            queue.add(eventType);
+            while (!queue.isEmpty()) {
+                for (EventFieldMetadata field : queue.poll().getFields()) {
+                    if (!field.getNestedType().isPresent()) {
+                        continue;
+                    }
+                    EventTypeMetadata<?> nestedType = field.getNestedType().get();
+                    if (nestedType.getEventClass() == eventType.getEventClass()) {
+                        return true;
+                    }
+                    if (visited.add(nestedType.getEventClass())) {
+                        queue.add(nestedType);
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class NestedObjectWriter
+            implements ValueWriter
+    {
+        private final Class<?> eventClass;
+        private final boolean recursive;
+        private EventFieldWriter[] fields;
+
+        public NestedObjectWriter(Class<?> eventClass, boolean recursive)
+        {
+            this.eventClass = eventClass;
+            this.recursive = recursive;
+        }
+
+        public void setFields(List<EventFieldWriter> fields)
+        {
+            this.fields = fields.toArray(new EventFieldWriter[0]);
+        }
+
+        @Override
+        public void write(JsonGenerator jsonGenerator, Object value, Deque<Object> objectStack)
+                throws IOException
+        {
+            validateFieldValueType(value, eventClass);
+            if (!recursive) {
+                writeObject(jsonGenerator, value, objectStack);
+                return;
+            }
+
+            if (objectStack == null) {
+                objectStack = new ArrayDeque<>();
+            }
+            checkForCycles(value, objectStack);
+            objectStack.push(value);
+            writeObject(jsonGenerator, value, objectStack);
+            objectStack.pop();
+        }
+
+        private void writeObject(JsonGenerator jsonGenerator, Object value, Deque<Object> objectStack)
+                throws IOException
+        {
+            jsonGenerator.writeStartObject();
+            for (EventFieldWriter field : fields) {
+                field.writeField(jsonGenerator, value, objectStack);
+            }
+            jsonGenerator.writeEndObject();
+        }
+    }
+
+    private static void writeArray(JsonGenerator jsonGenerator, Iterable<?> value, ValueWriter elementWriter, Deque<Object> objectStack)
+            throws IOException
+    {
+        jsonGenerator.writeStartArray();
+        for (Object item : value) {
+            elementWriter.write(jsonGenerator, item, objectStack);
+        }
+        jsonGenerator.writeEndArray();
+    }
+
+    private static void writeMap(JsonGenerator jsonGenerator, Map<?, ?> value, ValueWriter elementWriter, Deque<Object> objectStack)
+            throws IOException
+    {
+        jsonGenerator.writeStartObject();
+        for (Map.Entry<?, ?> entry : value.entrySet()) {
+            jsonGenerator.writeFieldName((String) entry.getKey());
+            elementWriter.write(jsonGenerator, entry.getValue(), objectStack);
+        }
+        jsonGenerator.writeEndObject();
+    }
+
+    private static void writeMultimap(JsonGenerator jsonGenerator, Multimap<?, ?> value, ValueWriter elementWriter, Deque<Object> objectStack)
+            throws IOException
+    {
+        jsonGenerator.writeStartObject();
+        for (Map.Entry<?, ? extends Collection<?>> entry : value.asMap().entrySet()) {
+            jsonGenerator.writeFieldName((String) entry.getKey());
+            writeArray(jsonGenerator, entry.getValue(), elementWriter, objectStack);
+        }
+        jsonGenerator.writeEndObject();
+    }
+
+    private static void checkForCycles(Object value, Deque<Object> objectStack)
+            throws InvalidEventException
+    {
+        for (Object o : objectStack) {
+            if (value == o) {
+                List<Object> path = Lists.reverse(new ArrayList<>(objectStack));
+                throw new InvalidEventException("Cycle detected in event data: %s", path);
+            }
+        }
+    }
+}
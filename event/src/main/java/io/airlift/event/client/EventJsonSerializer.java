@@ -32,6 +32,10 @@ public class EventJsonSerializer<T>
 {
     private final EventTypeMetadata<T> eventTypeMetadata;
     private final String hostName;
+    private final EventFieldWriter uuidField;
+    private final EventFieldWriter hostField;
+    private final EventFieldWriter timestampField;
+    private final EventFieldWriter[] fields;
 
     public EventJsonSerializer(EventTypeMetadata<T> eventTypeMetadata)
     {
@@ -49,6 +53,19 @@ public class EventJsonSerializer<T>
         else {
             hostName = null;
         }
+
+        this.uuidField = compileSpecialField(eventTypeMetadata.getUuidField());
+        this.hostField = compileSpecialField(eventTypeMetadata.getHostField());
+        this.timestampField = compileSpecialField(eventTypeMetadata.getTimestampField());
+        this.fields = EventFieldWriter.compileFields(eventTypeMetadata).toArray(new EventFieldWriter[0]);
+    }
+
+    private static EventFieldWriter compileSpecialField(EventFieldMetadata field)
+    {
+        if (field == null) {
+            return null;
+        }
+        return EventFieldWriter.compile(field);
     }
 
     @Override
@@ -65,22 +82,22 @@ public class EventJsonSerializer<T>
 
         jsonGenerator.writeStringField("type", eventTypeMetadata.getTypeName());
 
-        if (eventTypeMetadata.getUuidField() != null) {
-            eventTypeMetadata.getUuidField().writeField(jsonGenerator, event);
+        if (uuidField != null) {
+            uuidField.writeField(jsonGenerator, event);
         }
         else {
             jsonGenerator.writeStringField("uuid", UUID.randomUUID().toString());
         }
 
-        if (eventTypeMetadata.getHostField() != null) {
-            eventTypeMetadata.getHostField().writeField(jsonGenerator, event);
+        if (hostField != null) {
+            hostField.writeField(jsonGenerator, event);
         }
         else {
             jsonGenerator.writeStringField("host", hostName);
         }
 
-        if (eventTypeMetadata.getTimestampField() != null) {
-            eventTypeMetadata.getTimestampField().writeField(jsonGenerator, event);
+        if (timestampField != null) {
+            timestampField.writeField(jsonGenerator, event);
         }
         else {
             jsonGenerator.writeFieldName("timestamp");
@@ -88,7 +105,7 @@ public class EventJsonSerializer<T>
         }
 
         jsonGenerator.writeObjectFieldStart("data");
-        for (EventFieldMetadata field : eventTypeMetadata.getFields()) {
+        for (EventFieldWriter field : fields) {
             field.writeField(jsonGenerator, event);
         }
         jsonGenerator.writeEndObject();
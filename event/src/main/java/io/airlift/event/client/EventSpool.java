@@ -0,0 +1,400 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.event.client;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Append-only queue of serialized events stored in fixed size memory-mapped
+ * segment files.  Each record is {@code [length][crc32][payload]}; a zero
+ * length marks the end of the written part of a segment.  The length is
+ * written last, so a record torn by a crash is ignored on recovery.
+ * <p>
+ * Records are delivered at least once: segments are deleted when every
+ * record in them has been acknowledged, and a partially acknowledged
+ * segment is replayed from its start after a restart.
+ */
+@ThreadSafe
+class EventSpool
+        implements Closeable
+{
+    private static final int HEADER_SIZE = Integer.BYTES * 2;
+    private static final String SEGMENT_SUFFIX = ".segment";
+
+    private final File directory;
+    private final int segmentSize;
+    private final long maxSize;
+
+    @GuardedBy("this")
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    @GuardedBy("this")
+    private long nextSegmentId;
+    @GuardedBy("this")
+    private long pendingBytes;
+    @GuardedBy("this")
+    private long pendingRecords;
+    @GuardedBy("this")
+    private boolean closed;
+
+    public EventSpool(File directory, long segmentSize, long maxSize)
+            throws IOException
+    {
+        requireNonNull(directory, "directory is null");
+        checkArgument(segmentSize > HEADER_SIZE && segmentSize <= Integer.MAX_VALUE, "invalid segment size: %s", segmentSize);
+        checkArgument(maxSize >= segmentSize, "maxSize is less than segmentSize");
+
+        this.directory = directory;
+        this.segmentSize = (int) segmentSize;
+        this.maxSize = maxSize;
+
+        Files.createDirectories(directory.toPath());
+        recover();
+    }
+
+    private synchronized void recover()
+            throws IOException
+    {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            throw new IOException("Unable to list event spool directory " + directory);
+        }
+
+        long[] ids = Arrays.stream(files)
+                .mapToLong(file -> parseSegmentId(file.getName()))
+                .filter(id -> id >= 0)
+                .sorted()
+                .toArray();
+
+        for (long id : ids) {
+            nextSegmentId = id + 1;
+            Segment segment = Segment.open(segmentFile(id));
+            if (segment.recordCount == 0) {
+                segment.delete();
+                continue;
+            }
+            segment.sealed = true;
+            segments.addLast(segment);
+            pendingBytes += segment.writePosition;
+            pendingRecords += segment.recordCount;
+        }
+    }
+
+    /**
+     * Appends a record, returning false if the spool is full.
+     */
+    public synchronized boolean append(byte[] record)
+            throws IOException
+    {
+        requireNonNull(record, "record is null");
+        checkState(!closed, "event spool is closed");
+
+        int size = HEADER_SIZE + record.length;
+        if (size > segmentSize - Integer.BYTES) {
+            throw new IOException(format("Event of %s bytes is larger than the spool segment size", record.length));
+        }
+        if (pendingBytes + size > maxSize) {
+            return false;
+        }
+
+        Segment segment = segments.peekLast();
+        if (segment == null || segment.sealed || !segment.hasRoom(size)) {
+            if (segment != null && !segment.sealed) {
+                segment.seal();
+            }
+            segment = Segment.create(segmentFile(nextSegmentId++), segmentSize);
+            segments.addLast(segment);
+        }
+
+        segment.append(record);
+        pendingBytes += size;
+        pendingRecords++;
+        return true;
+    }
+
+    /**
+     * Returns the oldest unacknowledged records, at least one record if any
+     * are pending and otherwise up to {@code maxBytes} of payload.  Until the
+     * batch is acknowledged, the same records are returned again.
+     */
+    public synchronized Batch readBatch(long maxBytes)
+    {
+        ImmutableList.Builder<byte[]> records = ImmutableList.builder();
+        long bytes = 0;
+        int count = 0;
+        Segment endSegment = null;
+        int endPosition = 0;
+
+        for (Segment segment : segments) {
+            int position = segment.ackPosition;
+            while (position < segment.writePosition) {
+                int length = segment.buffer.getInt(position);
+                if (count > 0 && bytes + length > maxBytes) {
+                    return new Batch(records.build(), bytes, endSegment, endPosition);
+                }
+                records.add(segment.readRecord(position, length));
+                bytes += length;
+                count++;
+                position += HEADER_SIZE + length;
+                endSegment = segment;
+                endPosition = position;
+            }
+        }
+        return new Batch(records.build(), bytes, endSegment, endPosition);
+    }
+
+    /**
+     * Acknowledges delivery of the batch, deleting the segments it completes.
+     */
+    public synchronized void acknowledge(Batch batch)
+            throws IOException
+    {
+        requireNonNull(batch, "batch is null");
+        if (batch.endSegment == null) {
+            return;
+        }
+        checkArgument(segments.contains(batch.endSegment), "batch was already acknowledged");
+
+        while (true) {
+            Segment segment = segments.peekFirst();
+            boolean last = segment == batch.endSegment;
+            int end = last ? batch.endPosition : segment.writePosition;
+            pendingBytes -= end - segment.ackPosition;
+            pendingRecords -= segment.countRecords(segment.ackPosition, end);
+            segment.ackPosition = end;
+
+            if (segment.sealed && segment.ackPosition == segment.writePosition) {
+                segments.removeFirst();
+                segment.delete();
+            }
+            if (last) {
+                return;
+            }
+        }
+    }
+
+    public synchronized long getPendingBytes()
+    {
+        return pendingBytes;
+    }
+
+    public synchronized long getPendingRecords()
+    {
+        return pendingRecords;
+    }
+
+    public synchronized int getSegmentCount()
+    {
+        return segments.size();
+    }
+
+    /**
+     * Flushes the written records to disk.  Segments with unacknowledged
+     * records stay on disk and are replayed when the spool is reopened.
+     */
+    @Override
+    public synchronized void close()
+            throws IOException
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Segment segment : segments) {
+            if (segment.ackPosition == segment.writePosition) {
+                segment.delete();
+            }
+            else {
+                segment.buffer.force();
+            }
+        }
+        segments.clear();
+    }
+
+    private File segmentFile(long id)
+    {
+        return new File(directory, format("%019d%s", id, SEGMENT_SUFFIX));
+    }
+
+    private static long parseSegmentId(String name)
+    {
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public static class Batch
+    {
+        private final List<byte[]> records;
+        private final long bytes;
+        private final Segment endSegment;
+        private final int endPosition;
+
+        private Batch(List<byte[]> records, long bytes, Segment endSegment, int endPosition)
+        {
+            this.records = records;
+            this.bytes = bytes;
+            this.endSegment = endSegment;
+            this.endPosition = endPosition;
+        }
+
+        public List<byte[]> getRecords()
+        {
+            return records;
+        }
+
+        public long getBytes()
+        {
+            return bytes;
+        }
+
+        public boolean isEmpty()
+        {
+            return records.isEmpty();
+        }
+    }
+
+    private static class Segment
+    {
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+        private int ackPosition;
+        private int recordCount;
+        private boolean sealed;
+
+        private Segment(File file, MappedByteBuffer buffer)
+        {
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        public static Segment create(File file, int size)
+                throws IOException
+        {
+            return new Segment(file, map(file, size));
+        }
+
+        public static Segment open(File file)
+                throws IOException
+        {
+            // use the existing size, in case the configured segment size has changed
+            int size = (int) Math.min(file.length(), Integer.MAX_VALUE);
+            Segment segment = new Segment(file, map(file, size));
+            CRC32 crc = new CRC32();
+            int position = 0;
+            while (position + HEADER_SIZE <= size) {
+                int length = segment.buffer.getInt(position);
+                if (length <= 0 || position + HEADER_SIZE + length > size) {
+                    break;
+                }
+                byte[] record = segment.readRecord(position, length);
+                crc.reset();
+                crc.update(record);
+                if ((int) crc.getValue() != segment.buffer.getInt(position + Integer.BYTES)) {
+                    break;
+                }
+                position += HEADER_SIZE + length;
+                segment.recordCount++;
+            }
+            segment.writePosition = position;
+            return segment;
+        }
+
+        private static MappedByteBuffer map(File file, int size)
+                throws IOException
+        {
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+                    FileChannel channel = randomAccessFile.getChannel()) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        }
+
+        public boolean hasRoom(int size)
+        {
+            // keep room for the zero length end marker
+            return writePosition + size + Integer.BYTES <= buffer.capacity();
+        }
+
+        public void append(byte[] record)
+        {
+            CRC32 crc = new CRC32();
+            crc.update(record);
+
+            int position = writePosition;
+            ByteBuffer view = buffer.duplicate();
+            view.position(position + HEADER_SIZE);
+            view.put(record);
+            buffer.putInt(position + Integer.BYTES, (int) crc.getValue());
+            // publish the record by writing its length last
+            buffer.putInt(position, record.length);
+            writePosition = position + HEADER_SIZE + record.length;
+            recordCount++;
+        }
+
+        public byte[] readRecord(int position, int length)
+        {
+            byte[] record = new byte[length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(position + HEADER_SIZE);
+            view.get(record);
+            return record;
+        }
+
+        public int countRecords(int start, int end)
+        {
+            int count = 0;
+            for (int position = start; position < end; position += HEADER_SIZE + buffer.getInt(position)) {
+                count++;
+            }
+            return count;
+        }
+
+        public void seal()
+        {
+            buffer.force();
+            sealed = true;
+        }
+
+        public void delete()
+                throws IOException
+        {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+}
@@ -17,10 +17,11 @@ package io.airlift.event.client;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.CharStreams;
-import com.google.common.net.MediaType;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.discovery.client.HttpServiceSelector;
 import io.airlift.discovery.client.ServiceType;
+import io.airlift.event.client.HttpEventClientConfig.Compression;
+import io.airlift.event.client.HttpEventClientConfig.Encoding;
 import io.airlift.http.client.BodyGenerator;
 import io.airlift.http.client.HttpClient;
 import io.airlift.http.client.Request;
@@ -34,6 +35,7 @@ import org.weakref.jmx.Managed;
 
 import javax.inject.Inject;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -41,33 +43,57 @@ import java.io.OutputStream;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
+import static com.google.common.util.concurrent.Futures.catchingAsync;
 import static com.google.common.util.concurrent.Futures.immediateFailedFuture;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.airlift.http.client.HttpStatus.UNSUPPORTED_MEDIA_TYPE;
 import static io.airlift.http.client.Request.Builder.preparePost;
+import static java.util.Locale.ENGLISH;
 import static java.util.Objects.requireNonNull;
 
 public class HttpEventClient
         implements EventClient
 {
     private static final Logger log = Logger.get(HttpEventClient.class);
-    private static final MediaType MEDIA_TYPE_JSON = MediaType.create("application", "json");
 
     private final HttpServiceSelector serviceSelector;
     private final JsonEventWriter eventWriter;
     private final HttpClient httpClient;
     private final NodeInfo nodeInfo;
+    private final Encoding encoding;
+    private final Compression compression;
+
+    // set once a collector rejects the configured encoding or compression
+    private final AtomicBoolean plainJsonOnly = new AtomicBoolean();
+
+    public HttpEventClient(
+            HttpServiceSelector serviceSelector,
+            JsonEventWriter eventWriter,
+            NodeInfo nodeInfo,
+            HttpClient httpClient)
+    {
+        this(serviceSelector, eventWriter, nodeInfo, httpClient, new HttpEventClientConfig());
+    }
 
     @Inject
     public HttpEventClient(
             @ServiceType("collector") HttpServiceSelector serviceSelector,
             JsonEventWriter eventWriter,
             NodeInfo nodeInfo,
-            @ForEventClient HttpClient httpClient)
+            @ForEventClient HttpClient httpClient,
+            HttpEventClientConfig config)
     {
         this.serviceSelector = requireNonNull(serviceSelector, "serviceSelector is null");
         this.eventWriter = requireNonNull(eventWriter, "eventWriter is null");
         this.nodeInfo = requireNonNull(nodeInfo, "nodeInfo is null");
         this.httpClient = requireNonNull(httpClient, "httpClient is null");
+        requireNonNull(config, "config is null");
+        this.encoding = config.getEncoding();
+        this.compression = config.getCompression();
     }
 
     @Flatten
@@ -109,33 +135,99 @@ public class HttpEventClient
             return immediateFailedFuture(new ServiceUnavailableException(serviceSelector.getType(), serviceSelector.getPool()));
         }
 
+        URI uri = uris.get(0).resolve("/v2/event");
+        if (plainJsonOnly.get() || (encoding == Encoding.JSON && compression == Compression.NONE)) {
+            return post(uri, eventGenerator, Encoding.JSON, Compression.NONE);
+        }
+
+        // collectors that do not understand the format answer 415, so fall back to plain JSON
+        return catchingAsync(post(uri, eventGenerator, encoding, compression), UnsupportedFormatException.class, e -> {
+            if (plainJsonOnly.compareAndSet(false, true)) {
+                log.warn("Collector %s does not accept %s events with %s compression; falling back to uncompressed JSON", uri, encoding, compression);
+            }
+            return post(uri, eventGenerator, Encoding.JSON, Compression.NONE);
+        }, directExecutor());
+    }
+
+    private <T> ListenableFuture<Void> post(URI uri, EventGenerator<T> eventGenerator, Encoding encoding, Compression compression)
+    {
         // todo this doesn't really work due to returning the future which can fail without being retried
-        Request request = preparePost()
-                .setUri(uris.get(0).resolve("/v2/event"))
+        Request.Builder request = preparePost()
+                .setUri(uri)
                 .setHeader("User-Agent", nodeInfo.getNodeId())
-                .setHeader("Content-Type", MEDIA_TYPE_JSON.toString())
-                .setBodyGenerator(new JsonEntityWriter<>(eventWriter, eventGenerator))
-                .build();
-        return httpClient.executeAsync(request, new EventResponseHandler(serviceSelector.getType(), serviceSelector.getPool()));
+                .setHeader("Content-Type", encoding.getContentType())
+                .setBodyGenerator(new EventEntityWriter<>(eventWriter, eventGenerator, encoding, compression));
+        if (compression != Compression.NONE) {
+            request.setHeader("Content-Encoding", compression.name().toLowerCase(ENGLISH));
+        }
+        return httpClient.executeAsync(request.build(), new EventResponseHandler(serviceSelector.getType(), serviceSelector.getPool()));
     }
 
-    private static class JsonEntityWriter<T>
+    private static class EventEntityWriter<T>
             implements BodyGenerator
     {
         private final JsonEventWriter eventWriter;
         private final EventGenerator<T> events;
+        private final Encoding encoding;
+        private final Compression compression;
 
-        public JsonEntityWriter(JsonEventWriter eventWriter, EventGenerator<T> events)
+        public EventEntityWriter(JsonEventWriter eventWriter, EventGenerator<T> events, Encoding encoding, Compression compression)
         {
             this.eventWriter = requireNonNull(eventWriter, "eventWriter is null");
             this.events = requireNonNull(events, "events is null");
+            this.encoding = requireNonNull(encoding, "encoding is null");
+            this.compression = requireNonNull(compression, "compression is null");
         }
 
         @Override
         public void write(OutputStream out)
                 throws Exception
         {
-            eventWriter.writeEvents(events, out);
+            if (compression == Compression.NONE) {
+                writeEvents(out);
+                return;
+            }
+
+            // closing the compressing stream releases the native deflater, but must not close the request stream
+            OutputStream target = new FilterOutputStream(out)
+            {
+                @Override
+                public void write(byte[] b, int off, int len)
+                        throws IOException
+                {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close()
+                        throws IOException
+                {
+                    flush();
+                }
+            };
+            try (DeflaterOutputStream compressed = (compression == Compression.GZIP) ? new GZIPOutputStream(target) : new DeflaterOutputStream(target)) {
+                writeEvents(compressed);
+            }
+        }
+
+        private void writeEvents(OutputStream out)
+                throws IOException
+        {
+            if (encoding == Encoding.SMILE) {
+                eventWriter.writeSmileEvents(events, out);
+            }
+            else {
+                eventWriter.writeEvents(events, out);
+            }
+        }
+    }
+
+    private static class UnsupportedFormatException
+            extends RuntimeException
+    {
+        public UnsupportedFormatException(URI uri)
+        {
+            super("Collector does not support the event format: " + uri);
         }
     }
 
@@ -165,6 +257,9 @@ public class HttpEventClient
             if (statusCode >= 200 && statusCode <= 299) {
                 return null;
             }
+            if (statusCode == UNSUPPORTED_MEDIA_TYPE.code()) {
+                throw new UnsupportedFormatException(request.getUri());
+            }
 
             try {
                 InputStream inputStream = response.getInputStream();
@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.event.client;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+
+import javax.validation.constraints.NotNull;
+
+public class HttpEventClientConfig
+{
+    public enum Encoding
+    {
+        JSON("application/json"),
+        SMILE("application/x-jackson-smile");
+
+        private final String contentType;
+
+        Encoding(String contentType)
+        {
+            this.contentType = contentType;
+        }
+
+        public String getContentType()
+        {
+            return contentType;
+        }
+    }
+
+    public enum Compression
+    {
+        NONE, GZIP, DEFLATE
+    }
+
+    private Encoding encoding = Encoding.JSON;
+    private Compression compression = Compression.NONE;
+
+    @NotNull
+    public Encoding getEncoding()
+    {
+        return encoding;
+    }
+
+    @Config("event.http.encoding")
+    @ConfigDescription("Encoding of event batches sent to the collector (JSON or SMILE)")
+    public HttpEventClientConfig setEncoding(Encoding encoding)
+    {
+        this.encoding = encoding;
+        return this;
+    }
+
+    @NotNull
+    public Compression getCompression()
+    {
+        return compression;
+    }
+
+    @Config("event.http.compression")
+    @ConfigDescription("Compression of event batches sent to the collector (NONE, GZIP or DEFLATE)")
+    public HttpEventClientConfig setCompression(Compression compression)
+    {
+        this.compression = compression;
+        return this;
+    }
+}
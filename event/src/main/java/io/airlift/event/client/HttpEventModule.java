@@ -22,6 +22,7 @@ import com.google.inject.Scopes;
 import com.google.inject.TypeLiteral;
 
 import static com.google.inject.multibindings.Multibinder.newSetBinder;
+import static io.airlift.configuration.ConfigBinder.configBinder;
 import static io.airlift.discovery.client.DiscoveryBinder.discoveryBinder;
 import static io.airlift.http.client.HttpClientBinder.httpClientBinder;
 import static org.weakref.jmx.guice.ExportBinder.newExporter;
@@ -37,6 +38,7 @@ public class HttpEventModule
 
         binder.bind(JsonEventWriter.class).in(Scopes.SINGLETON);
 
+        configBinder(binder).bindConfig(HttpEventClientConfig.class);
         binder.bind(HttpEventClient.class).in(Scopes.SINGLETON);
         newSetBinder(binder, EventClient.class).addBinding().to(Key.get(HttpEventClient.class)).in(Scopes.SINGLETON);
         newExporter(binder).export(EventClient.class).withGeneratedName();
@@ -19,6 +19,8 @@ import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
 import com.google.common.collect.ImmutableMap;
 
 import javax.inject.Inject;
@@ -33,6 +35,7 @@ import static java.util.Objects.requireNonNull;
 public class JsonEventWriter
 {
     private final JsonFactory jsonFactory;
+    private final SmileFactory smileFactory;
     private final Map<Class<?>, JsonSerializer<?>> serializers;
 
     @Inject
@@ -41,6 +44,10 @@ public class JsonEventWriter
         requireNonNull(eventTypes, "eventTypes is null");
 
         this.jsonFactory = new JsonFactory();
+        // events repeat the same field names and many of the same short values
+        this.smileFactory = new SmileFactory()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
 
         ImmutableMap.Builder<Class<?>, JsonSerializer<?>> serializerBuilder = ImmutableMap.builder();
 
@@ -53,10 +60,23 @@ public class JsonEventWriter
     public <T> void writeEvents(EventClient.EventGenerator<T> events, OutputStream out)
             throws IOException
     {
-        requireNonNull(events, "events is null");
-        requireNonNull(out, "out is null");
+        writeEvents(events, jsonFactory.createGenerator(requireNonNull(out, "out is null"), JsonEncoding.UTF8));
+    }
+
+    /**
+     * Writes the events as a Smile array, using back-references for
+     * repeated field names and short string values.
+     */
+    public <T> void writeSmileEvents(EventClient.EventGenerator<T> events, OutputStream out)
+            throws IOException
+    {
+        writeEvents(events, smileFactory.createGenerator(requireNonNull(out, "out is null")));
+    }
 
-        final JsonGenerator jsonGenerator = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+    private <T> void writeEvents(EventClient.EventGenerator<T> events, JsonGenerator jsonGenerator)
+            throws IOException
+    {
+        requireNonNull(events, "events is null");
 
         jsonGenerator.writeStartArray();
 
@@ -73,6 +93,26 @@ public class JsonEventWriter
         jsonGenerator.flush();
     }
 
+    /**
+     * Writes a single event as a JSON object, for callers that assemble the
+     * event array themselves.
+     */
+    public <T> void writeEvent(T event, OutputStream out)
+            throws IOException
+    {
+        requireNonNull(event, "event is null");
+        requireNonNull(out, "out is null");
+
+        JsonSerializer<T> serializer = getSerializer(event);
+        if (serializer == null) {
+            throw new InvalidEventException("Event class [%s] has not been registered as an event", event.getClass().getName());
+        }
+
+        JsonGenerator jsonGenerator = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+        serializer.serialize(event, jsonGenerator, null);
+        jsonGenerator.flush();
+    }
+
     @SuppressWarnings("unchecked")
     private <T> JsonSerializer<T> getSerializer(T event)
     {
@@ -0,0 +1,359 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.event.client;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.net.MediaType;
+import io.airlift.discovery.client.HttpServiceSelector;
+import io.airlift.discovery.client.ServiceType;
+import io.airlift.http.client.BodyGenerator;
+import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.RequestStats;
+import io.airlift.http.client.Response;
+import io.airlift.http.client.ResponseHandler;
+import io.airlift.log.Logger;
+import io.airlift.node.NodeInfo;
+import io.airlift.stats.CounterStat;
+import io.airlift.stats.TimeStat;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Flatten;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.GuardedBy;
+import javax.inject.Inject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.http.client.Request.Builder.preparePost;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Event client that appends events to a local {@link EventSpool} and
+ * delivers them to the collectors in batches from a background thread.
+ * Posting only pays for serializing and appending the event.  Failed
+ * batches are retried against every collector, with exponential back-off
+ * between rounds, and events survive collector outages and restarts.
+ */
+public class SpoolingEventClient
+        extends AbstractEventClient
+{
+    private static final Logger log = Logger.get(SpoolingEventClient.class);
+    private static final MediaType MEDIA_TYPE_JSON = MediaType.create("application", "json");
+
+    private final HttpServiceSelector serviceSelector;
+    private final JsonEventWriter eventWriter;
+    private final NodeInfo nodeInfo;
+    private final HttpClient httpClient;
+    private final EventSpool spool;
+    private final long maxBatchBytes;
+    private final Duration maxBatchAge;
+    private final long minRetryDelayNanos;
+    private final long maxRetryDelayNanos;
+    private final ScheduledExecutorService executor = newSingleThreadScheduledExecutor(daemonThreadsNamed("event-spool-sender-%s"));
+    private final AtomicBoolean deliveryScheduled = new AtomicBoolean();
+
+    @GuardedBy("executor")
+    private long retryDelayNanos;
+    @GuardedBy("executor")
+    private long retryAtNanos;
+
+    private final CounterStat eventsSpooled = new CounterStat();
+    private final CounterStat eventsDropped = new CounterStat();
+    private final CounterStat eventsDelivered = new CounterStat();
+    private final CounterStat eventsRejected = new CounterStat();
+    private final CounterStat deliveryFailures = new CounterStat();
+    private final TimeStat deliveryTime = new TimeStat(MILLISECONDS);
+
+    @Inject
+    public SpoolingEventClient(
+            @ServiceType("collector") HttpServiceSelector serviceSelector,
+            JsonEventWriter eventWriter,
+            NodeInfo nodeInfo,
+            @ForEventClient HttpClient httpClient,
+            SpoolingEventClientConfig config)
+            throws IOException
+    {
+        this.serviceSelector = requireNonNull(serviceSelector, "serviceSelector is null");
+        this.eventWriter = requireNonNull(eventWriter, "eventWriter is null");
+        this.nodeInfo = requireNonNull(nodeInfo, "nodeInfo is null");
+        this.httpClient = requireNonNull(httpClient, "httpClient is null");
+        requireNonNull(config, "config is null");
+
+        this.spool = new EventSpool(config.getSpoolPath(), config.getSegmentSize().toBytes(), config.getMaxSpoolSize().toBytes());
+        this.maxBatchBytes = config.getMaxBatchSize().toBytes();
+        this.maxBatchAge = config.getMaxBatchAge();
+        this.minRetryDelayNanos = config.getMinRetryDelay().roundTo(NANOSECONDS);
+        this.maxRetryDelayNanos = config.getMaxRetryDelay().roundTo(NANOSECONDS);
+        this.retryDelayNanos = minRetryDelayNanos;
+        // nanoTime may be negative, so the first delivery must not be measured against zero
+        this.retryAtNanos = System.nanoTime();
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        long delay = maxBatchAge.toMillis();
+        executor.scheduleWithFixedDelay(this::deliverSafely, delay, delay, MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(30, SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // undelivered events stay on disk and are sent after the next start
+        try {
+            spool.close();
+        }
+        catch (IOException e) {
+            log.error(e, "Error closing event spool");
+        }
+    }
+
+    @Override
+    protected <T> void postEvent(T event)
+            throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        eventWriter.writeEvent(event, out);
+        if (!spool.append(out.toByteArray())) {
+            eventsDropped.update(1);
+            throw new IOException("Event spool is full");
+        }
+        eventsSpooled.update(1);
+
+        // send right away once a full batch is waiting
+        if (spool.getPendingBytes() >= maxBatchBytes && deliveryScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::deliverSafely);
+            }
+            catch (RejectedExecutionException ignored) {
+                // stopped
+            }
+        }
+    }
+
+    private void deliverSafely()
+    {
+        deliveryScheduled.set(false);
+        try {
+            deliver();
+        }
+        catch (Throwable t) {
+            log.error(t, "Unexpected error delivering events");
+        }
+    }
+
+    @VisibleForTesting
+    void deliver()
+            throws IOException
+    {
+        synchronized (executor) {
+            while (!Thread.currentThread().isInterrupted() && System.nanoTime() - retryAtNanos >= 0) {
+                EventSpool.Batch batch = spool.readBatch(maxBatchBytes);
+                if (batch.isEmpty()) {
+                    return;
+                }
+
+                DeliveryResult result;
+                try (TimeStat.BlockTimer ignored = deliveryTime.time()) {
+                    result = send(batch.getRecords());
+                }
+
+                if (result == DeliveryResult.FAILED) {
+                    deliveryFailures.update(1);
+                    retryAtNanos = System.nanoTime() + retryDelayNanos;
+                    retryDelayNanos = Math.min(retryDelayNanos * 2, maxRetryDelayNanos);
+                    return;
+                }
+
+                if (result == DeliveryResult.DELIVERED) {
+                    eventsDelivered.update(batch.getRecords().size());
+                }
+                else {
+                    eventsRejected.update(batch.getRecords().size());
+                }
+                spool.acknowledge(batch);
+                retryDelayNanos = minRetryDelayNanos;
+            }
+        }
+    }
+
+    private DeliveryResult send(List<byte[]> records)
+    {
+        List<URI> uris = serviceSelector.selectHttpService();
+        if (uris.isEmpty()) {
+            log.debug("No %s (%s) services available to deliver events", serviceSelector.getType(), serviceSelector.getPool());
+            return DeliveryResult.FAILED;
+        }
+
+        // fail over to the next collector on errors that another collector may not have
+        for (URI uri : uris) {
+            Request request = preparePost()
+                    .setUri(uri.resolve("/v2/event"))
+                    .setHeader("User-Agent", nodeInfo.getNodeId())
+                    .setHeader("Content-Type", MEDIA_TYPE_JSON.toString())
+                    .setBodyGenerator(new JsonArrayBodyGenerator(records))
+                    .build();
+            int statusCode = httpClient.execute(request, StatusCodeResponseHandler.INSTANCE);
+            if (statusCode >= 200 && statusCode <= 299) {
+                return DeliveryResult.DELIVERED;
+            }
+            if (statusCode >= 400 && statusCode <= 499 && statusCode != 408 && statusCode != 429) {
+                // the batch itself is bad, so retrying will not help
+                log.warn("Collector %s rejected %s events with status code %s", uri, records.size(), statusCode);
+                return DeliveryResult.REJECTED;
+            }
+            log.debug("Posting events to %s failed: status_code=%d", uri, statusCode);
+        }
+        return DeliveryResult.FAILED;
+    }
+
+    @Flatten
+    @Managed
+    public RequestStats getStats()
+    {
+        return httpClient.getStats();
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getEventsSpooled()
+    {
+        return eventsSpooled;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getEventsDropped()
+    {
+        return eventsDropped;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getEventsDelivered()
+    {
+        return eventsDelivered;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getEventsRejected()
+    {
+        return eventsRejected;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getDeliveryFailures()
+    {
+        return deliveryFailures;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getDeliveryTime()
+    {
+        return deliveryTime;
+    }
+
+    @Managed
+    public long getPendingEvents()
+    {
+        return spool.getPendingRecords();
+    }
+
+    @Managed
+    public long getPendingBytes()
+    {
+        return spool.getPendingBytes();
+    }
+
+    @Managed
+    public int getSpoolSegments()
+    {
+        return spool.getSegmentCount();
+    }
+
+    private enum DeliveryResult
+    {
+        DELIVERED, REJECTED, FAILED
+    }
+
+    private static class JsonArrayBodyGenerator
+            implements BodyGenerator
+    {
+        private final List<byte[]> records;
+
+        public JsonArrayBodyGenerator(List<byte[]> records)
+        {
+            this.records = requireNonNull(records, "records is null");
+        }
+
+        @Override
+        public void write(OutputStream out)
+                throws Exception
+        {
+            out.write('[');
+            for (int i = 0; i < records.size(); i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write(records.get(i));
+            }
+            out.write(']');
+        }
+    }
+
+    private static class StatusCodeResponseHandler
+            implements ResponseHandler<Integer, RuntimeException>
+    {
+        private static final StatusCodeResponseHandler INSTANCE = new StatusCodeResponseHandler();
+
+        @Override
+        public Integer handleException(Request request, Exception exception)
+        {
+            log.debug("Posting events to %s failed: %s", request.getUri(), exception.getMessage());
+            return -1;
+        }
+
+        @Override
+        public Integer handle(Request request, Response response)
+        {
+            return response.getStatusCode();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.event.client;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import io.airlift.units.MaxDataSize;
+import io.airlift.units.MinDataSize;
+import io.airlift.units.MinDuration;
+
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.NotNull;
+
+import java.io.File;
+
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+public class SpoolingEventClientConfig
+{
+    private File spoolPath = new File("var/event-spool");
+    private DataSize segmentSize = new DataSize(16, MEGABYTE);
+    private DataSize maxSpoolSize = new DataSize(1, GIGABYTE);
+    private DataSize maxBatchSize = new DataSize(1, MEGABYTE);
+    private Duration maxBatchAge = new Duration(500, MILLISECONDS);
+    private Duration minRetryDelay = new Duration(100, MILLISECONDS);
+    private Duration maxRetryDelay = new Duration(30, SECONDS);
+
+    @NotNull
+    public File getSpoolPath()
+    {
+        return spoolPath;
+    }
+
+    @Config("event.spool.path")
+    @ConfigDescription("Directory for the on-disk event queue")
+    public SpoolingEventClientConfig setSpoolPath(File spoolPath)
+    {
+        this.spoolPath = spoolPath;
+        return this;
+    }
+
+    @NotNull
+    @MinDataSize("64kB")
+    @MaxDataSize("1GB")
+    public DataSize getSegmentSize()
+    {
+        return segmentSize;
+    }
+
+    @Config("event.spool.segment-size")
+    @ConfigDescription("Size of each memory-mapped spool segment file")
+    public SpoolingEventClientConfig setSegmentSize(DataSize segmentSize)
+    {
+        this.segmentSize = segmentSize;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getMaxSpoolSize()
+    {
+        return maxSpoolSize;
+    }
+
+    @Config("event.spool.max-size")
+    @ConfigDescription("Maximum undelivered event data kept on disk; events are dropped when it is exceeded")
+    public SpoolingEventClientConfig setMaxSpoolSize(DataSize maxSpoolSize)
+    {
+        this.maxSpoolSize = maxSpoolSize;
+        return this;
+    }
+
+    @NotNull
+    @MinDataSize("1kB")
+    public DataSize getMaxBatchSize()
+    {
+        return maxBatchSize;
+    }
+
+    @Config("event.spool.batch.max-size")
+    @ConfigDescription("Maximum size of a batch of events sent to a collector")
+    public SpoolingEventClientConfig setMaxBatchSize(DataSize maxBatchSize)
+    {
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1ms")
+    public Duration getMaxBatchAge()
+    {
+        return maxBatchAge;
+    }
+
+    @Config("event.spool.batch.max-age")
+    @ConfigDescription("Maximum time an event waits for its batch to fill before it is sent")
+    public SpoolingEventClientConfig setMaxBatchAge(Duration maxBatchAge)
+    {
+        this.maxBatchAge = maxBatchAge;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1ms")
+    public Duration getMinRetryDelay()
+    {
+        return minRetryDelay;
+    }
+
+    @Config("event.spool.retry.min-delay")
+    @ConfigDescription("Initial delay before retrying delivery after all collectors failed")
+    public SpoolingEventClientConfig setMinRetryDelay(Duration minRetryDelay)
+    {
+        this.minRetryDelay = minRetryDelay;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1ms")
+    public Duration getMaxRetryDelay()
+    {
+        return maxRetryDelay;
+    }
+
+    @Config("event.spool.retry.max-delay")
+    @ConfigDescription("Maximum delay between delivery retries")
+    public SpoolingEventClientConfig setMaxRetryDelay(Duration maxRetryDelay)
+    {
+        this.maxRetryDelay = maxRetryDelay;
+        return this;
+    }
+
+    @AssertTrue(message = "event.spool.max-size must be at least event.spool.segment-size")
+    public boolean isMaxSpoolSizeValid()
+    {
+        return maxSpoolSize == null || segmentSize == null || maxSpoolSize.toBytes() >= segmentSize.toBytes();
+    }
+
+    @AssertTrue(message = "event.spool.retry.max-delay must be at least event.spool.retry.min-delay")
+    public boolean isRetryDelayValid()
+    {
+        return minRetryDelay == null || maxRetryDelay == null || maxRetryDelay.compareTo(minRetryDelay) >= 0;
+    }
+}
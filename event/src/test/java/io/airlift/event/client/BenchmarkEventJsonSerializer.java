@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.event.client;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.collect.ImmutableList;
+import io.airlift.event.client.NestedDummyEventClass.NestedPart;
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static io.airlift.event.client.EventTypeMetadata.getValidEventTypeMetadata;
+
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class BenchmarkEventJsonSerializer
+{
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private EventTypeMetadata<NestedDummyEventClass> metadata;
+    private EventJsonSerializer<NestedDummyEventClass> serializer;
+    private NestedDummyEventClass event;
+
+    @Setup
+    public void setup()
+    {
+        metadata = getValidEventTypeMetadata(NestedDummyEventClass.class);
+        serializer = new EventJsonSerializer<>(metadata);
+
+        NestedPart leaf = new NestedPart("leaf", null);
+        event = new NestedDummyEventClass(
+                "localhost",
+                new DateTime("2011-09-09T01:35:28.333Z"),
+                UUID.fromString("8e248a16-da86-11e0-9e77-9fc96e21a396"),
+                5678,
+                "foo",
+                ImmutableList.of("abc", "def", "xyz"),
+                new NestedPart("first", leaf),
+                ImmutableList.of(new NestedPart("second", leaf), new NestedPart("third", null)));
+    }
+
+    @Benchmark
+    public int compiledSerializer()
+            throws IOException
+    {
+        out.reset();
+        JsonGenerator jsonGenerator = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+        serializer.serialize(event, jsonGenerator, null);
+        return out.size();
+    }
+
+    @Benchmark
+    public int fieldMetadataSerializer()
+            throws IOException
+    {
+        // the reflective path used before the serializers were compiled
+        out.reset();
+        JsonGenerator jsonGenerator = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+        jsonGenerator.writeStartObject();
+        jsonGenerator.writeStringField("type", metadata.getTypeName());
+        metadata.getUuidField().writeField(jsonGenerator, event);
+        metadata.getHostField().writeField(jsonGenerator, event);
+        metadata.getTimestampField().writeField(jsonGenerator, event);
+        jsonGenerator.writeObjectFieldStart("data");
+        for (EventFieldMetadata field : metadata.getFields()) {
+            field.writeField(jsonGenerator, event);
+        }
+        jsonGenerator.writeEndObject();
+        jsonGenerator.writeEndObject();
+        jsonGenerator.flush();
+        return out.size();
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkEventJsonSerializer.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.event.client;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestEventSpool
+{
+    // records are 20 bytes and segments hold two of them plus the end marker
+    private static final int SEGMENT_SIZE = 44;
+
+    private File directory;
+
+    @BeforeMethod
+    public void setup()
+            throws IOException
+    {
+        directory = Files.createTempDir().getCanonicalFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        deleteRecursively(directory.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testAppendReadAcknowledge()
+            throws IOException
+    {
+        EventSpool spool = new EventSpool(directory, SEGMENT_SIZE, 1024);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(spool.append(record(i)));
+        }
+        assertEquals(spool.getPendingRecords(), 10);
+        assertEquals(spool.getSegmentCount(), 5);
+
+        EventSpool.Batch batch = spool.readBatch(50);
+        assertEquals(strings(batch), ImmutableList.of(name(0), name(1), name(2), name(3)));
+
+        // unacknowledged records are returned again
+        assertEquals(strings(spool.readBatch(50)), strings(batch));
+
+        spool.acknowledge(batch);
+        assertEquals(spool.getPendingRecords(), 6);
+        assertEquals(spool.getSegmentCount(), 3);
+        assertEquals(directory.list().length, 3);
+
+        batch = spool.readBatch(1000);
+        assertEquals(batch.getRecords().size(), 6);
+        spool.acknowledge(batch);
+        assertEquals(spool.getPendingRecords(), 0);
+        assertEquals(spool.getPendingBytes(), 0);
+        assertTrue(spool.readBatch(1000).isEmpty());
+        // the current write segment is kept
+        assertEquals(spool.getSegmentCount(), 1);
+        spool.close();
+    }
+
+    @Test
+    public void testBatchContainsAtLeastOneRecord()
+            throws IOException
+    {
+        EventSpool spool = new EventSpool(directory, SEGMENT_SIZE, 1024);
+        spool.append(record(0));
+        spool.append(record(1));
+
+        assertEquals(strings(spool.readBatch(1)), ImmutableList.of(name(0)));
+        spool.close();
+    }
+
+    @Test
+    public void testFull()
+            throws IOException
+    {
+        EventSpool spool = new EventSpool(directory, SEGMENT_SIZE, 60);
+        assertTrue(spool.append(record(0)));
+        assertTrue(spool.append(record(1)));
+        assertTrue(spool.append(record(2)));
+        assertFalse(spool.append(record(3)));
+
+        spool.acknowledge(spool.readBatch(1));
+        assertTrue(spool.append(record(3)));
+        spool.close();
+    }
+
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Event of .* bytes is larger than the spool segment size")
+    public void testRecordLargerThanSegment()
+            throws IOException
+    {
+        EventSpool spool = new EventSpool(directory, SEGMENT_SIZE, 1024);
+        spool.append(new byte[SEGMENT_SIZE]);
+    }
+
+    @Test
+    public void testRecovery()
+            throws IOException
+    {
+        EventSpool spool = new EventSpool(directory, SEGMENT_SIZE, 1024);
+        for (int i = 0; i < 5; i++) {
+            spool.append(record(i));
+        }
+        // acknowledge the first segment and half of the second
+        spool.acknowledge(spool.readBatch(36));
+        spool.close();
+
+        spool = new EventSpool(directory, SEGMENT_SIZE, 1024);
+        assertEquals(spool.getPendingRecords(), 3);
+        // the partially acknowledged segment is replayed
+        assertEquals(strings(spool.readBatch(1000)), ImmutableList.of(name(2), name(3), name(4)));
+
+        spool.append(record(5));
+        EventSpool.Batch batch = spool.readBatch(1000);
+        assertEquals(strings(batch), ImmutableList.of(name(2), name(3), name(4), name(5)));
+        spool.acknowledge(batch);
+        spool.close();
+
+        spool = new EventSpool(directory, SEGMENT_SIZE, 1024);
+        assertTrue(spool.readBatch(1000).isEmpty());
+        spool.close();
+    }
+
+    @Test
+    public void testRecoveryIgnoresTornRecord()
+            throws IOException
+    {
+        EventSpool spool = new EventSpool(directory, SEGMENT_SIZE, 1024);
+        spool.append(record(0));
+        spool.append(record(1));
+        spool.close();
+
+        // corrupt the payload of the second record
+        File segment = directory.listFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(20 + 8);
+            file.write('X');
+        }
+
+        spool = new EventSpool(directory, SEGMENT_SIZE, 1024);
+        assertEquals(strings(spool.readBatch(1000)), ImmutableList.of(name(0)));
+        spool.close();
+    }
+
+    private static byte[] record(int index)
+    {
+        return name(index).getBytes(UTF_8);
+    }
+
+    private static String name(int index)
+    {
+        return String.format("event-%06d", index);
+    }
+
+    private static List<String> strings(EventSpool.Batch batch)
+    {
+        return batch.getRecords().stream()
+                .map(record -> new String(record, UTF_8))
+                .collect(toList());
+    }
+}
@@ -15,9 +15,13 @@
  */
 package io.airlift.event.client;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.google.common.io.CharStreams;
 import io.airlift.discovery.client.HttpServiceSelector;
 import io.airlift.discovery.client.testing.StaticHttpServiceSelector;
+import io.airlift.event.client.HttpEventClientConfig.Compression;
+import io.airlift.event.client.HttpEventClientConfig.Encoding;
 import io.airlift.http.client.HttpClient;
 import io.airlift.http.client.HttpClientConfig;
 import io.airlift.http.client.jetty.JettyHttpClient;
@@ -41,6 +45,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
@@ -52,6 +57,9 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 import static com.google.common.base.Throwables.throwIfUnchecked;
 import static io.airlift.event.client.EventTypeMetadata.getValidEventTypeMetaDataSet;
@@ -129,6 +137,55 @@ public class TestHttpEventClient
         assertEquals(servlet.lastBody, getNormalizedJson("events.json"));
     }
 
+    @Test
+    public void testSmileWithGzip()
+            throws Exception
+    {
+        client = newEventClient(asList(baseUri), new HttpEventClientConfig()
+                .setEncoding(Encoding.SMILE)
+                .setCompression(Compression.GZIP));
+
+        client.post(TestingUtils.getEvents()).get();
+
+        assertEquals(servlet.lastContentType, "application/x-jackson-smile");
+        assertEquals(servlet.lastContentEncoding, "gzip");
+        assertEquals(servlet.lastBody, getNormalizedJson("events.json"));
+    }
+
+    @Test
+    public void testJsonWithDeflate()
+            throws Exception
+    {
+        client = newEventClient(asList(baseUri), new HttpEventClientConfig()
+                .setCompression(Compression.DEFLATE));
+
+        client.post(TestingUtils.getEvents()).get();
+
+        assertEquals(servlet.lastContentType, "application/json");
+        assertEquals(servlet.lastContentEncoding, "deflate");
+        assertEquals(servlet.lastBody, getNormalizedJson("events.json"));
+    }
+
+    @Test
+    public void testFallsBackToJsonWhenFormatRejected()
+            throws Exception
+    {
+        servlet.acceptsOnlyJson = true;
+        client = newEventClient(asList(baseUri), new HttpEventClientConfig()
+                .setEncoding(Encoding.SMILE)
+                .setCompression(Compression.GZIP));
+
+        client.post(TestingUtils.getEvents()).get();
+        assertEquals(servlet.lastContentType, "application/json");
+        assertNull(servlet.lastContentEncoding);
+        assertEquals(servlet.lastBody, getNormalizedJson("events.json"));
+        assertEquals(servlet.requests.get(), 2);
+
+        // later posts go straight to JSON
+        client.post(TestingUtils.getEvents()).get();
+        assertEquals(servlet.requests.get(), 3);
+    }
+
     @BeforeMethod
     public void setup()
             throws Exception
@@ -152,6 +209,11 @@ public class TestHttpEventClient
     }
 
     private HttpEventClient newEventClient(List<URI> uris)
+    {
+        return newEventClient(uris, new HttpEventClientConfig());
+    }
+
+    private HttpEventClient newEventClient(List<URI> uris, HttpEventClientConfig config)
     {
         HttpServiceSelector selector = new StaticHttpServiceSelector("collector", "general", uris);
 
@@ -162,7 +224,8 @@ public class TestHttpEventClient
                 selector,
                 eventWriter,
                 new NodeInfo("test"),
-                httpClient);
+                httpClient,
+                config);
     }
 
     private Server createServer(final DummyServlet servlet)
@@ -198,8 +261,12 @@ public class TestHttpEventClient
     private static class DummyServlet
             extends HttpServlet
     {
+        private final AtomicInteger requests = new AtomicInteger();
         private volatile String lastPath;
         private volatile String lastBody;
+        private volatile String lastContentType;
+        private volatile String lastContentEncoding;
+        private volatile boolean acceptsOnlyJson;
 
         private DummyServlet()
         {
@@ -209,8 +276,34 @@ public class TestHttpEventClient
         protected void doPost(HttpServletRequest request, HttpServletResponse response)
                 throws ServletException, IOException
         {
+            requests.incrementAndGet();
+            String contentType = request.getContentType();
+            String contentEncoding = request.getHeader("Content-Encoding");
+            if (acceptsOnlyJson && (!contentType.equals("application/json") || contentEncoding != null)) {
+                response.setStatus(415);
+                return;
+            }
+
             lastPath = request.getPathInfo();
-            lastBody = CharStreams.toString(new InputStreamReader(request.getInputStream(), UTF_8));
+            lastContentType = contentType;
+            lastContentEncoding = contentEncoding;
+
+            InputStream body = request.getInputStream();
+            if ("gzip".equals(contentEncoding)) {
+                body = new GZIPInputStream(body);
+            }
+            else if ("deflate".equals(contentEncoding)) {
+                body = new InflaterInputStream(body);
+            }
+
+            if (contentType.equals("application/x-jackson-smile")) {
+                // normalize to JSON so tests can compare against the expected events
+                Object events = new ObjectMapper(new SmileFactory()).readValue(body, Object.class);
+                lastBody = new ObjectMapper().writeValueAsString(events);
+            }
+            else {
+                lastBody = CharStreams.toString(new InputStreamReader(body, UTF_8));
+            }
         }
     }
 }
@@ -0,0 +1,51 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.event.client;
+
+import com.google.common.collect.ImmutableMap;
+import io.airlift.event.client.HttpEventClientConfig.Compression;
+import io.airlift.event.client.HttpEventClientConfig.Encoding;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static io.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
+import static io.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
+import static io.airlift.configuration.testing.ConfigAssertions.recordDefaults;
+
+public class TestHttpEventClientConfig
+{
+    @Test
+    public void testDefaults()
+    {
+        assertRecordedDefaults(recordDefaults(HttpEventClientConfig.class)
+                .setEncoding(Encoding.JSON)
+                .setCompression(Compression.NONE));
+    }
+
+    @Test
+    public void testExplicitPropertyMappings()
+    {
+        Map<String, String> properties = new ImmutableMap.Builder<String, String>()
+                .put("event.http.encoding", "SMILE")
+                .put("event.http.compression", "GZIP")
+                .build();
+
+        HttpEventClientConfig expected = new HttpEventClientConfig()
+                .setEncoding(Encoding.SMILE)
+                .setCompression(Compression.GZIP);
+
+        assertFullMapping(properties, expected);
+    }
+}
@@ -18,10 +18,16 @@ package io.airlift.event.client;
 import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.collect.ImmutableList;
+import io.airlift.event.client.NestedDummyEventClass.NestedPart;
+import org.joda.time.DateTime;
 import org.testng.annotations.Test;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.UUID;
 
+import static io.airlift.event.client.EventTypeMetadata.getValidEventTypeMetadata;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.testng.Assert.assertEquals;
 
@@ -42,4 +48,48 @@ public class TestJsonEventSerializer
         String json = out.toString(UTF_8.name());
         assertEquals(json, TestingUtils.getNormalizedJson("event.json"));
     }
+
+    @Test
+    public void testMatchesFieldMetadataOutput()
+            throws Exception
+    {
+        NestedPart leaf = new NestedPart("leaf", null);
+        NestedDummyEventClass event = new NestedDummyEventClass(
+                "localhost",
+                new DateTime("2011-09-09T01:35:28.333Z"),
+                UUID.fromString("8e248a16-da86-11e0-9e77-9fc96e21a396"),
+                5678,
+                "foo",
+                ImmutableList.of("abc", "xyz"),
+                new NestedPart("first", leaf),
+                ImmutableList.of(new NestedPart("second", leaf), new NestedPart("third", null)));
+
+        EventTypeMetadata<NestedDummyEventClass> metadata = getValidEventTypeMetadata(NestedDummyEventClass.class);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator jsonGenerator = new JsonFactory().createGenerator(out, JsonEncoding.UTF8);
+        new EventJsonSerializer<>(metadata).serialize(event, jsonGenerator, null);
+
+        assertEquals(out.toString(UTF_8.name()), writeWithFieldMetadata(metadata, event));
+    }
+
+    private static String writeWithFieldMetadata(EventTypeMetadata<?> metadata, Object event)
+            throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator jsonGenerator = new JsonFactory().createGenerator(out, JsonEncoding.UTF8);
+        jsonGenerator.writeStartObject();
+        jsonGenerator.writeStringField("type", metadata.getTypeName());
+        metadata.getUuidField().writeField(jsonGenerator, event);
+        metadata.getHostField().writeField(jsonGenerator, event);
+        metadata.getTimestampField().writeField(jsonGenerator, event);
+        jsonGenerator.writeObjectFieldStart("data");
+        for (EventFieldMetadata field : metadata.getFields()) {
+            field.writeField(jsonGenerator, event);
+        }
+        jsonGenerator.writeEndObject();
+        jsonGenerator.writeEndObject();
+        jsonGenerator.flush();
+        return out.toString(UTF_8.name());
+    }
 }
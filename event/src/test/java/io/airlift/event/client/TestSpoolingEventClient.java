@@ -0,0 +1,237 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.event.client;
+
+import com.google.common.io.CharStreams;
+import com.google.common.io.Files;
+import io.airlift.discovery.client.testing.StaticHttpServiceSelector;
+import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.jetty.JettyHttpClient;
+import io.airlift.node.NodeInfo;
+import io.airlift.units.Duration;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static io.airlift.event.client.EventTypeMetadata.getValidEventTypeMetaDataSet;
+import static io.airlift.event.client.TestingUtils.getNormalizedJson;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestSpoolingEventClient
+{
+    private final List<Server> servers = new ArrayList<>();
+    private File spoolPath;
+    private HttpClient httpClient;
+
+    @BeforeMethod
+    public void setup()
+            throws IOException
+    {
+        spoolPath = Files.createTempDir().getCanonicalFile();
+        httpClient = new JettyHttpClient();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws Exception
+    {
+        for (Server server : servers) {
+            server.stop();
+        }
+        servers.clear();
+        httpClient.close();
+        deleteRecursively(spoolPath.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testDeliversBatch()
+            throws Exception
+    {
+        CollectorServlet collector = new CollectorServlet();
+        SpoolingEventClient client = newEventClient(asList(startCollector(collector)));
+
+        client.post(TestingUtils.getEvents()).get();
+        assertEquals(client.getPendingEvents(), 3);
+        assertTrue(collector.bodies.isEmpty());
+
+        client.deliver();
+        assertEquals(collector.bodies.size(), 1);
+        assertEquals(collector.bodies.get(0), getNormalizedJson("events.json"));
+        assertEquals(client.getPendingEvents(), 0);
+        assertEquals(client.getEventsDelivered().getTotalCount(), 3);
+        client.stop();
+    }
+
+    @Test
+    public void testBackgroundDelivery()
+            throws Exception
+    {
+        CollectorServlet collector = new CollectorServlet();
+        SpoolingEventClient client = newEventClient(asList(startCollector(collector)));
+        client.start();
+
+        client.post(TestingUtils.getEvents()).get();
+
+        long deadline = System.nanoTime() + MILLISECONDS.toNanos(10_000);
+        while (client.getEventsDelivered().getTotalCount() < 3) {
+            assertTrue(System.nanoTime() < deadline, "events were not delivered");
+            Thread.sleep(10);
+        }
+        client.stop();
+    }
+
+    @Test
+    public void testFailover()
+            throws Exception
+    {
+        CollectorServlet failing = new CollectorServlet();
+        failing.status = 503;
+        CollectorServlet collector = new CollectorServlet();
+        SpoolingEventClient client = newEventClient(asList(startCollector(failing), startCollector(collector)));
+
+        client.post(TestingUtils.getEvents()).get();
+        client.deliver();
+
+        assertEquals(failing.bodies.size(), 1);
+        assertEquals(collector.bodies.size(), 1);
+        assertEquals(client.getPendingEvents(), 0);
+        client.stop();
+    }
+
+    @Test
+    public void testRetryAfterOutage()
+            throws Exception
+    {
+        CollectorServlet collector = new CollectorServlet();
+        collector.status = 503;
+        SpoolingEventClient client = newEventClient(asList(startCollector(collector)));
+
+        client.post(TestingUtils.getEvents()).get();
+        client.deliver();
+        assertEquals(client.getPendingEvents(), 3);
+        assertEquals(client.getDeliveryFailures().getTotalCount(), 1);
+
+        collector.status = 200;
+        Thread.sleep(10);
+        client.deliver();
+        assertEquals(client.getPendingEvents(), 0);
+        assertEquals(collector.bodies.get(collector.bodies.size() - 1), getNormalizedJson("events.json"));
+        client.stop();
+    }
+
+    @Test
+    public void testRejectedBatchIsDropped()
+            throws Exception
+    {
+        CollectorServlet collector = new CollectorServlet();
+        collector.status = 400;
+        SpoolingEventClient client = newEventClient(asList(startCollector(collector)));
+
+        client.post(TestingUtils.getEvents()).get();
+        client.deliver();
+
+        assertEquals(client.getPendingEvents(), 0);
+        assertEquals(client.getEventsRejected().getTotalCount(), 3);
+        client.stop();
+    }
+
+    @Test
+    public void testEventsSurviveRestart()
+            throws Exception
+    {
+        CollectorServlet collector = new CollectorServlet();
+        URI uri = startCollector(collector);
+
+        SpoolingEventClient client = newEventClient(asList(uri));
+        client.post(TestingUtils.getEvents()).get();
+        client.stop();
+
+        client = newEventClient(asList(uri));
+        assertEquals(client.getPendingEvents(), 3);
+        client.deliver();
+        assertEquals(collector.bodies.size(), 1);
+        assertEquals(collector.bodies.get(0), getNormalizedJson("events.json"));
+        client.stop();
+    }
+
+    private SpoolingEventClient newEventClient(List<URI> uris)
+            throws IOException
+    {
+        SpoolingEventClientConfig config = new SpoolingEventClientConfig()
+                .setSpoolPath(spoolPath)
+                .setMaxBatchAge(new Duration(10, MILLISECONDS))
+                .setMinRetryDelay(new Duration(1, MILLISECONDS));
+
+        return new SpoolingEventClient(
+                new StaticHttpServiceSelector("collector", "general", uris),
+                new JsonEventWriter(getValidEventTypeMetaDataSet(FixedDummyEventClass.class)),
+                new NodeInfo("test"),
+                httpClient,
+                config);
+    }
+
+    private URI startCollector(CollectorServlet servlet)
+            throws Exception
+    {
+        Server server = new Server();
+        ServerConnector connector = new ServerConnector(server);
+        connector.setPort(0);
+        server.addConnector(connector);
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+        context.addServlet(new ServletHolder(servlet), "/*");
+        server.setHandler(context);
+        server.start();
+        servers.add(server);
+        return URI.create("http://127.0.0.1:" + connector.getLocalPort());
+    }
+
+    private static class CollectorServlet
+            extends HttpServlet
+    {
+        private final List<String> bodies = new CopyOnWriteArrayList<>();
+        private volatile int status = 200;
+
+        @Override
+        protected void doPost(HttpServletRequest request, HttpServletResponse response)
+                throws IOException
+        {
+            assertEquals(request.getPathInfo(), "/v2/event");
+            bodies.add(CharStreams.toString(new InputStreamReader(request.getInputStream(), UTF_8)));
+            response.setStatus(status);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.event.client;
+
+import com.google.common.collect.ImmutableMap;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import javax.validation.constraints.AssertTrue;
+
+import java.io.File;
+import java.util.Map;
+
+import static io.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
+import static io.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
+import static io.airlift.configuration.testing.ConfigAssertions.recordDefaults;
+import static io.airlift.testing.ValidationAssertions.assertFailsValidation;
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.airlift.units.DataSize.Unit.KILOBYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+public class TestSpoolingEventClientConfig
+{
+    @Test
+    public void testDefaults()
+    {
+        assertRecordedDefaults(recordDefaults(SpoolingEventClientConfig.class)
+                .setSpoolPath(new File("var/event-spool"))
+                .setSegmentSize(new DataSize(16, MEGABYTE))
+                .setMaxSpoolSize(new DataSize(1, GIGABYTE))
+                .setMaxBatchSize(new DataSize(1, MEGABYTE))
+                .setMaxBatchAge(new Duration(500, MILLISECONDS))
+                .setMinRetryDelay(new Duration(100, MILLISECONDS))
+                .setMaxRetryDelay(new Duration(30, SECONDS)));
+    }
+
+    @Test
+    public void testExplicitPropertyMappings()
+    {
+        Map<String, String> properties = new ImmutableMap.Builder<String, String>()
+                .put("event.spool.path", "/tmp/events")
+                .put("event.spool.segment-size", "4MB")
+                .put("event.spool.max-size", "2GB")
+                .put("event.spool.batch.max-size", "256kB")
+                .put("event.spool.batch.max-age", "2s")
+                .put("event.spool.retry.min-delay", "1s")
+                .put("event.spool.retry.max-delay", "1m")
+                .build();
+
+        SpoolingEventClientConfig expected = new SpoolingEventClientConfig()
+                .setSpoolPath(new File("/tmp/events"))
+                .setSegmentSize(new DataSize(4, MEGABYTE))
+                .setMaxSpoolSize(new DataSize(2, GIGABYTE))
+                .setMaxBatchSize(new DataSize(256, KILOBYTE))
+                .setMaxBatchAge(new Duration(2, SECONDS))
+                .setMinRetryDelay(new Duration(1, SECONDS))
+                .setMaxRetryDelay(new Duration(60, SECONDS));
+
+        assertFullMapping(properties, expected);
+    }
+
+    @Test
+    public void testValidation()
+    {
+        assertFailsValidation(
+                new SpoolingEventClientConfig()
+                        .setSegmentSize(new DataSize(16, MEGABYTE))
+                        .setMaxSpoolSize(new DataSize(1, MEGABYTE)),
+                "maxSpoolSizeValid",
+                "event.spool.max-size must be at least event.spool.segment-size",
+                AssertTrue.class);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client;
+
+import com.google.common.annotations.Beta;
+import io.airlift.stats.TimeStat;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.airlift.http.client.HttpStatus.familyForStatusCode;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Request statistics for a single destination (host and port) of an HTTP client.
+ * Counters are lock-free so many request threads can record to the same
+ * destination without contention.
+ */
+@Beta
+public class DestinationStats
+{
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder informationalResponses = new LongAdder();
+    private final LongAdder successfulResponses = new LongAdder();
+    private final LongAdder redirectionResponses = new LongAdder();
+    private final LongAdder clientErrorResponses = new LongAdder();
+    private final LongAdder serverErrorResponses = new LongAdder();
+    private final LongAdder failedRequests = new LongAdder();
+    private final LongAdder readBytes = new LongAdder();
+    private final LongAdder writtenBytes = new LongAdder();
+
+    private final TimeStat requestTime = new TimeStat(MILLISECONDS);
+    private final TimeStat connectionWaitTime = new TimeStat(MILLISECONDS);
+
+    public void recordResponseReceived(int responseCode, long requestSizeInBytes, long responseSizeInBytes, Duration requestTime, Duration connectionWaitTime)
+    {
+        record(requestSizeInBytes, responseSizeInBytes, requestTime, connectionWaitTime);
+        switch (familyForStatusCode(responseCode)) {
+            case INFORMATIONAL:
+                informationalResponses.increment();
+                break;
+            case SUCCESSFUL:
+                successfulResponses.increment();
+                break;
+            case REDIRECTION:
+                redirectionResponses.increment();
+                break;
+            case CLIENT_ERROR:
+                clientErrorResponses.increment();
+                break;
+            case SERVER_ERROR:
+                serverErrorResponses.increment();
+                break;
+        }
+    }
+
+    public void recordRequestFailed(long requestSizeInBytes, long responseSizeInBytes, Duration requestTime, Duration connectionWaitTime)
+    {
+        record(requestSizeInBytes, responseSizeInBytes, requestTime, connectionWaitTime);
+        failedRequests.increment();
+    }
+
+    private void record(long requestSizeInBytes, long responseSizeInBytes, Duration requestTime, Duration connectionWaitTime)
+    {
+        requests.increment();
+        writtenBytes.add(requestSizeInBytes);
+        readBytes.add(responseSizeInBytes);
+        this.requestTime.add(requestTime);
+        this.connectionWaitTime.add(connectionWaitTime);
+    }
+
+    @Managed
+    public long getRequestCount()
+    {
+        return requests.sum();
+    }
+
+    @Managed
+    public long get1xxResponseCount()
+    {
+        return informationalResponses.sum();
+    }
+
+    @Managed
+    public long get2xxResponseCount()
+    {
+        return successfulResponses.sum();
+    }
+
+    @Managed
+    public long get3xxResponseCount()
+    {
+        return redirectionResponses.sum();
+    }
+
+    @Managed
+    public long get4xxResponseCount()
+    {
+        return clientErrorResponses.sum();
+    }
+
+    @Managed
+    public long get5xxResponseCount()
+    {
+        return serverErrorResponses.sum();
+    }
+
+    @Managed
+    public long getFailedRequestCount()
+    {
+        return failedRequests.sum();
+    }
+
+    @Managed
+    public long getReadBytes()
+    {
+        return readBytes.sum();
+    }
+
+    @Managed
+    public long getWrittenBytes()
+    {
+        return writtenBytes.sum();
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getRequestTime()
+    {
+        return requestTime;
+    }
+
+    @Managed(description = "Time spent waiting for a connection from the pool")
+    @Nested
+    public TimeStat getConnectionWaitTime()
+    {
+        return connectionWaitTime;
+    }
+}
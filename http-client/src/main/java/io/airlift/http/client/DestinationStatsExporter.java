@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client;
+
+import org.weakref.jmx.MBeanExporter;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.lang.annotation.Annotation;
+import java.util.HashSet;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+import static org.weakref.jmx.ObjectNames.builder;
+
+/**
+ * Exports the statistics for each destination of an HTTP client as a separate MBean.
+ */
+@ThreadSafe
+class DestinationStatsExporter
+        implements DestinationStatsListener
+{
+    private final MBeanExporter exporter;
+    private final Class<? extends Annotation> annotation;
+    private final Set<String> exportedNames = new HashSet<>();
+
+    public DestinationStatsExporter(MBeanExporter exporter, Class<? extends Annotation> annotation)
+    {
+        this.exporter = requireNonNull(exporter, "exporter is null");
+        this.annotation = requireNonNull(annotation, "annotation is null");
+    }
+
+    @Override
+    public synchronized void destinationAdded(String destination, DestinationStats stats)
+    {
+        String name = objectName(destination);
+        exporter.export(name, stats);
+        exportedNames.add(name);
+    }
+
+    @Override
+    public synchronized void destinationRemoved(String destination)
+    {
+        String name = objectName(destination);
+        if (exportedNames.remove(name)) {
+            exporter.unexport(name);
+        }
+    }
+
+    public synchronized void unexportAll()
+    {
+        exportedNames.forEach(exporter::unexport);
+        exportedNames.clear();
+    }
+
+    private String objectName(String destination)
+    {
+        return builder(HttpClient.class, annotation)
+                .withProperty("destination", destination)
+                .build();
+    }
+}
@@ -84,6 +84,7 @@ public class HttpClientConfig
     private int minThreads = 8;
     private int timeoutThreads = 1;
     private int timeoutConcurrency = 1;
+    private Duration timeoutTick;
 
     private boolean http2Enabled;
     private DataSize http2InitialSessionReceiveWindowSize = new DataSize(16, MEGABYTE);
@@ -99,6 +100,10 @@ public class HttpClientConfig
     private Duration logFlushInterval = new Duration(10, SECONDS);
     private boolean logCompressionEnabled = true;
 
+    private boolean destinationStatsEnabled;
+    private int destinationStatsMaxDestinations = 1000;
+    private Duration destinationStatsExpiration = new Duration(10, MINUTES);
+
     public boolean isHttp2Enabled()
     {
         return http2Enabled;
@@ -532,6 +537,20 @@ public class HttpClientConfig
         return this;
     }
 
+    @MinDuration("1ms")
+    public Duration getTimeoutTick()
+    {
+        return timeoutTick;
+    }
+
+    @Config("http-client.timeout-tick")
+    @ConfigDescription("Tick duration of a hashed wheel timer used for timeouts instead of scheduled thread pools; timeouts may fire up to one tick late")
+    public HttpClientConfig setTimeoutTick(Duration timeoutTick)
+    {
+        this.timeoutTick = timeoutTick;
+        return this;
+    }
+
     public String getLogPath()
     {
         return logPath;
@@ -633,4 +652,46 @@ public class HttpClientConfig
         this.logCompressionEnabled = logCompressionEnabled;
         return this;
     }
+
+    public boolean isDestinationStatsEnabled()
+    {
+        return destinationStatsEnabled;
+    }
+
+    @Config("http-client.destination-stats.enabled")
+    @ConfigDescription("Record request statistics for each destination (host and port)")
+    public HttpClientConfig setDestinationStatsEnabled(boolean destinationStatsEnabled)
+    {
+        this.destinationStatsEnabled = destinationStatsEnabled;
+        return this;
+    }
+
+    @Min(1)
+    public int getDestinationStatsMaxDestinations()
+    {
+        return destinationStatsMaxDestinations;
+    }
+
+    @Config("http-client.destination-stats.max-destinations")
+    @ConfigDescription("Maximum number of destinations with statistics; requests to other destinations are recorded together")
+    public HttpClientConfig setDestinationStatsMaxDestinations(int destinationStatsMaxDestinations)
+    {
+        this.destinationStatsMaxDestinations = destinationStatsMaxDestinations;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1s")
+    public Duration getDestinationStatsExpiration()
+    {
+        return destinationStatsExpiration;
+    }
+
+    @Config("http-client.destination-stats.expiration")
+    @ConfigDescription("Statistics for a destination are discarded after it has been idle for this long")
+    public HttpClientConfig setDestinationStatsExpiration(Duration destinationStatsExpiration)
+    {
+        this.destinationStatsExpiration = destinationStatsExpiration;
+        return this;
+    }
 }
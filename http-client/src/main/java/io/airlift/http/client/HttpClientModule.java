@@ -26,6 +26,7 @@ import com.google.inject.TypeLiteral;
 import io.airlift.configuration.ConfigDefaults;
 import io.airlift.http.client.jetty.JettyHttpClient;
 import io.airlift.http.client.spnego.KerberosConfig;
+import org.weakref.jmx.MBeanExporter;
 
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
@@ -92,6 +93,7 @@ public class HttpClientModule
         private final Class<? extends Annotation> annotation;
         private Injector injector;
         private HttpClient client;
+        private DestinationStatsExporter destinationStatsExporter;
 
         private HttpClientProvider(String name, Class<? extends Annotation> annotation)
         {
@@ -118,7 +120,12 @@ public class HttpClientModule
                     .addAll(injector.getInstance(Key.get(new TypeLiteral<Set<HttpRequestFilter>>() {}, annotation)))
                     .build();
 
-            client = new JettyHttpClient(name, config, kerberosConfig, ImmutableList.copyOf(filters));
+            JettyHttpClient jettyClient = new JettyHttpClient(name, config, kerberosConfig, ImmutableList.copyOf(filters));
+            if (config.isDestinationStatsEnabled() && (injector.getExistingBinding(Key.get(MBeanExporter.class)) != null)) {
+                destinationStatsExporter = new DestinationStatsExporter(injector.getInstance(MBeanExporter.class), annotation);
+                jettyClient.addDestinationStatsListener(destinationStatsExporter);
+            }
+            client = jettyClient;
 
             injector = null;
             return client;
@@ -128,6 +135,9 @@ public class HttpClientModule
         public void destroy()
         {
             client.close();
+            if (destinationStatsExporter != null) {
+                destinationStatsExporter.unexportAll();
+            }
         }
     }
 }
@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client;
+
+import com.google.common.annotations.Beta;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes a response body incrementally. A decoder is used for a single
+ * response and its methods are never called concurrently.
+ */
+@Beta
+public interface ResponseBodyDecoder<T, E extends Exception>
+{
+    /**
+     * Consumes the next chunk of the response body. The buffer is only
+     * valid for the duration of this call.
+     */
+    void onContent(ByteBuffer content)
+            throws E;
+
+    /**
+     * Called after the entire response body has been consumed.
+     */
+    T onComplete()
+            throws E;
+}
@@ -0,0 +1,253 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.net.MediaType;
+import com.google.common.primitives.Ints;
+import io.airlift.json.JsonCodec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.fasterxml.jackson.core.JsonToken.NOT_AVAILABLE;
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+import static io.airlift.http.client.ResponseHandlerUtils.propagate;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Decodes JSON or Smile responses. When used with an asynchronous client, the
+ * body is fed to a non-blocking parser as it arrives from the network, so
+ * tokenizing overlaps the transfer and the response chunks are not copied into
+ * a gathered buffer.
+ * <p>
+ * This does not reduce memory use. Jackson cannot bind from a non-blocking
+ * parser, so every token is held in a {@link TokenBuffer} and the result is
+ * bound only when the body is complete. Peak memory is the token stream plus
+ * the result, which is usually more than the raw body that
+ * {@link FullJsonResponseHandler} buffers.
+ * <p>
+ * Servers using the airlift {@code SmileMapper} will respond with Smile when
+ * the request {@code Accept} header is set to {@link #SMILE_OR_JSON}.
+ */
+public class StreamingJsonResponseHandler<T>
+        implements StreamingResponseHandler<T, RuntimeException>
+{
+    /**
+     * Accept header value that prefers Smile and falls back to JSON.
+     */
+    public static final String SMILE_OR_JSON = "application/x-jackson-smile, application/json;q=0.9";
+
+    private static final MediaType MEDIA_TYPE_JSON = MediaType.create("application", "json");
+    private static final MediaType MEDIA_TYPE_SMILE = MediaType.create("application", "x-jackson-smile");
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final SmileFactory SMILE_FACTORY = new SmileFactory();
+
+    public static <T> StreamingJsonResponseHandler<T> createStreamingJsonResponseHandler(JsonCodec<T> jsonCodec)
+    {
+        return new StreamingJsonResponseHandler<>(jsonCodec);
+    }
+
+    public static <T> StreamingJsonResponseHandler<T> createStreamingJsonResponseHandler(JsonCodec<T> jsonCodec, int firstSuccessfulResponseCode, int... otherSuccessfulResponseCodes)
+    {
+        return new StreamingJsonResponseHandler<>(jsonCodec, firstSuccessfulResponseCode, otherSuccessfulResponseCodes);
+    }
+
+    private final JsonCodec<T> jsonCodec;
+    private final Set<Integer> successfulResponseCodes;
+
+    private StreamingJsonResponseHandler(JsonCodec<T> jsonCodec)
+    {
+        this(jsonCodec, 200, 201, 202, 203, 204, 205, 206);
+    }
+
+    private StreamingJsonResponseHandler(JsonCodec<T> jsonCodec, int firstSuccessfulResponseCode, int... otherSuccessfulResponseCodes)
+    {
+        this.jsonCodec = requireNonNull(jsonCodec, "jsonCodec is null");
+        this.successfulResponseCodes = ImmutableSet.<Integer>builder().add(firstSuccessfulResponseCode).addAll(Ints.asList(otherSuccessfulResponseCodes)).build();
+    }
+
+    @Override
+    public T handleException(Request request, Exception exception)
+    {
+        throw propagate(request, exception);
+    }
+
+    @Override
+    public Optional<ResponseBodyDecoder<T, RuntimeException>> createBodyDecoder(Request request, Response response)
+    {
+        // unexpected responses are buffered so handle() can report them
+        if (!successfulResponseCodes.contains(response.getStatusCode())) {
+            return Optional.empty();
+        }
+        String contentType = response.getHeader(CONTENT_TYPE);
+        if (contentType == null) {
+            return Optional.empty();
+        }
+        MediaType mediaType = MediaType.parse(contentType);
+        JsonFactory factory = getFactory(mediaType);
+        if (factory == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new IncrementalDecoder<>(jsonCodec, mediaType, factory.createNonBlockingByteArrayParser()));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public T handle(Request request, Response response)
+    {
+        if (!successfulResponseCodes.contains(response.getStatusCode())) {
+            throw new UnexpectedResponseException(
+                    format("Expected response code to be %s, but was %d: %s", successfulResponseCodes, response.getStatusCode(), response.getStatusMessage()),
+                    request,
+                    response);
+        }
+        String contentType = response.getHeader(CONTENT_TYPE);
+        if (contentType == null) {
+            throw new UnexpectedResponseException("Content-Type is not set for response", request, response);
+        }
+        MediaType mediaType = MediaType.parse(contentType);
+        JsonFactory factory = getFactory(mediaType);
+        if (factory == null) {
+            throw new UnexpectedResponseException("Expected application/json or application/x-jackson-smile response from server but got " + contentType, request, response);
+        }
+        try (JsonParser parser = factory.createParser(response.getInputStream())) {
+            return decode(jsonCodec, mediaType, parser);
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Error reading response from server", e);
+        }
+    }
+
+    private static JsonFactory getFactory(MediaType mediaType)
+    {
+        if (mediaType.is(MEDIA_TYPE_JSON)) {
+            return JSON_FACTORY;
+        }
+        if (mediaType.is(MEDIA_TYPE_SMILE)) {
+            return SMILE_FACTORY;
+        }
+        return null;
+    }
+
+    private static <T> T decode(JsonCodec<T> jsonCodec, MediaType mediaType, JsonParser parser)
+    {
+        try {
+            return jsonCodec.fromJson(parser);
+        }
+        catch (IllegalArgumentException e) {
+            throw invalidResponse(jsonCodec, mediaType, e);
+        }
+    }
+
+    private static IllegalArgumentException invalidResponse(JsonCodec<?> jsonCodec, MediaType mediaType, Exception cause)
+    {
+        return new IllegalArgumentException(format("Unable to create %s from %s response", jsonCodec.getType(), mediaType.withoutParameters()), cause);
+    }
+
+    /**
+     * Tokenizes the body as it arrives and binds the tokens once the body is
+     * complete, since databind needs a blocking parser. Heap buffers are fed
+     * to the parser without copying.
+     */
+    private static class IncrementalDecoder<T>
+            implements ResponseBodyDecoder<T, RuntimeException>
+    {
+        private final JsonCodec<T> jsonCodec;
+        private final MediaType mediaType;
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+        private final TokenBuffer tokens;
+        private byte[] buffer = new byte[0];
+
+        IncrementalDecoder(JsonCodec<T> jsonCodec, MediaType mediaType, JsonParser parser)
+        {
+            this.jsonCodec = requireNonNull(jsonCodec, "jsonCodec is null");
+            this.mediaType = requireNonNull(mediaType, "mediaType is null");
+            this.parser = requireNonNull(parser, "parser is null");
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+            this.tokens = new TokenBuffer(parser);
+        }
+
+        @Override
+        public void onContent(ByteBuffer content)
+        {
+            int length = content.remaining();
+            if (length == 0) {
+                return;
+            }
+            try {
+                if (content.hasArray()) {
+                    int offset = content.arrayOffset() + content.position();
+                    feeder.feedInput(content.array(), offset, offset + length);
+                    content.position(content.limit());
+                }
+                else {
+                    if (buffer.length < length) {
+                        buffer = new byte[length];
+                    }
+                    content.get(buffer, 0, length);
+                    feeder.feedInput(buffer, 0, length);
+                }
+                // the parser must consume all input before more can be fed
+                copyAvailableTokens();
+            }
+            catch (IOException e) {
+                throw invalidResponse(jsonCodec, mediaType, e);
+            }
+        }
+
+        @Override
+        public T onComplete()
+        {
+            try {
+                feeder.endOfInput();
+                copyAvailableTokens();
+                parser.close();
+            }
+            catch (IOException e) {
+                throw invalidResponse(jsonCodec, mediaType, e);
+            }
+            buffer = null;
+            return decode(jsonCodec, mediaType, tokens.asParser());
+        }
+
+        private void copyAvailableTokens()
+                throws IOException
+        {
+            while (true) {
+                JsonToken token = parser.nextToken();
+                if ((token == null) || (token == NOT_AVAILABLE)) {
+                    return;
+                }
+                tokens.copyCurrentEvent(parser);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client;
+
+import com.google.common.annotations.Beta;
+
+import java.util.Optional;
+
+/**
+ * A response handler that can consume the response body incrementally as it
+ * arrives, instead of having the client buffer the entire body in memory.
+ * Clients that do not support incremental decoding treat this as a regular
+ * {@link ResponseHandler}.
+ */
+@Beta
+public interface StreamingResponseHandler<T, E extends Exception>
+        extends ResponseHandler<T, E>
+{
+    /**
+     * Called when the response headers have been received. If a decoder is
+     * returned, the body is passed to the decoder as it arrives and
+     * {@link #handle} is not called. Otherwise, the body is buffered and
+     * passed to {@link #handle} as usual.
+     * <p>
+     * The supplied response does not contain the response body.
+     */
+    Optional<ResponseBodyDecoder<T, E>> createBodyDecoder(Request request, Response response);
+}
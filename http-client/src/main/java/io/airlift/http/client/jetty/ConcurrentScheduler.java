@@ -1,8 +1,12 @@
 package io.airlift.http.client.jetty;
 
+import io.airlift.concurrent.HashedWheelTimer;
+import io.airlift.units.Duration;
 import org.eclipse.jetty.util.component.AbstractLifeCycle;
 import org.eclipse.jetty.util.thread.Scheduler;
 
+import javax.annotation.Nullable;
+
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -22,21 +26,37 @@ class ConcurrentScheduler
     private final int threadsPerScheduler;
     private final ScheduledExecutorService[] schedulers;
     private final ThreadFactory threadFactory;
+    @Nullable
+    private final Duration timerTick;
 
     ConcurrentScheduler(int schedulerCount, int threadsPerScheduler, String threadBaseName)
+    {
+        this(schedulerCount, threadsPerScheduler, threadBaseName, null);
+    }
+
+    /**
+     * @param timerTick if set, each scheduler is a {@link HashedWheelTimer} with this tick
+     * and a single thread, instead of a scheduled thread pool
+     */
+    ConcurrentScheduler(int schedulerCount, int threadsPerScheduler, String threadBaseName, @Nullable Duration timerTick)
     {
         checkArgument(schedulerCount > 0, "schedulerCount must be at least one");
-        this.schedulers = new ScheduledThreadPoolExecutor[schedulerCount];
+        this.schedulers = new ScheduledExecutorService[schedulerCount];
         checkArgument(threadsPerScheduler > 0, "threadsPerScheduler must be at least one");
         this.threadsPerScheduler = threadsPerScheduler;
         requireNonNull(threadBaseName, "threadBaseName is null");
         threadFactory = daemonThreadsNamed(threadBaseName + "-timeout-%s");
+        this.timerTick = timerTick;
     }
 
     @Override
     protected void doStart()
     {
         for (int i = 0; i < schedulers.length; i++) {
+            if (timerTick != null) {
+                schedulers[i] = new HashedWheelTimer(threadFactory, timerTick);
+                continue;
+            }
             ScheduledThreadPoolExecutor scheduledExecutorService = new ScheduledThreadPoolExecutor(threadsPerScheduler, threadFactory);
             scheduledExecutorService.setRemoveOnCancelPolicy(true);
             schedulers[i] = scheduledExecutorService;
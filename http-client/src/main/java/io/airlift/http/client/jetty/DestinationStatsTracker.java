@@ -0,0 +1,199 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client.jetty;
+
+import com.google.common.collect.ImmutableMap;
+import io.airlift.http.client.DestinationStats;
+import io.airlift.http.client.DestinationStatsListener;
+import io.airlift.units.Duration;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.util.thread.Scheduler;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Records request statistics per destination. Recording to a known destination
+ * only reads a concurrent map, so the request path takes no locks. Once
+ * {@code maxDestinations} are tracked, requests to new destinations are recorded
+ * under {@link #OVERFLOW_DESTINATION}. Destinations without requests for the
+ * expiration period are removed.
+ */
+@ThreadSafe
+class DestinationStatsTracker
+        implements Runnable
+{
+    static final String OVERFLOW_DESTINATION = "other";
+
+    private final Scheduler scheduler;
+    private final int maxDestinations;
+    private final long expirationNanos;
+    private final Map<String, TrackedStats> destinations = new ConcurrentHashMap<>();
+    private final List<DestinationStatsListener> listeners = new CopyOnWriteArrayList<>();
+
+    @GuardedBy("this")
+    private TrackedStats overflow;
+
+    public DestinationStatsTracker(Scheduler scheduler, int maxDestinations, Duration expiration)
+    {
+        this.scheduler = requireNonNull(scheduler, "scheduler is null");
+        checkArgument(maxDestinations > 0, "maxDestinations must be greater than zero");
+        this.maxDestinations = maxDestinations;
+        this.expirationNanos = requireNonNull(expiration, "expiration is null").roundTo(NANOSECONDS);
+    }
+
+    public void start()
+    {
+        scheduleExpiration();
+    }
+
+    public void record(Request request, JettyRequestListener listener, Result result)
+    {
+        long now = System.nanoTime();
+        TrackedStats tracked = getTrackedStats(destinationOf(request), now);
+        tracked.lastUsed = now;
+
+        long requestStarted = listener.getRequestStarted();
+        long connectionWait = ((requestStarted == 0) ? now : requestStarted) - listener.getCreated();
+        Duration connectionWaitTime = new Duration(connectionWait, NANOSECONDS);
+        Duration requestTime = new Duration(now - listener.getCreated(), NANOSECONDS);
+
+        if (result.isFailed()) {
+            tracked.stats.recordRequestFailed(listener.getRequestBytes(), listener.getResponseBytes(), requestTime, connectionWaitTime);
+        }
+        else {
+            tracked.stats.recordResponseReceived(result.getResponse().getStatus(), listener.getRequestBytes(), listener.getResponseBytes(), requestTime, connectionWaitTime);
+        }
+    }
+
+    public Map<String, DestinationStats> getStats()
+    {
+        ImmutableMap.Builder<String, DestinationStats> stats = ImmutableMap.builder();
+        destinations.forEach((destination, tracked) -> stats.put(destination, tracked.stats));
+        return stats.build();
+    }
+
+    /**
+     * Adds a listener. The listener is immediately notified of all currently tracked destinations.
+     */
+    public synchronized void addListener(DestinationStatsListener listener)
+    {
+        requireNonNull(listener, "listener is null");
+        destinations.forEach((destination, tracked) -> listener.destinationAdded(destination, tracked.stats));
+        listeners.add(listener);
+    }
+
+    @Override
+    public void run()
+    {
+        try {
+            expireIdleDestinations(System.nanoTime());
+        }
+        finally {
+            scheduleExpiration();
+        }
+    }
+
+    synchronized void expireIdleDestinations(long now)
+    {
+        destinations.entrySet().removeIf(entry -> {
+            TrackedStats tracked = entry.getValue();
+            if ((tracked == overflow) || (now - tracked.lastUsed < expirationNanos)) {
+                return false;
+            }
+            for (DestinationStatsListener listener : listeners) {
+                listener.destinationRemoved(entry.getKey());
+            }
+            return true;
+        });
+    }
+
+    private TrackedStats getTrackedStats(String destination, long now)
+    {
+        TrackedStats tracked = destinations.get(destination);
+        if (tracked != null) {
+            return tracked;
+        }
+        return addDestination(destination, now);
+    }
+
+    private synchronized TrackedStats addDestination(String destination, long now)
+    {
+        TrackedStats tracked = destinations.get(destination);
+        if (tracked != null) {
+            return tracked;
+        }
+
+        int trackedDestinations = destinations.size() - ((overflow == null) ? 0 : 1);
+        if (trackedDestinations >= maxDestinations) {
+            if (overflow == null) {
+                overflow = new TrackedStats(now);
+                destinations.put(OVERFLOW_DESTINATION, overflow);
+                notifyAdded(OVERFLOW_DESTINATION, overflow);
+            }
+            return overflow;
+        }
+
+        tracked = new TrackedStats(now);
+        destinations.put(destination, tracked);
+        notifyAdded(destination, tracked);
+        return tracked;
+    }
+
+    private void notifyAdded(String destination, TrackedStats tracked)
+    {
+        for (DestinationStatsListener listener : listeners) {
+            listener.destinationAdded(destination, tracked.stats);
+        }
+    }
+
+    private void scheduleExpiration()
+    {
+        try {
+            scheduler.schedule(this, Math.max(NANOSECONDS.toMillis(expirationNanos) / 2, 1), MILLISECONDS);
+        }
+        catch (RejectedExecutionException ignored) {
+            // client is shutting down
+        }
+    }
+
+    private static String destinationOf(Request request)
+    {
+        return request.getHost() + ":" + HttpClient.normalizePort(request.getScheme(), request.getPort());
+    }
+
+    private static class TrackedStats
+    {
+        private final DestinationStats stats = new DestinationStats();
+        private volatile long lastUsed;
+
+        public TrackedStats(long lastUsed)
+        {
+            this.lastUsed = lastUsed;
+        }
+    }
+}
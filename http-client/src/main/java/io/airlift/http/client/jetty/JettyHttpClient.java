@@ -1,9 +1,12 @@
 package io.airlift.http.client.jetty;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.net.HostAndPort;
 import com.google.common.primitives.Ints;
 import io.airlift.http.client.BodyGenerator;
+import io.airlift.http.client.DestinationStats;
+import io.airlift.http.client.DestinationStatsListener;
 import io.airlift.http.client.FileBodyGenerator;
 import io.airlift.http.client.HttpClientConfig;
 import io.airlift.http.client.HttpRequestFilter;
@@ -11,6 +14,7 @@ import io.airlift.http.client.Request;
 import io.airlift.http.client.RequestStats;
 import io.airlift.http.client.ResponseHandler;
 import io.airlift.http.client.StaticBodyGenerator;
+import io.airlift.http.client.StreamingResponseHandler;
 import io.airlift.http.client.jetty.HttpClientLogger.RequestInfo;
 import io.airlift.http.client.jetty.HttpClientLogger.ResponseInfo;
 import io.airlift.http.client.spnego.KerberosConfig;
@@ -62,6 +66,7 @@ import java.nio.file.Paths;
 import java.security.GeneralSecurityException;
 import java.security.KeyStore;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
@@ -121,6 +126,7 @@ public class JettyHttpClient
 
     private final HttpClientLogger requestLogger;
     private final JettyClientDiagnostics clientDiagnostics;
+    private final Optional<DestinationStatsTracker> destinationStats;
 
     public JettyHttpClient()
     {
@@ -244,7 +250,7 @@ public class JettyHttpClient
         httpClient.setExecutor(queuedThreadPool);
         // add queuedThreadPool as a managed bean to get its state in the client dumps
         httpClient.addBean(queuedThreadPool, true);
-        httpClient.setScheduler(createScheduler(name, config.getTimeoutConcurrency(), config.getTimeoutThreads()));
+        httpClient.setScheduler(createScheduler(name, config.getTimeoutConcurrency(), config.getTimeoutThreads(), config.getTimeoutTick()));
 
         httpClient.setSocketAddressResolver(new JettyAsyncSocketAddressResolver(
                 httpClient.getExecutor(),
@@ -296,6 +302,15 @@ public class JettyHttpClient
 
         this.clientDiagnostics = new JettyClientDiagnostics();
 
+        if (config.isDestinationStatsEnabled()) {
+            DestinationStatsTracker tracker = new DestinationStatsTracker(httpClient.getScheduler(), config.getDestinationStatsMaxDestinations(), config.getDestinationStatsExpiration());
+            tracker.start();
+            this.destinationStats = Optional.of(tracker);
+        }
+        else {
+            this.destinationStats = Optional.empty();
+        }
+
         this.requestFilters = ImmutableList.copyOf(requestFilters);
 
         this.queuedThreadPoolMBean = new QueuedThreadPoolMBean((QueuedThreadPool) httpClient.getExecutor());
@@ -426,11 +441,15 @@ public class JettyHttpClient
         }
     }
 
-    private static Scheduler createScheduler(String name, int timeoutConcurrency, int timeoutThreads)
+    private static Scheduler createScheduler(String name, int timeoutConcurrency, int timeoutThreads, Duration timeoutTick)
     {
         Scheduler scheduler;
         String threadName = "http-client-" + name + "-scheduler";
-        if ((timeoutConcurrency == 1) && (timeoutThreads == 1)) {
+        if (timeoutTick != null) {
+            checkArgument(timeoutConcurrency >= 1, "timeoutConcurrency must be at least one");
+            scheduler = new ConcurrentScheduler(timeoutConcurrency, 1, threadName, timeoutTick);
+        }
+        else if ((timeoutConcurrency == 1) && (timeoutThreads == 1)) {
             scheduler = new ScheduledExecutorScheduler(threadName, true);
         }
         else {
@@ -546,7 +565,13 @@ public class JettyHttpClient
 
         JettyResponseFuture<T, E> future = new JettyResponseFuture<>(request, jettyRequest, responseHandler, stats, recordRequestComplete);
 
-        BufferingResponseListener listener = new BufferingResponseListener(future, Ints.saturatedCast(maxContentLength));
+        Response.Listener listener;
+        if (responseHandler instanceof StreamingResponseHandler) {
+            listener = new StreamingResponseListener<>(request, (StreamingResponseHandler<T, E>) responseHandler, future, Ints.saturatedCast(maxContentLength));
+        }
+        else {
+            listener = new BufferingResponseListener(future, Ints.saturatedCast(maxContentLength));
+        }
 
         long requestTimestamp = System.currentTimeMillis();
 
@@ -597,6 +622,12 @@ public class JettyHttpClient
             }
         });
 
+        destinationStats.ifPresent(tracker -> {
+            jettyRequest.onRequestContent((request, content) -> listener.onRequestContent(content.remaining()));
+            jettyRequest.onResponseContent((response, content) -> listener.onResponseContent(content.remaining()));
+            jettyRequest.onComplete(result -> tracker.record(jettyRequest, listener, result));
+        });
+
         jettyRequest.attribute(STATS_KEY, listener);
 
         jettyRequest.method(finalRequest.getMethod());
@@ -671,6 +702,25 @@ public class JettyHttpClient
         return stats;
     }
 
+    /**
+     * Returns the statistics for each destination, or an empty map if
+     * destination statistics are not enabled.
+     */
+    public Map<String, DestinationStats> getDestinationStats()
+    {
+        return destinationStats.map(DestinationStatsTracker::getStats).orElse(ImmutableMap.of());
+    }
+
+    /**
+     * Adds a listener that is notified when destinations are added to or removed
+     * from the destination statistics. Has no effect if destination statistics are
+     * not enabled.
+     */
+    public void addDestinationStatsListener(DestinationStatsListener listener)
+    {
+        destinationStats.ifPresent(tracker -> tracker.addListener(listener));
+    }
+
     @Override
     public long getMaxContentLength()
     {
@@ -19,6 +19,8 @@ class JettyRequestListener
     private final AtomicLong requestFinished = new AtomicLong();
     private final AtomicLong responseStarted = new AtomicLong();
     private final AtomicLong responseFinished = new AtomicLong();
+    private final AtomicLong requestBytes = new AtomicLong();
+    private final AtomicLong responseBytes = new AtomicLong();
 
     public JettyRequestListener(URI uri)
     {
@@ -60,6 +62,26 @@ class JettyRequestListener
         return responseFinished.get();
     }
 
+    public long getRequestBytes()
+    {
+        return requestBytes.get();
+    }
+
+    public long getResponseBytes()
+    {
+        return responseBytes.get();
+    }
+
+    public void onRequestContent(int bytes)
+    {
+        requestBytes.addAndGet(bytes);
+    }
+
+    public void onResponseContent(int bytes)
+    {
+        responseBytes.addAndGet(bytes);
+    }
+
     public void onRequestBegin()
     {
         changeState(State.SENDING_REQUEST);
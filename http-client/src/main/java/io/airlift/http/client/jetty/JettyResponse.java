@@ -7,6 +7,7 @@ import io.airlift.http.client.HeaderName;
 import org.eclipse.jetty.client.api.Response;
 import org.eclipse.jetty.http.HttpFields;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -16,12 +17,27 @@ class JettyResponse
 {
     private final Response response;
     private final CountingInputStream inputStream;
+    private final long bytesDecoded;
     private final ListMultimap<HeaderName, String> headers;
 
     public JettyResponse(Response response, InputStream inputStream)
+    {
+        this(response, inputStream, 0);
+    }
+
+    /**
+     * Creates a response without a body, for a body that has been consumed by a decoder.
+     */
+    public JettyResponse(Response response, long bytesDecoded)
+    {
+        this(response, new ByteArrayInputStream(new byte[0]), bytesDecoded);
+    }
+
+    private JettyResponse(Response response, InputStream inputStream, long bytesDecoded)
     {
         this.response = response;
         this.inputStream = new CountingInputStream(inputStream);
+        this.bytesDecoded = bytesDecoded;
         this.headers = toHeadersMap(response.getHeaders());
     }
 
@@ -46,7 +62,7 @@ class JettyResponse
     @Override
     public long getBytesRead()
     {
-        return inputStream.getCount();
+        return bytesDecoded + inputStream.getCount();
     }
 
     @Override
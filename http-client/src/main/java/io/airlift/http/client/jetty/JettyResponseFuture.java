@@ -4,6 +4,7 @@ import com.google.common.util.concurrent.AbstractFuture;
 import io.airlift.http.client.HttpClient;
 import io.airlift.http.client.Request;
 import io.airlift.http.client.RequestStats;
+import io.airlift.http.client.ResponseBodyDecoder;
 import io.airlift.http.client.ResponseHandler;
 import org.eclipse.jetty.client.api.Response;
 
@@ -106,6 +107,56 @@ class JettyResponseFuture<T, E extends Exception>
         return value;
     }
 
+    void completed(Response response, long bytesDecoded, ResponseBodyDecoder<T, E> decoder)
+    {
+        if (state.get() == JettyAsyncHttpState.CANCELED) {
+            return;
+        }
+
+        T value;
+        try {
+            value = processDecodedResponse(response, bytesDecoded, decoder);
+        }
+        catch (Throwable e) {
+            // this will be an instance of E from the decoder or an Error
+            storeException(e);
+            return;
+        }
+        state.set(JettyAsyncHttpState.DONE);
+        set(value);
+    }
+
+    private T processDecodedResponse(Response response, long bytesDecoded, ResponseBodyDecoder<T, E> decoder)
+            throws E
+    {
+        // the body has already been decoded, so this only measures the final step of the decoder
+        long responseStart = System.nanoTime();
+
+        state.set(JettyAsyncHttpState.PROCESSING_RESPONSE);
+        try {
+            return decoder.onComplete();
+        }
+        finally {
+            if (recordRequestComplete) {
+                JettyHttpClient.recordRequestComplete(stats, request, requestStart, new JettyResponse(response, bytesDecoded), responseStart);
+            }
+        }
+    }
+
+    void decodingFailed(Response response, long bytesDecoded, Throwable throwable)
+    {
+        if (state.get() == JettyAsyncHttpState.CANCELED) {
+            return;
+        }
+
+        if (recordRequestComplete) {
+            JettyHttpClient.recordRequestComplete(stats, request, requestStart, new JettyResponse(response, bytesDecoded), System.nanoTime());
+        }
+
+        // this will be an instance of E from the decoder or an Error
+        storeException(throwable);
+    }
+
     void failed(Throwable throwable)
     {
         if (state.get() == JettyAsyncHttpState.CANCELED) {
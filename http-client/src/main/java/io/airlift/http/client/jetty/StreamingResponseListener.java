@@ -0,0 +1,109 @@
+package io.airlift.http.client.jetty;
+
+import io.airlift.http.client.Request;
+import io.airlift.http.client.ResponseBodyDecoder;
+import io.airlift.http.client.ResponseTooLargeException;
+import io.airlift.http.client.StreamingResponseHandler;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.nio.ByteBuffer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Feeds the response body to the decoder supplied by a {@link StreamingResponseHandler}
+ * as it arrives. If the handler does not supply a decoder for the response, the body
+ * is buffered and passed to the handler as usual.
+ */
+@ThreadSafe
+class StreamingResponseListener<T, E extends Exception>
+        extends Response.Listener.Adapter
+{
+    private final Request request;
+    private final StreamingResponseHandler<T, E> responseHandler;
+    private final JettyResponseFuture<T, E> future;
+    private final BufferingResponseListener bufferingListener;
+    private final int maxLength;
+
+    @GuardedBy("this")
+    private ResponseBodyDecoder<T, E> decoder;
+    @GuardedBy("this")
+    private long size;
+    @GuardedBy("this")
+    private Throwable decoderFailure;
+
+    public StreamingResponseListener(Request request, StreamingResponseHandler<T, E> responseHandler, JettyResponseFuture<T, E> future, int maxLength)
+    {
+        this.request = requireNonNull(request, "request is null");
+        this.responseHandler = requireNonNull(responseHandler, "responseHandler is null");
+        this.future = requireNonNull(future, "future is null");
+        this.bufferingListener = new BufferingResponseListener(future, maxLength);
+        this.maxLength = maxLength;
+    }
+
+    @Override
+    public synchronized void onHeaders(Response response)
+    {
+        bufferingListener.onHeaders(response);
+        try {
+            decoder = responseHandler.createBodyDecoder(request, new JettyResponse(response, 0)).orElse(null);
+        }
+        catch (Throwable e) {
+            fail(response, e);
+        }
+    }
+
+    @Override
+    public synchronized void onContent(Response response, ByteBuffer content)
+    {
+        if (decoderFailure != null) {
+            return;
+        }
+        if (decoder == null) {
+            bufferingListener.onContent(response, content);
+            return;
+        }
+
+        size += content.remaining();
+        if (size > maxLength) {
+            response.abort(new ResponseTooLargeException());
+            return;
+        }
+
+        try {
+            decoder.onContent(content);
+        }
+        catch (Throwable e) {
+            fail(response, e);
+        }
+    }
+
+    @Override
+    public synchronized void onComplete(Result result)
+    {
+        if (decoderFailure != null) {
+            future.decodingFailed(result.getResponse(), size, decoderFailure);
+        }
+        else if (result.getFailure() != null) {
+            future.failed(result.getFailure());
+        }
+        else if (decoder == null) {
+            bufferingListener.onComplete(result);
+        }
+        else {
+            future.completed(result.getResponse(), size, decoder);
+        }
+        decoder = null;
+    }
+
+    private void fail(Response response, Throwable throwable)
+    {
+        decoderFailure = throwable;
+        decoder = null;
+        response.abort(throwable);
+    }
+}
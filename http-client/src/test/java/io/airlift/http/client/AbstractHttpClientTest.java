@@ -5,6 +5,7 @@ import io.airlift.http.client.HttpClient.HttpResponseFuture;
 import io.airlift.http.client.StatusResponseHandler.StatusResponse;
 import io.airlift.http.client.StringResponseHandler.StringResponse;
 import io.airlift.http.client.jetty.JettyHttpClient;
+import io.airlift.json.JsonCodec;
 import io.airlift.log.Logging;
 import io.airlift.testing.Closeables;
 import io.airlift.units.Duration;
@@ -57,6 +58,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import static com.google.common.base.Throwables.getStackTraceAsString;
 import static com.google.common.base.Throwables.propagateIfPossible;
 import static com.google.common.base.Throwables.throwIfUnchecked;
+import static com.google.common.net.HttpHeaders.ACCEPT;
 import static com.google.common.net.HttpHeaders.ACCEPT_ENCODING;
 import static com.google.common.net.HttpHeaders.AUTHORIZATION;
 import static com.google.common.net.HttpHeaders.CONTENT_LENGTH;
@@ -69,7 +71,9 @@ import static io.airlift.http.client.Request.Builder.prepareGet;
 import static io.airlift.http.client.Request.Builder.preparePost;
 import static io.airlift.http.client.Request.Builder.preparePut;
 import static io.airlift.http.client.StatusResponseHandler.createStatusResponseHandler;
+import static io.airlift.http.client.StreamingJsonResponseHandler.createStreamingJsonResponseHandler;
 import static io.airlift.http.client.StringResponseHandler.createStringResponseHandler;
+import static io.airlift.json.JsonCodec.listJsonCodec;
 import static io.airlift.testing.Assertions.assertBetweenInclusive;
 import static io.airlift.testing.Assertions.assertGreaterThanOrEqual;
 import static io.airlift.testing.Assertions.assertLessThan;
@@ -726,6 +730,41 @@ public abstract class AbstractHttpClientTest
         executeRequest(request, new UnexpectedResponseStatusCodeHandler(200));
     }
 
+    @Test
+    public void testStreamingJsonResponse()
+            throws Exception
+    {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            values.add("value-" + i);
+        }
+        JsonCodec<List<String>> codec = listJsonCodec(String.class);
+        servlet.setResponseBody(codec.toJson(values));
+        servlet.addResponseHeader(CONTENT_TYPE, "application/json");
+
+        Request request = prepareGet()
+                .setUri(baseURI)
+                .setHeader(ACCEPT, StreamingJsonResponseHandler.SMILE_OR_JSON)
+                .build();
+
+        assertEquals(executeRequest(request, createStreamingJsonResponseHandler(codec)), values);
+    }
+
+    @Test(expectedExceptions = UnexpectedResponseException.class)
+    public void testStreamingJsonErrorResponse()
+            throws Exception
+    {
+        servlet.setResponseStatusCode(500);
+        servlet.setResponseBody("{\"error\": true}");
+        servlet.addResponseHeader(CONTENT_TYPE, "application/json");
+
+        Request request = prepareGet()
+                .setUri(baseURI)
+                .build();
+
+        executeRequest(request, createStreamingJsonResponseHandler(listJsonCodec(String.class)));
+    }
+
     @Test
     public void testCompressionIsDisabled()
             throws Exception
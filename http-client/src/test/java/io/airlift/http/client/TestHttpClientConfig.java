@@ -37,6 +37,7 @@ import static io.airlift.testing.ValidationAssertions.assertFailsValidation;
 import static io.airlift.units.DataSize.Unit.GIGABYTE;
 import static io.airlift.units.DataSize.Unit.KILOBYTE;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
@@ -79,6 +80,7 @@ public class TestHttpClientConfig
                 .setMinThreads(8)
                 .setTimeoutConcurrency(1)
                 .setTimeoutThreads(1)
+                .setTimeoutTick(null)
                 .setLogEnabled(false)
                 .setLogHistory(15)
                 .setLogMaxFileSize(new DataSize(1, GIGABYTE))
@@ -86,7 +88,10 @@ public class TestHttpClientConfig
                 .setLogQueueSize(10_000)
                 .setLogBufferSize(new DataSize(1, MEGABYTE))
                 .setLogFlushInterval(new Duration(10, SECONDS))
-                .setLogCompressionEnabled(true));
+                .setLogCompressionEnabled(true)
+                .setDestinationStatsEnabled(false)
+                .setDestinationStatsMaxDestinations(1000)
+                .setDestinationStatsExpiration(new Duration(10, MINUTES)));
     }
 
     @Test
@@ -125,6 +130,7 @@ public class TestHttpClientConfig
                 .put("http-client.min-threads", "11")
                 .put("http-client.timeout-concurrency", "33")
                 .put("http-client.timeout-threads", "44")
+                .put("http-client.timeout-tick", "10ms")
                 .put("http-client.log.enabled", "true")
                 .put("http-client.log.max-history", "22")
                 .put("http-client.log.max-size", "2GB")
@@ -133,6 +139,9 @@ public class TestHttpClientConfig
                 .put("http-client.log.buffer-size", "3MB")
                 .put("http-client.log.flush-interval", "99s")
                 .put("http-client.log.compression.enabled", "false")
+                .put("http-client.destination-stats.enabled", "true")
+                .put("http-client.destination-stats.max-destinations", "77")
+                .put("http-client.destination-stats.expiration", "3m")
                 .build();
 
         HttpClientConfig expected = new HttpClientConfig()
@@ -168,6 +177,7 @@ public class TestHttpClientConfig
                 .setMinThreads(11)
                 .setTimeoutConcurrency(33)
                 .setTimeoutThreads(44)
+                .setTimeoutTick(new Duration(10, MILLISECONDS))
                 .setLogEnabled(true)
                 .setLogHistory(22)
                 .setLogMaxFileSize(new DataSize(2, GIGABYTE))
@@ -175,7 +185,10 @@ public class TestHttpClientConfig
                 .setLogQueueSize(12345)
                 .setLogBufferSize(new DataSize(3, MEGABYTE))
                 .setLogFlushInterval(new Duration(99, SECONDS))
-                .setLogCompressionEnabled(false);
+                .setLogCompressionEnabled(false)
+                .setDestinationStatsEnabled(true)
+                .setDestinationStatsMaxDestinations(77)
+                .setDestinationStatsExpiration(new Duration(3, MINUTES));
 
         ConfigAssertions.assertFullMapping(properties, expected);
     }
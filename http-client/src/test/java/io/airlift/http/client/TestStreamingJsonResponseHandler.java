@@ -0,0 +1,164 @@
+package io.airlift.http.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.net.MediaType;
+import io.airlift.http.client.testing.TestingResponse;
+import io.airlift.json.JsonCodec;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static com.google.common.net.MediaType.JSON_UTF_8;
+import static com.google.common.net.MediaType.PLAIN_TEXT_UTF_8;
+import static io.airlift.http.client.HttpStatus.INTERNAL_SERVER_ERROR;
+import static io.airlift.http.client.HttpStatus.OK;
+import static io.airlift.http.client.StreamingJsonResponseHandler.createStreamingJsonResponseHandler;
+import static io.airlift.http.client.TestFullJsonResponseHandler.User;
+import static io.airlift.http.client.testing.TestingResponse.contentType;
+import static io.airlift.http.client.testing.TestingResponse.mockResponse;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestStreamingJsonResponseHandler
+{
+    private static final MediaType SMILE = MediaType.create("application", "x-jackson-smile");
+
+    private final JsonCodec<User> codec = JsonCodec.jsonCodec(User.class);
+    private final StreamingJsonResponseHandler<User> handler = createStreamingJsonResponseHandler(codec);
+
+    @Test
+    public void testValidJson()
+    {
+        User user = new User("Joe", 25);
+        assertUser(handler.handle(null, mockResponse(OK, JSON_UTF_8, codec.toJson(user))), user);
+    }
+
+    @Test
+    public void testValidSmile()
+            throws Exception
+    {
+        User user = new User("Joe", 25);
+        byte[] smile = new ObjectMapper(new SmileFactory()).writeValueAsBytes(user);
+        assertUser(handler.handle(null, new TestingResponse(OK, contentType(SMILE), smile)), user);
+    }
+
+    @Test
+    public void testDecodeJsonIncrementally()
+    {
+        User user = new User("Joe", 25);
+        byte[] json = codec.toJsonBytes(user);
+        assertUser(decodeOneByteAtATime(JSON_UTF_8, json, false), user);
+        assertUser(decodeOneByteAtATime(JSON_UTF_8, json, true), user);
+    }
+
+    @Test
+    public void testDecodeSmileIncrementally()
+            throws Exception
+    {
+        User user = new User("Joe", 25);
+        byte[] smile = new ObjectMapper(new SmileFactory()).writeValueAsBytes(user);
+        assertUser(decodeOneByteAtATime(SMILE, smile, false), user);
+        assertUser(decodeOneByteAtATime(SMILE, smile, true), user);
+    }
+
+    @Test
+    public void testDecodeWithReusedBuffer()
+            throws Exception
+    {
+        // tokens span chunks, and each chunk overwrites the previous one in the same array
+        User user = new User(Strings.repeat("Joe", 100), 25);
+        byte[] json = codec.toJsonBytes(user);
+        byte[] smile = new ObjectMapper(new SmileFactory()).writeValueAsBytes(user);
+        for (int chunkSize = 1; chunkSize <= 16; chunkSize++) {
+            assertUser(decodeWithReusedBuffer(JSON_UTF_8, json, chunkSize), user);
+            assertUser(decodeWithReusedBuffer(SMILE, smile, chunkSize), user);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Unable to create .*User from application/json response")
+    public void testDecodeInvalidJson()
+    {
+        decodeOneByteAtATime(JSON_UTF_8, "{\"age\": \"foo\"}".getBytes(UTF_8), false);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Unable to create .*User from application/json response")
+    public void testDecodeTruncatedJson()
+    {
+        decodeOneByteAtATime(JSON_UTF_8, "{\"name\": \"Joe\", ".getBytes(UTF_8), false);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Unable to create .*User from application/json response")
+    public void testDecodeMalformedJson()
+    {
+        decodeOneByteAtATime(JSON_UTF_8, "{\"name\" 1}".getBytes(UTF_8), false);
+    }
+
+    @Test
+    public void testNoDecoderForUnexpectedResponse()
+    {
+        assertFalse(handler.createBodyDecoder(null, mockResponse(OK, PLAIN_TEXT_UTF_8, "")).isPresent());
+        assertFalse(handler.createBodyDecoder(null, mockResponse(INTERNAL_SERVER_ERROR, JSON_UTF_8, "")).isPresent());
+        assertFalse(handler.createBodyDecoder(null, new TestingResponse(OK, ImmutableListMultimap.of(), new byte[0])).isPresent());
+    }
+
+    @Test(expectedExceptions = UnexpectedResponseException.class, expectedExceptionsMessageRegExp = "Expected application/json or application/x-jackson-smile response from server but got text/plain; charset=utf-8")
+    public void testNonJsonResponse()
+    {
+        handler.handle(null, mockResponse(OK, PLAIN_TEXT_UTF_8, "hello"));
+    }
+
+    @Test(expectedExceptions = UnexpectedResponseException.class, expectedExceptionsMessageRegExp = "Content-Type is not set for response")
+    public void testMissingContentType()
+    {
+        handler.handle(null, new TestingResponse(OK, ImmutableListMultimap.of(), "hello".getBytes(UTF_8)));
+    }
+
+    @Test(expectedExceptions = UnexpectedResponseException.class)
+    public void testJsonErrorResponse()
+    {
+        handler.handle(null, mockResponse(INTERNAL_SERVER_ERROR, JSON_UTF_8, "{\"error\": true}"));
+    }
+
+    private User decodeOneByteAtATime(MediaType mediaType, byte[] body, boolean direct)
+    {
+        Optional<ResponseBodyDecoder<User, RuntimeException>> decoder = handler.createBodyDecoder(null, new TestingResponse(OK, contentType(mediaType), new byte[0]));
+        assertTrue(decoder.isPresent());
+        for (byte value : body) {
+            ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(1) : ByteBuffer.allocate(1);
+            buffer.put(value).flip();
+            decoder.get().onContent(buffer);
+            assertFalse(buffer.hasRemaining());
+        }
+        return decoder.get().onComplete();
+    }
+
+    private User decodeWithReusedBuffer(MediaType mediaType, byte[] body, int chunkSize)
+    {
+        Optional<ResponseBodyDecoder<User, RuntimeException>> decoder = handler.createBodyDecoder(null, new TestingResponse(OK, contentType(mediaType), new byte[0]));
+        assertTrue(decoder.isPresent());
+        // like Jetty, hand out slices of one pooled array at a non-zero offset
+        byte[] shared = new byte[chunkSize + 1];
+        for (int offset = 0; offset < body.length; offset += chunkSize) {
+            int length = Math.min(chunkSize, body.length - offset);
+            System.arraycopy(body, offset, shared, 1, length);
+            ByteBuffer buffer = ByteBuffer.wrap(shared, 1, length).slice();
+            decoder.get().onContent(buffer);
+            assertFalse(buffer.hasRemaining());
+            Arrays.fill(shared, (byte) '!');
+        }
+        return decoder.get().onComplete();
+    }
+
+    private static void assertUser(User actual, User expected)
+    {
+        assertEquals(actual.getName(), expected.getName());
+        assertEquals(actual.getAge(), expected.getAge());
+    }
+}
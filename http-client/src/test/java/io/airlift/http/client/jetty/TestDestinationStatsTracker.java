@@ -0,0 +1,158 @@
+package io.airlift.http.client.jetty;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.http.client.DestinationStats;
+import io.airlift.http.client.DestinationStatsListener;
+import io.airlift.units.Duration;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpResponse;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.testng.Assert.assertEquals;
+
+public class TestDestinationStatsTracker
+{
+    private HttpClient httpClient;
+
+    @BeforeClass
+    public void setUp()
+    {
+        httpClient = new HttpClient();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+            throws Exception
+    {
+        httpClient.stop();
+    }
+
+    @Test
+    public void testRecord()
+    {
+        DestinationStatsTracker tracker = createTracker(10);
+
+        record(tracker, "http://a.example.com/", 200);
+        record(tracker, "http://a.example.com:80/foo", 404);
+        record(tracker, "https://a.example.com/", 503);
+        recordFailure(tracker, "http://b.example.com:8080/");
+
+        assertEquals(tracker.getStats().keySet(), ImmutableSet.of("a.example.com:80", "a.example.com:443", "b.example.com:8080"));
+
+        DestinationStats stats = tracker.getStats().get("a.example.com:80");
+        assertEquals(stats.getRequestCount(), 2);
+        assertEquals(stats.get2xxResponseCount(), 1);
+        assertEquals(stats.get4xxResponseCount(), 1);
+        assertEquals(stats.getFailedRequestCount(), 0);
+        assertEquals(stats.getRequestTime().getAllTime().getCount(), 2.0);
+        assertEquals(stats.getConnectionWaitTime().getAllTime().getCount(), 2.0);
+
+        assertEquals(tracker.getStats().get("a.example.com:443").get5xxResponseCount(), 1);
+        assertEquals(tracker.getStats().get("b.example.com:8080").getFailedRequestCount(), 1);
+    }
+
+    @Test
+    public void testMaxDestinations()
+    {
+        DestinationStatsTracker tracker = createTracker(2);
+
+        record(tracker, "http://a:1/", 200);
+        record(tracker, "http://b:1/", 200);
+        record(tracker, "http://c:1/", 200);
+        record(tracker, "http://d:1/", 200);
+        record(tracker, "http://a:1/", 200);
+
+        assertEquals(tracker.getStats().keySet(), ImmutableSet.of("a:1", "b:1", DestinationStatsTracker.OVERFLOW_DESTINATION));
+        assertEquals(tracker.getStats().get("a:1").getRequestCount(), 2);
+        assertEquals(tracker.getStats().get(DestinationStatsTracker.OVERFLOW_DESTINATION).getRequestCount(), 2);
+    }
+
+    @Test
+    public void testExpiration()
+    {
+        DestinationStatsTracker tracker = createTracker(1);
+        RecordingListener listener = new RecordingListener();
+
+        record(tracker, "http://a:1/", 200);
+        tracker.addListener(listener);
+        record(tracker, "http://b:1/", 200);
+
+        assertEquals(listener.getAdded(), ImmutableList.of("a:1", DestinationStatsTracker.OVERFLOW_DESTINATION));
+
+        tracker.expireIdleDestinations(System.nanoTime());
+        assertEquals(listener.getRemoved(), emptyList());
+
+        tracker.expireIdleDestinations(System.nanoTime() + MINUTES.toNanos(2));
+        assertEquals(listener.getRemoved(), ImmutableList.of("a:1"));
+        assertEquals(tracker.getStats().keySet(), ImmutableSet.of(DestinationStatsTracker.OVERFLOW_DESTINATION));
+
+        // expired destinations free up space for new ones
+        record(tracker, "http://c:1/", 200);
+        assertEquals(tracker.getStats().keySet(), ImmutableSet.of("c:1", DestinationStatsTracker.OVERFLOW_DESTINATION));
+    }
+
+    private static DestinationStatsTracker createTracker(int maxDestinations)
+    {
+        return new DestinationStatsTracker(new ScheduledExecutorScheduler(), maxDestinations, new Duration(1, MINUTES));
+    }
+
+    private void record(DestinationStatsTracker tracker, String uri, int status)
+    {
+        Request request = httpClient.newRequest(URI.create(uri));
+        JettyRequestListener listener = new JettyRequestListener(request.getURI());
+        listener.onFinish();
+        HttpResponse response = new HttpResponse(request, emptyList());
+        response.status(status);
+        tracker.record(request, listener, new Result(request, response));
+    }
+
+    private void recordFailure(DestinationStatsTracker tracker, String uri)
+    {
+        Request request = httpClient.newRequest(URI.create(uri));
+        JettyRequestListener listener = new JettyRequestListener(request.getURI());
+        listener.onFinish();
+        tracker.record(request, listener, new Result(request, new IOException("failed"), new HttpResponse(request, emptyList())));
+    }
+
+    private static class RecordingListener
+            implements DestinationStatsListener
+    {
+        private final List<String> added = new ArrayList<>();
+        private final List<String> removed = new ArrayList<>();
+
+        @Override
+        public void destinationAdded(String destination, DestinationStats stats)
+        {
+            added.add(destination);
+        }
+
+        @Override
+        public void destinationRemoved(String destination)
+        {
+            removed.add(destination);
+        }
+
+        public List<String> getAdded()
+        {
+            return added;
+        }
+
+        public List<String> getRemoved()
+        {
+            return removed;
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package io.airlift.http.client.jetty;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import io.airlift.http.client.AbstractHttpClientTest;
+import io.airlift.http.client.DestinationStats;
 import io.airlift.http.client.HttpClientConfig;
 import io.airlift.http.client.HttpRequestFilter;
 import io.airlift.http.client.Request;
@@ -10,8 +12,12 @@ import io.airlift.http.client.TestingRequestFilter;
 import io.airlift.http.client.spnego.KerberosConfig;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
 
+import static io.airlift.http.client.Request.Builder.prepareGet;
+import static io.airlift.http.client.StatusResponseHandler.createStatusResponseHandler;
 import static io.airlift.testing.Closeables.closeQuietly;
+import static org.testng.Assert.assertEquals;
 
 public class TestJettyHttpClient
         extends AbstractHttpClientTest
@@ -44,6 +50,28 @@ public class TestJettyHttpClient
         return httpClient.execute(request, responseHandler);
     }
 
+    @Test
+    public void testDestinationStats()
+            throws Exception
+    {
+        servlet.setResponseBody("hello");
+        HttpClientConfig config = createClientConfig().setDestinationStatsEnabled(true);
+        try (JettyHttpClient client = new JettyHttpClient("test-destination-stats", config, new KerberosConfig(), ImmutableList.of())) {
+            Request request = prepareGet()
+                    .setUri(baseURI)
+                    .build();
+            client.executeAsync(request, createStatusResponseHandler()).get();
+
+            String destination = baseURI.getHost() + ":" + baseURI.getPort();
+            assertEquals(client.getDestinationStats().keySet(), ImmutableSet.of(destination));
+
+            DestinationStats stats = client.getDestinationStats().get(destination);
+            assertEquals(stats.getRequestCount(), 1);
+            assertEquals(stats.get2xxResponseCount(), 1);
+            assertEquals(stats.getReadBytes(), 5);
+        }
+    }
+
     @Override
     public <T, E extends Exception> T executeRequest(HttpClientConfig config, Request request, ResponseHandler<T, E> responseHandler)
             throws Exception
@@ -0,0 +1,18 @@
+package io.airlift.http.client.jetty;
+
+import io.airlift.http.client.HttpClientConfig;
+import io.airlift.units.Duration;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+public class TestJettyHttpClientTimerWheel
+        extends TestJettyHttpClient
+{
+    @Override
+    protected HttpClientConfig createClientConfig()
+    {
+        return super.createClientConfig()
+                .setTimeoutConcurrency(2)
+                .setTimeoutTick(new Duration(10, MILLISECONDS));
+    }
+}
@@ -25,9 +25,11 @@ import javax.ws.rs.core.Response;
 import java.lang.ref.WeakReference;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Supplier;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static javax.ws.rs.core.Response.status;
@@ -76,6 +78,29 @@ public class AsyncResponseHandler
         return this;
     }
 
+    /**
+     * Like {@link #withTimeout(Duration, Supplier)}, but the timeout is scheduled on the
+     * supplied executor instead of the JAX-RS implementation's timer, for example a
+     * {@code io.airlift.concurrent.HashedWheelTimer} when many requests are pending.
+     */
+    public AsyncResponseHandler withTimeout(Duration timeout, Supplier<Response> timeoutResponse, ScheduledExecutorService timeoutExecutor)
+    {
+        requireNonNull(timeoutResponse, "timeoutResponse is null");
+        requireNonNull(timeoutExecutor, "timeoutExecutor is null");
+        Future<?> timeoutFuture = timeoutExecutor.schedule(() -> {
+            if (asyncResponse.resume(timeoutResponse.get())) {
+                cancelFuture();
+            }
+        }, timeout.toMillis(), MILLISECONDS);
+
+        // the timer holds the timeout task until it fires, so cancel it once the response is sent
+        Future<?> futureResponse = futureResponseReference.get();
+        if (futureResponse instanceof ListenableFuture) {
+            ((ListenableFuture<?>) futureResponse).addListener(() -> timeoutFuture.cancel(false), directExecutor());
+        }
+        return this;
+    }
+
     private void cancelFuture()
     {
         // Cancel the original future if it still exists
@@ -0,0 +1,59 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.jaxrs;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.DataSize;
+import io.airlift.units.MaxDataSize;
+import io.airlift.units.MinDataSize;
+
+import javax.validation.constraints.NotNull;
+
+import static io.airlift.units.DataSize.Unit.KILOBYTE;
+
+public class JaxrsConfig
+{
+    private boolean responseBufferEnabled;
+    private DataSize responseBufferMaxSize = new DataSize(64, KILOBYTE);
+
+    public boolean isResponseBufferEnabled()
+    {
+        return responseBufferEnabled;
+    }
+
+    @Config("jaxrs.json.response-buffer.enabled")
+    @ConfigDescription("Buffer JSON responses so they are sent with a Content-Length in a single write")
+    public JaxrsConfig setResponseBufferEnabled(boolean responseBufferEnabled)
+    {
+        this.responseBufferEnabled = responseBufferEnabled;
+        return this;
+    }
+
+    @NotNull
+    @MinDataSize("1kB")
+    @MaxDataSize("16MB")
+    public DataSize getResponseBufferMaxSize()
+    {
+        return responseBufferMaxSize;
+    }
+
+    @Config("jaxrs.json.response-buffer.max-size")
+    @ConfigDescription("Largest JSON response that is buffered; larger responses are streamed. One buffer is kept per request thread")
+    public JaxrsConfig setResponseBufferMaxSize(DataSize responseBufferMaxSize)
+    {
+        this.responseBufferMaxSize = responseBufferMaxSize;
+        return this;
+    }
+}
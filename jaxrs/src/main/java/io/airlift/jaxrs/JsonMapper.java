@@ -15,8 +15,6 @@
  */
 package io.airlift.jaxrs;
 
-import com.fasterxml.jackson.core.JsonEncoding;
-import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -24,6 +22,7 @@ import com.fasterxml.jackson.core.SerializableString;
 import com.fasterxml.jackson.core.io.CharacterEscapes;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.util.JSONPObject;
 import com.google.common.collect.ImmutableSet;
@@ -48,9 +47,17 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.toIntExact;
+
 // This code is based on JacksonJsonProvider
 @Provider
 @Consumes({MediaType.APPLICATION_JSON, "text/json"})
@@ -77,13 +84,30 @@ public class JsonMapper
     public static final Logger log = Logger.get(JsonMapper.class);
 
     private final ObjectMapper objectMapper;
+    private final ThreadLocal<ResponseBuffer> responseBuffer;
+
+    // resolved once per type; building readers and writers is expensive
+    private final ConcurrentMap<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<WriterKey, CachedWriter> writers = new ConcurrentHashMap<>();
 
     private final AtomicReference<UriInfo> uriInfo = new AtomicReference<>();
 
-    @Inject
     public JsonMapper(ObjectMapper objectMapper)
+    {
+        this(objectMapper, new JaxrsConfig());
+    }
+
+    @Inject
+    public JsonMapper(ObjectMapper objectMapper, JaxrsConfig config)
     {
         this.objectMapper = objectMapper;
+        if (config.isResponseBufferEnabled()) {
+            int maxSize = toIntExact(config.getResponseBufferMaxSize().toBytes());
+            this.responseBuffer = ThreadLocal.withInitial(() -> new ResponseBuffer(maxSize));
+        }
+        else {
+            this.responseBuffer = null;
+        }
     }
 
     @Context
@@ -140,7 +164,8 @@ public class JsonMapper
             // mapping, so we need to instruct parser:
             jsonParser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
 
-            object = objectMapper.readValue(jsonParser, objectMapper.getTypeFactory().constructType(genericType));
+            object = readers.computeIfAbsent(genericType, key -> objectMapper.readerFor(objectMapper.getTypeFactory().constructType(key)))
+                    .readValue(jsonParser);
         }
         catch (Exception e) {
             // We want to handle parsing exceptions differently than regular IOExceptions so just rethrow IOExceptions
@@ -179,58 +204,21 @@ public class JsonMapper
         // Prevent broken browser from attempting to render the json as html
         httpHeaders.add(HttpHeaders.X_CONTENT_TYPE_OPTIONS, "nosniff");
 
-        JsonFactory jsonFactory = objectMapper.getFactory();
-        jsonFactory.setCharacterEscapes(HTMLCharacterEscapes.INSTANCE);
-
-        JsonGenerator jsonGenerator = jsonFactory.createGenerator(outputStream, JsonEncoding.UTF8);
-
-        // Important: we are NOT to close the underlying stream after
-        // mapping, so we need to instruct generator:
-        jsonGenerator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
-
-        // Pretty print?
-        if (isPrettyPrintRequested()) {
-            jsonGenerator.useDefaultPrettyPrinter();
-        }
-
-        // 04-Mar-2010, tatu: How about type we were given? (if any)
-        JavaType rootType = null;
-        if (genericType != null && value != null) {
-            // 10-Jan-2011, tatu: as per [JACKSON-456], it's not safe to just force root
-            //    type since it prevents polymorphic type serialization. Since we really
-            //    just need this for generics, let's only use generic type if it's truly
-            //    generic.
-            if (genericType.getClass() != Class.class) { // generic types are other implementations of 'java.lang.reflect.Type'
-                // This is still not exactly right; should root type be further
-                // specialized with 'value.getClass()'? Let's see how well this works before
-                // trying to come up with more complete solution.
-                rootType = objectMapper.getTypeFactory().constructType(genericType);
-                // 26-Feb-2011, tatu: To help with [JACKSON-518], we better recognize cases where
-                //    type degenerates back into "Object.class" (as is the case with plain TypeVariable,
-                //    for example), and not use that.
-                //
-                if (rootType.getRawClass() == Object.class) {
-                    rootType = null;
-                }
-            }
-        }
-
         String jsonpFunctionName = getJsonpFunctionName();
+        WriterKey key = new WriterKey(value == null ? null : genericType, isPrettyPrintRequested(), jsonpFunctionName != null);
+        CachedWriter cachedWriter = writers.computeIfAbsent(key, this::createWriter);
+
         if (jsonpFunctionName != null) {
-            value = new JSONPObject(jsonpFunctionName, value, rootType);
-            rootType = null;
+            value = new JSONPObject(jsonpFunctionName, value, cachedWriter.getRootType());
         }
 
-        ObjectWriter writer;
-        if (rootType != null) {
-            writer = objectMapper.writerFor(rootType);
-        }
-        else {
-            writer = objectMapper.writer();
+        if (responseBuffer != null) {
+            writeBuffered(cachedWriter.getWriter(), value, httpHeaders, outputStream);
+            return;
         }
 
         try {
-            writer.writeValue(jsonGenerator, value);
+            cachedWriter.getWriter().writeValue(outputStream, value);
 
             // add a newline so when you use curl it looks nice
             outputStream.write('\n');
@@ -245,6 +233,86 @@ public class JsonMapper
         }
     }
 
+    private void writeBuffered(ObjectWriter writer, Object value, MultivaluedMap<String, Object> httpHeaders, OutputStream outputStream)
+            throws IOException
+    {
+        ResponseBuffer buffer = responseBuffer.get();
+        if (buffer.isInUse()) {
+            // nested write on this thread; do not clobber the outer response
+            buffer = new ResponseBuffer(buffer.getMaxSize());
+        }
+
+        buffer.open(outputStream);
+        try {
+            writer.writeValue(buffer, value);
+            buffer.write('\n');
+
+            // the whole body fit, so send it with a length in a single write
+            if (!buffer.isStreaming()) {
+                httpHeaders.putSingle(HttpHeaders.CONTENT_LENGTH, buffer.size());
+                buffer.writeTo(outputStream);
+            }
+        }
+        catch (EOFException e) {
+            // ignore EOFException (see writeTo)
+        }
+        finally {
+            buffer.release();
+        }
+    }
+
+    private CachedWriter createWriter(WriterKey key)
+    {
+        // Important: we are NOT to close the underlying stream after
+        // mapping, so we need to instruct generator. The HTML escapes are
+        // applied per writer so the shared factory is never modified.
+        ObjectWriter writer = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .with(HTMLCharacterEscapes.INSTANCE);
+
+        // Pretty print?
+        if (key.isPretty()) {
+            writer = writer.withDefaultPrettyPrinter();
+        }
+
+        JavaType rootType = getRootType(objectMapper, key.getGenericType());
+
+        // JSONP wraps the value, so the root type is carried by the wrapper instead
+        if (rootType != null && !key.isJsonp()) {
+            writer = writer.forType(rootType);
+        }
+        return new CachedWriter(rootType, writer);
+    }
+
+    static JavaType getRootType(ObjectMapper objectMapper, Type genericType)
+    {
+        // 04-Mar-2010, tatu: How about type we were given? (if any)
+        if (genericType == null) {
+            return null;
+        }
+
+        // 10-Jan-2011, tatu: as per [JACKSON-456], it's not safe to just force root
+        //    type since it prevents polymorphic type serialization. Since we really
+        //    just need this for generics, let's only use generic type if it's truly
+        //    generic.
+        if (genericType.getClass() == Class.class) { // generic types are other implementations of 'java.lang.reflect.Type'
+            return null;
+        }
+
+        // This is still not exactly right; should root type be further
+        // specialized with 'value.getClass()'? Let's see how well this works before
+        // trying to come up with more complete solution.
+        JavaType rootType = objectMapper.getTypeFactory().constructType(genericType);
+        // 26-Feb-2011, tatu: To help with [JACKSON-518], we better recognize cases where
+        //    type degenerates back into "Object.class" (as is the case with plain TypeVariable,
+        //    for example), and not use that.
+        //
+        if (rootType.getRawClass() == Object.class) {
+            return null;
+        }
+        return rootType;
+    }
+
     private boolean isPrettyPrintRequested()
     {
         UriInfo uriInfo = getUriInfo();
@@ -270,6 +338,190 @@ public class JsonMapper
         return queryParameters.getFirst("jsonp");
     }
 
+    private static final class WriterKey
+    {
+        private final Type genericType;
+        private final boolean pretty;
+        private final boolean jsonp;
+
+        public WriterKey(Type genericType, boolean pretty, boolean jsonp)
+        {
+            this.genericType = genericType;
+            this.pretty = pretty;
+            this.jsonp = jsonp;
+        }
+
+        public Type getGenericType()
+        {
+            return genericType;
+        }
+
+        public boolean isPretty()
+        {
+            return pretty;
+        }
+
+        public boolean isJsonp()
+        {
+            return jsonp;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            WriterKey that = (WriterKey) o;
+            return pretty == that.pretty &&
+                    jsonp == that.jsonp &&
+                    Objects.equals(genericType, that.genericType);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(genericType, pretty, jsonp);
+        }
+    }
+
+    private static final class CachedWriter
+    {
+        private final JavaType rootType;
+        private final ObjectWriter writer;
+
+        public CachedWriter(JavaType rootType, ObjectWriter writer)
+        {
+            this.rootType = rootType;
+            this.writer = writer;
+        }
+
+        public JavaType getRootType()
+        {
+            return rootType;
+        }
+
+        public ObjectWriter getWriter()
+        {
+            return writer;
+        }
+    }
+
+    /**
+     * Reusable per-thread buffer that collects a response body up to a maximum
+     * size. Once the body outgrows the buffer, the buffered bytes are flushed and
+     * the rest of the body is streamed directly to the underlying output.
+     */
+    private static final class ResponseBuffer
+            extends OutputStream
+    {
+        private static final int INITIAL_SIZE = 4096;
+
+        private final int maxSize;
+        private byte[] buffer;
+        private int size;
+        private OutputStream output;
+        private boolean streaming;
+
+        public ResponseBuffer(int maxSize)
+        {
+            this.maxSize = maxSize;
+            this.buffer = new byte[min(INITIAL_SIZE, maxSize)];
+        }
+
+        public int getMaxSize()
+        {
+            return maxSize;
+        }
+
+        public boolean isInUse()
+        {
+            return output != null;
+        }
+
+        public boolean isStreaming()
+        {
+            return streaming;
+        }
+
+        public int size()
+        {
+            return size;
+        }
+
+        public void open(OutputStream output)
+        {
+            this.output = output;
+            this.size = 0;
+            this.streaming = false;
+        }
+
+        public void release()
+        {
+            output = null;
+            size = 0;
+        }
+
+        public void writeTo(OutputStream out)
+                throws IOException
+        {
+            out.write(buffer, 0, size);
+        }
+
+        @Override
+        public void write(int b)
+                throws IOException
+        {
+            if (streaming || size == maxSize) {
+                switchToStreaming();
+                output.write(b);
+                return;
+            }
+            ensureCapacity(size + 1);
+            buffer[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length)
+                throws IOException
+        {
+            if (streaming || size + length > maxSize) {
+                switchToStreaming();
+                output.write(bytes, offset, length);
+                return;
+            }
+            ensureCapacity(size + length);
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+        }
+
+        @Override
+        public void flush()
+        {
+            // only the final single write reaches the output while buffering
+        }
+
+        private void switchToStreaming()
+                throws IOException
+        {
+            if (!streaming) {
+                streaming = true;
+                output.write(buffer, 0, size);
+                size = 0;
+            }
+        }
+
+        private void ensureCapacity(int capacity)
+        {
+            if (capacity > buffer.length) {
+                buffer = Arrays.copyOf(buffer, min(max(capacity, buffer.length * 2), maxSize));
+            }
+        }
+    }
+
     private static class HTMLCharacterEscapes
             extends CharacterEscapes
     {
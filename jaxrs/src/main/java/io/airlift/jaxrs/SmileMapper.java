@@ -20,6 +20,8 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.google.common.collect.ImmutableSet;
 import io.airlift.log.Logger;
@@ -40,6 +42,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 // This code is based on JacksonJsonProvider
 @Provider
@@ -68,11 +72,19 @@ public class SmileMapper
     public static final Logger log = Logger.get(SmileMapper.class);
 
     private final ObjectMapper objectMapper;
+    private final ObjectWriter defaultWriter;
+    // the factory is thread safe once configured, so it is shared by all requests
+    private final SmileFactory smileFactory = new SmileFactory();
+
+    // resolved once per type; building readers and writers is expensive
+    private final ConcurrentMap<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Type, ObjectWriter> writers = new ConcurrentHashMap<>();
 
     @Inject
     public SmileMapper(ObjectMapper objectMapper)
     {
         this.objectMapper = objectMapper;
+        this.defaultWriter = objectMapper.writer();
     }
 
     @Override
@@ -112,13 +124,14 @@ public class SmileMapper
     {
         Object object;
         try {
-            JsonParser jsonParser = new SmileFactory().createParser(inputStream);
+            JsonParser jsonParser = smileFactory.createParser(inputStream);
 
             // Important: we are NOT to close the underlying stream after
             // mapping, so we need to instruct parser:
             jsonParser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
 
-            object = objectMapper.readValue(jsonParser, objectMapper.getTypeFactory().constructType(genericType));
+            object = readers.computeIfAbsent(genericType, key -> objectMapper.readerFor(objectMapper.getTypeFactory().constructType(key)))
+                    .readValue(jsonParser);
         }
         catch (Exception e) {
             // we want to return a 400 for bad JSON but not for a real IO exception
@@ -154,39 +167,25 @@ public class SmileMapper
             OutputStream outputStream)
             throws IOException
     {
-        JsonGenerator jsonGenerator = new SmileFactory().createGenerator(outputStream);
+        JsonGenerator jsonGenerator = smileFactory.createGenerator(outputStream);
 
         // Important: we are NOT to close the underlying stream after
         // mapping, so we need to instruct generator:
         jsonGenerator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
 
-        // 04-Mar-2010, tatu: How about type we were given? (if any)
-        JavaType rootType = null;
+        ObjectWriter writer = defaultWriter;
         if (genericType != null && value != null) {
-            // 10-Jan-2011, tatu: as per [JACKSON-456], it's not safe to just force root
-            //    type since it prevents polymorphic type serialization. Since we really
-            //    just need this for generics, let's only use generic type if it's truly
-            //    generic.
-            if (genericType.getClass() != Class.class) { // generic types are other implementations of 'java.lang.reflect.Type'
-                // This is still not exactly right; should root type be further
-                // specialized with 'value.getClass()'? Let's see how well this works before
-                // trying to come up with more complete solution.
-                rootType = objectMapper.getTypeFactory().constructType(genericType);
-                // 26-Feb-2011, tatu: To help with [JACKSON-518], we better recognize cases where
-                //    type degenerates back into "Object.class" (as is the case with plain TypeVariable,
-                //    for example), and not use that.
-                //
-                if (rootType.getRawClass() == Object.class) {
-                    rootType = null;
-                }
-            }
+            writer = writers.computeIfAbsent(genericType, this::createWriter);
         }
+        writer.writeValue(jsonGenerator, value);
+    }
 
-        if (rootType != null) {
-            objectMapper.writerFor(rootType).writeValue(jsonGenerator, value);
-        }
-        else {
-            objectMapper.writeValue(jsonGenerator, value);
+    private ObjectWriter createWriter(Type genericType)
+    {
+        JavaType rootType = JsonMapper.getRootType(objectMapper, genericType);
+        if (rootType == null) {
+            return defaultWriter;
         }
+        return objectMapper.writerFor(rootType);
     }
 }
@@ -0,0 +1,121 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.jaxrs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.reflect.TypeToken;
+import io.airlift.jaxrs.testing.GuavaMultivaluedMap;
+import io.airlift.json.ObjectMapperProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class BenchmarkJsonMapper
+{
+    private static final Type LIST_TYPE = new TypeToken<List<Item>>() {}.getType();
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private JsonMapper jsonMapper;
+    private SmileMapper smileMapper;
+    private Item item;
+    private List<Item> items;
+
+    @Setup
+    public void setup()
+    {
+        ObjectMapper objectMapper = new ObjectMapperProvider().get();
+        jsonMapper = new JsonMapper(objectMapper);
+        smileMapper = new SmileMapper(objectMapper);
+        item = new Item("small", 42, true);
+        items = ImmutableList.of(item, new Item("other", 7, false));
+    }
+
+    @Benchmark
+    public int writeJsonObject()
+            throws IOException
+    {
+        out.reset();
+        jsonMapper.writeTo(item, Item.class, Item.class, null, null, new GuavaMultivaluedMap<>(), out);
+        return out.size();
+    }
+
+    @Benchmark
+    public int writeJsonGenericList()
+            throws IOException
+    {
+        out.reset();
+        jsonMapper.writeTo(items, List.class, LIST_TYPE, null, null, new GuavaMultivaluedMap<>(), out);
+        return out.size();
+    }
+
+    @Benchmark
+    public int writeSmileGenericList()
+            throws IOException
+    {
+        out.reset();
+        smileMapper.writeTo(items, List.class, LIST_TYPE, null, null, new GuavaMultivaluedMap<>(), out);
+        return out.size();
+    }
+
+    public static class Item
+    {
+        public final String name;
+        public final int count;
+        public final boolean enabled;
+
+        public Item(String name, int count, boolean enabled)
+        {
+            this.name = name;
+            this.count = count;
+            this.enabled = enabled;
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkJsonMapper.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
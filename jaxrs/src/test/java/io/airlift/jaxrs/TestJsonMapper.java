@@ -17,22 +17,31 @@ package io.airlift.jaxrs;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
 import com.google.common.net.HttpHeaders;
+import com.google.common.reflect.TypeToken;
 import io.airlift.jaxrs.testing.GuavaMultivaluedMap;
 import io.airlift.json.JsonCodec;
+import io.airlift.units.DataSize;
 import org.testng.annotations.Test;
 
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MultivaluedMap;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.List;
 import java.util.zip.ZipException;
 
+import static io.airlift.units.DataSize.Unit.KILOBYTE;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -69,6 +78,81 @@ public class TestJsonMapper
         assertEquals(headers.getFirst(HttpHeaders.X_CONTENT_TYPE_OPTIONS), "nosniff");
     }
 
+    @Test
+    public void testSharedFactoryIsNotModified()
+            throws IOException
+    {
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonMapper jsonMapper = new JsonMapper(objectMapper);
+
+        jsonMapper.writeTo("<>", String.class, null, null, null, new GuavaMultivaluedMap<>(), new ByteArrayOutputStream());
+
+        assertNull(objectMapper.getFactory().getCharacterEscapes());
+        assertEquals(objectMapper.writeValueAsString("<>"), "\"<>\"");
+    }
+
+    @Test
+    public void testGenericTypeRoundTrip()
+            throws IOException
+    {
+        JsonMapper jsonMapper = new JsonMapper(new ObjectMapper());
+        Type listType = new TypeToken<List<String>>() {}.getType();
+        List<String> value = ImmutableList.of("a", "<b>");
+
+        // the second pass is served from the cached reader and writer
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            jsonMapper.writeTo(value, List.class, listType, null, null, new GuavaMultivaluedMap<>(), outputStream);
+
+            @SuppressWarnings("unchecked")
+            Class<Object> rawType = (Class<Object>) (Class<?>) List.class;
+            Object parsed = jsonMapper.readFrom(rawType, listType, null, null, null, new ByteArrayInputStream(outputStream.toByteArray()));
+            assertEquals(parsed, value);
+        }
+    }
+
+    @Test
+    public void testBufferedResponseSetsContentLength()
+            throws IOException
+    {
+        JsonMapper jsonMapper = new JsonMapper(new ObjectMapper(), new JaxrsConfig().setResponseBufferEnabled(true));
+
+        for (int i = 0; i < 2; i++) {
+            CountingOutputStream outputStream = new CountingOutputStream();
+            MultivaluedMap<String, Object> headers = new GuavaMultivaluedMap<>();
+            jsonMapper.writeTo("value", String.class, null, null, null, headers, outputStream);
+
+            assertEquals(outputStream.toString(UTF_8.name()), "\"value\"\n");
+            assertEquals(headers.getFirst(HttpHeaders.CONTENT_LENGTH), 8);
+            assertEquals(outputStream.writes, 1);
+        }
+    }
+
+    @Test
+    public void testBufferedResponseStreamsLargeBody()
+            throws IOException
+    {
+        JsonMapper jsonMapper = new JsonMapper(new ObjectMapper(), new JaxrsConfig()
+                .setResponseBufferEnabled(true)
+                .setResponseBufferMaxSize(new DataSize(1, KILOBYTE)));
+        String value = Strings.repeat("x", 5000);
+
+        CountingOutputStream outputStream = new CountingOutputStream();
+        MultivaluedMap<String, Object> headers = new GuavaMultivaluedMap<>();
+        jsonMapper.writeTo(value, String.class, null, null, null, headers, outputStream);
+
+        assertEquals(outputStream.toString(UTF_8.name()), "\"" + value + "\"\n");
+        assertNull(headers.getFirst(HttpHeaders.CONTENT_LENGTH));
+
+        // the buffer is reused for a following small response
+        outputStream = new CountingOutputStream();
+        headers = new GuavaMultivaluedMap<>();
+        jsonMapper.writeTo("small", String.class, null, null, null, headers, outputStream);
+        assertEquals(outputStream.toString(UTF_8.name()), "\"small\"\n");
+        assertEquals(headers.getFirst(HttpHeaders.CONTENT_LENGTH), 8);
+        assertEquals(outputStream.writes, 1);
+    }
+
     @Test
     public void testEOFExceptionReturnsJsonMapperParsingException()
             throws IOException
@@ -177,6 +261,26 @@ public class TestJsonMapper
         }
     }
 
+    private static class CountingOutputStream
+            extends ByteArrayOutputStream
+    {
+        private int writes;
+
+        @Override
+        public synchronized void write(int b)
+        {
+            writes++;
+            super.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len)
+        {
+            writes++;
+            super.write(b, off, len);
+        }
+    }
+
     private static class TestingJsonProcessingException
             extends JsonProcessingException
     {
@@ -15,14 +15,22 @@
  */
 package io.airlift.json;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.base.Suppliers;
 import com.google.common.reflect.TypeParameter;
 import com.google.common.reflect.TypeToken;
 import io.airlift.json.LengthLimitedWriter.LengthLimitExceededException;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slice;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringWriter;
 import java.lang.reflect.Type;
 import java.util.List;
@@ -101,15 +109,18 @@ public class JsonCodec<T>
         return new JsonCodec<>(OBJECT_MAPPER_SUPPLIER.get(), mapType);
     }
 
-    private final ObjectMapper mapper;
     private final Type type;
     private final JavaType javaType;
+    // streams passed to the codec are owned by the caller and never closed
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
 
     JsonCodec(ObjectMapper mapper, Type type)
     {
-        this.mapper = mapper;
         this.type = type;
         this.javaType = mapper.getTypeFactory().constructType(type);
+        this.reader = mapper.readerFor(javaType).without(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        this.writer = mapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     }
 
     /**
@@ -131,7 +142,7 @@ public class JsonCodec<T>
             throws IllegalArgumentException
     {
         try {
-            return mapper.readValue(json, javaType);
+            return reader.readValue(json);
         }
         catch (IOException e) {
             throw new IllegalArgumentException(format("Invalid JSON string for %s", javaType), e);
@@ -149,7 +160,7 @@ public class JsonCodec<T>
             throws IllegalArgumentException
     {
         try {
-            return mapper.writeValueAsString(instance);
+            return writer.writeValueAsString(instance);
         }
         catch (IOException e) {
             throw new IllegalArgumentException(format("%s could not be converted to JSON", instance.getClass().getName()), e);
@@ -168,7 +179,7 @@ public class JsonCodec<T>
     {
         try (StringWriter stringWriter = new StringWriter();
                 LengthLimitedWriter lengthLimitedWriter = new LengthLimitedWriter(stringWriter, lengthLimit)) {
-            mapper.writeValue(lengthLimitedWriter, instance);
+            writer.writeValue(lengthLimitedWriter, instance);
             return Optional.of(stringWriter.getBuffer().toString());
         }
         catch (LengthLimitExceededException e) {
@@ -190,13 +201,32 @@ public class JsonCodec<T>
             throws IllegalArgumentException
     {
         try {
-            return mapper.readValue(json, javaType);
+            return reader.readValue(json);
         }
         catch (IOException e) {
             throw new IllegalArgumentException(format("Invalid JSON bytes for %s", javaType), e);
         }
     }
 
+    /**
+     * Reads an instance of type T from the specified parser. The parser may be
+     * for any format supported by Jackson (for example, Smile or a token buffer).
+     *
+     * @param parser the parser positioned before the value to read
+     * @return parsed value; never null
+     * @throws IllegalArgumentException if the parsed data can not be converted to the type T
+     */
+    public T fromJson(JsonParser parser)
+            throws IllegalArgumentException
+    {
+        try {
+            return reader.readValue(parser);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException(format("Invalid JSON for %s", javaType), e);
+        }
+    }
+
     /**
      * Converts the specified instance to json.
      *
@@ -208,13 +238,107 @@ public class JsonCodec<T>
             throws IllegalArgumentException
     {
         try {
-            return mapper.writeValueAsBytes(instance);
+            return writer.writeValueAsBytes(instance);
         }
         catch (IOException e) {
             throw new IllegalArgumentException(format("%s could not be converted to JSON", instance.getClass().getName()), e);
         }
     }
 
+    /**
+     * Reads an instance of type T from the specified stream of json bytes (UTF-8).
+     * The stream is read incrementally and is not closed.
+     *
+     * @param json the stream of json bytes (UTF-8) to parse
+     * @return parsed response; never null
+     * @throws IllegalArgumentException if the json can not be read or converted to the type T
+     */
+    public T fromJson(InputStream json)
+            throws IllegalArgumentException
+    {
+        try {
+            return reader.readValue(json);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException(format("Invalid JSON stream for %s", javaType), e);
+        }
+    }
+
+    /**
+     * Coverts the specified json slice (UTF-8) into an instance of type T
+     * without copying the slice.
+     *
+     * @param json the json slice (UTF-8) to parse
+     * @return parsed response; never null
+     * @throws IllegalArgumentException if the json slice can not be converted to the type T
+     */
+    public T fromJson(Slice json)
+            throws IllegalArgumentException
+    {
+        try {
+            return reader.readValue((InputStream) json.getInput());
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException(format("Invalid JSON bytes for %s", javaType), e);
+        }
+    }
+
+    /**
+     * Writes the specified instance as json (UTF-8) to the stream. The stream
+     * is flushed but not closed.
+     *
+     * @param instance the instance to convert to json
+     * @param output the stream to write to
+     * @throws IllegalArgumentException if the specified instance can not be converted to json
+     * or the stream can not be written
+     */
+    public void toJson(T instance, OutputStream output)
+            throws IllegalArgumentException
+    {
+        try {
+            writer.writeValue(output, instance);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException(format("%s could not be converted to JSON", instance.getClass().getName()), e);
+        }
+    }
+
+    /**
+     * Converts the specified instance to json.
+     *
+     * @param instance the instance to convert to json
+     * @return json slice (UTF-8)
+     * @throws IllegalArgumentException if the specified instance can not be converted to json
+     */
+    public Slice toJsonSlice(T instance)
+            throws IllegalArgumentException
+    {
+        DynamicSliceOutput output = new DynamicSliceOutput(256);
+        toJson(instance, output);
+        return output.slice();
+    }
+
+    /**
+     * Lazily reads a sequence of T values from the stream, parsing one
+     * element at a time. The stream may contain either a top-level json array
+     * or whitespace (e.g., newline) delimited values. Only the current element
+     * is held in memory, so arbitrarily large streams can be consumed. Closing
+     * the returned iterator does not close the stream.
+     *
+     * @param json the stream of json bytes (UTF-8) to parse
+     * @throws IllegalArgumentException if the start of the stream can not be read
+     */
+    public JsonValueIterator<T> readValues(InputStream json)
+            throws IllegalArgumentException
+    {
+        try {
+            return new JsonValueIterator<>(reader.readValues(json), javaType);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException(format("Invalid JSON stream for %s", javaType), e);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     TypeToken<T> getTypeToken()
     {
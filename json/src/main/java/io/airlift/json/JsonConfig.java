@@ -0,0 +1,42 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+
+/**
+ * Optional settings for the {@link ObjectMapper} provided by {@link JsonModule}.
+ * The module does not require configuration, so these properties are only
+ * read when the application binds this class with
+ * {@code configBinder(binder).bindConfig(JsonConfig.class)}.
+ */
+public class JsonConfig
+{
+    private boolean afterburnerEnabled;
+
+    public boolean isAfterburnerEnabled()
+    {
+        return afterburnerEnabled;
+    }
+
+    @Config("json.afterburner.enabled")
+    @ConfigDescription("Use generated bytecode instead of reflection to access bean properties")
+    public JsonConfig setAfterburnerEnabled(boolean afterburnerEnabled)
+    {
+        this.afterburnerEnabled = afterburnerEnabled;
+        return this;
+    }
+}
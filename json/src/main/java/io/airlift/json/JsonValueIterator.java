@@ -0,0 +1,81 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.json;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Iterator over a stream of json values that parses one value at a time.
+ * Parse failures are reported as {@link IllegalArgumentException} to match
+ * {@link JsonCodec}.
+ */
+public final class JsonValueIterator<T>
+        implements Iterator<T>, Closeable
+{
+    private final MappingIterator<T> iterator;
+    private final JavaType javaType;
+
+    JsonValueIterator(MappingIterator<T> iterator, JavaType javaType)
+    {
+        this.iterator = requireNonNull(iterator, "iterator is null");
+        this.javaType = requireNonNull(javaType, "javaType is null");
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        try {
+            return iterator.hasNextValue();
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException(format("Invalid JSON stream for %s", javaType), e);
+        }
+    }
+
+    @Override
+    public T next()
+    {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return iterator.nextValue();
+        }
+        catch (IOException | RuntimeJsonMappingException e) {
+            throw new IllegalArgumentException(format("Invalid JSON stream for %s", javaType), e);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        try {
+            iterator.close();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -31,6 +31,7 @@ import com.fasterxml.jackson.datatype.guava.GuavaModule;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.joda.JodaModule;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
 import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
@@ -56,6 +57,8 @@ public class ObjectMapperProvider
 
     private final Set<Module> modules = new HashSet<>();
 
+    private boolean afterburnerEnabled;
+
     @Inject
     public ObjectMapperProvider()
     {
@@ -109,6 +112,12 @@ public class ObjectMapperProvider
         this.modules.addAll(modules);
     }
 
+    @Inject(optional = true)
+    public void setJsonConfig(JsonConfig jsonConfig)
+    {
+        this.afterburnerEnabled = jsonConfig.isAfterburnerEnabled();
+    }
+
     @Override
     public ObjectMapper get()
     {
@@ -167,6 +176,11 @@ public class ObjectMapperProvider
             objectMapper.registerModule(module);
         }
 
+        // replaces reflective property access with generated accessors
+        if (afterburnerEnabled) {
+            objectMapper.registerModule(new AfterburnerModule());
+        }
+
         return objectMapper;
     }
 
@@ -0,0 +1,185 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.json;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class BenchmarkJsonCodec
+{
+    @Param({"false", "true"})
+    private boolean afterburner;
+
+    private JsonCodec<List<ServiceRepresentation>> codec;
+    private List<ServiceRepresentation> services;
+    private byte[] json;
+
+    @Setup
+    public void setup()
+    {
+        ObjectMapperProvider objectMapperProvider = new ObjectMapperProvider();
+        objectMapperProvider.setJsonConfig(new JsonConfig().setAfterburnerEnabled(afterburner));
+        codec = new JsonCodecFactory(objectMapperProvider).listJsonCodec(ServiceRepresentation.class);
+
+        ImmutableList.Builder<ServiceRepresentation> builder = ImmutableList.builder();
+        for (int i = 0; i < 10; i++) {
+            builder.add(new ServiceRepresentation(
+                    UUID.randomUUID().toString(),
+                    "node-" + i,
+                    "http",
+                    "general",
+                    "/us-east/rack" + i,
+                    i % 2 == 0,
+                    System.currentTimeMillis(),
+                    ImmutableMap.of("http", "http://10.0.0." + i + ":8080", "version", "1.0")));
+        }
+        services = builder.build();
+        json = codec.toJsonBytes(services);
+    }
+
+    @Benchmark
+    public byte[] serialize()
+    {
+        return codec.toJsonBytes(services);
+    }
+
+    @Benchmark
+    public List<ServiceRepresentation> deserialize()
+    {
+        return codec.fromJson(json);
+    }
+
+    public static class ServiceRepresentation
+    {
+        private final String id;
+        private final String nodeId;
+        private final String type;
+        private final String pool;
+        private final String location;
+        private final boolean active;
+        private final long lastUpdated;
+        private final Map<String, String> properties;
+
+        @JsonCreator
+        public ServiceRepresentation(
+                @JsonProperty("id") String id,
+                @JsonProperty("nodeId") String nodeId,
+                @JsonProperty("type") String type,
+                @JsonProperty("pool") String pool,
+                @JsonProperty("location") String location,
+                @JsonProperty("active") boolean active,
+                @JsonProperty("lastUpdated") long lastUpdated,
+                @JsonProperty("properties") Map<String, String> properties)
+        {
+            this.id = requireNonNull(id, "id is null");
+            this.nodeId = requireNonNull(nodeId, "nodeId is null");
+            this.type = requireNonNull(type, "type is null");
+            this.pool = requireNonNull(pool, "pool is null");
+            this.location = location;
+            this.active = active;
+            this.lastUpdated = lastUpdated;
+            this.properties = ImmutableMap.copyOf(requireNonNull(properties, "properties is null"));
+        }
+
+        @JsonProperty
+        public String getId()
+        {
+            return id;
+        }
+
+        @JsonProperty
+        public String getNodeId()
+        {
+            return nodeId;
+        }
+
+        @JsonProperty
+        public String getType()
+        {
+            return type;
+        }
+
+        @JsonProperty
+        public String getPool()
+        {
+            return pool;
+        }
+
+        @JsonProperty
+        public String getLocation()
+        {
+            return location;
+        }
+
+        @JsonProperty
+        public boolean isActive()
+        {
+            return active;
+        }
+
+        @JsonProperty
+        public long getLastUpdated()
+        {
+            return lastUpdated;
+        }
+
+        @JsonProperty
+        public Map<String, String> getProperties()
+        {
+            return properties;
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkJsonCodec.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
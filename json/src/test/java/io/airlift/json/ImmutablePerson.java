@@ -20,6 +20,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -42,6 +44,12 @@ public class ImmutablePerson
 
         byte[] bytes = jsonCodec.toJsonBytes(expected);
         assertEquals(jsonCodec.fromJson(bytes), expected);
+
+        assertEquals(jsonCodec.fromJson(jsonCodec.toJsonSlice(expected)), expected);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        jsonCodec.toJson(expected, out);
+        assertEquals(jsonCodec.fromJson(new ByteArrayInputStream(out.toByteArray())), expected);
     }
 
     public static void validatePersonListJsonCodec(JsonCodec<List<ImmutablePerson>> jsonCodec)
@@ -56,6 +64,12 @@ public class ImmutablePerson
 
         byte[] bytes = jsonCodec.toJsonBytes(expected);
         assertEquals(jsonCodec.fromJson(bytes), expected);
+
+        assertEquals(jsonCodec.fromJson(jsonCodec.toJsonSlice(expected)), expected);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        jsonCodec.toJson(expected, out);
+        assertEquals(jsonCodec.fromJson(new ByteArrayInputStream(out.toByteArray())), expected);
     }
 
     public static void validatePersonMapJsonCodec(JsonCodec<Map<String, ImmutablePerson>> jsonCodec)
@@ -71,6 +85,12 @@ public class ImmutablePerson
 
         byte[] bytes = jsonCodec.toJsonBytes(expected);
         assertEquals(jsonCodec.fromJson(bytes), expected);
+
+        assertEquals(jsonCodec.fromJson(jsonCodec.toJsonSlice(expected)), expected);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        jsonCodec.toJson(expected, out);
+        assertEquals(jsonCodec.fromJson(new ByteArrayInputStream(out.toByteArray())), expected);
     }
 
     @JsonCreator
@@ -16,18 +16,24 @@
 package io.airlift.json;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
 import com.google.common.reflect.TypeToken;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static io.airlift.json.JsonCodec.jsonCodec;
 import static io.airlift.json.JsonCodec.listJsonCodec;
 import static io.airlift.json.JsonCodec.mapJsonCodec;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNull;
@@ -230,4 +236,100 @@ public class TestJsonCodec
         assertFalse(jsonCodec.toJsonWithLengthLimit(people, 10381).isPresent());
         assertTrue(jsonCodec.toJsonWithLengthLimit(people, 10382).isPresent());
     }
+
+    @Test
+    public void testReadValuesFromArray()
+    {
+        JsonCodec<ImmutablePerson> jsonCodec = jsonCodec(ImmutablePerson.class);
+        List<ImmutablePerson> people = ImmutableList.of(new ImmutablePerson("dain", true), new ImmutablePerson("martin", false));
+        byte[] json = listJsonCodec(jsonCodec).toJsonBytes(people);
+
+        try (JsonValueIterator<ImmutablePerson> iterator = jsonCodec.readValues(new ByteArrayInputStream(json))) {
+            assertEquals(ImmutableList.copyOf(iterator), people);
+        }
+    }
+
+    @Test
+    public void testReadValuesNewlineDelimited()
+    {
+        JsonCodec<ImmutablePerson> jsonCodec = jsonCodec(ImmutablePerson.class);
+        String json = "{\"name\":\"dain\",\"rocks\":true}\n{\"name\":\"martin\",\"rocks\":false}\n";
+
+        try (JsonValueIterator<ImmutablePerson> iterator = jsonCodec.readValues(new ByteArrayInputStream(json.getBytes(UTF_8)))) {
+            assertEquals(ImmutableList.copyOf(iterator), ImmutableList.of(new ImmutablePerson("dain", true), new ImmutablePerson("martin", false)));
+        }
+    }
+
+    @Test
+    public void testReadValuesIsLazy()
+    {
+        // a stream far larger than anything buffered; only the current element is materialized
+        int count = 1_000_000;
+        InputStream json = new InputStream()
+        {
+            private final byte[] element = "{\"name\":\"dain\",\"rocks\":true}\n".getBytes(UTF_8);
+            private int remaining = count * element.length;
+
+            @Override
+            public int read()
+            {
+                if (remaining == 0) {
+                    return -1;
+                }
+                remaining--;
+                return element[(element.length - 1) - (remaining % element.length)];
+            }
+        };
+
+        ImmutablePerson expected = new ImmutablePerson("dain", true);
+        int read = 0;
+        try (JsonValueIterator<ImmutablePerson> iterator = jsonCodec(ImmutablePerson.class).readValues(json)) {
+            while (iterator.hasNext()) {
+                assertEquals(iterator.next(), expected);
+                read++;
+            }
+        }
+        assertEquals(read, count);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testReadValuesInvalid()
+    {
+        String json = "{\"name\":\"dain\",\"rocks\":true}\n{\"name\":";
+        try (JsonValueIterator<ImmutablePerson> iterator = jsonCodec(ImmutablePerson.class).readValues(new ByteArrayInputStream(json.getBytes(UTF_8)))) {
+            iterator.next();
+            iterator.next();
+        }
+    }
+
+    @Test
+    public void testStreamsAreNotClosed()
+    {
+        JsonCodec<ImmutablePerson> jsonCodec = jsonCodec(ImmutablePerson.class);
+        ImmutablePerson person = new ImmutablePerson("dain", true);
+
+        AtomicBoolean outputClosed = new AtomicBoolean();
+        ByteArrayOutputStream output = new ByteArrayOutputStream()
+        {
+            @Override
+            public void close()
+            {
+                outputClosed.set(true);
+            }
+        };
+        jsonCodec.toJson(person, output);
+        assertFalse(outputClosed.get());
+
+        AtomicBoolean inputClosed = new AtomicBoolean();
+        InputStream input = new ByteArrayInputStream(output.toByteArray())
+        {
+            @Override
+            public void close()
+            {
+                inputClosed.set(true);
+            }
+        };
+        assertEquals(jsonCodec.fromJson(input), person);
+        assertFalse(inputClosed.get());
+    }
 }
@@ -30,6 +30,7 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.inject.Binder;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import org.joda.time.DateTime;
@@ -65,6 +66,7 @@ public class TestJsonModule
             throws Exception
     {
         Injector injector = Guice.createInjector(new JsonModule(),
+                this::configure,
                 binder -> {
                     jsonBinder(binder).addSerializerBinding(SuperDuperNameList.class).toInstance(ToStringSerializer.instance);
                     jsonBinder(binder).addDeserializerBinding(SuperDuperNameList.class).to(SuperDuperNameListDeserializer.class);
@@ -72,11 +74,18 @@ public class TestJsonModule
         objectMapper = injector.getInstance(ObjectMapper.class);
     }
 
+    /**
+     * Hook for subclasses to run this suite against a differently configured mapper.
+     */
+    protected void configure(Binder binder)
+    {
+    }
+
     @Test
     public void testJsonCodecFactoryBinding()
             throws Exception
     {
-        Injector injector = Guice.createInjector(new JsonModule());
+        Injector injector = Guice.createInjector(new JsonModule(), this::configure);
         JsonCodecFactory codecFactory = injector.getInstance(JsonCodecFactory.class);
 
         Person.validatePersonJsonCodec(codecFactory.jsonCodec(Person.class));
@@ -0,0 +1,63 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Binder;
+import com.google.inject.Guice;
+import io.airlift.configuration.ConfigurationFactory;
+import io.airlift.configuration.ConfigurationModule;
+import org.testng.annotations.Test;
+
+import static io.airlift.configuration.ConfigBinder.configBinder;
+import static org.testng.Assert.assertTrue;
+
+public class TestJsonModuleWithAfterburner
+        extends TestJsonModule
+{
+    @Override
+    protected void configure(Binder binder)
+    {
+        binder.bind(JsonConfig.class).toInstance(new JsonConfig().setAfterburnerEnabled(true));
+    }
+
+    @Test
+    public void testAfterburnerRegistered()
+    {
+        ObjectMapper objectMapper = Guice.createInjector(new JsonModule(), this::configure).getInstance(ObjectMapper.class);
+        assertTrue(objectMapper.getRegisteredModuleIds().contains("com.fasterxml.jackson.module.afterburner.AfterburnerModule"));
+    }
+
+    @Test
+    public void testAfterburnerFromConfiguration()
+    {
+        ObjectMapper objectMapper = Guice.createInjector(
+                new JsonModule(),
+                new ConfigurationModule(new ConfigurationFactory(ImmutableMap.of("json.afterburner.enabled", "true"))),
+                binder -> configBinder(binder).bindConfig(JsonConfig.class))
+                .getInstance(ObjectMapper.class);
+        assertTrue(objectMapper.getRegisteredModuleIds().contains("com.fasterxml.jackson.module.afterburner.AfterburnerModule"));
+    }
+
+    @Test
+    public void testImmutablePersonCodec()
+    {
+        JsonCodecFactory codecFactory = Guice.createInjector(new JsonModule(), this::configure).getInstance(JsonCodecFactory.class);
+
+        ImmutablePerson.validatePersonJsonCodec(codecFactory.jsonCodec(ImmutablePerson.class));
+        ImmutablePerson.validatePersonListJsonCodec(codecFactory.listJsonCodec(ImmutablePerson.class));
+        ImmutablePerson.validatePersonMapJsonCodec(codecFactory.mapJsonCodec(String.class, ImmutablePerson.class));
+    }
+}
@@ -0,0 +1,253 @@
+package io.airlift.log;
+
+import io.airlift.units.Duration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Hands formatted records to a single writer thread through a bounded lock-free
+ * queue. The writer thread concatenates queued records and passes them to the
+ * sink in batches, so the sink is flushed once per batch instead of once per record.
+ * <p>
+ * Records written after close are dropped. Close waits at most maxFlushTime for the
+ * queue to drain, so a stalled sink cannot hang shutdown; records still queued then
+ * are dropped.
+ */
+final class AsyncLogWriter
+        implements Closeable
+{
+    static final int SAMPLE_RATE = 10;
+
+    private static final int MAX_BATCH_BYTES = 256 * 1024;
+    private static final long IDLE_PARK_NANOS = MILLISECONDS.toNanos(100);
+    private static final long BLOCKED_PARK_NANOS = MICROSECONDS.toNanos(100);
+
+    private final MpscRingBuffer<byte[]> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final int highWaterMark;
+    private final long flushIntervalNanos;
+    private final Duration maxFlushTime;
+    private final Consumer<byte[]> sink;
+    private final Consumer<Exception> errorHandler;
+    private final Thread thread;
+
+    private volatile boolean closed;
+    // set when close gives up on a stalled sink; the writer thread then stops without writing
+    private volatile boolean abandoned;
+    private volatile boolean consumerWaiting;
+
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private final AtomicLong droppedRecords = new AtomicLong();
+    private final AtomicLong writtenRecords = new AtomicLong();
+    private final AtomicLong writtenBatches = new AtomicLong();
+    private final AtomicLong totalWriteNanos = new AtomicLong();
+    private final AtomicLong maxWriteNanos = new AtomicLong();
+
+    public AsyncLogWriter(String name, int queueSize, OverflowPolicy overflowPolicy, Duration flushInterval, Duration maxFlushTime, Consumer<byte[]> sink, Consumer<Exception> errorHandler)
+    {
+        requireNonNull(name, "name is null");
+        checkArgument(queueSize > 0, "queueSize must be positive");
+        this.overflowPolicy = requireNonNull(overflowPolicy, "overflowPolicy is null");
+        this.flushIntervalNanos = requireNonNull(flushInterval, "flushInterval is null").roundTo(NANOSECONDS);
+        this.maxFlushTime = requireNonNull(maxFlushTime, "maxFlushTime is null");
+        this.sink = requireNonNull(sink, "sink is null");
+        this.errorHandler = requireNonNull(errorHandler, "errorHandler is null");
+
+        queue = new MpscRingBuffer<>(queueSize);
+        // same threshold logback's AsyncAppender uses to start discarding
+        highWaterMark = queue.capacity() - (queue.capacity() / 5);
+
+        thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a formatted record, applying the overflow policy when the queue is backed up.
+     *
+     * @param discardable true for DEBUG and INFO records
+     */
+    public void write(byte[] message, boolean discardable)
+    {
+        requireNonNull(message, "message is null");
+
+        if (closed) {
+            droppedRecords.incrementAndGet();
+            return;
+        }
+
+        boolean dropOnFull = discardable && overflowPolicy != OverflowPolicy.BLOCK;
+        if (dropOnFull && queue.size() >= highWaterMark) {
+            if (overflowPolicy == OverflowPolicy.DROP_DEBUG_INFO || (sampleCounter.getAndIncrement() % SAMPLE_RATE) != 0) {
+                droppedRecords.incrementAndGet();
+                return;
+            }
+        }
+
+        while (!queue.offer(message)) {
+            if (dropOnFull || closed) {
+                droppedRecords.incrementAndGet();
+                return;
+            }
+            LockSupport.unpark(thread);
+            LockSupport.parkNanos(this, BLOCKED_PARK_NANOS);
+        }
+
+        if (consumerWaiting) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Writes all queued records and stops the writer thread, waiting at most
+     * maxFlushTime. Records that could not be written in time are dropped.
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+        LockSupport.unpark(thread);
+        long deadline = System.nanoTime() + maxFlushTime.roundTo(NANOSECONDS);
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            try {
+                NANOSECONDS.timedJoin(thread, remaining);
+            }
+            catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (thread.isAlive()) {
+            abandoned = true;
+            int remaining = queue.size();
+            droppedRecords.addAndGet(remaining);
+            errorHandler.accept(new TimeoutException(format("Log writer did not finish within %s; dropped %s queued records", maxFlushTime, remaining)));
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getQueueDepth()
+    {
+        return queue.size();
+    }
+
+    public int getQueueCapacity()
+    {
+        return queue.capacity();
+    }
+
+    public long getDroppedRecords()
+    {
+        return droppedRecords.get();
+    }
+
+    public long getWrittenRecords()
+    {
+        return writtenRecords.get();
+    }
+
+    public long getWrittenBatches()
+    {
+        return writtenBatches.get();
+    }
+
+    public Duration getAverageWriteLatency()
+    {
+        long batches = writtenBatches.get();
+        if (batches == 0) {
+            return new Duration(0, MILLISECONDS);
+        }
+        return new Duration((double) totalWriteNanos.get() / batches, NANOSECONDS).convertTo(MILLISECONDS);
+    }
+
+    public Duration getMaxWriteLatency()
+    {
+        return new Duration(maxWriteNanos.get(), NANOSECONDS).convertTo(MILLISECONDS);
+    }
+
+    private void run()
+    {
+        ByteArrayOutputStream batch = new ByteArrayOutputStream(MAX_BATCH_BYTES);
+        int batchRecords = 0;
+        long batchStart = 0;
+
+        while (!abandoned) {
+            byte[] message = queue.poll();
+            if (message != null) {
+                if (batchRecords == 0) {
+                    batchStart = System.nanoTime();
+                }
+                batch.write(message, 0, message.length);
+                batchRecords++;
+                if (batch.size() >= MAX_BATCH_BYTES) {
+                    flush(batch, batchRecords);
+                    batchRecords = 0;
+                }
+                continue;
+            }
+
+            long waitNanos = IDLE_PARK_NANOS;
+            if (batchRecords > 0) {
+                waitNanos = flushIntervalNanos - (System.nanoTime() - batchStart);
+                if (waitNanos <= 0 || closed) {
+                    flush(batch, batchRecords);
+                    batchRecords = 0;
+                    continue;
+                }
+            }
+            else if (closed) {
+                if (queue.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+
+            // producers unpark this thread when they see the flag, so publish it before the final check
+            consumerWaiting = true;
+            if (queue.isEmpty() && !closed) {
+                LockSupport.parkNanos(this, waitNanos);
+            }
+            consumerWaiting = false;
+        }
+        // close gave up and counted the queue; records already taken from it are dropped too
+        droppedRecords.addAndGet(batchRecords);
+    }
+
+    private void flush(ByteArrayOutputStream batch, int batchRecords)
+    {
+        long start = System.nanoTime();
+        try {
+            sink.accept(batch.toByteArray());
+            writtenRecords.addAndGet(batchRecords);
+        }
+        catch (Exception e) {
+            // catch any exception to assure logging always works
+            errorHandler.accept(e);
+        }
+        finally {
+            batch.reset();
+        }
+        long elapsed = System.nanoTime() - start;
+        writtenBatches.incrementAndGet();
+        totalWriteNanos.addAndGet(elapsed);
+        maxWriteNanos.accumulateAndGet(elapsed, Math::max);
+    }
+}
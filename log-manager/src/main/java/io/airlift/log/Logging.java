@@ -16,6 +16,7 @@
 package io.airlift.log;
 
 import com.google.common.collect.ImmutableSortedMap;
+import io.airlift.units.Duration;
 
 import javax.annotation.concurrent.GuardedBy;
 
@@ -52,6 +53,8 @@ public class Logging
 
     @GuardedBy("this")
     private OutputStreamHandler consoleHandler;
+    @GuardedBy("this")
+    private RollingFileHandler fileHandler;
 
     /**
      * Sets up default logging:
@@ -109,13 +112,26 @@ public class Logging
         consoleHandler = null;
     }
 
-    @SuppressWarnings("MethodMayBeStatic")
     public void logToFile(String logPath, int maxHistory, long maxSizeInBytes)
+    {
+        LoggingConfiguration defaults = new LoggingConfiguration();
+        logToFile(logPath, maxHistory, maxSizeInBytes, defaults.getAsyncQueueSize(), defaults.getAsyncOverflowPolicy(), defaults.getAsyncFlushInterval(), defaults.getAsyncMaxFlushTime());
+    }
+
+    public synchronized void logToFile(String logPath, int maxHistory, long maxSizeInBytes, int queueSize, OverflowPolicy overflowPolicy, Duration flushInterval, Duration maxFlushTime)
     {
         log.info("Logging to %s", logPath);
 
-        RollingFileHandler rollingFileHandler = new RollingFileHandler(logPath, maxHistory, maxSizeInBytes);
-        ROOT.addHandler(rollingFileHandler);
+        fileHandler = new RollingFileHandler(logPath, maxHistory, maxSizeInBytes, queueSize, overflowPolicy, flushInterval, maxFlushTime);
+        ROOT.addHandler(fileHandler);
+    }
+
+    /**
+     * Returns the writer of the most recently added log file, or null if not logging to a file.
+     */
+    synchronized AsyncLogWriter getFileWriter()
+    {
+        return fileHandler == null ? null : fileHandler.getWriter();
     }
 
     public Level getRootLevel()
@@ -194,7 +210,14 @@ public class Logging
             throws IOException
     {
         if (config.getLogPath() != null) {
-            logToFile(config.getLogPath(), config.getMaxHistory(), config.getMaxSize().toBytes());
+            logToFile(
+                    config.getLogPath(),
+                    config.getMaxHistory(),
+                    config.getMaxSize().toBytes(),
+                    config.getAsyncQueueSize(),
+                    config.getAsyncOverflowPolicy(),
+                    config.getAsyncFlushInterval(),
+                    config.getAsyncMaxFlushTime());
         }
 
         if (!config.isConsoleEnabled()) {
@@ -16,11 +16,18 @@
 package io.airlift.log;
 
 import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
 import io.airlift.configuration.LegacyConfig;
 import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
 
 import static io.airlift.units.DataSize.Unit.BYTE;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 public class LoggingConfiguration
 {
@@ -29,6 +36,10 @@ public class LoggingConfiguration
     private DataSize maxSize = new DataSize(100, MEGABYTE);
     private int maxHistory = 30;
     private String levelsFile;
+    private int asyncQueueSize = 256;
+    private OverflowPolicy asyncOverflowPolicy = OverflowPolicy.BLOCK;
+    private Duration asyncFlushInterval = new Duration(0, MILLISECONDS);
+    private Duration asyncMaxFlushTime = new Duration(1, SECONDS);
 
     public boolean isConsoleEnabled()
     {
@@ -104,4 +115,60 @@ public class LoggingConfiguration
         this.levelsFile = levelsFile;
         return this;
     }
+
+    @Min(1)
+    public int getAsyncQueueSize()
+    {
+        return asyncQueueSize;
+    }
+
+    @Config("log.async.queue-size")
+    @ConfigDescription("Maximum number of records waiting to be written to the log file")
+    public LoggingConfiguration setAsyncQueueSize(int asyncQueueSize)
+    {
+        this.asyncQueueSize = asyncQueueSize;
+        return this;
+    }
+
+    @NotNull
+    public OverflowPolicy getAsyncOverflowPolicy()
+    {
+        return asyncOverflowPolicy;
+    }
+
+    @Config("log.async.overflow-policy")
+    @ConfigDescription("What to do with DEBUG and INFO records when the log file queue is backed up: BLOCK, DROP_DEBUG_INFO or SAMPLE")
+    public LoggingConfiguration setAsyncOverflowPolicy(OverflowPolicy asyncOverflowPolicy)
+    {
+        this.asyncOverflowPolicy = asyncOverflowPolicy;
+        return this;
+    }
+
+    @NotNull
+    public Duration getAsyncFlushInterval()
+    {
+        return asyncFlushInterval;
+    }
+
+    @Config("log.async.flush-interval")
+    @ConfigDescription("How long to wait for more records before writing a batch; zero writes as soon as the queue is drained")
+    public LoggingConfiguration setAsyncFlushInterval(Duration asyncFlushInterval)
+    {
+        this.asyncFlushInterval = asyncFlushInterval;
+        return this;
+    }
+
+    @NotNull
+    public Duration getAsyncMaxFlushTime()
+    {
+        return asyncMaxFlushTime;
+    }
+
+    @Config("log.async.max-flush-time")
+    @ConfigDescription("How long shutdown waits for queued records to be written before discarding them")
+    public LoggingConfiguration setAsyncMaxFlushTime(Duration asyncMaxFlushTime)
+    {
+        this.asyncMaxFlushTime = asyncMaxFlushTime;
+        return this;
+    }
 }
@@ -23,6 +23,9 @@ import javax.inject.Inject;
 
 import java.util.Locale;
 import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 public class LoggingMBean
 {
@@ -63,4 +66,52 @@ public class LoggingMBean
     {
         return ImmutableSortedMap.copyOf(Maps.transformValues(logging.getAllLevels(), Object::toString));
     }
+
+    @Managed
+    public long getFileQueueDepth()
+    {
+        return (long) getFileWriterStat(AsyncLogWriter::getQueueDepth);
+    }
+
+    @Managed
+    public long getFileQueueCapacity()
+    {
+        return (long) getFileWriterStat(AsyncLogWriter::getQueueCapacity);
+    }
+
+    @Managed
+    public long getFileDroppedRecords()
+    {
+        return (long) getFileWriterStat(AsyncLogWriter::getDroppedRecords);
+    }
+
+    @Managed
+    public long getFileWrittenRecords()
+    {
+        return (long) getFileWriterStat(AsyncLogWriter::getWrittenRecords);
+    }
+
+    @Managed
+    public long getFileWrittenBatches()
+    {
+        return (long) getFileWriterStat(AsyncLogWriter::getWrittenBatches);
+    }
+
+    @Managed
+    public double getFileWriteLatencyAvgMillis()
+    {
+        return getFileWriterStat(writer -> writer.getAverageWriteLatency().getValue(MILLISECONDS));
+    }
+
+    @Managed
+    public double getFileWriteLatencyMaxMillis()
+    {
+        return getFileWriterStat(writer -> writer.getMaxWriteLatency().getValue(MILLISECONDS));
+    }
+
+    private double getFileWriterStat(ToDoubleFunction<AsyncLogWriter> stat)
+    {
+        AsyncLogWriter writer = logging.getFileWriter();
+        return writer == null ? 0 : stat.applyAsDouble(writer);
+    }
 }
@@ -0,0 +1,104 @@
+package io.airlift.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer.
+ * <p>
+ * Producers claim a slot by advancing the producer index and then publish the
+ * element into it. Only one thread may call {@link #poll()}.
+ */
+final class MpscRingBuffer<T>
+{
+    private final AtomicReferenceArray<T> buffer;
+    private final int capacity;
+    private final int mask;
+
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    public MpscRingBuffer(int requestedCapacity)
+    {
+        checkArgument(requestedCapacity > 0 && requestedCapacity <= 1 << 30, "capacity must be between 1 and 2^30");
+        capacity = roundUpToPowerOfTwo(requestedCapacity);
+        mask = capacity - 1;
+        buffer = new AtomicReferenceArray<>(capacity);
+    }
+
+    public int capacity()
+    {
+        return capacity;
+    }
+
+    public int size()
+    {
+        // read the consumer first so the difference never goes negative
+        long consumer = consumerIndex.get();
+        long producer = producerIndex.get();
+        return (int) Math.min(Math.max(producer - consumer, 0), capacity);
+    }
+
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    /**
+     * Adds the element if there is space.
+     *
+     * @return false if the queue is full
+     */
+    public boolean offer(T element)
+    {
+        requireNonNull(element, "element is null");
+
+        long index;
+        do {
+            index = producerIndex.get();
+            if (index - consumerIndex.get() >= capacity) {
+                return false;
+            }
+        }
+        while (!producerIndex.compareAndSet(index, index + 1));
+
+        buffer.lazySet((int) index & mask, element);
+        return true;
+    }
+
+    /**
+     * Removes the oldest element. Must only be called from the consumer thread.
+     *
+     * @return the element, or null if the queue is empty
+     */
+    public T poll()
+    {
+        long index = consumerIndex.get();
+        int offset = (int) index & mask;
+
+        T element = buffer.get(offset);
+        if (element == null) {
+            if (index == producerIndex.get()) {
+                return null;
+            }
+            // a producer claimed the slot but has not published the element yet
+            do {
+                Thread.yield();
+                element = buffer.get(offset);
+            }
+            while (element == null);
+        }
+
+        buffer.lazySet(offset, null);
+        consumerIndex.lazySet(index + 1);
+        return element;
+    }
+
+    private static int roundUpToPowerOfTwo(int value)
+    {
+        return value == 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+}
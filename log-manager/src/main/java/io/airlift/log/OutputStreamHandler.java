@@ -3,7 +3,6 @@ package io.airlift.log;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.io.Writer;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Handler;
 import java.util.logging.LogRecord;
@@ -15,11 +14,11 @@ final class OutputStreamHandler
 {
     private final StaticFormatter formatter = new StaticFormatter();
     private final AtomicBoolean reported = new AtomicBoolean();
-    private final Writer writer;
+    private final OutputStream out;
 
     public OutputStreamHandler(OutputStream out)
     {
-        writer = new OutputStreamWriter(out, UTF_8);
+        this.out = out;
     }
 
     @Override
@@ -30,13 +29,17 @@ final class OutputStreamHandler
         }
 
         try {
-            writer.write(formatter.format(record));
-            writer.flush();
+            // the line is rendered into a thread-local buffer and written as raw bytes
+            StaticFormatter.LineBuffer line = formatter.formatToBuffer(record);
+            synchronized (out) {
+                line.writeTo(out);
+                out.flush();
+            }
         }
         catch (Exception e) {
             // try to report the first error
             if (!reported.getAndSet(true)) {
-                PrintWriter error = new PrintWriter(writer);
+                PrintWriter error = new PrintWriter(new OutputStreamWriter(out, UTF_8));
                 error.print("LOGGING FAILED: ");
                 e.printStackTrace(error);
                 error.flush();
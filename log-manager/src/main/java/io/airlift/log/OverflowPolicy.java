@@ -0,0 +1,34 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.log;
+
+/**
+ * What the file handler does with a record when its queue is backed up.
+ */
+public enum OverflowPolicy
+{
+    /**
+     * Wait for space in the queue.
+     */
+    BLOCK,
+    /**
+     * Drop DEBUG and INFO records once the queue is 80% full; WARN and ERROR wait for space.
+     */
+    DROP_DEBUG_INFO,
+    /**
+     * Keep one in every {@value AsyncLogWriter#SAMPLE_RATE} DEBUG and INFO records once the
+     * queue is 80% full; WARN and ERROR wait for space.
+     */
+    SAMPLE
+}
@@ -1,6 +1,5 @@
 package io.airlift.log;
 
-import ch.qos.logback.core.AsyncAppenderBase;
 import ch.qos.logback.core.ContextBase;
 import ch.qos.logback.core.encoder.EncoderBase;
 import ch.qos.logback.core.rolling.RollingFileAppender;
@@ -8,15 +7,20 @@ import ch.qos.logback.core.rolling.SizeAndTimeBasedFNATP;
 import ch.qos.logback.core.rolling.TimeBasedRollingPolicy;
 import ch.qos.logback.core.util.FileSize;
 import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
 
 import java.io.File;
 import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
 import java.util.logging.Handler;
+import java.util.logging.Level;
 import java.util.logging.LogRecord;
 
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.lang.String.format;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.logging.ErrorManager.CLOSE_FAILURE;
 import static java.util.logging.ErrorManager.FORMAT_FAILURE;
 import static java.util.logging.ErrorManager.WRITE_FAILURE;
@@ -28,9 +32,15 @@ final class RollingFileHandler
     private static final String LOG_FILE_EXTENSION = ".log";
     private static final FileSize BUFFER_SIZE_IN_BYTES = new FileSize(new DataSize(1, MEGABYTE).toBytes());
 
-    private final AsyncAppenderBase<String> asyncAppender;
+    private final RollingFileAppender<byte[]> fileAppender;
+    private final AsyncLogWriter writer;
 
     public RollingFileHandler(String filename, int maxHistory, long maxSizeInBytes)
+    {
+        this(filename, maxHistory, maxSizeInBytes, 256, OverflowPolicy.BLOCK, new Duration(0, MILLISECONDS), new Duration(1, SECONDS));
+    }
+
+    public RollingFileHandler(String filename, int maxHistory, long maxSizeInBytes, int queueSize, OverflowPolicy overflowPolicy, Duration flushInterval, Duration maxFlushTime)
     {
         setFormatter(new StaticFormatter());
 
@@ -38,9 +48,9 @@ final class RollingFileHandler
 
         recoverTempFiles(filename);
 
-        RollingFileAppender<String> fileAppender = new RollingFileAppender<>();
-        TimeBasedRollingPolicy<String> rollingPolicy = new TimeBasedRollingPolicy<>();
-        SizeAndTimeBasedFNATP<String> triggeringPolicy = new SizeAndTimeBasedFNATP<>();
+        fileAppender = new RollingFileAppender<>();
+        TimeBasedRollingPolicy<byte[]> rollingPolicy = new TimeBasedRollingPolicy<>();
+        SizeAndTimeBasedFNATP<byte[]> triggeringPolicy = new SizeAndTimeBasedFNATP<>();
 
         rollingPolicy.setContext(context);
         rollingPolicy.setFileNamePattern(filename + "-%d{yyyy-MM-dd}.%i.log.gz");
@@ -56,17 +66,21 @@ final class RollingFileHandler
         fileAppender.setFile(filename);
         fileAppender.setAppend(true);
         fileAppender.setBufferSize(BUFFER_SIZE_IN_BYTES);
-        fileAppender.setEncoder(new StringEncoder());
+        fileAppender.setEncoder(new BytesEncoder());
         fileAppender.setRollingPolicy(rollingPolicy);
 
-        asyncAppender = new AsyncAppenderBase<>();
-        asyncAppender.setContext(context);
-        asyncAppender.addAppender(fileAppender);
-
         rollingPolicy.start();
         triggeringPolicy.start();
         fileAppender.start();
-        asyncAppender.start();
+
+        writer = new AsyncLogWriter(
+                "log-writer-" + new File(filename).getName(),
+                queueSize,
+                overflowPolicy,
+                flushInterval,
+                maxFlushTime,
+                fileAppender::doAppend,
+                e -> reportError(null, e, WRITE_FAILURE));
     }
 
     @Override
@@ -76,9 +90,16 @@ final class RollingFileHandler
             return;
         }
 
-        String message;
+        byte[] message;
         try {
-            message = getFormatter().format(record);
+            Formatter formatter = getFormatter();
+            if (formatter instanceof StaticFormatter) {
+                // skip the intermediate String; the copy is needed since the append is asynchronous
+                message = ((StaticFormatter) formatter).formatToBuffer(record).toByteArray();
+            }
+            else {
+                message = formatter.format(record).getBytes(UTF_8);
+            }
         }
         catch (Exception e) {
             // catch any exception to assure logging always works
@@ -87,7 +108,7 @@ final class RollingFileHandler
         }
 
         try {
-            asyncAppender.doAppend(message);
+            writer.write(message, record.getLevel().intValue() < Level.WARNING.intValue());
         }
         catch (Exception e) {
             // catch any exception to assure logging always works
@@ -104,7 +125,8 @@ final class RollingFileHandler
     public void close()
     {
         try {
-            asyncAppender.stop();
+            writer.close();
+            fileAppender.stop();
         }
         catch (Exception e) {
             // catch any exception to assure logging always works
@@ -112,8 +134,13 @@ final class RollingFileHandler
         }
     }
 
-    private static final class StringEncoder
-            extends EncoderBase<String>
+    AsyncLogWriter getWriter()
+    {
+        return writer;
+    }
+
+    private static final class BytesEncoder
+            extends EncoderBase<byte[]>
     {
         private static final byte[] EMPTY_BYTES = new byte[0];
 
@@ -124,9 +151,9 @@ final class RollingFileHandler
         }
 
         @Override
-        public byte[] encode(String event)
+        public byte[] encode(byte[] event)
         {
-            return event.getBytes(UTF_8);
+            return event;
         }
 
         @Override
@@ -1,5 +1,7 @@
 package io.airlift.log;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.time.Instant;
@@ -8,13 +10,15 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.time.format.SignStyle;
+import java.util.Arrays;
 import java.util.Locale;
 import java.util.logging.Formatter;
 import java.util.logging.LogRecord;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.time.temporal.ChronoField.DAY_OF_MONTH;
 import static java.time.temporal.ChronoField.HOUR_OF_DAY;
-import static java.time.temporal.ChronoField.MILLI_OF_SECOND;
 import static java.time.temporal.ChronoField.MINUTE_OF_HOUR;
 import static java.time.temporal.ChronoField.MONTH_OF_YEAR;
 import static java.time.temporal.ChronoField.SECOND_OF_MINUTE;
@@ -25,7 +29,8 @@ class StaticFormatter
 {
     private static final ZoneId SYSTEM_ZONE = ZoneId.systemDefault().normalized();
 
-    private static final DateTimeFormatter TIMESTAMP_FORMATTER = new DateTimeFormatterBuilder()
+    // formats everything except the milliseconds, which are appended per record
+    private static final DateTimeFormatter SECONDS_FORMATTER = new DateTimeFormatterBuilder()
             .parseCaseInsensitive()
             .appendValue(YEAR, 4, 10, SignStyle.EXCEEDS_PAD)
             .appendLiteral('-')
@@ -39,10 +44,21 @@ class StaticFormatter
             .appendLiteral(':')
             .appendValue(SECOND_OF_MINUTE, 2)
             .appendLiteral('.')
-            .appendValue(MILLI_OF_SECOND, 3)
+            .toFormatter(Locale.US);
+
+    private static final DateTimeFormatter OFFSET_FORMATTER = new DateTimeFormatterBuilder()
             .appendOffset("+HHMM", "Z")
             .toFormatter(Locale.US);
 
+    private static final byte[][] LEVEL_NAMES = Arrays.stream(Level.values())
+            .map(level -> level.name().getBytes(US_ASCII))
+            .toArray(byte[][]::new);
+
+    private static final ThreadLocal<LineBuffer> LINE_BUFFER = ThreadLocal.withInitial(LineBuffer::new);
+
+    // log lines within the same second share the rendered timestamp prefix
+    private static volatile CachedTimestamp cachedTimestamp = new CachedTimestamp(Long.MIN_VALUE, new byte[0], new byte[0]);
+
     @Override
     @SuppressWarnings("NonSynchronizedMethodOverridesSynchronizedMethod")
     public String formatMessage(LogRecord record)
@@ -53,26 +69,172 @@ class StaticFormatter
     @Override
     public String format(LogRecord record)
     {
-        ZonedDateTime timestamp = ZonedDateTime.ofInstant(Instant.ofEpochMilli(record.getMillis()), SYSTEM_ZONE);
-
-        StringWriter stringWriter = new StringWriter()
-                .append(TIMESTAMP_FORMATTER.format(timestamp))
-                .append('\t')
-                .append(Level.fromJulLevel(record.getLevel()).name())
-                .append('\t')
-                .append(Thread.currentThread().getName())
-                .append('\t')
-                .append(record.getLoggerName())
-                .append('\t')
-                .append(record.getMessage());
+        LineBuffer line = formatToBuffer(record);
+        return new String(line.buffer, 0, line.size, UTF_8);
+    }
+
+    /**
+     * Renders the record as UTF-8 into a buffer owned by the calling thread.
+     * The returned buffer is only valid until the next call on the same thread.
+     */
+    LineBuffer formatToBuffer(LogRecord record)
+    {
+        LineBuffer line = LINE_BUFFER.get();
+        line.reset();
+
+        appendTimestamp(line, record.getMillis());
+        line.append('\t');
+        line.append(LEVEL_NAMES[Level.fromJulLevel(record.getLevel()).ordinal()]);
+        line.append('\t');
+        line.appendThreadName(Thread.currentThread().getName());
+        line.append('\t');
+        line.appendUtf8(String.valueOf(record.getLoggerName()));
+        line.append('\t');
+        line.appendUtf8(String.valueOf(record.getMessage()));
 
         if (record.getThrown() != null) {
-            stringWriter.append('\n');
+            StringWriter stringWriter = new StringWriter();
             record.getThrown().printStackTrace(new PrintWriter(stringWriter));
-            stringWriter.append('\n');
+            line.append('\n');
+            line.appendUtf8(stringWriter.toString());
+            line.append('\n');
+        }
+
+        line.append('\n');
+        return line;
+    }
+
+    private static void appendTimestamp(LineBuffer line, long millis)
+    {
+        long epochSecond = Math.floorDiv(millis, 1000);
+        CachedTimestamp timestamp = cachedTimestamp;
+        if (timestamp.epochSecond != epochSecond) {
+            ZonedDateTime dateTime = ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), SYSTEM_ZONE);
+            timestamp = new CachedTimestamp(
+                    epochSecond,
+                    SECONDS_FORMATTER.format(dateTime).getBytes(US_ASCII),
+                    OFFSET_FORMATTER.format(dateTime).getBytes(US_ASCII));
+            cachedTimestamp = timestamp;
+        }
+
+        int millisOfSecond = (int) Math.floorMod(millis, 1000);
+        line.append(timestamp.prefix);
+        line.append('0' + millisOfSecond / 100);
+        line.append('0' + millisOfSecond / 10 % 10);
+        line.append('0' + millisOfSecond % 10);
+        line.append(timestamp.offset);
+    }
+
+    private static final class CachedTimestamp
+    {
+        private final long epochSecond;
+        private final byte[] prefix;
+        private final byte[] offset;
+
+        private CachedTimestamp(long epochSecond, byte[] prefix, byte[] offset)
+        {
+            this.epochSecond = epochSecond;
+            this.prefix = prefix;
+            this.offset = offset;
+        }
+    }
+
+    static final class LineBuffer
+    {
+        private static final int INITIAL_SIZE = 512;
+        // larger buffers (e.g. for huge stack traces) are not kept between records
+        private static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+        private byte[] buffer = new byte[INITIAL_SIZE];
+        private int size;
+
+        private String threadName;
+        private byte[] threadNameBytes;
+
+        public int size()
+        {
+            return size;
         }
 
-        stringWriter.append('\n');
-        return stringWriter.toString();
+        public byte[] toByteArray()
+        {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        public void writeTo(OutputStream out)
+                throws IOException
+        {
+            out.write(buffer, 0, size);
+        }
+
+        private void reset()
+        {
+            if (buffer.length > MAX_RETAINED_SIZE) {
+                buffer = new byte[INITIAL_SIZE];
+            }
+            size = 0;
+        }
+
+        private void append(int b)
+        {
+            ensureCapacity(1);
+            buffer[size++] = (byte) b;
+        }
+
+        private void append(byte[] bytes)
+        {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private void appendThreadName(String name)
+        {
+            // thread names are stable, so the encoded bytes are reused until the name changes
+            if (name != threadName) {
+                threadName = name;
+                threadNameBytes = name.getBytes(UTF_8);
+            }
+            append(threadNameBytes);
+        }
+
+        private void appendUtf8(String value)
+        {
+            // worst case is three bytes per char (surrogate pairs use four bytes for two chars)
+            ensureCapacity(value.length() * 3);
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    buffer[size++] = (byte) c;
+                }
+                else if (c < 0x800) {
+                    buffer[size++] = (byte) (0xC0 | (c >> 6));
+                    buffer[size++] = (byte) (0x80 | (c & 0x3F));
+                }
+                else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer[size++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[size++] = (byte) (0x80 | (codePoint & 0x3F));
+                }
+                else if (Character.isSurrogate(c)) {
+                    // unpaired surrogate, encoded as '?' like String.getBytes
+                    buffer[size++] = '?';
+                }
+                else {
+                    buffer[size++] = (byte) (0xE0 | (c >> 12));
+                    buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buffer[size++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        private void ensureCapacity(int length)
+        {
+            if (size + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(size + length, buffer.length * 2));
+            }
+        }
     }
 }
@@ -0,0 +1,260 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.log;
+
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestAsyncLogWriter
+{
+    @Test(timeOut = 30_000)
+    public void testCloseDrainsQueueInOneBatch()
+    {
+        BlockingSink sink = new BlockingSink(false);
+        AsyncLogWriter writer = new AsyncLogWriter("test", 16, OverflowPolicy.BLOCK, new Duration(1, MINUTES), new Duration(10, SECONDS), sink, TestAsyncLogWriter::failOnError);
+        writer.write(bytes("a"), true);
+        writer.write(bytes("b"), false);
+        writer.write(bytes("c"), true);
+        writer.close();
+
+        assertEquals(sink.getContents(), "abc");
+        assertEquals(writer.getWrittenRecords(), 3);
+        assertEquals(writer.getWrittenBatches(), 1);
+        assertEquals(writer.getDroppedRecords(), 0);
+        assertEquals(writer.getQueueDepth(), 0);
+    }
+
+    @Test(timeOut = 30_000)
+    public void testDropDebugInfo()
+            throws Exception
+    {
+        BlockingSink sink = new BlockingSink(true);
+        AsyncLogWriter writer = new AsyncLogWriter("test", 8, OverflowPolicy.DROP_DEBUG_INFO, new Duration(0, MILLISECONDS), new Duration(10, SECONDS), sink, TestAsyncLogWriter::failOnError);
+        stallWriter(writer, sink);
+
+        // high water mark is 80% of capacity
+        for (int i = 0; i < 7; i++) {
+            writer.write(bytes("i"), true);
+        }
+        writer.write(bytes("x"), true);
+        writer.write(bytes("x"), true);
+        assertEquals(writer.getDroppedRecords(), 2);
+
+        // warnings are still accepted above the high water mark
+        writer.write(bytes("w"), false);
+        assertEquals(writer.getQueueDepth(), 8);
+
+        sink.release();
+        writer.close();
+        assertEquals(sink.getContents(), "-iiiiiiiw");
+        assertEquals(writer.getWrittenRecords(), 9);
+        assertEquals(writer.getDroppedRecords(), 2);
+    }
+
+    @Test(timeOut = 30_000)
+    public void testSample()
+            throws Exception
+    {
+        BlockingSink sink = new BlockingSink(true);
+        AsyncLogWriter writer = new AsyncLogWriter("test", 64, OverflowPolicy.SAMPLE, new Duration(0, MILLISECONDS), new Duration(10, SECONDS), sink, TestAsyncLogWriter::failOnError);
+        stallWriter(writer, sink);
+
+        for (int i = 0; i < 52; i++) {
+            writer.write(bytes("i"), true);
+        }
+        for (int i = 0; i < 2 * AsyncLogWriter.SAMPLE_RATE; i++) {
+            writer.write(bytes("s"), true);
+        }
+        assertEquals(writer.getQueueDepth(), 54);
+        assertEquals(writer.getDroppedRecords(), 2 * AsyncLogWriter.SAMPLE_RATE - 2);
+
+        sink.release();
+        writer.close();
+        assertEquals(writer.getWrittenRecords(), 55);
+    }
+
+    @Test(timeOut = 30_000)
+    public void testBlock()
+            throws Exception
+    {
+        BlockingSink sink = new BlockingSink(true);
+        AsyncLogWriter writer = new AsyncLogWriter("test", 4, OverflowPolicy.BLOCK, new Duration(0, MILLISECONDS), new Duration(10, SECONDS), sink, TestAsyncLogWriter::failOnError);
+        stallWriter(writer, sink);
+
+        for (int i = 0; i < 4; i++) {
+            writer.write(bytes("i"), true);
+        }
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> blocked = executor.submit(() -> writer.write(bytes("b"), true));
+            try {
+                blocked.get(200, MILLISECONDS);
+                fail("expected write to block on a full queue");
+            }
+            catch (TimeoutException expected) {
+            }
+
+            sink.release();
+            blocked.get(10, SECONDS);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        writer.close();
+        assertEquals(sink.getContents(), "-iiiib");
+        assertEquals(writer.getDroppedRecords(), 0);
+        assertTrue(writer.getMaxWriteLatency().toMillis() >= 200);
+    }
+
+    @Test(timeOut = 30_000)
+    public void testSinkFailureIsReported()
+    {
+        CountDownLatch reported = new CountDownLatch(1);
+        AsyncLogWriter writer = new AsyncLogWriter(
+                "test",
+                4,
+                OverflowPolicy.BLOCK,
+                new Duration(0, MILLISECONDS),
+                new Duration(10, SECONDS),
+                message -> {
+                    throw new IllegalStateException("disk full");
+                },
+                e -> reported.countDown());
+        writer.write(bytes("a"), false);
+        writer.close();
+
+        assertEquals(reported.getCount(), 0);
+        assertEquals(writer.getWrittenRecords(), 0);
+    }
+
+    @Test(timeOut = 30_000)
+    public void testCloseGivesUpAfterMaxFlushTime()
+            throws Exception
+    {
+        BlockingSink sink = new BlockingSink(true);
+        List<Exception> errors = new CopyOnWriteArrayList<>();
+        AsyncLogWriter writer = new AsyncLogWriter("test", 8, OverflowPolicy.BLOCK, new Duration(0, MILLISECONDS), new Duration(100, MILLISECONDS), sink, errors::add);
+        stallWriter(writer, sink);
+        writer.write(bytes("a"), false);
+        writer.write(bytes("b"), false);
+        writer.write(bytes("c"), false);
+
+        writer.close();
+        assertEquals(writer.getDroppedRecords(), 3);
+        assertEquals(errors.size(), 1);
+        assertTrue(errors.get(0) instanceof TimeoutException);
+
+        sink.release();
+    }
+
+    @Test(timeOut = 30_000)
+    public void testWriteAfterCloseIsDropped()
+    {
+        BlockingSink sink = new BlockingSink(false);
+        AsyncLogWriter writer = new AsyncLogWriter("test", 8, OverflowPolicy.BLOCK, new Duration(0, MILLISECONDS), new Duration(10, SECONDS), sink, TestAsyncLogWriter::failOnError);
+        writer.write(bytes("a"), false);
+        writer.close();
+
+        writer.write(bytes("b"), false);
+        assertEquals(sink.getContents(), "a");
+        assertEquals(writer.getWrittenRecords(), 1);
+        assertEquals(writer.getDroppedRecords(), 1);
+        assertEquals(writer.getQueueDepth(), 0);
+    }
+
+    private static void stallWriter(AsyncLogWriter writer, BlockingSink sink)
+            throws InterruptedException
+    {
+        writer.write(bytes("-"), false);
+        sink.awaitEntered();
+        assertEquals(writer.getQueueDepth(), 0);
+    }
+
+    private static byte[] bytes(String value)
+    {
+        return value.getBytes(UTF_8);
+    }
+
+    private static void failOnError(Exception e)
+    {
+        throw new AssertionError(e);
+    }
+
+    private static class BlockingSink
+            implements Consumer<byte[]>
+    {
+        private final ByteArrayOutputStream contents = new ByteArrayOutputStream();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch released;
+
+        private BlockingSink(boolean block)
+        {
+            released = new CountDownLatch(block ? 1 : 0);
+        }
+
+        @Override
+        public void accept(byte[] batch)
+        {
+            entered.countDown();
+            try {
+                released.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            synchronized (contents) {
+                contents.write(batch, 0, batch.length);
+            }
+        }
+
+        public void awaitEntered()
+                throws InterruptedException
+        {
+            entered.await();
+        }
+
+        public void release()
+        {
+            released.countDown();
+        }
+
+        public String getContents()
+        {
+            synchronized (contents) {
+                return new String(contents.toByteArray(), UTF_8);
+            }
+        }
+    }
+}
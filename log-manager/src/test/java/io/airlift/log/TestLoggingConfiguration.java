@@ -16,11 +16,14 @@ package io.airlift.log;
 import com.google.common.collect.ImmutableMap;
 import io.airlift.configuration.testing.ConfigAssertions;
 import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
 import org.testng.annotations.Test;
 
 import java.util.Map;
 
 import static io.airlift.units.DataSize.Unit.KILOBYTE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 @SuppressWarnings("deprecation")
 public class TestLoggingConfiguration
@@ -34,7 +37,11 @@ public class TestLoggingConfiguration
                 .setMaxSize(new DataSize(100, DataSize.Unit.MEGABYTE))
                 .setMaxSizeInBytes(new DataSize(100, DataSize.Unit.MEGABYTE).toBytes())
                 .setMaxHistory(30)
-                .setLevelsFile(null));
+                .setLevelsFile(null)
+                .setAsyncQueueSize(256)
+                .setAsyncOverflowPolicy(OverflowPolicy.BLOCK)
+                .setAsyncFlushInterval(new Duration(0, MILLISECONDS))
+                .setAsyncMaxFlushTime(new Duration(1, SECONDS)));
     }
 
     @Test
@@ -47,6 +54,10 @@ public class TestLoggingConfiguration
                 .put("log.max-size-in-bytes", "1024")
                 .put("log.max-history", "3")
                 .put("log.levels-file", "/tmp/levels.txt")
+                .put("log.async.queue-size", "4096")
+                .put("log.async.overflow-policy", "SAMPLE")
+                .put("log.async.flush-interval", "50ms")
+                .put("log.async.max-flush-time", "5s")
                 .build();
 
         LoggingConfiguration expected = new LoggingConfiguration()
@@ -55,7 +66,11 @@ public class TestLoggingConfiguration
                 .setMaxSize(new DataSize(1, KILOBYTE))
                 .setMaxSizeInBytes(1024)
                 .setMaxHistory(3)
-                .setLevelsFile("/tmp/levels.txt");
+                .setLevelsFile("/tmp/levels.txt")
+                .setAsyncQueueSize(4096)
+                .setAsyncOverflowPolicy(OverflowPolicy.SAMPLE)
+                .setAsyncFlushInterval(new Duration(50, MILLISECONDS))
+                .setAsyncMaxFlushTime(new Duration(5, SECONDS));
 
         ConfigAssertions.assertFullMapping(properties, expected);
     }
@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.log;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestMpscRingBuffer
+{
+    @Test
+    public void testCapacityRoundedToPowerOfTwo()
+    {
+        assertEquals(new MpscRingBuffer<>(1).capacity(), 1);
+        assertEquals(new MpscRingBuffer<>(5).capacity(), 8);
+        assertEquals(new MpscRingBuffer<>(1024).capacity(), 1024);
+    }
+
+    @Test
+    public void testOfferAndPoll()
+    {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.poll());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(buffer.size(), 4);
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(buffer.poll(), (Integer) i);
+        }
+        assertNull(buffer.poll());
+
+        // wrap around
+        assertTrue(buffer.offer(5));
+        assertEquals(buffer.poll(), (Integer) 5);
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test(timeOut = 30_000)
+    public void testConcurrentProducers()
+            throws Exception
+    {
+        int producers = 4;
+        int perProducer = 100_000;
+        MpscRingBuffer<Long> buffer = new MpscRingBuffer<>(64);
+
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int producer = 0; producer < producers; producer++) {
+                long id = producer;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (long i = 0; i < perProducer; i++) {
+                        while (!buffer.offer((id << 32) | i)) {
+                            Thread.yield();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            // elements from each producer must arrive in the order they were offered
+            long[] next = new long[producers];
+            for (int received = 0; received < producers * perProducer; ) {
+                Long value = buffer.poll();
+                if (value == null) {
+                    Thread.yield();
+                    continue;
+                }
+                int producer = (int) (value >>> 32);
+                assertEquals(value & 0xFFFF_FFFFL, next[producer]);
+                next[producer]++;
+                received++;
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertTrue(buffer.isEmpty());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+}
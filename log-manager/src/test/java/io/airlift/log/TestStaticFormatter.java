@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.log;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.util.logging.LogRecord;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+
+public class TestStaticFormatter
+{
+    private static final DateTimeFormatter EXPECTED_TIMESTAMP = new DateTimeFormatterBuilder()
+            .appendPattern("yyyy-MM-dd'T'HH:mm:ss.SSS")
+            .appendOffset("+HHMM", "Z")
+            .toFormatter();
+
+    private final StaticFormatter formatter = new StaticFormatter();
+
+    @Test
+    public void testFormat()
+    {
+        long now = System.currentTimeMillis();
+        // same second, next second, and a different day
+        for (long millis : new long[] {now, now + 1, now + 1000, now - 86_400_000L, 0, 999}) {
+            LogRecord record = record(java.util.logging.Level.INFO, "hello world", millis);
+            assertEquals(formatter.format(record), expected(record));
+        }
+    }
+
+    @Test
+    public void testNonAsciiMessage()
+    {
+        // two and three byte characters, a surrogate pair, and an unpaired surrogate
+        LogRecord record = record(java.util.logging.Level.WARNING, "café € 😀 \ud800 done", System.currentTimeMillis());
+        String expected = expected(record);
+
+        assertEquals(formatter.formatToBuffer(record).toByteArray(), expected.getBytes(UTF_8));
+    }
+
+    @Test
+    public void testThrowable()
+    {
+        LogRecord record = record(java.util.logging.Level.SEVERE, "failed", System.currentTimeMillis());
+        record.setThrown(new IllegalStateException("broken"));
+
+        assertEquals(formatter.format(record), expected(record));
+    }
+
+    @Test
+    public void testLargeRecord()
+            throws IOException
+    {
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            message.append((char) ('a' + i % 26));
+        }
+        LogRecord large = record(java.util.logging.Level.FINE, message.toString(), System.currentTimeMillis());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        formatter.formatToBuffer(large).writeTo(out);
+        assertEquals(out.toString(UTF_8.name()), expected(large));
+
+        // buffer is reset for the following record on this thread
+        LogRecord small = record(java.util.logging.Level.FINE, "small", System.currentTimeMillis());
+        assertEquals(formatter.format(small), expected(small));
+    }
+
+    private static LogRecord record(java.util.logging.Level level, String message, long millis)
+    {
+        LogRecord record = new LogRecord(level, message);
+        record.setLoggerName("test.logger");
+        record.setMillis(millis);
+        return record;
+    }
+
+    private static String expected(LogRecord record)
+    {
+        ZonedDateTime timestamp = ZonedDateTime.ofInstant(Instant.ofEpochMilli(record.getMillis()), ZoneId.systemDefault());
+        StringWriter stringWriter = new StringWriter()
+                .append(EXPECTED_TIMESTAMP.format(timestamp))
+                .append('\t')
+                .append(Level.fromJulLevel(record.getLevel()).name())
+                .append('\t')
+                .append(Thread.currentThread().getName())
+                .append('\t')
+                .append(record.getLoggerName())
+                .append('\t')
+                .append(record.getMessage());
+        if (record.getThrown() != null) {
+            stringWriter.append('\n');
+            record.getThrown().printStackTrace(new PrintWriter(stringWriter));
+            stringWriter.append('\n');
+        }
+        stringWriter.append('\n');
+        return stringWriter.toString();
+    }
+}
@@ -16,6 +16,7 @@
 package io.airlift.log;
 
 import java.util.IllegalFormatException;
+import java.util.function.Supplier;
 
 import static java.lang.String.format;
 import static java.util.Arrays.asList;
@@ -59,6 +60,9 @@ public class Logger
     /**
      * Logs a message at DEBUG level.
      *
+     * A literal {@code null} exception is ambiguous with {@link #debug(String, Object)},
+     * so pass a typed {@code Throwable}.
+     *
      * @param exception an exception associated with the debug message being logged
      * @param message a literal message to log
      */
@@ -93,15 +97,7 @@ public class Logger
     public void debug(String format, Object... args)
     {
         if (logger.isLoggable(FINE)) {
-            String message;
-            try {
-                message = format(format, args);
-            }
-            catch (IllegalFormatException e) {
-                logger.log(SEVERE, illegalFormatMessageFor("DEBUG", format, args), e);
-                message = rawMessageFor(format, args);
-            }
-            logger.fine(message);
+            logFormatted(FINE, "DEBUG", null, format, args);
         }
     }
 
@@ -122,15 +118,168 @@ public class Logger
     public void debug(Throwable exception, String format, Object... args)
     {
         if (logger.isLoggable(FINE)) {
-            String message;
-            try {
-                message = format(format, args);
-            }
-            catch (IllegalFormatException e) {
-                logger.log(SEVERE, illegalFormatMessageFor("DEBUG", format, args), e);
-                message = rawMessageFor(format, args);
-            }
-            logger.log(FINE, message, exception);
+            logFormatted(FINE, "DEBUG", exception, format, args);
+        }
+    }
+
+    /**
+     * Logs a message at DEBUG level. Unlike {@link #debug(String, Object...)}, nothing
+     * is allocated at the call site, so a disabled statement costs only the level check.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void debug(String format, Object arg)
+    {
+        if (logger.isLoggable(FINE)) {
+            logFormatted(FINE, "DEBUG", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at DEBUG level. Unlike {@link #debug(String, Object...)}, nothing
+     * is allocated at the call site, so a disabled statement costs only the level check.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg1 the first argument for the format string
+     * @param arg2 the second argument for the format string
+     */
+    public void debug(String format, Object arg1, Object arg2)
+    {
+        if (logger.isLoggable(FINE)) {
+            logFormatted(FINE, "DEBUG", null, format, new Object[] {arg1, arg2});
+        }
+    }
+
+    /**
+     * Logs a message at DEBUG level. Unlike {@link #debug(String, Object...)}, nothing
+     * is allocated at the call site, so a disabled statement costs only the level check.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg1 the first argument for the format string
+     * @param arg2 the second argument for the format string
+     * @param arg3 the third argument for the format string
+     */
+    public void debug(String format, Object arg1, Object arg2, Object arg3)
+    {
+        if (logger.isLoggable(FINE)) {
+            logFormatted(FINE, "DEBUG", null, format, new Object[] {arg1, arg2, arg3});
+        }
+    }
+
+    /**
+     * Logs a message at DEBUG level. The char argument is only boxed if DEBUG is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void debug(String format, char arg)
+    {
+        if (logger.isLoggable(FINE)) {
+            logFormatted(FINE, "DEBUG", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at DEBUG level. The byte argument is only boxed if DEBUG is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void debug(String format, byte arg)
+    {
+        if (logger.isLoggable(FINE)) {
+            logFormatted(FINE, "DEBUG", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at DEBUG level. The short argument is only boxed if DEBUG is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void debug(String format, short arg)
+    {
+        if (logger.isLoggable(FINE)) {
+            logFormatted(FINE, "DEBUG", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at DEBUG level. The int argument is only boxed if DEBUG is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void debug(String format, int arg)
+    {
+        if (logger.isLoggable(FINE)) {
+            logFormatted(FINE, "DEBUG", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at DEBUG level. The long argument is only boxed if DEBUG is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void debug(String format, long arg)
+    {
+        if (logger.isLoggable(FINE)) {
+            logFormatted(FINE, "DEBUG", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at DEBUG level. The float argument is only boxed if DEBUG is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void debug(String format, float arg)
+    {
+        if (logger.isLoggable(FINE)) {
+            logFormatted(FINE, "DEBUG", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at DEBUG level. The double argument is only boxed if DEBUG is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void debug(String format, double arg)
+    {
+        if (logger.isLoggable(FINE)) {
+            logFormatted(FINE, "DEBUG", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at DEBUG level. The supplier is only called if DEBUG is enabled.
+     *
+     * @param message supplies the literal message to log
+     */
+    public void debug(Supplier<String> message)
+    {
+        if (logger.isLoggable(FINE)) {
+            logger.log(FINE, message.get());
+        }
+    }
+
+    /**
+     * Logs a message at DEBUG level. The supplier is only called if DEBUG is enabled.
+     *
+     * @param exception an exception associated with the message being logged
+     * @param message supplies the literal message to log
+     */
+    public void debug(Throwable exception, Supplier<String> message)
+    {
+        if (logger.isLoggable(FINE)) {
+            logger.log(FINE, message.get(), exception);
         }
     }
 
@@ -160,21 +309,164 @@ public class Logger
     public void info(String format, Object... args)
     {
         if (logger.isLoggable(INFO)) {
-            String message;
-            try {
-                message = format(format, args);
-            }
-            catch (IllegalFormatException e) {
-                logger.log(SEVERE, illegalFormatMessageFor("INFO", format, args), e);
-                message = rawMessageFor(format, args);
-            }
-            logger.info(message);
+            logFormatted(INFO, "INFO", null, format, args);
+        }
+    }
+
+    /**
+     * Logs a message at INFO level. Unlike {@link #info(String, Object...)}, nothing
+     * is allocated at the call site, so a disabled statement costs only the level check.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void info(String format, Object arg)
+    {
+        if (logger.isLoggable(INFO)) {
+            logFormatted(INFO, "INFO", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at INFO level. Unlike {@link #info(String, Object...)}, nothing
+     * is allocated at the call site, so a disabled statement costs only the level check.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg1 the first argument for the format string
+     * @param arg2 the second argument for the format string
+     */
+    public void info(String format, Object arg1, Object arg2)
+    {
+        if (logger.isLoggable(INFO)) {
+            logFormatted(INFO, "INFO", null, format, new Object[] {arg1, arg2});
+        }
+    }
+
+    /**
+     * Logs a message at INFO level. Unlike {@link #info(String, Object...)}, nothing
+     * is allocated at the call site, so a disabled statement costs only the level check.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg1 the first argument for the format string
+     * @param arg2 the second argument for the format string
+     * @param arg3 the third argument for the format string
+     */
+    public void info(String format, Object arg1, Object arg2, Object arg3)
+    {
+        if (logger.isLoggable(INFO)) {
+            logFormatted(INFO, "INFO", null, format, new Object[] {arg1, arg2, arg3});
+        }
+    }
+
+    /**
+     * Logs a message at INFO level. The char argument is only boxed if INFO is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void info(String format, char arg)
+    {
+        if (logger.isLoggable(INFO)) {
+            logFormatted(INFO, "INFO", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at INFO level. The byte argument is only boxed if INFO is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void info(String format, byte arg)
+    {
+        if (logger.isLoggable(INFO)) {
+            logFormatted(INFO, "INFO", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at INFO level. The short argument is only boxed if INFO is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void info(String format, short arg)
+    {
+        if (logger.isLoggable(INFO)) {
+            logFormatted(INFO, "INFO", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at INFO level. The int argument is only boxed if INFO is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void info(String format, int arg)
+    {
+        if (logger.isLoggable(INFO)) {
+            logFormatted(INFO, "INFO", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at INFO level. The long argument is only boxed if INFO is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void info(String format, long arg)
+    {
+        if (logger.isLoggable(INFO)) {
+            logFormatted(INFO, "INFO", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at INFO level. The float argument is only boxed if INFO is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void info(String format, float arg)
+    {
+        if (logger.isLoggable(INFO)) {
+            logFormatted(INFO, "INFO", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at INFO level. The double argument is only boxed if INFO is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void info(String format, double arg)
+    {
+        if (logger.isLoggable(INFO)) {
+            logFormatted(INFO, "INFO", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at INFO level. The supplier is only called if INFO is enabled.
+     *
+     * @param message supplies the literal message to log
+     */
+    public void info(Supplier<String> message)
+    {
+        if (logger.isLoggable(INFO)) {
+            logger.log(INFO, message.get());
         }
     }
 
     /**
      * Logs a message at WARN level.
      *
+     * A literal {@code null} exception is ambiguous with {@link #warn(String, Object)},
+     * so pass a typed {@code Throwable}.
+     *
      * @param exception an exception associated with the warning being logged
      * @param message a literal message to log
      */
@@ -210,15 +502,7 @@ public class Logger
     public void warn(Throwable exception, String format, Object... args)
     {
         if (logger.isLoggable(WARNING)) {
-            String message;
-            try {
-                message = format(format, args);
-            }
-            catch (IllegalFormatException e) {
-                logger.log(SEVERE, illegalFormatMessageFor("WARN", format, args), e);
-                message = rawMessageFor(format, args);
-            }
-            logger.log(WARNING, message, exception);
+            logFormatted(WARNING, "WARN", exception, format, args);
         }
     }
 
@@ -237,12 +521,176 @@ public class Logger
      */
     public void warn(String format, Object... args)
     {
-        warn(null, format, args);
+        warn((Throwable) null, format, args);
+    }
+
+    /**
+     * Logs a message at WARN level. Unlike {@link #warn(String, Object...)}, nothing
+     * is allocated at the call site, so a disabled statement costs only the level check.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void warn(String format, Object arg)
+    {
+        if (logger.isLoggable(WARNING)) {
+            logFormatted(WARNING, "WARN", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at WARN level. Unlike {@link #warn(String, Object...)}, nothing
+     * is allocated at the call site, so a disabled statement costs only the level check.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg1 the first argument for the format string
+     * @param arg2 the second argument for the format string
+     */
+    public void warn(String format, Object arg1, Object arg2)
+    {
+        if (logger.isLoggable(WARNING)) {
+            logFormatted(WARNING, "WARN", null, format, new Object[] {arg1, arg2});
+        }
+    }
+
+    /**
+     * Logs a message at WARN level. Unlike {@link #warn(String, Object...)}, nothing
+     * is allocated at the call site, so a disabled statement costs only the level check.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg1 the first argument for the format string
+     * @param arg2 the second argument for the format string
+     * @param arg3 the third argument for the format string
+     */
+    public void warn(String format, Object arg1, Object arg2, Object arg3)
+    {
+        if (logger.isLoggable(WARNING)) {
+            logFormatted(WARNING, "WARN", null, format, new Object[] {arg1, arg2, arg3});
+        }
+    }
+
+    /**
+     * Logs a message at WARN level. The char argument is only boxed if WARN is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void warn(String format, char arg)
+    {
+        if (logger.isLoggable(WARNING)) {
+            logFormatted(WARNING, "WARN", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at WARN level. The byte argument is only boxed if WARN is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void warn(String format, byte arg)
+    {
+        if (logger.isLoggable(WARNING)) {
+            logFormatted(WARNING, "WARN", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at WARN level. The short argument is only boxed if WARN is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void warn(String format, short arg)
+    {
+        if (logger.isLoggable(WARNING)) {
+            logFormatted(WARNING, "WARN", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at WARN level. The int argument is only boxed if WARN is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void warn(String format, int arg)
+    {
+        if (logger.isLoggable(WARNING)) {
+            logFormatted(WARNING, "WARN", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at WARN level. The long argument is only boxed if WARN is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void warn(String format, long arg)
+    {
+        if (logger.isLoggable(WARNING)) {
+            logFormatted(WARNING, "WARN", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at WARN level. The float argument is only boxed if WARN is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void warn(String format, float arg)
+    {
+        if (logger.isLoggable(WARNING)) {
+            logFormatted(WARNING, "WARN", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at WARN level. The double argument is only boxed if WARN is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void warn(String format, double arg)
+    {
+        if (logger.isLoggable(WARNING)) {
+            logFormatted(WARNING, "WARN", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at WARN level. The supplier is only called if WARN is enabled.
+     *
+     * @param message supplies the literal message to log
+     */
+    public void warn(Supplier<String> message)
+    {
+        if (logger.isLoggable(WARNING)) {
+            logger.log(WARNING, message.get());
+        }
+    }
+
+    /**
+     * Logs a message at WARN level. The supplier is only called if WARN is enabled.
+     *
+     * @param exception an exception associated with the message being logged
+     * @param message supplies the literal message to log
+     */
+    public void warn(Throwable exception, Supplier<String> message)
+    {
+        if (logger.isLoggable(WARNING)) {
+            logger.log(WARNING, message.get(), exception);
+        }
     }
 
     /**
      * Logs a message at ERROR level.
      *
+     * A literal {@code null} exception is ambiguous with {@link #error(String, Object)},
+     * so pass a typed {@code Throwable}.
+     *
      * @param exception an exception associated with the error being logged
      * @param message a literal message to log
      */
@@ -278,15 +726,7 @@ public class Logger
     public void error(Throwable exception, String format, Object... args)
     {
         if (logger.isLoggable(SEVERE)) {
-            String message;
-            try {
-                message = format(format, args);
-            }
-            catch (IllegalFormatException e) {
-                logger.log(SEVERE, illegalFormatMessageFor("ERROR", format, args), e);
-                message = rawMessageFor(format, args);
-            }
-            logger.log(SEVERE, message, exception);
+            logFormatted(SEVERE, "ERROR", exception, format, args);
         }
     }
 
@@ -322,7 +762,168 @@ public class Logger
      */
     public void error(String format, Object... args)
     {
-        error(null, format, args);
+        error((Throwable) null, format, args);
+    }
+
+    /**
+     * Logs a message at ERROR level. Unlike {@link #error(String, Object...)}, nothing
+     * is allocated at the call site, so a disabled statement costs only the level check.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void error(String format, Object arg)
+    {
+        if (logger.isLoggable(SEVERE)) {
+            logFormatted(SEVERE, "ERROR", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at ERROR level. Unlike {@link #error(String, Object...)}, nothing
+     * is allocated at the call site, so a disabled statement costs only the level check.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg1 the first argument for the format string
+     * @param arg2 the second argument for the format string
+     */
+    public void error(String format, Object arg1, Object arg2)
+    {
+        if (logger.isLoggable(SEVERE)) {
+            logFormatted(SEVERE, "ERROR", null, format, new Object[] {arg1, arg2});
+        }
+    }
+
+    /**
+     * Logs a message at ERROR level. Unlike {@link #error(String, Object...)}, nothing
+     * is allocated at the call site, so a disabled statement costs only the level check.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg1 the first argument for the format string
+     * @param arg2 the second argument for the format string
+     * @param arg3 the third argument for the format string
+     */
+    public void error(String format, Object arg1, Object arg2, Object arg3)
+    {
+        if (logger.isLoggable(SEVERE)) {
+            logFormatted(SEVERE, "ERROR", null, format, new Object[] {arg1, arg2, arg3});
+        }
+    }
+
+    /**
+     * Logs a message at ERROR level. The char argument is only boxed if ERROR is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void error(String format, char arg)
+    {
+        if (logger.isLoggable(SEVERE)) {
+            logFormatted(SEVERE, "ERROR", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at ERROR level. The byte argument is only boxed if ERROR is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void error(String format, byte arg)
+    {
+        if (logger.isLoggable(SEVERE)) {
+            logFormatted(SEVERE, "ERROR", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at ERROR level. The short argument is only boxed if ERROR is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void error(String format, short arg)
+    {
+        if (logger.isLoggable(SEVERE)) {
+            logFormatted(SEVERE, "ERROR", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at ERROR level. The int argument is only boxed if ERROR is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void error(String format, int arg)
+    {
+        if (logger.isLoggable(SEVERE)) {
+            logFormatted(SEVERE, "ERROR", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at ERROR level. The long argument is only boxed if ERROR is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void error(String format, long arg)
+    {
+        if (logger.isLoggable(SEVERE)) {
+            logFormatted(SEVERE, "ERROR", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at ERROR level. The float argument is only boxed if ERROR is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void error(String format, float arg)
+    {
+        if (logger.isLoggable(SEVERE)) {
+            logFormatted(SEVERE, "ERROR", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at ERROR level. The double argument is only boxed if ERROR is enabled.
+     *
+     * @param format a format string compatible with String.format()
+     * @param arg the argument for the format string
+     */
+    public void error(String format, double arg)
+    {
+        if (logger.isLoggable(SEVERE)) {
+            logFormatted(SEVERE, "ERROR", null, format, new Object[] {arg});
+        }
+    }
+
+    /**
+     * Logs a message at ERROR level. The supplier is only called if ERROR is enabled.
+     *
+     * @param message supplies the literal message to log
+     */
+    public void error(Supplier<String> message)
+    {
+        if (logger.isLoggable(SEVERE)) {
+            logger.log(SEVERE, message.get());
+        }
+    }
+
+    /**
+     * Logs a message at ERROR level. The supplier is only called if ERROR is enabled.
+     *
+     * @param exception an exception associated with the message being logged
+     * @param message supplies the literal message to log
+     */
+    public void error(Throwable exception, Supplier<String> message)
+    {
+        if (logger.isLoggable(SEVERE)) {
+            logger.log(SEVERE, message.get(), exception);
+        }
     }
 
     public boolean isDebugEnabled()
@@ -335,6 +936,19 @@ public class Logger
         return logger.isLoggable(INFO);
     }
 
+    private void logFormatted(java.util.logging.Level level, String levelName, Throwable exception, String format, Object[] args)
+    {
+        String message;
+        try {
+            message = MessageFormatter.format(format, args);
+        }
+        catch (IllegalFormatException e) {
+            logger.log(SEVERE, illegalFormatMessageFor(levelName, format, args), e);
+            message = rawMessageFor(format, args);
+        }
+        logger.log(level, message, exception);
+    }
+
     private String illegalFormatMessageFor(String level, String message, Object... args)
     {
         return format("Invalid format string while trying to log: %s '%s' %s", level, message, asList(args));
@@ -0,0 +1,100 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.log;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Formattable;
+import java.util.Locale;
+
+import static java.util.Locale.Category.FORMAT;
+
+/**
+ * Formats log messages with the same output as {@link String#format}, with a
+ * fast path for the plain {@code %s}, {@code %d}, {@code %n} and {@code %%}
+ * specifiers. Any other specifier, flag or width falls back to {@code String.format}.
+ */
+final class MessageFormatter
+{
+    private static volatile LocaleDigits localeDigits = new LocaleDigits(null, false);
+
+    private MessageFormatter() {}
+
+    public static String format(String format, Object... args)
+    {
+        StringBuilder builder = new StringBuilder(format.length() + 16 * args.length);
+        int argIndex = 0;
+        int start = 0;
+        for (int index = format.indexOf('%'); index >= 0; index = format.indexOf('%', start)) {
+            if (index + 1 == format.length()) {
+                return String.format(format, args);
+            }
+            builder.append(format, start, index);
+            start = index + 2;
+
+            char conversion = format.charAt(index + 1);
+            if (conversion == '%') {
+                builder.append('%');
+                continue;
+            }
+            if (conversion == 'n') {
+                builder.append(System.lineSeparator());
+                continue;
+            }
+            if (argIndex == args.length) {
+                return String.format(format, args);
+            }
+            Object arg = args[argIndex++];
+            if (conversion == 's' && !(arg instanceof Formattable)) {
+                builder.append(arg);
+            }
+            else if (conversion == 'd' && isFixedPointInteger(arg) && hasAsciiDigits()) {
+                builder.append(((Number) arg).longValue());
+            }
+            else {
+                return String.format(format, args);
+            }
+        }
+        builder.append(format, start, format.length());
+        return builder.toString();
+    }
+
+    private static boolean isFixedPointInteger(Object arg)
+    {
+        return arg instanceof Integer || arg instanceof Long || arg instanceof Short || arg instanceof Byte;
+    }
+
+    private static boolean hasAsciiDigits()
+    {
+        // String.format localizes digits, so only use the fast path when they are plain ASCII
+        Locale locale = Locale.getDefault(FORMAT);
+        LocaleDigits digits = localeDigits;
+        if (digits.locale != locale) {
+            digits = new LocaleDigits(locale, DecimalFormatSymbols.getInstance(locale).getZeroDigit() == '0');
+            localeDigits = digits;
+        }
+        return digits.ascii;
+    }
+
+    private static final class LocaleDigits
+    {
+        private final Locale locale;
+        private final boolean ascii;
+
+        private LocaleDigits(Locale locale, boolean ascii)
+        {
+            this.locale = locale;
+            this.ascii = ascii;
+        }
+    }
+}
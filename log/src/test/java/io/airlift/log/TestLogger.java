@@ -129,6 +129,106 @@ public class TestLogger
         assertLog(Level.SEVERE, exception2.getMessage(), exception2);
     }
 
+    @Test
+    public void testFixedArityFormat()
+    {
+        logger.debug("%s", "one");
+        assertLog(Level.FINE, "one");
+        logger.info("%s %s", "one", "two");
+        assertLog(Level.INFO, "one two");
+        logger.warn("%s %s %s", "one", "two", "three");
+        assertLog(Level.WARNING, "one two three");
+        logger.error("%s %s %s %s", "one", "two", "three", "four");
+        assertLog(Level.SEVERE, "one two three four");
+    }
+
+    @Test
+    public void testPrimitiveFormat()
+    {
+        logger.debug("%c", 'x');
+        assertLog(Level.FINE, "x");
+        logger.info("%d", 42);
+        assertLog(Level.INFO, "42");
+        logger.warn("%d ms", 1234567890123L);
+        assertLog(Level.WARNING, "1234567890123 ms");
+        logger.error("%s", 1.5f);
+        assertLog(Level.SEVERE, "1.5");
+        logger.info("%.2f", 2.0 / 3);
+        assertLog(Level.INFO, "0.67");
+
+        // byte and short are not widened to int
+        logger.info("%x", (byte) -1);
+        assertLog(Level.INFO, "ff");
+        logger.warn("%x", (short) -1);
+        assertLog(Level.WARNING, "ffff");
+    }
+
+    @Test
+    public void testNullThrowable()
+    {
+        Throwable exception = null;
+        logger.warn(exception, "hello");
+        assertLog(Level.WARNING, "hello");
+        logger.error(exception, "hello");
+        assertLog(Level.SEVERE, "hello");
+        logger.debug(exception, "hello");
+        assertLog(Level.FINE, "hello");
+    }
+
+    @Test
+    public void testNullBoxedArgument()
+    {
+        // a boxed argument must not be unboxed into a primitive overload
+        Integer value = null;
+        logger.debug("value %s", value);
+        assertLog(Level.FINE, "value null");
+        logger.info("value %s", value);
+        assertLog(Level.INFO, "value null");
+        logger.warn("value %s", value);
+        assertLog(Level.WARNING, "value null");
+        logger.error("value %s", value);
+        assertLog(Level.SEVERE, "value null");
+
+        Long disabled = null;
+        inner.setLevel(Level.OFF);
+        logger.debug("value %s", disabled);
+    }
+
+    @Test
+    public void testSupplier()
+    {
+        logger.debug(() -> "debug");
+        assertLog(Level.FINE, "debug");
+        logger.info(() -> "info");
+        assertLog(Level.INFO, "info");
+        logger.warn(() -> "warn");
+        assertLog(Level.WARNING, "warn");
+        logger.error(() -> "error");
+        assertLog(Level.SEVERE, "error");
+
+        Throwable exception = new Throwable();
+        logger.debug(exception, () -> "debug");
+        assertLog(Level.FINE, "debug", exception);
+        logger.warn(exception, () -> "warn");
+        assertLog(Level.WARNING, "warn", exception);
+        logger.error(exception, () -> "error");
+        assertLog(Level.SEVERE, "error", exception);
+    }
+
+    @Test
+    public void testSupplierShortCircuit()
+    {
+        inner.setLevel(Level.OFF);
+        Throwable exception = new Throwable();
+        logger.debug(() -> { throw new AssertionError("should not be called"); });
+        logger.info(() -> { throw new AssertionError("should not be called"); });
+        logger.warn(exception, () -> { throw new AssertionError("should not be called"); });
+        logger.error(exception, () -> { throw new AssertionError("should not be called"); });
+        logger.debug("%d", 42);
+        logger.info("%s %s", "a", "b");
+        assertTrue(handler.isEmpty());
+    }
+
     @Test
     public void testDebugShortCircuit()
     {
@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.log;
+
+import org.testng.annotations.Test;
+
+import java.util.Formattable;
+import java.util.Formatter;
+import java.util.Locale;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+public class TestMessageFormatter
+{
+    @Test
+    public void testMatchesStringFormat()
+    {
+        assertSameAsStringFormat("no specifiers");
+        assertSameAsStringFormat("");
+        assertSameAsStringFormat("%s", "value");
+        assertSameAsStringFormat("value is %s (%d ms)", "abc", 42L);
+        assertSameAsStringFormat("%s%s%s", "a", null, 'c');
+        assertSameAsStringFormat("%d %d %d %d", 1, -2L, (short) 3, (byte) -4);
+        assertSameAsStringFormat("100%% done%n");
+        assertSameAsStringFormat("extra args %s", "a", "b");
+        assertSameAsStringFormat("array %s", (Object) new int[] {1});
+        assertSameAsStringFormat("trailing text after %s here", 1.5);
+
+        // these use the String.format fallback
+        assertSameAsStringFormat("%5d|%-5s|%x|%S", 42, "ab", 255, "up");
+        assertSameAsStringFormat("%2$s %1$s", "a", "b");
+        assertSameAsStringFormat("%.2f", 3.14159);
+        assertSameAsStringFormat("%d", 12345678901234L);
+        assertSameAsStringFormat("%s", new TestingFormattable());
+    }
+
+    @Test
+    public void testLocalizedDigits()
+    {
+        Locale original = Locale.getDefault(Locale.Category.FORMAT);
+        try {
+            Locale.setDefault(Locale.Category.FORMAT, Locale.forLanguageTag("ar-SA-u-nu-arab"));
+            assertSameAsStringFormat("count %d", 123);
+        }
+        finally {
+            Locale.setDefault(Locale.Category.FORMAT, original);
+        }
+        assertSameAsStringFormat("count %d", 123);
+    }
+
+    @Test
+    public void testInvalidFormats()
+    {
+        assertInvalid("%d", "not a number");
+        assertInvalid("%s %s", "one");
+        assertInvalid("dangling %");
+        assertInvalid("%d", (Object) null, "extra");
+    }
+
+    private static void assertSameAsStringFormat(String format, Object... args)
+    {
+        assertEquals(MessageFormatter.format(format, args), String.format(format, args));
+    }
+
+    private static void assertInvalid(String format, Object... args)
+    {
+        try {
+            String.format(format, args);
+        }
+        catch (IllegalArgumentException expected) {
+            try {
+                MessageFormatter.format(format, args);
+                fail("expected IllegalArgumentException for " + format);
+            }
+            catch (IllegalArgumentException e) {
+                assertEquals(e.getClass(), expected.getClass());
+            }
+            return;
+        }
+        assertSameAsStringFormat(format, args);
+    }
+
+    private static class TestingFormattable
+            implements Formattable
+    {
+        @Override
+        public void formatTo(Formatter formatter, int flags, int width, int precision)
+        {
+            formatter.format("formatted");
+        }
+
+        @Override
+        public String toString()
+        {
+            return "toString";
+        }
+    }
+}
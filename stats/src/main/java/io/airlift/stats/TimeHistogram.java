@@ -0,0 +1,255 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats;
+
+import com.google.common.base.Ticker;
+import io.airlift.units.Duration;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * A distribution of durations for hot paths. Unlike {@link TimeStat}, recording
+ * a value is wait-free: it increments a counter in an HdrHistogram {@link Recorder}.
+ * Recorded values are folded into the all-time and one-minute histograms when they
+ * are read, at most once per second. Percentiles are accurate to two significant digits.
+ */
+@ThreadSafe
+public class TimeHistogram
+{
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final long REFRESH_NANOS = SECONDS.toNanos(1);
+    private static final long WINDOW_NANOS = MINUTES.toNanos(1);
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final Ticker ticker;
+    private final TimeUnit unit;
+
+    private final Distribution oneMinute = new Distribution(true);
+    private final Distribution allTime = new Distribution(false);
+
+    @GuardedBy("this")
+    private final Histogram allTimeHistogram = new Histogram(SIGNIFICANT_DIGITS);
+    @GuardedBy("this")
+    private final Deque<Interval> recentIntervals = new ArrayDeque<>();
+    @GuardedBy("this")
+    private Histogram oneMinuteHistogram = new Histogram(SIGNIFICANT_DIGITS);
+    @GuardedBy("this")
+    private long lastRefreshNanos;
+
+    public TimeHistogram()
+    {
+        this(Ticker.systemTicker(), SECONDS);
+    }
+
+    public TimeHistogram(TimeUnit unit)
+    {
+        this(Ticker.systemTicker(), unit);
+    }
+
+    public TimeHistogram(Ticker ticker, TimeUnit unit)
+    {
+        this.ticker = requireNonNull(ticker, "ticker is null");
+        this.unit = requireNonNull(unit, "unit is null");
+        lastRefreshNanos = ticker.read();
+    }
+
+    public void add(long value, TimeUnit timeUnit)
+    {
+        addNanos(timeUnit.toNanos(value));
+    }
+
+    public void add(Duration duration)
+    {
+        addNanos(duration.roundTo(NANOSECONDS));
+    }
+
+    public void addNanos(long nanos)
+    {
+        recorder.recordValue(Math.max(nanos, 0));
+    }
+
+    @Managed
+    @Nested
+    public Distribution getOneMinute()
+    {
+        return oneMinute;
+    }
+
+    @Managed
+    @Nested
+    public Distribution getAllTime()
+    {
+        return allTime;
+    }
+
+    private synchronized Histogram getHistogram(boolean recent)
+    {
+        long now = ticker.read();
+        if (now - lastRefreshNanos >= REFRESH_NANOS) {
+            refresh(now);
+        }
+        return recent ? oneMinuteHistogram : allTimeHistogram;
+    }
+
+    /**
+     * Folds the values recorded since the last call into the histograms,
+     * regardless of when the histograms were last refreshed.
+     */
+    public synchronized void flush()
+    {
+        refresh(ticker.read());
+    }
+
+    @GuardedBy("this")
+    private void refresh(long now)
+    {
+        Histogram interval = recorder.getIntervalHistogram();
+        allTimeHistogram.add(interval);
+
+        recentIntervals.addLast(new Interval(now, interval));
+        while (now - recentIntervals.peekFirst().getEndNanos() > WINDOW_NANOS) {
+            recentIntervals.removeFirst();
+        }
+        Histogram oneMinute = new Histogram(SIGNIFICANT_DIGITS);
+        for (Interval recentInterval : recentIntervals) {
+            oneMinute.add(recentInterval.getHistogram());
+        }
+        oneMinuteHistogram = oneMinute;
+        lastRefreshNanos = now;
+    }
+
+    public class Distribution
+    {
+        private final boolean recent;
+
+        private Distribution(boolean recent)
+        {
+            this.recent = recent;
+        }
+
+        @Managed
+        public long getCount()
+        {
+            synchronized (TimeHistogram.this) {
+                return getHistogram(recent).getTotalCount();
+            }
+        }
+
+        @Managed
+        public double getAvg()
+        {
+            synchronized (TimeHistogram.this) {
+                Histogram histogram = getHistogram(recent);
+                return histogram.getTotalCount() == 0 ? Double.NaN : convert(histogram.getMean());
+            }
+        }
+
+        @Managed
+        public double getMin()
+        {
+            synchronized (TimeHistogram.this) {
+                Histogram histogram = getHistogram(recent);
+                return histogram.getTotalCount() == 0 ? Double.NaN : convert(histogram.getMinValue());
+            }
+        }
+
+        @Managed
+        public double getMax()
+        {
+            synchronized (TimeHistogram.this) {
+                Histogram histogram = getHistogram(recent);
+                return histogram.getTotalCount() == 0 ? Double.NaN : convert(histogram.getMaxValue());
+            }
+        }
+
+        @Managed
+        public double getP50()
+        {
+            return getPercentile(50);
+        }
+
+        @Managed
+        public double getP90()
+        {
+            return getPercentile(90);
+        }
+
+        @Managed
+        public double getP99()
+        {
+            return getPercentile(99);
+        }
+
+        @Managed
+        public double getP999()
+        {
+            return getPercentile(99.9);
+        }
+
+        @Managed
+        public TimeUnit getUnit()
+        {
+            return unit;
+        }
+
+        public double getPercentile(double percentile)
+        {
+            synchronized (TimeHistogram.this) {
+                Histogram histogram = getHistogram(recent);
+                return histogram.getTotalCount() == 0 ? Double.NaN : convert(histogram.getValueAtPercentile(percentile));
+            }
+        }
+
+        private double convert(double nanos)
+        {
+            return nanos / NANOSECONDS.convert(1, unit);
+        }
+    }
+
+    private static class Interval
+    {
+        private final long endNanos;
+        private final Histogram histogram;
+
+        public Interval(long endNanos, Histogram histogram)
+        {
+            this.endNanos = endNanos;
+            this.histogram = histogram;
+        }
+
+        public long getEndNanos()
+        {
+            return endNanos;
+        }
+
+        public Histogram getHistogram()
+        {
+            return histogram;
+        }
+    }
+}
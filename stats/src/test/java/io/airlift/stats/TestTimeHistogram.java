@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats;
+
+import io.airlift.testing.TestingTicker;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+
+public class TestTimeHistogram
+{
+    @Test
+    public void testBasic()
+    {
+        TimeHistogram histogram = new TimeHistogram(new TestingTicker(), MILLISECONDS);
+        for (int i = 1; i <= 1000; i++) {
+            histogram.add(i, MILLISECONDS);
+        }
+        histogram.flush();
+
+        TimeHistogram.Distribution allTime = histogram.getAllTime();
+        assertEquals(allTime.getCount(), 1000);
+        assertEquals(allTime.getMin(), 1.0, 0.01);
+        assertEquals(allTime.getMax(), 1000.0, 10.0);
+        assertEquals(allTime.getAvg(), 500.5, 5.0);
+        assertEquals(allTime.getP50(), 500.0, 5.0);
+        assertEquals(allTime.getP90(), 900.0, 9.0);
+        assertEquals(allTime.getP99(), 990.0, 10.0);
+        assertEquals(allTime.getUnit(), MILLISECONDS);
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        TimeHistogram histogram = new TimeHistogram();
+        assertEquals(histogram.getAllTime().getCount(), 0);
+        assertEquals(histogram.getAllTime().getP50(), Double.NaN);
+        assertEquals(histogram.getAllTime().getMax(), Double.NaN);
+        assertEquals(histogram.getOneMinute().getAvg(), Double.NaN);
+    }
+
+    @Test
+    public void testOneMinuteWindow()
+    {
+        TestingTicker ticker = new TestingTicker();
+        TimeHistogram histogram = new TimeHistogram(ticker, SECONDS);
+
+        histogram.add(new Duration(1, SECONDS));
+        ticker.increment(1, SECONDS);
+        assertEquals(histogram.getOneMinute().getCount(), 1);
+
+        histogram.add(new Duration(2, SECONDS));
+        ticker.increment(30, SECONDS);
+        assertEquals(histogram.getOneMinute().getCount(), 2);
+
+        // the first value leaves the window, the second is still in it
+        ticker.increment(40, SECONDS);
+        assertEquals(histogram.getOneMinute().getCount(), 1);
+        assertEquals(histogram.getOneMinute().getMax(), 2.0, 0.02);
+
+        ticker.increment(61, SECONDS);
+        assertEquals(histogram.getOneMinute().getCount(), 0);
+        assertEquals(histogram.getAllTime().getCount(), 2);
+    }
+
+    @Test
+    public void testReadsAreRateLimited()
+    {
+        TestingTicker ticker = new TestingTicker();
+        TimeHistogram histogram = new TimeHistogram(ticker, SECONDS);
+
+        histogram.add(1, SECONDS);
+        assertEquals(histogram.getAllTime().getCount(), 0);
+        ticker.increment(1, SECONDS);
+        assertEquals(histogram.getAllTime().getCount(), 1);
+    }
+}